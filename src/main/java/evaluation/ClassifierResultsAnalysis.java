@@ -31,6 +31,7 @@ import statistics.tests.TwoSampleTests;
 import utilities.GenericTools;
 import utilities.InstanceTools;
 import utilities.StatisticalUtilities;
+import utilities.ThreadingUtilities;
 import utilities.generic_storage.Pair;
 import weka.clusterers.XMeans;
 import weka.core.Instances;
@@ -38,6 +39,8 @@ import weka.core.Instances;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.function.Function;
 
 
@@ -71,6 +74,12 @@ public class ClassifierResultsAnalysis {
     public static String expRootDirectory;
     public static boolean buildMatlabDiagrams = false;
     public static boolean testResultsOnly = false;
+    
+    /**
+     * Number of threads used for the pairwise significance tests performed for each metric, 
+     * see findPairwisePValues(...) and MultipleClassifiersPairwiseTest.numThreads
+     */
+    public static int numThreads = 1;
 
 
 
@@ -153,6 +162,7 @@ public class ClassifierResultsAnalysis {
         //hacky housekeeping
         MultipleClassifiersPairwiseTest.beQuiet = true;
         OneSampleTests.beQuiet = true;
+        MultipleClassifiersPairwiseTest.numThreads = numThreads;
 
         outPath = outPath.replace("\\", "/");
         if (!outPath.endsWith("/"))
@@ -367,8 +377,9 @@ public class ClassifierResultsAnalysis {
         longSummaryStats.append("StddevsOf"+splitMetricLabel+"RanksOverDsets:").append(util_stddev(ranks)).append("\n");
 
         String[] wdl =      eval_winsDrawsLosses(statPerDset, cnames, dsets);
-        String[] sig01wdl = eval_sigWinsDrawsLosses(0.01, statPerDset, statPerFold, cnames, dsets);
-        String[] sig05wdl = eval_sigWinsDrawsLosses(0.05, statPerDset, statPerFold, cnames, dsets);
+        double[][][] pvals = findPairwisePValues(statPerDset, statPerFold);
+        String[] sig01wdl = eval_sigWinsDrawsLossesFromPValues(0.01, statPerDset, pvals, cnames, dsets);
+        String[] sig05wdl = eval_sigWinsDrawsLossesFromPValues(0.05, statPerDset, pvals, cnames, dsets);
 
 
 
@@ -1394,7 +1405,51 @@ public class ClassifierResultsAnalysis {
         return new String[] { table.toString(), list.toString(), plusMinuses.toString() };
     }
 
+    /**
+     * Performs the t-test over folds between each ordered pair of classifiers on each dataset, returning 
+     * the p-values as [classifier1][classifier2][dataset]. Pairs with identical scores on a dataset are not 
+     * tested (p is left as NaN), see eval_sigWinsDrawsLosses. The tests are independent and are spread over 
+     * numThreads threads, one classifier1 row per job
+     */
+    protected static double[][][] findPairwisePValues(double[][] accs, double[][][] foldAccs) {
+        double[][][] pvals = new double[foldAccs.length][foldAccs.length][];
+        
+        List<Callable<Void>> jobs = new ArrayList<>(foldAccs.length);
+        for (int c1 = 0; c1 < foldAccs.length; c1++) {
+            final int fc1 = c1;
+            jobs.add(() -> {
+                for (int c2 = 0; c2 < foldAccs.length; c2++) {
+                    double[] p = new double[accs[fc1].length];
+                    for (int d = 0; d < p.length; d++) {
+                        if (accs[fc1][d] == accs[c2][d])
+                            p[d] = Double.NaN;
+                        else 
+                            p[d] = TwoSampleTests.studentT_PValue(foldAccs[fc1][d], foldAccs[c2][d]);
+                    }
+                    pvals[fc1][c2] = p;
+                }
+                return null;
+            });
+        }
+        
+        try {
+            ThreadingUtilities.computeAll(ThreadingUtilities.buildExecutorService(numThreads), jobs, true);
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Pairwise significance tests failed: " + e.getMessage(), e);
+        }
+        
+        return pvals;
+    }
+
     protected static String[] eval_sigWinsDrawsLosses(double pval, double[][] accs, double[][][] foldAccs, String[] cnames, String[] dsets) {
+        return eval_sigWinsDrawsLossesFromPValues(pval, accs, findPairwisePValues(accs, foldAccs), cnames, dsets);
+    }
+    
+    /**
+     * As eval_sigWinsDrawsLosses(pval, accs, foldAccs, ...), with the p-values already found by findPairwisePValues(...), 
+     * so that they can be reused over different significance levels
+     */
+    protected static String[] eval_sigWinsDrawsLossesFromPValues(double pval, double[][] accs, double[][][] pvals, String[] cnames, String[] dsets) {
         StringBuilder table = new StringBuilder();
         ArrayList<ArrayList<ArrayList<String>>> wdlList = new ArrayList<>(); //[classifierPairing][win/draw/loss][dsetNames]
         ArrayList<String> wdlListNames = new ArrayList<>();
@@ -1404,9 +1459,9 @@ public class ClassifierResultsAnalysis {
         table.append("p=" + pval + fileHelper_header(cnames)).append("\n");
 
         int count = 0;
-        for (int c1 = 0; c1 < foldAccs.length; c1++) {
+        for (int c1 = 0; c1 < pvals.length; c1++) {
             table.append(cnames[c1]);
-            for (int c2 = 0; c2 < foldAccs.length; c2++) {
+            for (int c2 = 0; c2 < pvals.length; c2++) {
                 wdlListNames.add(cnames[c1] + "_VS_" + cnames[c2]);
                 wdlList.add(new ArrayList<>());
                 wdlList.get(count).add(new ArrayList<>());
@@ -1425,7 +1480,7 @@ public class ClassifierResultsAnalysis {
                         continue;
                     }
 
-                    double p = TwoSampleTests.studentT_PValue(foldAccs[c1][d], foldAccs[c2][d]);
+                    double p = pvals[c1][c2][d];
 
                     if (p > pval) {
                         draws++;
@@ -129,6 +129,11 @@ public class MultipleClassifierEvaluation implements DebugPrinting {
      */
     private boolean ignoreMissingResults = false;
     
+    /**
+     * Number of threads used to read results and perform the pairwise tests, see setNumThreads
+     */
+    private int numThreads = 1;
+    
     
     /**
      * @param experimentName forms the analysis directory name, and the prefix to most files
@@ -201,7 +206,27 @@ public class MultipleClassifierEvaluation implements DebugPrinting {
         resultsCollection.setIgnoreMissingDistributions(ignoreMissingDistributions);
         return this;
     }
-    
+
+    /**
+     * the number of results files read in at once, and of pairwise significance tests performed at once 
+     * during the analysis, defaults to 1
+     */
+    public MultipleClassifierEvaluation setNumThreads(int numThreads) {
+        resultsCollection.enableMultiThreading(numThreads);
+        this.numThreads = numThreads;
+        return this;
+    }
+
+    /**
+     * if true, a compact binary copy of each results file read is kept alongside it, and read instead
+     * of the text file on later runs while that is unchanged, as judged by its length and checksum rather
+     * than modification time. See ClassifierResults.loadResultsFromFile(String, boolean)
+     */
+    public MultipleClassifierEvaluation setUseBinaryResultsCache(boolean useBinaryCache) {
+        resultsCollection.setUseBinaryCache(useBinaryCache);
+        return this;
+    }
+
     /**
      * if true, will perform xmeans clustering on the classifierXdataset results, to find data-driven datasetgroupings, as well
      * as any extra dataset groupings you've defined.
@@ -538,6 +563,7 @@ public class MultipleClassifierEvaluation implements DebugPrinting {
         
         ClassifierResultsAnalysis.buildMatlabDiagrams = buildMatlabDiagrams;
         ClassifierResultsAnalysis.testResultsOnly = testResultsOnly;
+        ClassifierResultsAnalysis.numThreads = numThreads;
         
         //ClassifierResultsAnalysis will find this flag internally as queue to do clustering
         if (performPostHocDsetResultsClustering) 
@@ -26,9 +26,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import statistics.tests.OneSampleTests;
 import statistics.tests.OneSampleTests;
 import statistics.tests.TwoSampleTests;
+import utilities.ThreadingUtilities;
 
 /**
  * Reads in a file of accuracies for k classifiers and generates a kxk matrix
@@ -47,6 +50,11 @@ import statistics.tests.TwoSampleTests;
 public class MultipleClassifiersPairwiseTest {
     public static boolean beQuiet = false;
     
+    /**
+     * Number of pairwise tests to run at once in findPVals
+     */
+    public static int numThreads = 1;
+    
     static double[][] accs; //ROW indicates classifier, for ease of processing
     static double[][] pValsTTest; //ROW indicates classifier, for ease of processing
     static double[][] pValsSignTest; //ROW indicates classifier, for ease of processing
@@ -92,15 +100,33 @@ public class MultipleClassifiersPairwiseTest {
         pValsTTest=new double[nosClassifiers][nosClassifiers];
         pValsSignTest=new double[nosClassifiers][nosClassifiers];
         pValsSignRankTest=new double[nosClassifiers][nosClassifiers];
-        OneSampleTests test=new OneSampleTests();
+        //each pair is independent, so the tests are run concurrently with a test object each, then 
+        //read back in pair order so that any printing is unchanged
+        List<Callable<String>> jobs=new ArrayList<>();
         for(int i=0;i<nosClassifiers;i++)
         {
             for(int j=i+1;j<nosClassifiers;j++){
+                final int c1=i, c2=j;
+                jobs.add(() -> {
 //Find differences
-                double[] diff=new double[accs[i].length];
-                for(int k=0;k<accs[i].length;k++)
-                    diff[k]=accs[i][k]-accs[j][k];
-                String str=test.performTests(diff);
+                    double[] diff=new double[accs[c1].length];
+                    for(int k=0;k<accs[c1].length;k++)
+                        diff[k]=accs[c1][k]-accs[c2][k];
+                    return new OneSampleTests().performTests(diff);
+                });
+            }
+        }
+        List<String> results;
+        try {
+            results=ThreadingUtilities.computeAll(ThreadingUtilities.buildExecutorService(numThreads), jobs, true);
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Pairwise tests failed: "+e.getMessage(), e);
+        }
+        int p=0;
+        for(int i=0;i<nosClassifiers;i++)
+        {
+            for(int j=i+1;j<nosClassifiers;j++){
+                String str=results.get(p++);
                 
                 if(!beQuiet)
                     System.out.println("TEST Classifier "+names[i]+" VS "+names[j]+ " returns string "+str);
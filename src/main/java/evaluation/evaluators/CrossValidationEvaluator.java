@@ -25,11 +25,11 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.Callable;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import weka.classifiers.Classifier;
 import weka.core.Instances;
+import utilities.ComputePool;
 
 /**
  * An evaluator that performs k-fold crossvalidation (default k=10) on the given s
@@ -130,7 +130,7 @@ public class CrossValidationEvaluator extends MultiSamplingEvaluator {
                 futureResultsPerFold.get(i).add(null);
         }
         if (multiThread)
-            executor = Executors.newFixedThreadPool(numThreads);
+            executor = ComputePool.newExecutor(numThreads);
         
         //for each fold as test
         for(int fold = 0; fold < numFolds; fold++){
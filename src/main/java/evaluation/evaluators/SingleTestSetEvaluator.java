@@ -21,6 +21,7 @@ import evaluation.storage.ClassifierResults;
 import java.util.concurrent.TimeUnit;
 import static utilities.GenericTools.indexOfMax;
 
+import tsml.classifiers.EnhancedAbstractClassifier;
 import tsml.classifiers.Interpretable;
 import weka.classifiers.Classifier;
 import weka.core.Instance;
@@ -67,18 +68,34 @@ public class SingleTestSetEvaluator extends Evaluator {
         res.setSplit("train"); //todo revisit, or leave with the assumption that calling method will set this to test when needed
 
         res.turnOffZeroTimingsErrors();
-        for (Instance testinst : insts) {
-            double trueClassVal = testinst.classValue();
+        if (classifier instanceof EnhancedAbstractClassifier && !vis) {
+            //predict the whole test set in one go, allowing the classifier to share work between instances
+            double[] trueClassVals = insts.attributeToDoubleArray(insts.classIndex());
             if (setClassMissing)
-                testinst.setClassMissing();
+                for (Instance testinst : insts)
+                    testinst.setClassMissing();
 
             long startTime = System.nanoTime();
-            double[] dist = classifier.distributionForInstance(testinst);
-            long predTime = System.nanoTime() - startTime;
+            double[][] dists = ((EnhancedAbstractClassifier) classifier).distributionForInstances(insts);
+            long predTime = (System.nanoTime() - startTime) / Math.max(1, insts.numInstances()); //averaged over the batch
 
-            if (vis) ((Interpretable)classifier).lastClassifiedInterpretability();
+            for (int i = 0; i < dists.length; i++)
+                res.addPrediction(trueClassVals[i], dists[i], indexOfMax(dists[i]), predTime, "");
+        }
+        else {
+            for (Instance testinst : insts) {
+                double trueClassVal = testinst.classValue();
+                if (setClassMissing)
+                    testinst.setClassMissing();
+
+                long startTime = System.nanoTime();
+                double[] dist = classifier.distributionForInstance(testinst);
+                long predTime = System.nanoTime() - startTime;
+
+                if (vis) ((Interpretable)classifier).lastClassifiedInterpretability();
 
-            res.addPrediction(trueClassVal, dist, indexOfMax(dist), predTime, ""); //todo indexOfMax does not break ties randomly.
+                res.addPrediction(trueClassVal, dist, indexOfMax(dist), predTime, ""); //todo indexOfMax does not break ties randomly.
+            }
         }
 
         res.turnOnZeroTimingsErrors();
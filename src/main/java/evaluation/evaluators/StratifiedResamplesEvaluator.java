@@ -23,11 +23,11 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.Callable;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import weka.classifiers.Classifier;
 import weka.core.Instances;
+import utilities.ComputePool;
 
 /**
  * An evaluator that performs k stratified random resamples (default k=30) of the given 
@@ -189,7 +189,7 @@ public class StratifiedResamplesEvaluator extends MultiSamplingEvaluator {
                 futureResultsPerFold.get(i).add(null);
         }
         if (multiThread)
-            executor = Executors.newFixedThreadPool(numThreads);
+            executor = ComputePool.newExecutor(numThreads);
         
         
         for (int classifierIndex = 0; classifierIndex < classifiers.length; ++classifierIndex) {
@@ -17,10 +17,24 @@
 package evaluation.storage;
 
 import fileIO.OutFile;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -28,6 +42,7 @@ import java.util.Random;
 import java.util.Scanner;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
+import java.util.zip.CRC32;
 
 import utilities.*;
 
@@ -267,12 +282,25 @@ public class ClassifierResults implements DebugPrinting, Serializable {
     private long buildPlusEstimateTime = -1;
 
 //REMAINDER OF THE FILE - 1 prediction per line
-    //raw performance data. currently just four parallel arrays
-    private ArrayList<Double> trueClassValues;
-    private ArrayList<Double> predClassValues;
-    private ArrayList<double[]> predDistributions;
-    private ArrayList<Long> predTimes;
-    private ArrayList<String> predDescriptions;
+    //raw performance data. parallel primitive columns, grown on demand. the first numPredictions
+    //entries of each are in use, apart from trueClassValues, which may be supplied later in one go
+    //(see finaliseResults(double[])) and so tracks its own count. all null after cleanPredictionInfo()
+    private double[] trueClassValues;
+    private double[] predClassValues;
+    private double[][] predDistributions;
+    private long[] predTimes;
+    private String[] predDescriptions;
+    private int numTrueClassValues;
+    private int numPredictions;
+    private static final int INITIAL_PREDICTION_CAPACITY = 16;
+
+    //the meta info lines of the file these results were loaded from, if any, kept for the binary cache
+    private transient String[] loadedHeaderLines;
+
+    public static final String BINARY_CACHE_EXTENSION = ".crbin";
+    private static final int BINARY_CACHE_MAGIC = 0x43524249; //"CRBI"
+    private static final int BINARY_CACHE_VERSION = 3;
+    private static final double MILLION = 1e6;
 
     //inferred/supplied dataset meta info
     private int numClasses;
@@ -459,11 +487,7 @@ public class ClassifierResults implements DebugPrinting, Serializable {
      * to infer the number of classes, some may be missing.
      */
     public ClassifierResults() {
-        trueClassValues= new ArrayList<>();
-        predClassValues = new ArrayList<>();
-        predDistributions = new ArrayList<>();
-        predTimes = new ArrayList<>();
-        predDescriptions = new ArrayList<>();
+        initPredictionStorage(INITIAL_PREDICTION_CAPACITY);
 
         finalised = false;
     }
@@ -479,11 +503,7 @@ public class ClassifierResults implements DebugPrinting, Serializable {
      * to infer the number of classes, some may be missing.
      */
     public ClassifierResults(int numClasses) {
-        trueClassValues= new ArrayList<>();
-        predClassValues = new ArrayList<>();
-        predDistributions = new ArrayList<>();
-        predTimes = new ArrayList<>();
-        predDescriptions = new ArrayList<>();
+        initPredictionStorage(INITIAL_PREDICTION_CAPACITY);
 
         this.numClasses = numClasses;
         finalised = false;
@@ -505,11 +525,7 @@ public class ClassifierResults implements DebugPrinting, Serializable {
      * All other arguments are required in full, however
      */
     public ClassifierResults(double[] trueClassVals, double[] predictions, double[][] distributions, long[] predTimes, String[] descriptions) throws Exception {
-        trueClassValues= new ArrayList<>();
-        predClassValues = new ArrayList<>();
-        predDistributions = new ArrayList<>();
-        this.predTimes = new ArrayList<>();
-        predDescriptions = new ArrayList<>();
+        initPredictionStorage(Math.max(trueClassVals.length, 1));
 
         addAllPredictions(trueClassVals, predictions, distributions, predTimes, descriptions);
         finaliseResults();
@@ -588,10 +604,10 @@ public class ClassifierResults implements DebugPrinting, Serializable {
         this.numClasses = numClasses;
     }
     private void inferNumClasses() {
-        if (predDistributions.isEmpty())
+        if (numPredictions == 0 || predDistributions[0] == null)
             this.numClasses = 0;
         else
-            this.numClasses = predDistributions.get(0).length;
+            this.numClasses = predDistributions[0].length;
     }
 
     public int numInstances() {
@@ -601,7 +617,7 @@ public class ClassifierResults implements DebugPrinting, Serializable {
     }
 
     private void inferNumInstances() {
-        this.numInstances = predClassValues.size();
+        this.numInstances = numPredictions;
     }
 
 
@@ -777,15 +793,15 @@ public class ClassifierResults implements DebugPrinting, Serializable {
         return acc<0 ? false: true;
     }
     private void calculateAcc() {
-        if (trueClassValues == null || trueClassValues.isEmpty() || trueClassValues.get(0) == -1) {
+        if (trueClassValues == null || numTrueClassValues == 0 || trueClassValues[0] == -1) {
             System.out.println("**getAcc():calculateAcc() no true class values supplied yet, cannot calculate accuracy");
             return;
         }
 
-        int size = predClassValues.size();
+        int size = numPredictions;
         double correct = .0;
         for (int i = 0; i < size; i++) {
-            if (predClassValues.get(i).equals(trueClassValues.get(i)))
+            if (Double.compare(predClassValues[i], trueClassValues[i]) == 0)
                 correct++;
         }
 
@@ -967,28 +983,23 @@ public class ClassifierResults implements DebugPrinting, Serializable {
      * method finaliseResults(double[] trueClassVals)
      */
     public void addPrediction(double[] dist, double predictedClass, long predictionTime, String description) throws RuntimeException {
-        predDistributions.add(dist);
-        predClassValues.add(predictedClass);
-
-        if (description == null)
-            predDescriptions.add("");
-        else
-            predDescriptions.add(description);
-
-
         if (errorOnTimingOfZero && predictionTime < 1)
             throw new RuntimeException("Prediction time passed has invalid value, " + predictionTime + ". If greater resolution is needed, "
                     + "use nano seconds (e.g System.nanoTime()) and set the TimeUnit of the classifierResults object to nanoseconds.\n\n"
                     + "If you are using nanoseconds but STILL getting this error, read the javadoc for and use turnOffZeroTimingsErrors() "
                     + "for this call");
-        else {
-            predTimes.add(predictionTime);
 
-            if (testTime == -1)
-                testTime = predictionTime;
-            else
-                testTime += predictionTime;
-        }
+        ensurePredictionCapacity(numPredictions + 1);
+        predDistributions[numPredictions] = dist;
+        predClassValues[numPredictions] = predictedClass;
+        predDescriptions[numPredictions] = description == null ? "" : description;
+        predTimes[numPredictions] = predictionTime;
+        numPredictions++;
+
+        if (testTime == -1)
+            testTime = predictionTime;
+        else
+            testTime += predictionTime;
 
         numInstances++;
     }
@@ -1004,7 +1015,8 @@ public class ClassifierResults implements DebugPrinting, Serializable {
      */
     public void addPrediction(double trueClassVal, double[] dist, double predictedClass, long predictionTime, String description) throws RuntimeException {
         addPrediction(dist,predictedClass,predictionTime,description);
-        trueClassValues.add(trueClassVal);
+        ensureTrueClassCapacity(numTrueClassValues + 1);
+        trueClassValues[numTrueClassValues++] = trueClassVal;
     }
 
 
@@ -1071,13 +1083,12 @@ public class ClassifierResults implements DebugPrinting, Serializable {
             return;
         }
 
-        if (testClassVals.length != predClassValues.size())
+        if (testClassVals.length != numPredictions)
             throw new Exception("finaliseTestResults(double[] testClassVals): Number of predictions "
                     + "made and number of true class values passed do not match");
 
-        trueClassValues = new ArrayList<>();
-        for(double d:testClassVals)
-            trueClassValues.add(d);
+        trueClassValues = Arrays.copyOf(testClassVals, testClassVals.length);
+        numTrueClassValues = testClassVals.length;
 
         finaliseResults();
     }
@@ -1104,25 +1115,23 @@ public class ClassifierResults implements DebugPrinting, Serializable {
 
         //todo extra verification
 
-        if (predDistributions == null || predClassValues == null ||
-                predDistributions.isEmpty() || predClassValues.isEmpty())
+        if (predDistributions == null || predClassValues == null || numPredictions == 0)
             throw new Exception("finaliseTestResults(): no predictions stored for this module");
 
         double correct = .0;
-        for (int inst = 0; inst < predClassValues.size(); inst++)
-            if (trueClassValues.get(inst).equals(predClassValues.get(inst)))
+        for (int inst = 0; inst < numPredictions; inst++)
+            if (Double.compare(trueClassValues[inst], predClassValues[inst]) == 0)
                 ++correct;
 
-        acc = correct/trueClassValues.size();
+        acc = correct/numTrueClassValues;
 
         finalised = true;
     }
 
     public boolean hasProbabilityDistributionInformation() {
         return predDistributions != null &&
-                !predDistributions.isEmpty() &&
-                predDistributions.size() == predClassValues.size() &&
-                predDistributions.get(0) != null;
+                numPredictions > 0 &&
+                predDistributions[0] != null;
     }
 
     /**
@@ -1157,15 +1166,17 @@ public class ClassifierResults implements DebugPrinting, Serializable {
         if (this.hasProbabilityDistributionInformation())
             return false;
 
+        //any stats already found did not account for the distributions about to be added
+        allStatsFound = false;
+
         if (this.numClasses <= 0)
             //ayyyy java8 being used for something
-            numClasses = (int) trueClassValues.stream().distinct().count();
+            numClasses = (int) Arrays.stream(trueClassValues, 0, numTrueClassValues).distinct().count();
 
-        predDistributions = new ArrayList<>(predClassValues.size());
-        for (double d : predClassValues) {
+        for (int i = 0; i < numPredictions; i++) {
             double[] dist = new double[numClasses];
-            dist[(int)d] = 1;
-            predDistributions.add(dist);
+            dist[(int)predClassValues[i]] = 1;
+            predDistributions[i] = dist;
         }
 
         return true;
@@ -1180,91 +1191,112 @@ public class ClassifierResults implements DebugPrinting, Serializable {
     */
 
     /**
-     *
+     * Returns a copy of the stored true class values, or null if the prediction info has been cleaned.
+     * Prefer the *AsArray or indexed getters where possible, the values are not stored boxed internally
      */
     public ArrayList<Double> getTrueClassVals() {
-        return trueClassValues;
+        if (trueClassValues == null)
+            return null;
+        ArrayList<Double> l = new ArrayList<>(numTrueClassValues);
+        for (int i = 0; i < numTrueClassValues; i++)
+            l.add(trueClassValues[i]);
+        return l;
     }
 
     public double[] getTrueClassValsAsArray(){
-        double[] d=new double[trueClassValues.size()];
-        int i=0;
-        for(double x:trueClassValues)
-            d[i++]=x;
-        return d;
+        return Arrays.copyOf(trueClassValues, numTrueClassValues);
     }
 
     public double getTrueClassValue(int index){
-        return trueClassValues.get(index);
+        checkTrueClassIndex(index);
+        return trueClassValues[index];
     }
 
 
+    /**
+     * Returns a copy of the stored predicted class values, or null if the prediction info has been cleaned.
+     */
     public ArrayList<Double> getPredClassVals(){
-        return predClassValues;
+        if (predClassValues == null)
+            return null;
+        ArrayList<Double> l = new ArrayList<>(numPredictions);
+        for (int i = 0; i < numPredictions; i++)
+            l.add(predClassValues[i]);
+        return l;
     }
 
     public double[] getPredClassValsAsArray(){
-        double[] d=new double[predClassValues.size()];
-        int i=0;
-        for(double x:predClassValues)
-            d[i++]=x;
-        return d;
+        return Arrays.copyOf(predClassValues, numPredictions);
     }
 
     public double getPredClassValue(int index){
-        return predClassValues.get(index);
+        checkPredictionIndex(index);
+        return predClassValues[index];
     }
 
 
+    /**
+     * Returns a new list holding the stored distributions (the rows themselves are not copied),
+     * or null if the prediction info has been cleaned.
+     */
     public ArrayList<double[]> getProbabilityDistributions() {
-        return predDistributions;
+        if (predDistributions == null)
+            return null;
+        return new ArrayList<>(Arrays.asList(predDistributions).subList(0, numPredictions));
     }
 
     public double[][] getProbabilityDistributionsAsArray() {
-        return predDistributions.toArray(new double[][] {});
+        return Arrays.copyOf(predDistributions, numPredictions);
     }
 
     public double[] getProbabilityDistribution(int i){
-       if(i<predDistributions.size())
-            return predDistributions.get(i);
+       if(i<numPredictions)
+            return predDistributions[i];
        return null;
     }
 
 
+    /**
+     * Returns a copy of the stored prediction times, or null if the prediction info has been cleaned.
+     */
     public ArrayList<Long> getPredictionTimes() {
-        return predTimes;
+        if (predTimes == null)
+            return null;
+        ArrayList<Long> l = new ArrayList<>(numPredictions);
+        for (int i = 0; i < numPredictions; i++)
+            l.add(predTimes[i]);
+        return l;
     }
 
     public long[] getPredictionTimesAsArray() {
-        long[] l=new long[predTimes.size()];
-        int i=0;
-        for(long x:predTimes)
-            l[i++]=x;
-        return l;
+        return Arrays.copyOf(predTimes, numPredictions);
     }
 
     public long getPredictionTime(int index) {
-        return predTimes.get(index);
+        checkPredictionIndex(index);
+        return predTimes[index];
     }
 
     public long getPredictionTimeInNanos(int index) {
         return timeUnit.toNanos(getPredictionTime(index));
     }
 
+    /**
+     * Returns a copy of the stored prediction descriptions, or null if the prediction info has been cleaned.
+     */
     public ArrayList<String> getPredDescriptions() {
-        return predDescriptions;
+        if (predDescriptions == null)
+            return null;
+        return new ArrayList<>(Arrays.asList(predDescriptions).subList(0, numPredictions));
     }
 
     public String[] getPredDescriptionsAsArray() {
-        String[] ds=new String[predDescriptions.size()];
-        int i=0;
-        for(String d:predDescriptions)
-            ds[i++]=d;
-        return ds;
+        return Arrays.copyOf(predDescriptions, numPredictions);
     }
 
     public String getPredDescription(int index) {
-        return predDescriptions.get(index);
+        checkPredictionIndex(index);
+        return predDescriptions[index];
     }
 
     public void cleanPredictionInfo() {
@@ -1273,6 +1305,43 @@ public class ClassifierResults implements DebugPrinting, Serializable {
         trueClassValues = null;
         predTimes = null;
         predDescriptions = null;
+        numPredictions = 0;
+        numTrueClassValues = 0;
+    }
+
+    private void initPredictionStorage(int capacity) {
+        trueClassValues = new double[capacity];
+        predClassValues = new double[capacity];
+        predDistributions = new double[capacity][];
+        predTimes = new long[capacity];
+        predDescriptions = new String[capacity];
+        numPredictions = 0;
+        numTrueClassValues = 0;
+    }
+
+    private void ensurePredictionCapacity(int capacity) {
+        if (capacity <= predClassValues.length)
+            return;
+        int newCapacity = Math.max(capacity, predClassValues.length + (predClassValues.length >> 1) + 1);
+        predClassValues = Arrays.copyOf(predClassValues, newCapacity);
+        predDistributions = Arrays.copyOf(predDistributions, newCapacity);
+        predTimes = Arrays.copyOf(predTimes, newCapacity);
+        predDescriptions = Arrays.copyOf(predDescriptions, newCapacity);
+    }
+
+    private void ensureTrueClassCapacity(int capacity) {
+        if (capacity > trueClassValues.length)
+            trueClassValues = Arrays.copyOf(trueClassValues, Math.max(capacity, trueClassValues.length + (trueClassValues.length >> 1) + 1));
+    }
+
+    private void checkPredictionIndex(int index) {
+        if (index < 0 || index >= numPredictions)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + numPredictions);
+    }
+
+    private void checkTrueClassIndex(int index) {
+        if (index < 0 || index >= numTrueClassValues)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + numTrueClassValues);
     }
 
 
@@ -1305,13 +1374,27 @@ public class ClassifierResults implements DebugPrinting, Serializable {
      * [true],[pred], ,[dist[0]],...,[dist[c]], ,[predTime], ,[description until end of line, may have commas in it]
      */
     private boolean instancePredictionFromString(String predLine) throws Exception {
-        String[] split=predLine.split(",");
+        //fields are located by offset rather than with split(","), to avoid a String per field. as with
+        //split, trailing empty fields are ignored
+        int end = predLine.length();
+        while (end > 0 && predLine.charAt(end - 1) == ',')
+            end--;
+
+        int numFields = 1;
+        for (int i = 0; i < end; i++)
+            if (predLine.charAt(i) == ',')
+                numFields++;
+        int[] fieldStarts = new int[numFields + 1]; //field i spans [fieldStarts[i], fieldStarts[i+1]-1)
+        for (int i = 0, field = 1; i < end; i++)
+            if (predLine.charAt(i) == ',')
+                fieldStarts[field++] = i + 1;
+        fieldStarts[numFields] = end + 1;
 
         //collect actual/predicted class
-        double trueClassVal=Double.valueOf(split[0].trim());
-        double predClassVal=Double.valueOf(split[1].trim());
+        double trueClassVal=parseDoubleField(predLine, fieldStarts, 0);
+        double predClassVal=parseDoubleField(predLine, fieldStarts, 1);
 
-        if(split.length<3) { //no probabilities, no timing. VERY old files will not have them
+        if(numFields<3) { //no probabilities, no timing. VERY old files will not have them
             if (printDistMissingWarning && firstTimeDistMissing) {
                 System.out.println("*********");
                 System.out.println("");
@@ -1332,20 +1415,16 @@ public class ClassifierResults implements DebugPrinting, Serializable {
         final int distStartInd = 3; //actual, predicted, space, distStart
         double[] dist = null;
         if (numClasses < 2) {
-            List<Double> distL = new ArrayList<>();
-            for(int i = distStartInd; i < split.length; i++) {
-                if (split[i].equals(""))
-                    break; //we're at the empty-space-separator between probs and timing
-                else
-                    distL.add(Double.valueOf(split[i].trim()));
-            }
+            int distEndInd = distStartInd;
+            while (distEndInd < numFields && fieldStarts[distEndInd + 1] - 1 > fieldStarts[distEndInd])
+                distEndInd++; //stops at the empty-space-separator between probs and timing
 
-            numClasses = distL.size();
+            numClasses = distEndInd - distStartInd;
             assert(numClasses >= 2);
 
             dist = new double[numClasses];
             for (int i = 0; i < numClasses; i++)
-                dist[i] = distL.get(i);
+                dist[i] = parseDoubleField(predLine, fieldStarts, i+distStartInd);
         }
         else {
             //we know how many classes there should be, use this as implicit
@@ -1353,27 +1432,26 @@ public class ClassifierResults implements DebugPrinting, Serializable {
             dist = new double[numClasses];
             for (int i = 0; i < numClasses; i++) {
                 //now need to offset by 3.
-                dist[i] = Double.valueOf(split[i+distStartInd].trim());
+                if (i+distStartInd >= numFields)
+                    throw new ArrayIndexOutOfBoundsException("Expected " + numClasses + " probabilities in prediction line: " + predLine);
+                dist[i] = parseDoubleField(predLine, fieldStarts, i+distStartInd);
             }
         }
 
         //collect timings
         long predTime = -1;
         final int timingInd = distStartInd + (numClasses-1) + 1 + 1; //actual, predicted, space, dist, space, timing
-        if (split.length > timingInd)
-            predTime = Long.parseLong(split[timingInd].trim());
+        if (numFields > timingInd)
+            predTime = Long.parseLong(predLine.substring(fieldStarts[timingInd], fieldStarts[timingInd+1]-1).trim());
 
         //collect description
         String description = "";
         final int descriptionInd = timingInd + 1 + 1; //actual, predicted, space, dist, space, timing, space, description
-        if (split.length > descriptionInd) {
-            description = split[descriptionInd];
-
+        if (numFields > descriptionInd) {
             //no reason currently why the description passed cannot have commas in it,
             //might be a natural way to separate it in to different parts.
             //description reall just fills up the remainder of the line.
-            for (int i = descriptionInd+1; i < split.length; i++)
-                description += "," + split[i];
+            description = predLine.substring(fieldStarts[descriptionInd], end);
         }
 
 
@@ -1381,12 +1459,17 @@ public class ClassifierResults implements DebugPrinting, Serializable {
         return trueClassVal==predClassVal;
     }
 
-    private void instancePredictionsFromScanner(Scanner in) throws Exception {
+    private static double parseDoubleField(String line, int[] fieldStarts, int field) {
+        //parseDouble ignores leading and trailing whitespace itself
+        return Double.parseDouble(line.substring(fieldStarts[field], fieldStarts[field+1]-1));
+    }
+
+    private void instancePredictionsFromReader(BufferedReader in) throws Exception {
         double correct = 0;
-        while (in.hasNext()) {
-            String line = in.nextLine();
+        String line;
+        while ((line = in.readLine()) != null) {
             //may be trailing empty lines at the end of the file
-            if (line == null || line.equals(""))
+            if (line.trim().isEmpty())
                 break;
 
             if (instancePredictionFromString(line))
@@ -1402,20 +1485,20 @@ public class ClassifierResults implements DebugPrinting, Serializable {
     private String instancePredictionToString(int i) {
         StringBuilder sb = new StringBuilder();
 
-        sb.append(trueClassValues.get(i).intValue()).append(",");
-        sb.append(predClassValues.get(i).intValue());
+        sb.append((int) trueClassValues[i]).append(",");
+        sb.append((int) predClassValues[i]);
 
         //probs
         sb.append(","); //<empty space>
-        double[] probs=predDistributions.get(i);
+        double[] probs=predDistributions[i];
         for(double d:probs)
             sb.append(",").append(GenericTools.RESULTS_DECIMAL_FORMAT.format(d));
 
         //timing
-        sb.append(",,").append(predTimes.get(i)); //<empty space>, timing
+        sb.append(",,").append(predTimes[i]); //<empty space>, timing
 
         //description
-        sb.append(",,").append(predDescriptions.get(i)); //<empty space>, description
+        sb.append(",,").append(predDescriptions[i]); //<empty space>, description
 
         return sb.toString();
     }
@@ -1424,10 +1507,10 @@ public class ClassifierResults implements DebugPrinting, Serializable {
 
         //todo extra verification
 
-        if (trueClassValues == null || trueClassValues.size() == 0 || trueClassValues.get(0) == -1)
+        if (trueClassValues == null || numTrueClassValues == 0 || trueClassValues[0] == -1)
             throw new Exception("No true class value stored, call finaliseResults(double[] trueClassVal)");
 
-        if(numInstances()>0 &&(predDistributions.size()==trueClassValues.size()&& predDistributions.size()==predClassValues.size())){
+        if(numInstances()>0 && numTrueClassValues==numPredictions){
             StringBuilder sb=new StringBuilder("");
 
             for(int i=0;i<numInstances();i++){
@@ -1676,59 +1759,50 @@ public class ClassifierResults implements DebugPrinting, Serializable {
 
         try {
             //init
-            trueClassValues = new ArrayList<>();
-            predClassValues = new ArrayList<>();
-            predDistributions = new ArrayList<>();
-            predTimes = new ArrayList<>();
-            predDescriptions = new ArrayList<>();
-            numInstances = 0;
-            acc = -1;
-            buildTime = -1;
-            testTime = -1;
-            memoryUsage = -1;
+            initLoadState();
 
             //check file exists
             File f = new File(path);
             if (!(f.exists() && f.length() > 0))
                 throw new FileNotFoundException("File " + path + " NOT FOUND");
 
-            Scanner inf = new Scanner(f);
-
-            //parse meta infos
-            parseFirstLine(inf.nextLine());
-            parseSecondLine(inf.nextLine());
-            double reportedTestAcc = parseThirdLine(inf.nextLine());
-
-            //fileType was read in from first line.
-            switch (fileType) {
-                case PREDICTIONS: {
-                    //have all meta info, start reading predictions or metrics
-                    instancePredictionsFromScanner(inf);
-
-                    //acts as a basic form of verification, does the acc reported on line 3 align with
-                    //the acc calculated while reading predictions
-                    double eps = 1.e-8;
-                    if (Math.abs(reportedTestAcc - acc) > eps) {
-                        throw new ArithmeticException("Calculated accuracy (" + acc + ") differs from written accuracy (" + reportedTestAcc + ") "
-                                + "by more than eps (" + eps + "). File = " + path + ". numinstances = " + numInstances + ". numClasses = " + numClasses);
-                    }
-
-                    if (predDistributions == null || predDistributions.isEmpty() || predDistributions.get(0) == null) {
-                        if (printDistMissingWarning)
-                            System.out.println("Probability distributions missing from file: " + path);
+            try (BufferedReader inf = new BufferedReader(new FileReader(f))) {
+                //parse meta infos
+                loadedHeaderLines = new String[] { nextLine(inf), nextLine(inf), nextLine(inf) };
+                parseFirstLine(loadedHeaderLines[0]);
+                parseSecondLine(loadedHeaderLines[1]);
+                double reportedTestAcc = parseThirdLine(loadedHeaderLines[2]);
+
+                //fileType was read in from first line.
+                switch (fileType) {
+                    case PREDICTIONS: {
+                        //have all meta info, start reading predictions or metrics
+                        instancePredictionsFromReader(inf);
+
+                        //acts as a basic form of verification, does the acc reported on line 3 align with
+                        //the acc calculated while reading predictions
+                        double eps = 1.e-8;
+                        if (Math.abs(reportedTestAcc - acc) > eps) {
+                            throw new ArithmeticException("Calculated accuracy (" + acc + ") differs from written accuracy (" + reportedTestAcc + ") "
+                                    + "by more than eps (" + eps + "). File = " + path + ". numinstances = " + numInstances + ". numClasses = " + numClasses);
+                        }
+
+                        if (!hasProbabilityDistributionInformation()) {
+                            if (printDistMissingWarning)
+                                System.out.println("Probability distributions missing from file: " + path);
+                        }
+
+                        break;
                     }
-
-                    break;
+                    case METRICS:
+                        allPerformanceMetricsFromScanner(new Scanner(inf));
+                        break;
+                    case COMPACT:
+                        throw new UnsupportedOperationException("COMPACT file reading not yet supported");
                 }
-                case METRICS:
-                    allPerformanceMetricsFromScanner(inf);
-                    break;
-                case COMPACT:
-                    throw new UnsupportedOperationException("COMPACT file reading not yet supported");
             }
 
             finalised = true;
-            inf.close();
         }
         catch (FileNotFoundException fnf) {
             if (printOnFailureToLoad)
@@ -1742,6 +1816,303 @@ public class ClassifierResults implements DebugPrinting, Serializable {
         }
     }
 
+    /**
+     * As loadResultsFromFile(path), but if useBinaryCache is true a binary copy of the results is kept
+     * alongside the file, e.g. testFold0.crbin next to testFold0.csv. Later loads of the same, unchanged,
+     * file read the binary copy instead, which involves no text parsing. The copy records the length and
+     * CRC32 checksum of the file it was made from, and is ignored (and rewritten) if either differs. The
+     * file is therefore still read in full on every load, but not parsed, and a change to its contents is
+     * noticed whatever its modification time, e.g. when rewritten within the file system's timestamp
+     * resolution, or copied with its timestamp preserved.
+     *
+     * The performance metrics are memoised in the copy too. When the predictions include probability
+     * distributions, findAllStats() is called as part of a load from text and its results are stored
+     * along with the predictions, so that loads from the copy find all stats already done and
+     * findAllStatsOnce() has nothing to do.
+     *
+     * Only PREDICTIONS files are cached. Failing to write the copy, e.g. in a read-only results
+     * directory, is not an error, the results are simply loaded from text again next time.
+     */
+    public void loadResultsFromFile(String path, boolean useBinaryCache) throws FileNotFoundException, Exception {
+        File f = new File(path);
+        if (!useBinaryCache || !(f.exists() && f.length() > 0)) {
+            loadResultsFromFile(path);
+            return;
+        }
+
+        //taken before the text is parsed, so that if the file changes in the meantime the cache written from
+        //it does not match and is remade next time
+        long length = f.length();
+        long checksum = checksum(f);
+
+        File cache = binaryCacheFileFor(f);
+        if (cache.exists()) {
+            try {
+                if (loadResultsFromBinaryCache(cache, f, length, checksum))
+                    return;
+            } catch (IOException | RuntimeException ex) {
+                printlnDebug("Ignoring unreadable binary results cache " + cache + ": " + ex);
+            }
+        }
+
+        loadResultsFromFile(path);
+        if (fileType == FileType.PREDICTIONS) {
+            //files without distributions may yet have them filled in by populateMissingDists(), so their stats
+            //are left to the caller as usual
+            if (hasProbabilityDistributionInformation())
+                findAllStats();
+            try {
+                writeBinaryCache(cache, length, checksum);
+            } catch (IOException ex) {
+                printlnDebug("Could not write binary results cache " + cache + ": " + ex);
+            }
+        }
+    }
+
+    /**
+     * @return the file that loadResultsFromFile(path, true) keeps the binary copy of resultsFile in
+     */
+    public static File binaryCacheFileFor(File resultsFile) {
+        String name = resultsFile.getName();
+        int dot = name.lastIndexOf('.');
+        if (dot > 0)
+            name = name.substring(0, dot);
+        return new File(resultsFile.getParentFile(), name + BINARY_CACHE_EXTENSION);
+    }
+
+    private static long checksum(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[1 << 16];
+        try (InputStream in = new FileInputStream(file)) {
+            for (int read; (read = in.read(buffer)) > 0; )
+                crc.update(buffer, 0, read);
+        }
+        return crc.getValue();
+    }
+
+    private void initLoadState() {
+        initPredictionStorage(INITIAL_PREDICTION_CAPACITY);
+        numInstances = 0;
+        acc = -1;
+        buildTime = -1;
+        testTime = -1;
+        memoryUsage = -1;
+        allStatsFound = false;
+    }
+
+    private static String nextLine(BufferedReader in) throws IOException {
+        String line = in.readLine();
+        if (line == null)
+            throw new NoSuchElementException("No line found");
+        return line;
+    }
+
+    /**
+     * The binary cache format, big-endian and column-wise:
+     *      int magic, int version, long length and long CRC32 checksum of the results file
+     *      the three meta info lines of the results file, as strings (int byte length then UTF-8)
+     *      int numClasses, int number of predictions n
+     *      byte, 1 if all class values are whole numbers, then the n true and n predicted class
+     *          values, as ints if so and doubles if not
+     *      n prediction times as longs
+     *      int distribution length, or -1 if not the same for all predictions, in which case each
+     *          distribution is preceded by its own length (-1 for none). byte, 1 if all probabilities
+     *          are exactly some number of millionths (as when read from a file written to six decimal
+     *          places), then the distributions, as ints counting millionths if so and doubles if not
+     *      n descriptions, as strings
+     *      byte, 1 if all stats had been found, in which case: numInstances, then acc, balancedAcc,
+     *          sensitivity, specificity, precision, recall, f1, mcc, nll and meanAUROC as doubles,
+     *          medianPredTime, then numClasses counts per class and the numClasses*numClasses
+     *          confusion matrix
+     *
+     * The meta info is kept as text and parsed as for the file itself, as it is small and gets
+     * extended more often than the predictions.
+     */
+    private void writeBinaryCache(File cache, long length, long checksum) throws IOException {
+        int n = numPredictions;
+        boolean wholeClassValues = true;
+        for (int i = 0; i < n && wholeClassValues; i++)
+            wholeClassValues = trueClassValues[i] == (int) trueClassValues[i] && predClassValues[i] == (int) predClassValues[i];
+        int distLength = n > 0 && predDistributions[0] != null ? predDistributions[0].length : -1;
+        for (int i = 0; i < n && distLength >= 0; i++)
+            if (predDistributions[i] == null || predDistributions[i].length != distLength)
+                distLength = -1;
+        //division by 1e6 is correctly rounded, as is parsing, so a six decimal place probability read from
+        //text comes back bit for bit from its count of millionths. checked rather than assumed
+        boolean millionths = true;
+        for (int i = 0; i < n && millionths; i++) {
+            if (predDistributions[i] != null) {
+                for (double d : predDistributions[i]) {
+                    if (!(Math.abs(d) <= 1.0) || Math.rint(d * MILLION) / MILLION != d) {
+                        millionths = false;
+                        break;
+                    }
+                }
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + n * (24 + 8 * Math.max(numClasses, 0)));
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(BINARY_CACHE_MAGIC);
+            out.writeInt(BINARY_CACHE_VERSION);
+            out.writeLong(length);
+            out.writeLong(checksum);
+            for (String line : loadedHeaderLines)
+                writeString(out, line);
+            out.writeInt(numClasses);
+            out.writeInt(n);
+
+            out.writeBoolean(wholeClassValues);
+            for (double[] column : new double[][] { trueClassValues, predClassValues }) {
+                for (int i = 0; i < n; i++) {
+                    if (wholeClassValues)
+                        out.writeInt((int) column[i]);
+                    else
+                        out.writeDouble(column[i]);
+                }
+            }
+            for (int i = 0; i < n; i++)
+                out.writeLong(predTimes[i]);
+
+            out.writeInt(distLength);
+            out.writeBoolean(millionths);
+            for (int i = 0; i < n; i++) {
+                double[] dist = predDistributions[i];
+                if (distLength < 0)
+                    out.writeInt(dist == null ? -1 : dist.length);
+                if (dist != null) {
+                    for (double d : dist) {
+                        if (millionths)
+                            out.writeInt((int) Math.rint(d * MILLION));
+                        else
+                            out.writeDouble(d);
+                    }
+                }
+            }
+
+            for (int i = 0; i < n; i++)
+                writeString(out, predDescriptions[i]);
+
+            out.writeBoolean(allStatsFound);
+            if (allStatsFound) {
+                out.writeInt(numInstances);
+                for (double stat : new double[] { acc, balancedAcc, sensitivity, specificity, precision, recall, f1, mcc, nll, meanAUROC })
+                    out.writeDouble(stat);
+                out.writeLong(medianPredTime);
+                for (int i = 0; i < numClasses; i++)
+                    out.writeDouble(countPerClass[i]);
+                for (int i = 0; i < numClasses; i++)
+                    for (int j = 0; j < numClasses; j++)
+                        out.writeDouble(confusionMatrix[i][j]);
+            }
+        }
+
+        //written under a temporary name and moved into place, so concurrent loads never see a partial file
+        Path temp = cache.toPath().resolveSibling(cache.getName() + "." + Long.toHexString(System.nanoTime()) + "." + Thread.currentThread().getId() + ".tmp");
+        try {
+            Files.write(temp, bytes.toByteArray(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            Files.move(temp, cache.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * @return false if the cache was not made from a results file of this length and checksum, in which case this
+     * object is left untouched
+     */
+    private boolean loadResultsFromBinaryCache(File cache, File resultsFile, long resultsLength, long resultsChecksum) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(cache.toPath()));
+        if (in.remaining() < 24 || in.getInt() != BINARY_CACHE_MAGIC || in.getInt() != BINARY_CACHE_VERSION
+                || in.getLong() != resultsLength || in.getLong() != resultsChecksum)
+            return false;
+
+        initLoadState();
+        loadedHeaderLines = new String[] { readString(in), readString(in), readString(in) };
+        parseFirstLine(loadedHeaderLines[0]);
+        parseSecondLine(loadedHeaderLines[1]);
+        parseThirdLine(loadedHeaderLines[2]);
+        numClasses = in.getInt();
+
+        int n = in.getInt();
+        boolean wholeClassValues = in.get() != 0;
+        double[] trueClassVals = new double[n];
+        double[] predClassVals = new double[n];
+        for (double[] column : new double[][] { trueClassVals, predClassVals }) {
+            for (int i = 0; i < n; i++)
+                column[i] = wholeClassValues ? in.getInt() : in.getDouble();
+        }
+        long[] times = new long[n];
+        in.asLongBuffer().get(times);
+        in.position(in.position() + n * Long.BYTES);
+
+        int distLength = in.getInt();
+        boolean millionths = in.get() != 0;
+        double[][] dists = new double[n][];
+        for (int i = 0; i < n; i++) {
+            int length = distLength < 0 ? in.getInt() : distLength;
+            if (length >= 0) {
+                double[] dist = new double[length];
+                for (int j = 0; j < length; j++)
+                    dist[j] = millionths ? in.getInt() / MILLION : in.getDouble();
+                dists[i] = dist;
+            }
+        }
+
+        //added one by one as when read from text, so that test time etc are found in the same way
+        initPredictionStorage(Math.max(n, 1));
+        double correct = 0;
+        for (int i = 0; i < n; i++) {
+            addPrediction(trueClassVals[i], dists[i], predClassVals[i], times[i], readString(in));
+            if (trueClassVals[i] == predClassVals[i])
+                correct++;
+        }
+        acc = correct / numInstances;
+
+        if (in.get() != 0) {
+            numInstances = in.getInt();
+            acc = in.getDouble();
+            balancedAcc = in.getDouble();
+            sensitivity = in.getDouble();
+            specificity = in.getDouble();
+            precision = in.getDouble();
+            recall = in.getDouble();
+            f1 = in.getDouble();
+            mcc = in.getDouble();
+            nll = in.getDouble();
+            meanAUROC = in.getDouble();
+            medianPredTime = in.getLong();
+            countPerClass = new double[numClasses];
+            for (int i = 0; i < numClasses; i++)
+                countPerClass[i] = in.getDouble();
+            confusionMatrix = new double[numClasses][numClasses];
+            for (int i = 0; i < numClasses; i++)
+                for (int j = 0; j < numClasses; j++)
+                    confusionMatrix[i][j] = in.getDouble();
+            allStatsFound = true;
+        }
+
+        if (!hasProbabilityDistributionInformation() && printDistMissingWarning)
+            System.out.println("Probability distributions missing from file: " + resultsFile);
+
+        finalised = true;
+        return true;
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] b = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        String string = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return string;
+    }
+
 
 
 
@@ -1780,8 +2151,8 @@ public class ClassifierResults implements DebugPrinting, Serializable {
         confusionMatrix=buildConfusionMatrix();
 
         countPerClass=new double[confusionMatrix.length];
-        for(int i=0;i<trueClassValues.size();i++)
-            countPerClass[trueClassValues.get(i).intValue()]++;
+        for(int i=0;i<numTrueClassValues;i++)
+            countPerClass[(int) trueClassValues[i]]++;
 
         if (acc < 0)
             calculateAcc();
@@ -1791,7 +2162,7 @@ public class ClassifierResults implements DebugPrinting, Serializable {
         f1=findF1(confusionMatrix); //also handles spec/sens/prec/recall in the process of finding f1
 
         //need probabilities. very old files that have been read in may not have them.
-        if (predDistributions != null && !predDistributions.isEmpty() && predDistributions.get(0) != null ) {
+        if (hasProbabilityDistributionInformation()) {
             nll=findNLL();
             meanAUROC=findMeanAUROC();
         }
@@ -1831,9 +2202,9 @@ public class ClassifierResults implements DebugPrinting, Serializable {
     */
     private double[][] buildConfusionMatrix() {
         double[][] matrix = new double[numClasses][numClasses];
-        for (int i = 0; i < predClassValues.size(); ++i){
-            double actual=trueClassValues.get(i);
-            double predicted=predClassValues.get(i);
+        for (int i = 0; i < numPredictions; ++i){
+            double actual=trueClassValues[i];
+            double predicted=predClassValues[i];
             ++matrix[(int)actual][(int)predicted];
         }
         return matrix;
@@ -1845,16 +2216,16 @@ public class ClassifierResults implements DebugPrinting, Serializable {
      */
     public double findNLL(){
         double nll=0;
-        for(int i=0;i<trueClassValues.size();i++){
+        for(int i=0;i<numTrueClassValues;i++){
             double[] dist=getProbabilityDistribution(i);
-            int trueClass = trueClassValues.get(i).intValue();
+            int trueClass = (int) trueClassValues[i];
 
             if(dist[trueClass]==0)
                 nll+=NLL_PENALTY;
             else
                 nll+=Math.log(dist[trueClass])/Math.log(2);//Log 2
         }
-        return -nll/trueClassValues.size();
+        return -nll/numTrueClassValues;
     }
 
     public double findMeanAUROC(){
@@ -1866,7 +2237,11 @@ public class ClassifierResults implements DebugPrinting, Serializable {
                 a=findAUROC(1);
  */       }
         else{
-            double[] classDist = InstanceTools.findClassDistributions(trueClassValues, numClasses);
+            double[] classDist = new double[numClasses];
+            for (int i = 0; i < numTrueClassValues; i++)
+                classDist[(int) trueClassValues[i]]++;
+            for (int i = 0; i < numClasses; i++)
+                classDist[i] /= numTrueClassValues;
             for(int i=0;i<numClasses;i++){
                 a+=findAUROC(i) * classDist[i];
             }
@@ -2003,41 +2378,48 @@ public class ClassifierResults implements DebugPrinting, Serializable {
      * Makes copy of pred times to easily maintain original ordering
      */
     protected long findMedianPredTime() {
-        List<Long> copy = new ArrayList<>(predTimes);
-        Collections.sort(copy);
+        long[] copy = Arrays.copyOf(predTimes, numPredictions);
+        Arrays.sort(copy);
 
-        int mid = copy.size()/2;
-        if (copy.size() % 2 == 0)
-            return (copy.get(mid) + copy.get(mid-1)) / 2;
+        int mid = copy.length/2;
+        if (copy.length % 2 == 0)
+            return (copy[mid] + copy[mid-1]) / 2;
         else
-            return copy.get(mid);
+            return copy[mid];
     }
 
     protected double findAUROC(int c){
-        class Pair implements Comparable<Pair>{
-            Double x;
-            Double y;
-            public Pair(Double a, Double b){
-                x=a;
-                y=b;
-            }
-            @Override
-            public int compareTo(Pair p) {
-                return p.x.compareTo(x);
-            }
-            public String toString(){ return "("+x+","+y+")";}
+        //instances ordered by decreasing probability of class c, ties kept in instance order. a stable
+        //counting sort over the distinct probabilities, so that no per-instance objects are needed
+        int n = numInstances;
+        double[] probs = new double[n];
+        for (int i = 0; i < n; i++)
+            probs[i] = predDistributions[i][c];
+        double[] distinct = probs.clone();
+        Arrays.sort(distinct);
+        int numDistinct = 0;
+        for (int i = 0; i < n; i++)
+            if (numDistinct == 0 || Double.compare(distinct[i], distinct[numDistinct-1]) != 0)
+                distinct[numDistinct++] = distinct[i];
+
+        int[] group = new int[n];
+        int[] groupStarts = new int[numDistinct+1];
+        for (int i = 0; i < n; i++) {
+            group[i] = numDistinct - 1 - Arrays.binarySearch(distinct, 0, numDistinct, probs[i]);
+            groupStarts[group[i]+1]++;
         }
+        for (int g = 0; g < numDistinct; g++)
+            groupStarts[g+1] += groupStarts[g];
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++)
+            order[groupStarts[group[i]]++] = i;
 
-        ArrayList<Pair> p=new ArrayList<>();
         double nosPositive=0,nosNegative;
         for(int i=0;i<numInstances;i++){
-            Pair temp=new Pair(predDistributions.get(i)[c],trueClassValues.get(i));
-            if(c==trueClassValues.get(i))
+            if(c==trueClassValues[i])
                 nosPositive++;
-            p.add(temp);
         }
-        nosNegative=trueClassValues.size()-nosPositive;
-        Collections.sort(p);
+        nosNegative=numTrueClassValues-nosPositive;
 
         /* http://www.cs.waikato.ac.nz/~remco/roc.pdf
                 Determine points on ROC curve as follows;
@@ -2049,17 +2431,19 @@ public class ClassifierResults implements DebugPrinting, Serializable {
         of true positives (true negatives). This gives the points on the ROC curve
         (0; 0); (x1; y1); : : : ; (xn; yn); (1; 1).
         */
-        ArrayList<Pair> roc=new ArrayList<>();
+        double[] rocX = new double[numInstances+2];
+        double[] rocY = new double[numInstances+2];
+        int rocSize = 0;
         double x=0;
-        double oldX=0;
         double y=0;
         int xAdd=0, yAdd=0;
         boolean xLast=false,yLast=false;
-        roc.add(new Pair(x,y));
+        rocX[rocSize] = x; rocY[rocSize++] = y;
         for(int i=0;i<numInstances;i++){
-            if(p.get(i).y==c){
-                if(yLast)
-                    roc.add(new Pair(x,y));
+            if(trueClassValues[order[i]]==c){
+                if(yLast) {
+                    rocX[rocSize] = x; rocY[rocSize++] = y;
+                }
                 xLast=true;
                 yLast=false;
                 x+=1/nosPositive;
@@ -2069,8 +2453,9 @@ public class ClassifierResults implements DebugPrinting, Serializable {
 
             }
             else{
-                if(xLast)
-                    roc.add(new Pair(x,y));
+                if(xLast) {
+                    rocX[rocSize] = x; rocY[rocSize++] = y;
+                }
                 yLast=true;
                 xLast=false;
                 y+=1/nosNegative;
@@ -2079,14 +2464,14 @@ public class ClassifierResults implements DebugPrinting, Serializable {
                     y=1.0;
             }
         }
-        roc.add(new Pair(1.0,1.0));
+        rocX[rocSize] = 1.0; rocY[rocSize++] = 1.0;
 
         //Calculate the area under the ROC curve, as the sum over all trapezoids with
         //base xi+1 to xi , that is, A
 
         double auroc=0;
-        for(int i=0;i<roc.size()-1;i++){
-            auroc+=(roc.get(i+1).y-roc.get(i).y)*(roc.get(i+1).x);
+        for(int i=0;i<rocSize-1;i++){
+            auroc+=(rocY[i+1]-rocY[i])*(rocX[i+1]);
         }
         return auroc;
     }
@@ -2095,10 +2480,10 @@ public class ClassifierResults implements DebugPrinting, Serializable {
     //Currently assumes each predictions earliness is stored in the prediction description alone.
     public double findEarliness(){
         double e = 0;
-        for (String d : predDescriptions){
-            e += Double.parseDouble(d);
+        for (int i = 0; i < numPredictions; i++){
+            e += Double.parseDouble(predDescriptions[i]);
         }
-        earliness = e / predDescriptions.size();
+        earliness = e / numPredictions;
         return earliness;
     }
 
@@ -23,10 +23,17 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import tsml.classifiers.MultiThreadable;
+import utilities.ComputePool;
 import utilities.DebugPrinting;
 import utilities.ErrorReport;
 
@@ -57,7 +64,7 @@ import utilities.ErrorReport;
  * 
  * @author James Large (james.large@uea.ac.uk)
  */
-public class ClassifierResultsCollection implements DebugPrinting {
+public class ClassifierResultsCollection implements DebugPrinting, MultiThreadable {
     
     /**
      * ClassifierResults[split][classifier][dataset][fold]
@@ -131,6 +138,21 @@ public class ClassifierResultsCollection implements DebugPrinting {
      * Defaults to false
      */
     private boolean ignoreMissingDistributions = false;
+
+    /**
+     * The number of results files read at once by load()
+     * 
+     * Defaults to 1
+     */
+    private int numThreads = 1;
+
+    /**
+     * If true, load() keeps a compact binary copy of each results file alongside it, which later 
+     * loads read instead of the (unchanged) text file. See ClassifierResults.loadResultsFromFile(String, boolean)
+     * 
+     * Defaults to false
+     */
+    private boolean useBinaryCache = false;
     
     public ClassifierResultsCollection() {
         
@@ -163,6 +185,8 @@ public class ClassifierResultsCollection implements DebugPrinting {
         this.cleanResults = other.cleanResults;
         this.allowMissingResults = other.allowMissingResults;
         this.ignoreMissingDistributions = other.ignoreMissingDistributions;
+        this.numThreads = other.numThreads;
+        this.useBinaryCache = other.useBinaryCache;
     }
     
     /**
@@ -367,6 +391,27 @@ public class ClassifierResultsCollection implements DebugPrinting {
     public void setIgnoreMissingDistributions(boolean ignoreMissingDistributions) {
         this.ignoreMissingDistributions = ignoreMissingDistributions;
     }
+
+    /**
+     * Allows load() to read up to numThreads results files at once. Results are still reported, and 
+     * missing files logged, in the same order as when reading them one at a time
+     * 
+     * defaults to 1
+     */
+    @Override //MultiThreadable
+    public void enableMultiThreading(int numThreads) {
+        this.numThreads = Math.max(numThreads, 1);
+    }
+
+    /**
+     * if true, load() keeps a compact binary copy of each results file alongside it (e.g. testFold0.crbin 
+     * next to testFold0.csv), which later loads read instead of the text file while it is unchanged
+     * 
+     * defaults to false
+     */
+    public void setUseBinaryCache(boolean useBinaryCache) {
+        this.useBinaryCache = useBinaryCache;
+    }
     
     public int getNumDatasets() {
         return numDatasets;
@@ -443,6 +488,14 @@ public class ClassifierResultsCollection implements DebugPrinting {
      * 
      * Defaults to false
      */
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    public boolean getUseBinaryCache() {
+        return useBinaryCache;
+    }
+
     public boolean getIgnoreMissingDistributions() {
         return ignoreMissingDistributions;
     }
@@ -563,7 +616,25 @@ public class ClassifierResultsCollection implements DebugPrinting {
         //train files may be produced via TrainAccuracyEstimate, older code
         //while test files likely by experiments, but still might be a very old file
         //so having separate checks for each.
-        boolean ignoringDistsFirstTime = true;
+        AtomicBoolean ignoringDistsFirstTime = new AtomicBoolean(true);
+        
+        //when multithreaded, every file is queued up front in the same order as the loop below, 
+        //which then collects them one by one as before
+        ExecutorService executor = numThreads > 1 ? ComputePool.newExecutor(numThreads) : null;
+        List<Future<ClassifierResults>> pending = new ArrayList<>();
+        if (executor != null) {
+            for (int c = 0; c < numClassifiers; c++)
+                for (int d = 0; d < numDatasets; d++)
+                    for (int f = 0; f < numFolds; f++)
+                        for (int s = 0; s < numSplits; s++) {
+                            String classifierStorage = classifierNamesInStorage[c];
+                            String datasetStorage = datasetNamesInStorage[d];
+                            String fileName = buildFileName(readPath(c), classifierStorage, datasetStorage, splits[s], folds[f]);
+                            int fi = f;
+                            pending.add(executor.submit(() -> readResults(fileName, classifierStorage, datasetStorage, fi, ignoringDistsFirstTime)));
+                        }
+        }
+        Iterator<Future<ClassifierResults>> next = pending.iterator();
         
         splitsWithMissingResults = new HashSet<>(splits.length);
         classifiersWithMissingResults = new HashSet<>(classifierNamesInOutput.length);
@@ -576,6 +647,7 @@ public class ClassifierResultsCollection implements DebugPrinting {
             printlnDebug(classifierStorage + "(" + classifierOutput + ") reading");
             
             int classifierFnfs = 0;
+            int classifierFiles = 0;
             try {
                 ErrorReport perClassifierError = new ErrorReport("FileNotFoundExceptions thrown:\n");
 
@@ -592,21 +664,13 @@ public class ClassifierResultsCollection implements DebugPrinting {
                             String split = splits[s];     
                             printlnDebug("\t\t\t" + split + " reading");
 
-                            String readPath = resultsFilesDirectories.length == 1 ? resultsFilesDirectories[0] : resultsFilesDirectories[c];
-                            String fileName = buildFileName(readPath, classifierStorage, datasetStorage, split, fold); 
+                            String fileName = buildFileName(readPath(c), classifierStorage, datasetStorage, split, fold); 
+                            classifierFiles++;
                             try {
-                                allResults[s][c][d][f] = new ClassifierResults(fileName);
-                                if (ignoreMissingDistributions) {
-                                    boolean wasMissing = allResults[s][c][d][f].populateMissingDists();
-                                    if (wasMissing && ignoringDistsFirstTime) {
-                                        System.out.println("---------Probability distributions missing, but ignored: " 
-                                                + classifierStorage + " - " + datasetStorage + " - " + f + " - train");
-                                        ignoringDistsFirstTime = false;
-                                    }
-                                }
-                                allResults[s][c][d][f].findAllStatsOnce();
-                                if (cleanResults)
-                                    allResults[s][c][d][f].cleanPredictionInfo();
+                                if (executor == null)
+                                    allResults[s][c][d][f] = readResults(fileName, classifierStorage, datasetStorage, f, ignoringDistsFirstTime);
+                                else
+                                    allResults[s][c][d][f] = collect(next.next());
                             } catch (FileNotFoundException ex) {
                                 if (allowMissingResults) {
                                     allResults[s][c][d][f] = null;
@@ -639,17 +703,58 @@ public class ClassifierResultsCollection implements DebugPrinting {
             } catch (Exception e) {
                 masterError.log("Classifier Errors: " + classifierNamesInStorage[c] + "\n" + e+" ");
                 e.printStackTrace();
+
+                //this classifier's remaining files are abandoned, as they would not have been read single threaded
+                if (executor != null) {
+                    for (int i = classifierFiles; i < numDatasets * numFolds * numSplits; i++)
+                        next.next().cancel(false);
+                }
             }
             
             numMissingResults += classifierFnfs;
         }
         
+        if (executor != null)
+            executor.shutdown();
         masterError.throwIfErrors();
         
         return allResults;
     }
     
     
+    private String readPath(int classifier) {
+        return resultsFilesDirectories.length == 1 ? resultsFilesDirectories[0] : resultsFilesDirectories[classifier];
+    }
+
+    /**
+     * Reads in and processes a single results file subject to the options set, as load() does for each file
+     */
+    private ClassifierResults readResults(String fileName, String classifierStorage, String datasetStorage, int f, AtomicBoolean ignoringDistsFirstTime) throws Exception {
+        ClassifierResults res = new ClassifierResults();
+        res.loadResultsFromFile(fileName, useBinaryCache);
+        if (ignoreMissingDistributions) {
+            boolean wasMissing = res.populateMissingDists();
+            if (wasMissing && ignoringDistsFirstTime.getAndSet(false)) {
+                System.out.println("---------Probability distributions missing, but ignored: " 
+                        + classifierStorage + " - " + datasetStorage + " - " + f + " - train");
+            }
+        }
+        res.findAllStatsOnce();
+        if (cleanResults)
+            res.cleanPredictionInfo();
+        return res;
+    }
+
+    private static ClassifierResults collect(Future<ClassifierResults> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception)
+                throw (Exception) e.getCause();
+            throw e;
+        }
+    }
+    
     /**
      * Returns a ClassifierResultsCollection that contains the same classifier, dataset and fold
      * sets, but only the SPLITS for which all results exist for all classifiers, datasets and folds.
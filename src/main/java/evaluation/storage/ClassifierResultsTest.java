@@ -0,0 +1,118 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+package evaluation.storage;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Purpose: test results files read back the same from text and from the binary cache, and that a cache made
+ * from an older version of a file is not used, even one of the same length and modification time.
+ */
+public class ClassifierResultsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static ClassifierResults randomResults(Random random, int numClasses, int numInstances) throws Exception {
+        ClassifierResults res = new ClassifierResults(numClasses);
+        res.setClassifierName("C");
+        res.setDatasetName("D");
+        res.setSplit("test");
+        res.turnOffZeroTimingsErrors();
+        for (int i = 0; i < numInstances; i++) {
+            double[] dist = new double[numClasses];
+            double sum = 0;
+            for (int j = 0; j < numClasses; j++)
+                sum += dist[j] = random.nextDouble();
+            int pred = 0;
+            for (int j = 0; j < numClasses; j++) {
+                dist[j] /= sum;
+                if (dist[j] > dist[pred])
+                    pred = j;
+            }
+            String description = i % 3 == 0 ? "" : "part," + i;
+            res.addPrediction(random.nextInt(numClasses), dist, pred, 1 + random.nextInt(100), description);
+        }
+        res.finaliseResults();
+        return res;
+    }
+
+    private static String fullState(ClassifierResults res) throws Exception {
+        res.findAllStatsOnce();
+        return res.writeFullResultsToString() + "\n" + res.allPerformanceMetricsToString() + "\n" + res.getTestTime();
+    }
+
+    @Test
+    public void testBinaryCacheMatchesText() throws Exception {
+        File file = new File(folder.getRoot(), "testFold0.csv");
+        randomResults(new Random(0), 4, 150).writeFullResultsToFile(file.getPath());
+
+        String expected = fullState(new ClassifierResults(file.getPath()));
+
+        ClassifierResults cold = new ClassifierResults();
+        cold.loadResultsFromFile(file.getPath(), true);
+        Assert.assertTrue(ClassifierResults.binaryCacheFileFor(file).exists());
+        Assert.assertEquals(expected, fullState(cold));
+
+        ClassifierResults warm = new ClassifierResults();
+        warm.loadResultsFromFile(file.getPath(), true);
+        Assert.assertEquals(expected, fullState(warm));
+        Assert.assertEquals("part,1", warm.getPredDescription(1));
+    }
+
+    @Test
+    public void testStaleBinaryCacheIgnored() throws Exception {
+        File file = new File(folder.getRoot(), "testFold0.csv");
+        randomResults(new Random(0), 3, 50).writeFullResultsToFile(file.getPath());
+        new ClassifierResults().loadResultsFromFile(file.getPath(), true);
+
+        randomResults(new Random(1), 5, 80).writeFullResultsToFile(file.getPath());
+        file.setLastModified(file.lastModified() + 2000);
+
+        ClassifierResults res = new ClassifierResults();
+        res.loadResultsFromFile(file.getPath(), true);
+        Assert.assertEquals(80, res.numInstances());
+        Assert.assertEquals(5, res.numClasses());
+        Assert.assertEquals(fullState(new ClassifierResults(file.getPath())), fullState(res));
+    }
+    @Test
+    public void testBinaryCacheIgnoredForSameLengthAndTime() throws Exception {
+        File file = new File(folder.getRoot(), "testFold0.csv");
+        randomResults(new Random(0), 3, 50).writeFullResultsToFile(file.getPath());
+        new ClassifierResults().loadResultsFromFile(file.getPath(), true);
+
+        //rename the classifier in place, keeping the length and modification time of the file
+        long lastModified = file.lastModified();
+        String text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        Assert.assertTrue(text.startsWith("D,C,"));
+        Files.write(file.toPath(), ("D,E," + text.substring(4)).getBytes(StandardCharsets.UTF_8));
+        Assert.assertTrue(file.setLastModified(lastModified));
+
+        ClassifierResults res = new ClassifierResults();
+        res.loadResultsFromFile(file.getPath(), true);
+        Assert.assertEquals("E", res.getClassifierName());
+    }
+}
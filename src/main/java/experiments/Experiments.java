@@ -31,7 +31,6 @@ import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -63,6 +62,7 @@ import weka.core.Randomizable;
 
 import static utilities.GenericTools.indexOfMax;
 import static utilities.InstanceTools.*;
+import utilities.ComputePool;
 
 /**
  * The main experimental class of the timeseriesclassification codebase. The 'main' method to run is
@@ -995,15 +995,14 @@ public class Experiments  {
 
         System.out.println("# cores ="+numCores);
         System.out.println("# threads ="+numThreads);
-        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        ExecutorService executor = ComputePool.newExecutor(numThreads);
 
         List<ExperimentalArguments> exps = standardArgs.generateExperiments(classifierNames, classifierGenerators, datasetNames, minFolds, maxFolds);
         for (ExperimentalArguments exp : exps)
             executor.execute(exp);
 
         executor.shutdown();
-        while (!executor.isTerminated()) {
-        }
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
         System.out.println("Finished all threads");
     }
 
@@ -33,6 +33,7 @@ import java.util.regex.Pattern;
 
 import tsml.classifiers.distance_based.utils.strings.StrUtils;
 import tsml.data_containers.TimeSeriesInstances;
+import tsml.data_containers.ts_fileIO.TSBinaryReader;
 import tsml.data_containers.utilities.Converter;
 import tsml.data_containers.utilities.TimeSeriesResampler;
 import utilities.ClassifierTools;
@@ -258,6 +259,9 @@ public class DatasetLoading {
      *      values 1 to numUniqueFirstAttValues OTHERWISE...
      * 5) error
      *
+     * Wherever an arff or ts file is looked for, a binary file written by TSBinaryWriter alongside it (same name,
+     * extension .tsbin) is loaded instead if present, which is much faster to load.
+     *
      * @return new Instances[] { trainSet, testSet };
      */
     public static Instances[] sampleDataset(String parentFolder, String problem, int fold) throws Exception {
@@ -265,7 +269,7 @@ public class DatasetLoading {
         Instances[] data = new Instances[2];
         File trainFile = new File(parentFolder + problem + "/" + problem + fold + "_TRAIN.arff");
         File testFile = new File(parentFolder + problem + "/" + problem + fold + "_TEST.arff");
-        boolean predefinedSplitsExist = trainFile.exists() && testFile.exists();
+        boolean predefinedSplitsExist = datasetExists(trainFile) && datasetExists(testFile);
         if (predefinedSplitsExist) {
             // CASE 1)
             data[0] = loadDataThrowable(trainFile);
@@ -274,7 +278,7 @@ public class DatasetLoading {
         } else {
             trainFile = new File(parentFolder + problem + "/" + problem + "_TRAIN.arff");
             testFile = new File(parentFolder + problem + "/" + problem + "_TEST.arff");
-            boolean predefinedFold0Exists = trainFile.exists() && testFile.exists();
+            boolean predefinedFold0Exists = datasetExists(trainFile) && datasetExists(testFile);
             if (predefinedFold0Exists) {
                 // CASE 2)
                 data[0] = loadDataThrowable(trainFile);
@@ -388,6 +392,13 @@ public class DatasetLoading {
      * @throws java.io.IOException if cannot find the file, or file is malformed
      */
     public static Instances loadDataThrowable(File targetFile) throws IOException {
+        File binaryFile = getBinaryFile(targetFile);
+        if (binaryFile != null) {
+            Instances inst = Converter.toArff(TSBinaryReader.read(binaryFile));
+            inst.setClassIndex(inst.numAttributes() - 1);
+            return inst;
+        }
+
         String[] parts = targetFile.getName().split(Pattern.quote("."));
         String extension = "";
         final String ARFF = ".arff", TS = ".ts";
@@ -440,6 +451,10 @@ public class DatasetLoading {
      * @throws java.io.IOException if cannot find the file, or file is malformed
      */
     public static TimeSeriesInstances loadTSData(File targetFile) throws IOException {
+        File binaryFile = getBinaryFile(targetFile);
+        if (binaryFile != null)
+            return TSBinaryReader.read(binaryFile);
+
         String[] parts = targetFile.getName().split(Pattern.quote("."));
         String extension;
         final String ARFF = ".arff", TS = ".ts";
@@ -482,6 +497,24 @@ public class DatasetLoading {
         return inst;
     }
 
+    /**
+     * Returns the binary version of a dataset written by TSBinaryWriter, if there is one at least as recent as the
+     * text file.
+     *
+     * @param targetFile the dataset, with or without the .arff or .ts extension
+     * @return the binary file, or null if there is none or it is out of date
+     */
+    private static File getBinaryFile(File targetFile) {
+        File binaryFile = TSBinaryReader.binaryFileFor(targetFile);
+        if (!binaryFile.exists() || (targetFile.exists() && targetFile.lastModified() > binaryFile.lastModified()))
+            return null;
+        return binaryFile;
+    }
+
+    private static boolean datasetExists(File targetFile) {
+        return targetFile.exists() || TSBinaryReader.binaryFileFor(targetFile).exists();
+    }
+
     /**
      * Loads the ts file at the target location.
      *
@@ -18,17 +18,22 @@ package machine_learning.classifiers;
 
 import experiments.data.DatasetLoading;
 
-import org.nd4j.linalg.api.ndarray.INDArray;
-import org.nd4j.linalg.eigen.Eigen;
-import org.nd4j.linalg.factory.Nd4j;
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.EigenDecomposition;
 import tsml.classifiers.MultiThreadable;
 import tsml.transformers.ROCKET;
 import utilities.ClassifierTools;
+import utilities.ComputePool;
 import weka.classifiers.AbstractClassifier;
 import weka.core.Instance;
 import weka.core.Instances;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import static utilities.InstanceTools.resampleTrainAndTestInstances;
 
@@ -46,13 +51,21 @@ public class RidgeClassifierCV extends AbstractClassifier implements MultiThread
     private final double[] alphas = {1.00000000e-03, 4.64158883e-03, 2.15443469e-02, 1.00000000e-01,
             4.64158883e-01, 2.15443469e+00, 1.00000000e+01, 4.64158883e+01, 2.15443469e+02, 1.00000000e+03};
 
-    private INDArray coefficients;
+    //[class][attribute]
+    private double[][] coefficients;
     private double[] intercept;
 
     private int numThreads = 1;
 
     private double bestScore = -999999;
 
+    //rows or attributes handled by a single task when multithreading
+    private static final int CHUNK_SIZE = 64;
+    //attributes summed over at once for each pair of rows when building the gram matrix, so they stay in cache
+    private static final int FEATURE_CHUNK_SIZE = 2048;
+
+    private transient ExecutorService ex;
+
     public double getBestScore() { return bestScore; }
 
     @Override
@@ -65,17 +78,8 @@ public class RidgeClassifierCV extends AbstractClassifier implements MultiThread
         if (instances.classIndex() != instances.numAttributes() - 1)
             throw new Exception("Class attribute must be the final index.");
 
-        //Set to OMP_NUM_THREADS=1 for single thread run
-        String value = System.getenv("OMP_NUM_THREADS");
-        if (value == null && numThreads != Runtime.getRuntime().availableProcessors())
-            throw new Exception("RidgeClassifierCV: OMP_NUM_THREADS environmental variable not set. Set it to the " +
-                    "number of threads you wish to use or set numThreads to " +
-                    "Runtime.getRuntime().availableProcessors()");
-        if (value != null && Integer.parseInt(value) != numThreads)
-            throw new Exception("RidgeClassifierCV: OMP_NUM_THREADS environmental variable and numThreads do not " +
-                    "match.");
-
         bestScore = -999999;
+        ex = numThreads > 1 ? ComputePool.newExecutor(numThreads) : null;
 
         double[][] data = new double[instances.numInstances()][instances.numAttributes()-1];
         for (int i = 0; i < data.length; i++) {
@@ -117,89 +121,331 @@ public class RidgeClassifierCV extends AbstractClassifier implements MultiThread
         double[] xScale = new double[data[0].length];
         preprocessData(data, labels, xOffset, yOffset, xScale);
 
-        //original uses SVD when no. instances > no. attributes
-        INDArray matrix = Nd4j.create(data);
-        INDArray q = matrix.mmul(matrix.transpose());
-        INDArray eigvals = Eigen.symmetricGeneralizedEigenvalues(q);
-        INDArray qt_y = q.transpose();
-        qt_y = qt_y.mmul(Nd4j.create(labels));
-
-        INDArray bestCoef = null;
-        for (double alpha : alphas){
-            double[] w = new double[(int)eigvals.size(0)];
-            for (int i = 0; i < w.length; i++){
-                w[i] = 1./(eigvals.getDouble(i) + alpha);
+        //as in the original, decompose whichever of the gram (XX^T) and covariance (X^TX) matrices is smaller
+        double[][] coefs = data.length <= data[0].length ? fitGram(data, labels) : fitCovariance(data, labels);
+
+        coefficients = new double[yOffset.length][xOffset.length];
+        intercept = new double[yOffset.length];
+        for (int i = 0; i < intercept.length; i++){
+            double d = 0;
+            for (int n = 0; n < xOffset.length; n++){
+                coefficients[i][n] = coefs[n][i] / xScale[n];
+                d += xOffset[n] * coefficients[i][n];
+            }
+            intercept[i] = yOffset[i] - d;
+        }
+
+        ex = null;
+    }
+
+    @Override
+    public double classifyInstance(Instance inst){
+        double[] x = new double[intercept.length];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = intercept[i];
+            for (int n = 0; n < coefficients[i].length; n++) {
+                x[i] += inst.value(n) * coefficients[i][n];
             }
+        }
+
+        return x.length > 1 ? argmax(x) : (x[0] > 0 ? 1 : 0);
+    }
 
-            double[][] p = new double[1][data.length];
-            Arrays.fill(p[0], Math.sqrt(data.length)/data.length);
-            INDArray sw = Nd4j.create(p);
-            double[] k = sw.mmul(q).toDoubleVector();
-            for (int i = 0 ; i < k.length; i++) k[i] = Math.abs(k[i]);
-            int idx = argmax(k);
-            w[idx] = 0;
-
-            double[][] d = new double[w.length][(int)qt_y.size(1)];
-            for (int i = 0; i < d.length; i++){
-                for (int n = 0; n < d[i].length; n++){
-                    d[i][n] = w[i] * qt_y.getDouble(i,n);
+    /**
+     * Leave one out cross-validation using the eigendecomposition of the gram matrix XX^T = Q diag(v) Q^T, for when
+     * there are no more cases than attributes. For each alpha the dual coefficients are c = Q diag(w) Q^T y with
+     * w = 1/(v + alpha), and the loo residuals c / diag(Q diag(w) Q^T). The eigenvector of the intercept is given
+     * a weight of 0 so it is not penalised.
+     *
+     * @return the coefficients of the best alpha, [attribute][class]
+     */
+    private double[][] fitGram(double[][] data, double[][] labels) throws Exception {
+        int numCases = data.length;
+        int numAtts = data[0].length;
+        int numTargets = labels[0].length;
+
+        EigenDecomposition eigen = new EigenDecomposition(new Array2DRowRealMatrix(gramMatrix(data), false));
+        double[] eigvals = eigen.getRealEigenvalues();
+        double[][] q = eigen.getV().getData();
+
+        //the eigenvector closest to the constant vector of the intercept
+        double[] k = new double[numCases];
+        for (int i = 0; i < numCases; i++) {
+            for (int n = 0; n < numCases; n++) {
+                k[n] += q[i][n];
+            }
+        }
+        for (int i = 0 ; i < k.length; i++) k[i] = Math.abs(k[i]);
+        int idx = argmax(k);
+
+        double[][] qt_y = new double[numCases][numTargets];
+        for (int i = 0; i < numCases; i++) {
+            for (int n = 0; n < numCases; n++) {
+                for (int t = 0; t < numTargets; t++) {
+                    qt_y[n][t] += q[i][n] * labels[i][t];
                 }
             }
+        }
+
+        double[][] w = new double[alphas.length][numCases];
+        for (int a = 0; a < alphas.length; a++) {
+            for (int i = 0; i < numCases; i++) {
+                w[a][i] = i == idx ? 0 : 1. / (eigvals[i] + alphas[a]);
+            }
+        }
 
-            INDArray coefs = q.mmul(Nd4j.create(d));
+        double[][][] dual = new double[alphas.length][numCases][numTargets];
+        double[][] caseErrors = new double[numCases][alphas.length];
+        parallelFor(numCases, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                for (int a = 0; a < alphas.length; a++) {
+                    double sum = 0;
+                    for (int n = 0; n < numCases; n++) {
+                        double wq = w[a][n] * q[i][n];
+                        for (int t = 0; t < numTargets; t++) {
+                            dual[a][i][t] += wq * qt_y[n][t];
+                        }
+                        sum += wq * q[i][n];
+                    }
 
-            double[] sums = new double[w.length];
-            for (int i = 0; i < w.length; i++){
-                for (int n = 0; n < q.size(0); n++){
-                    sums[n] += w[i] * Math.pow(q.getDouble(n,i), 2);
+                    for (int t = 0; t < numTargets; t++) {
+                        double e = dual[a][i][t] / sum;
+                        caseErrors[i][a] += e * e;
+                    }
                 }
             }
+        });
 
-            double e = 0;
-            for (int i = 0; i < sums.length; i++){
-                for (int n = 0; n < coefs.size(1); n++){
-                    e += Math.pow(coefs.getDouble(i,n) / sums[i], 2);
+        int best = selectAlpha(caseErrors, numCases * numTargets);
+
+        double[][] coefs = new double[numAtts][numTargets];
+        parallelFor(numAtts, (start, end) -> {
+            for (int i = 0; i < numCases; i++) {
+                for (int n = start; n < end; n++) {
+                    for (int t = 0; t < numTargets; t++) {
+                        coefs[n][t] += dual[best][i][t] * data[i][n];
+                    }
                 }
             }
-            e /= sums.length * coefs.size(1);
-            e = 1 - e;
+        });
+        return coefs;
+    }
 
-            if (e > bestScore){
-                bestScore = e;
-                bestCoef = coefs;
+    /**
+     * Leave one out cross-validation using the eigendecomposition of the covariance matrix X^TX = V diag(s) V^T, for
+     * when there are more cases than attributes. Equivalent to fitGram, with the nonzero eigenvectors of the gram
+     * matrix given by U = XV diag(1/sqrt(s)) and the remaining directions having eigenvalue 0, i.e. weight 1/alpha.
+     * The matrix inverse is then U diag(w - 1/alpha) U^T + I/alpha, minus 11^T/(n * alpha) to leave the intercept
+     * unpenalised. The rows of U are computed a chunk at a time rather than stored.
+     *
+     * @return the coefficients of the best alpha, [attribute][class]
+     */
+    private double[][] fitCovariance(double[][] data, double[][] labels) throws Exception {
+        int numCases = data.length;
+        int numAtts = data[0].length;
+        int numTargets = labels[0].length;
+
+        EigenDecomposition eigen = new EigenDecomposition(new Array2DRowRealMatrix(covarianceMatrix(data), false));
+        double[] eigvals = eigen.getRealEigenvalues();
+        double[][] v = eigen.getV().getData();
+
+        //directions with eigenvalues this small are in the null space of X, and have no effect on the fit
+        double max = 0;
+        for (double e : eigvals) max = Math.max(max, e);
+        double tol = max * Math.max(numCases, numAtts) * Math.ulp(1.0);
+        int[] kept = new int[numAtts];
+        int numKept = 0;
+        for (int i = 0; i < numAtts; i++) {
+            if (eigvals[i] > tol) kept[numKept++] = i;
+        }
+        int numDims = numKept;
+
+        //X^Ty, then V^TX^Ty
+        double[][] xt_y = new double[numAtts][numTargets];
+        for (int i = 0; i < numCases; i++) {
+            for (int f = 0; f < numAtts; f++) {
+                for (int t = 0; t < numTargets; t++) {
+                    xt_y[f][t] += data[i][f] * labels[i][t];
+                }
+            }
+        }
+        double[][] vt_xt_y = new double[numDims][numTargets];
+        for (int j = 0; j < numDims; j++) {
+            for (int f = 0; f < numAtts; f++) {
+                for (int t = 0; t < numTargets; t++) {
+                    vt_xt_y[j][t] += v[f][kept[j]] * xt_y[f][t];
+                }
             }
         }
 
-        INDArray a = bestCoef.transpose().mmul(matrix);
-        double[][] b = a.size(0) == 1 ? new double[][]{ a.toDoubleVector() } : a.toDoubleMatrix();
-        for (int i = 0; i < b.length; i++){
-            for (int n = 0; n < b[i].length; n++){
-                b[i][n] /= xScale[n];
+        //vt is the transpose of the kept eigenvectors, so a row of U is a set of contiguous dot products
+        double[][] vt = new double[numDims][numAtts];
+        double[] scale = new double[numDims];
+        double[][] ut_y = new double[numDims][numTargets];
+        double[][] w = new double[alphas.length][numDims];
+        for (int j = 0; j < numDims; j++) {
+            for (int f = 0; f < numAtts; f++) {
+                vt[j][f] = v[f][kept[j]];
+            }
+            double s = eigvals[kept[j]];
+            scale[j] = 1. / Math.sqrt(s);
+            for (int t = 0; t < numTargets; t++) {
+                ut_y[j][t] = vt_xt_y[j][t] * scale[j];
+            }
+            for (int a = 0; a < alphas.length; a++) {
+                w[a][j] = 1. / (s + alphas[a]) - 1. / alphas[a];
             }
         }
 
-        double[][] c = new double[][]{ xOffset };
-        coefficients = Nd4j.create(b).transpose();
-        INDArray d = Nd4j.create(c).mmul(coefficients);
-        intercept = new double[yOffset.length];
-        for (int i = 0; i < intercept.length; i++){
-            intercept[i] = yOffset[i] - d.getDouble(i);
+        double[][] caseErrors = new double[numCases][alphas.length];
+        parallelFor(numCases, (start, end) -> {
+            double[] u = new double[numDims];
+            double[] dual = new double[numTargets];
+            for (int i = start; i < end; i++) {
+                for (int j = 0; j < numDims; j++) {
+                    double sum = 0;
+                    for (int f = 0; f < numAtts; f++) {
+                        sum += data[i][f] * vt[j][f];
+                    }
+                    u[j] = sum * scale[j];
+                }
+
+                for (int a = 0; a < alphas.length; a++) {
+                    double inv = 1. / alphas[a];
+                    double g = inv - inv / numCases;
+                    Arrays.fill(dual, 0);
+                    for (int j = 0; j < numDims; j++) {
+                        double wu = w[a][j] * u[j];
+                        for (int t = 0; t < numTargets; t++) {
+                            dual[t] += wu * ut_y[j][t];
+                        }
+                        g += wu * u[j];
+                    }
+
+                    for (int t = 0; t < numTargets; t++) {
+                        double e = (dual[t] + labels[i][t] * inv) / g;
+                        caseErrors[i][a] += e * e;
+                    }
+                }
+            }
+        });
+
+        int best = selectAlpha(caseErrors, numCases * numTargets);
+
+        //V diag(1/(s + alpha)) V^TX^Ty
+        double[][] coefs = new double[numAtts][numTargets];
+        for (int j = 0; j < numDims; j++) {
+            double s = eigvals[kept[j]] + alphas[best];
+            for (int f = 0; f < numAtts; f++) {
+                for (int t = 0; t < numTargets; t++) {
+                    coefs[f][t] += vt[j][f] / s * vt_xt_y[j][t];
+                }
+            }
         }
+        return coefs;
     }
 
-    @Override
-    public double classifyInstance(Instance inst){
-        double[][] data = new double[1][(int)coefficients.size(0)];
-        for (int i = 0; i < data[0].length; i++) {
-            data[0][i] = inst.value(i);
+    /**
+     * @return XX^T, with the attributes of each pair of cases summed in chunks
+     */
+    private double[][] gramMatrix(double[][] data) throws Exception {
+        int numCases = data.length;
+        int numAtts = data[0].length;
+        double[][] gram = new double[numCases][numCases];
+        parallelFor(numCases, (start, end) -> {
+            for (int f = 0; f < numAtts; f += FEATURE_CHUNK_SIZE) {
+                int fEnd = Math.min(f + FEATURE_CHUNK_SIZE, numAtts);
+                for (int i = start; i < end; i++) {
+                    for (int j = 0; j <= i; j++) {
+                        double sum = 0;
+                        for (int n = f; n < fEnd; n++) {
+                            sum += data[i][n] * data[j][n];
+                        }
+                        gram[i][j] += sum;
+                    }
+                }
+            }
+        });
+        for (int i = 0; i < numCases; i++) {
+            for (int j = 0; j < i; j++) {
+                gram[j][i] = gram[i][j];
+            }
         }
+        return gram;
+    }
 
-        double[] x = Nd4j.create(data).mmul(coefficients).toDoubleVector();
-        for (int i = 0; i < intercept.length; i++) {
-            x[i] += intercept[i];
+    /**
+     * @return X^TX
+     */
+    private double[][] covarianceMatrix(double[][] data) throws Exception {
+        int numAtts = data[0].length;
+        double[][] cov = new double[numAtts][numAtts];
+        parallelFor(numAtts, (start, end) -> {
+            for (double[] row : data) {
+                for (int f = start; f < end; f++) {
+                    double v = row[f];
+                    if (v == 0) continue;
+                    for (int n = 0; n <= f; n++) {
+                        cov[f][n] += v * row[n];
+                    }
+                }
+            }
+        });
+        for (int f = 0; f < numAtts; f++) {
+            for (int n = 0; n < f; n++) {
+                cov[n][f] = cov[f][n];
+            }
         }
+        return cov;
+    }
 
-        return x.length > 1 ? argmax(x) : (x[0] > 0 ? 1 : 0);
+    /**
+     * Sets the best score from the squared loo errors of each case for each alpha.
+     *
+     * @return the index of the best alpha
+     */
+    private int selectAlpha(double[][] caseErrors, int count) {
+        int best = 0;
+        for (int a = 0; a < alphas.length; a++) {
+            double e = 0;
+            for (double[] errors : caseErrors) {
+                e += errors[a];
+            }
+            e = 1 - e / count;
+            if (e > bestScore){
+                bestScore = e;
+                best = a;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Runs the task over chunks of CHUNK_SIZE indexes from 0 to size, across threads if multithreading. Each chunk
+     * must write to its own outputs.
+     */
+    private void parallelFor(int size, ChunkTask task) throws Exception {
+        if (ex == null || size <= CHUNK_SIZE) {
+            task.run(0, size);
+            return;
+        }
+
+        List<Callable<Object>> chunks = new ArrayList<>();
+        for (int start = 0; start < size; start += CHUNK_SIZE) {
+            int chunkStart = start;
+            int chunkEnd = Math.min(start + CHUNK_SIZE, size);
+            chunks.add(() -> {
+                task.run(chunkStart, chunkEnd);
+                return null;
+            });
+        }
+        for (Future<Object> future : ex.invokeAll(chunks)) {
+            future.get();
+        }
+    }
+
+    private interface ChunkTask {
+        void run(int start, int end);
     }
 
     private void preprocessData(double[][] data, double[][] labels, double[] xOffset, double[] yOffset,
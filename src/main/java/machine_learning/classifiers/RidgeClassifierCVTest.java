@@ -0,0 +1,144 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+package machine_learning.classifiers;
+
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.LUDecomposition;
+import org.apache.commons.math3.linear.RealVector;
+import org.junit.Assert;
+import org.junit.Test;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Purpose: test the leave one out score of both the gram and covariance solvers against refitting the ridge
+ * regression without each case in turn.
+ */
+public class RidgeClassifierCVTest {
+
+    private static final double[] ALPHAS = {1.00000000e-03, 4.64158883e-03, 2.15443469e-02, 1.00000000e-01,
+            4.64158883e-01, 2.15443469e+00, 1.00000000e+01, 4.64158883e+01, 2.15443469e+02, 1.00000000e+03};
+
+    private static Instances randomData(int numCases, int numAtts, int seed) {
+        Random rand = new Random(seed);
+        ArrayList<Attribute> atts = new ArrayList<>();
+        for (int i = 0; i < numAtts; i++) {
+            atts.add(new Attribute("att" + i));
+        }
+        atts.add(new Attribute("class", Arrays.asList("0", "1")));
+        Instances data = new Instances("random", atts, numCases);
+        data.setClassIndex(numAtts);
+
+        for (int i = 0; i < numCases; i++) {
+            double[] values = new double[numAtts + 1];
+            values[numAtts] = i % 2;
+            for (int n = 0; n < numAtts; n++) {
+                values[n] = rand.nextGaussian() + (n % 3 == 0 ? values[numAtts] : 0);
+            }
+            data.add(new DenseInstance(1, values));
+        }
+        return data;
+    }
+
+    // 1 - mean squared loo error of the best alpha, with the attributes scaled as in the classifier and an
+    // unpenalised intercept
+    private static double bruteForceScore(Instances data) {
+        int numCases = data.numInstances();
+        int numAtts = data.numAttributes() - 1;
+        double[][] x = new double[numCases][numAtts + 1];
+        double[] y = new double[numCases];
+        for (int i = 0; i < numCases; i++) {
+            for (int n = 0; n < numAtts; n++) {
+                x[i][n] = data.get(i).value(n);
+            }
+            x[i][numAtts] = 1;
+            y[i] = data.get(i).classValue() == 1 ? 1 : -1;
+        }
+        for (int n = 0; n < numAtts; n++) {
+            double mean = 0;
+            for (double[] row : x) mean += row[n];
+            mean /= numCases;
+            double norm = 0;
+            for (double[] row : x) {
+                row[n] -= mean;
+                norm += row[n] * row[n];
+            }
+            norm = Math.sqrt(norm);
+            for (double[] row : x) row[n] /= norm;
+        }
+
+        double best = -Double.MAX_VALUE;
+        for (double alpha : ALPHAS) {
+            double error = 0;
+            for (int out = 0; out < numCases; out++) {
+                double[][] a = new double[numAtts + 1][numAtts + 1];
+                double[] b = new double[numAtts + 1];
+                for (int i = 0; i < numCases; i++) {
+                    if (i == out) continue;
+                    for (int n = 0; n <= numAtts; n++) {
+                        b[n] += x[i][n] * y[i];
+                        for (int m = 0; m <= numAtts; m++) {
+                            a[n][m] += x[i][n] * x[i][m];
+                        }
+                    }
+                }
+                for (int n = 0; n < numAtts; n++) {
+                    a[n][n] += alpha;
+                }
+
+                RealVector beta = new LUDecomposition(new Array2DRowRealMatrix(a, false)).getSolver()
+                        .solve(new ArrayRealVector(b, false));
+                double prediction = beta.dotProduct(new ArrayRealVector(x[out], false));
+                error += (prediction - y[out]) * (prediction - y[out]);
+            }
+            best = Math.max(best, 1 - error / numCases);
+        }
+        return best;
+    }
+
+    @Test
+    public void testGramScore() throws Exception {
+        Instances data = randomData(20, 50, 0);
+        RidgeClassifierCV ridge = new RidgeClassifierCV();
+        ridge.buildClassifier(data);
+        Assert.assertEquals(bruteForceScore(data), ridge.getBestScore(), 1e-8);
+    }
+
+    @Test
+    public void testCovarianceScore() throws Exception {
+        Instances data = randomData(150, 10, 1);
+        RidgeClassifierCV ridge = new RidgeClassifierCV();
+        ridge.buildClassifier(data);
+        Assert.assertEquals(bruteForceScore(data), ridge.getBestScore(), 1e-8);
+
+        // the same fit across threads
+        RidgeClassifierCV threaded = new RidgeClassifierCV();
+        threaded.enableMultiThreading(4);
+        threaded.buildClassifier(data);
+        Assert.assertEquals(ridge.getBestScore(), threaded.getBestScore(), 0);
+        for (int i = 0; i < data.numInstances(); i++) {
+            Assert.assertEquals(ridge.classifyInstance(data.get(i)), threaded.classifyInstance(data.get(i)), 0);
+        }
+    }
+}
@@ -196,6 +196,14 @@ public abstract class AbstractEnsemble extends EnhancedAbstractClassifier implem
         //many weighting schemes will have weights for each class set to a single classifier equal, but some 
         //will have e.g certain members being experts at classifying certain classes etc
         public double[] posteriorWeights;
+        
+        //the number of threads given to this module from the ensemble's thread budget, if multithreading
+        public int numThreads = 1;
+        
+        //the measured cost of building this module, as its build time multiplied by the threads it was given. 
+        //Used to divide the thread budget between the modules the next time the ensemble is built. Negative if 
+        //not yet measured
+        public double cost = -1;
 
         public EnsembleModule() {
             this.moduleName = "ensembleModule";
@@ -385,6 +393,9 @@ public abstract class AbstractEnsemble extends EnhancedAbstractClassifier implem
         //define the operations to build and evaluate each module, as a function
         //that will build the classifier and return train results for it, either 
         //generated by the classifier itself or the trainEstimator
+        if (multiThread)
+            divideThreadBudget();
+        
         List<Callable<ClassifierResults>> moduleBuilds = new ArrayList<>();
         for (EnsembleModule module : modules) {
             final Classifier classifier = module.getClassifier();
@@ -392,6 +403,7 @@ public abstract class AbstractEnsemble extends EnhancedAbstractClassifier implem
             
             Callable<ClassifierResults> moduleBuild = () -> {
                 ClassifierResults trainResults = null;
+                long startTime = System.nanoTime();
                 
                 if (EnhancedAbstractClassifier.classifierIsEstimatingOwnPerformance(classifier)) { 
                     classifier.buildClassifier(trainInsts);
@@ -402,6 +414,7 @@ public abstract class AbstractEnsemble extends EnhancedAbstractClassifier implem
                     classifier.buildClassifier(trainInsts);
                 }
                 
+                module.cost = (double) (System.nanoTime() - startTime) * module.numThreads;
                 return trainResults;
             };
             
@@ -413,7 +426,8 @@ public abstract class AbstractEnsemble extends EnhancedAbstractClassifier implem
         //locally/sequentially
         List<ClassifierResults> results = new ArrayList<>();
         if (multiThread) {
-            ExecutorService executor = ThreadingUtilities.buildExecutorService(numThreads);
+            //the modules are given their share of the threads above, so only one thread is needed per module here
+            ExecutorService executor = ThreadingUtilities.buildExecutorService(Math.min(numThreads, modules.length));
             boolean shutdownAfter = true;
             
             results = ThreadingUtilities.computeAll(executor, moduleBuilds, shutdownAfter);  
@@ -437,6 +451,82 @@ public abstract class AbstractEnsemble extends EnhancedAbstractClassifier implem
         }
     }
     
+    /**
+     * Divides the thread budget of the ensemble between its modules, which are built and used for prediction 
+     * concurrently. Each module gets at least one thread. The remaining threads are given to the modules which are 
+     * MultiThreadable, in proportion to their cost measured the last time they were built, so that they should 
+     * finish at around the same time. Modules which have not been measured yet are assumed to cost the average of 
+     * those that have, or all the same if none have.
+     */
+    protected void divideThreadBudget() {
+        double[] costs = new double[modules.length];
+        boolean[] multiThreadable = new boolean[modules.length];
+        double totalMeasured = 0;
+        int numMeasured = 0;
+        for (int m = 0; m < modules.length; m++) {
+            multiThreadable[m] = modules[m].isMultiThreadable();
+            if (modules[m].cost > 0) {
+                totalMeasured += modules[m].cost;
+                numMeasured++;
+            }
+        }
+        for (int m = 0; m < modules.length; m++) 
+            costs[m] = modules[m].cost > 0 ? modules[m].cost : (numMeasured > 0 ? totalMeasured / numMeasured : 1);
+        
+        int[] moduleThreads = divideThreads(numThreads, costs, multiThreadable);
+        for (int m = 0; m < modules.length; m++) {
+            modules[m].numThreads = moduleThreads[m];
+            //set even for a share of one, so a module given more threads by an earlier build or by the caller
+            //does not keep them
+            if (multiThreadable[m])
+                ((MultiThreadable) modules[m].getClassifier()).enableMultiThreading(moduleThreads[m]);
+            printlnDebug(modules[m].getModuleName() + " given " + moduleThreads[m] + " threads");
+        }
+    }
+    
+    /**
+     * Divides numThreads between jobs, giving each at least one thread and the rest to the jobs that can use more 
+     * than one in proportion to their costs. Fractional shares are rounded by largest remainder, so the whole budget 
+     * is used.
+     * 
+     * @return the number of threads for each job
+     */
+    public static int[] divideThreads(int numThreads, double[] costs, boolean[] multiThreadable) {
+        int[] threads = new int[costs.length];
+        Arrays.fill(threads, 1);
+        
+        int spare = numThreads - costs.length;
+        double totalCost = 0;
+        for (int i = 0; i < costs.length; i++)
+            if (multiThreadable[i])
+                totalCost += costs[i];
+        if (spare <= 0 || totalCost <= 0)
+            return threads;
+        
+        double[] remainders = new double[costs.length];
+        Arrays.fill(remainders, -1);
+        int given = 0;
+        for (int i = 0; i < costs.length; i++) {
+            if (multiThreadable[i]) {
+                double share = spare * costs[i] / totalCost;
+                threads[i] += (int) share;
+                given += (int) share;
+                remainders[i] = share - (int) share;
+            }
+        }
+        
+        for (; given < spare; given++) {
+            int best = 0;
+            for (int i = 1; i < remainders.length; i++)
+                if (remainders[i] > remainders[best])
+                    best = i;
+            threads[best]++;
+            remainders[best] = -1;
+        }
+        
+        return threads;
+    }
+    
 //    protected void trainModules_unThreaded() throws Exception {
 //        for (EnsembleModule module : modules) {
 //            Classifier clf = module.getClassifier();
@@ -991,6 +1081,14 @@ public abstract class AbstractEnsemble extends EnhancedAbstractClassifier implem
             for (EnsembleModule module : modules) //            +time for each member's predictions
                 predTime += module.testResults.getPredictionTime(testInstCounter);
         }
+        else if (multiThread) {//classify with the modules in parallel, each using its share of the threads
+            predTime = 0;
+            for (long modulePredTime : predictModules(ins)) 
+                predTime += modulePredTime;
+            startTime = System.nanoTime();
+            dist = votingScheme.distributionForTestInstance(modules, modules[0].testResults.numInstances() - 1);
+            predTime += System.nanoTime() - startTime;
+        }
         else {//need to classify them normally
             dist = votingScheme.distributionForInstance(modules, ins);
             predTime = System.nanoTime() - startTime;
@@ -1007,6 +1105,120 @@ public abstract class AbstractEnsemble extends EnhancedAbstractClassifier implem
         return dist;
     }
 
+    /**
+     * Gets every module's prediction for an instance, in parallel, and stores them as the modules' test results.
+     * 
+     * @return the time taken by each module
+     */
+    private long[] predictModules(Instance ins) throws Exception {
+        List<Callable<double[]>> modulePredictions = new ArrayList<>();
+        long[] moduleTimes = new long[modules.length];
+        for (int m = 0; m < modules.length; m++) { 
+            final int module = m;
+            modulePredictions.add(() -> {
+                long startTime = System.nanoTime();
+                double[] dist = modules[module].getClassifier().distributionForInstance(ins);
+                moduleTimes[module] = System.nanoTime() - startTime;
+                return dist;
+            });
+        }
+        
+        ExecutorService executor = ThreadingUtilities.buildExecutorService(Math.min(numThreads, modules.length));
+        List<double[]> moduleDists = ThreadingUtilities.computeAll(executor, modulePredictions, true);
+        
+        for (int m = 0; m < modules.length; m++) 
+            votingScheme.storeModuleTestResult(modules[m], moduleDists.get(m), moduleTimes[m]);
+        
+        return moduleTimes;
+    }
+    
+    /**
+     * Finds the class probabilities of a batch of instances. Each module predicts the whole batch through its own 
+     * batch prediction, with the modules run in parallel if multithreading. The module predictions are stored as the 
+     * modules' test results and then combined per instance by the voting scheme, in the same way as test results 
+     * read from file. 
+     * 
+     * Prediction times are the module's time for the batch averaged over the instances, plus the time to vote
+     */
+    @Override
+    public double[][] distributionForInstances(Instances data) throws Exception {
+        if (readIndividualsResults || data.isEmpty())
+            return super.distributionForInstances(data);
+        
+        Instances insts = data;
+        if (this.transform != null)
+            insts = transform.transform(data);
+        
+        if (testResults == null || (testInstCounter == 0 && prevTestInstance == null)) {//definitely the first call
+            printlnDebug("\n**TEST**");
+
+            testResults = new ClassifierResults(numClasses);
+            testResults.setTimeUnit(TimeUnit.NANOSECONDS);
+            testResults.setBuildTime(buildTime);
+        }
+        
+        //module test results are appended to, find where this batch will start
+        int firstIndex = modules[0].testResults == null ? 0 : modules[0].testResults.numInstances();
+        int numInsts = insts.numInstances();
+        
+        final Instances batch = insts;
+        List<Callable<double[][]>> modulePredictions = new ArrayList<>();
+        long[] moduleTimes = new long[modules.length];
+        for (int m = 0; m < modules.length; m++) { 
+            final int module = m;
+            modulePredictions.add(() -> {
+                long startTime = System.nanoTime();
+                double[][] dists = distributionForInstances(modules[module].getClassifier(), batch);
+                moduleTimes[module] = System.nanoTime() - startTime;
+                return dists;
+            });
+        }
+        
+        List<double[][]> moduleDists = new ArrayList<>();
+        if (multiThread) {
+            //the modules were given their share of the threads when built, so only one thread is needed per module here
+            ExecutorService executor = ThreadingUtilities.buildExecutorService(Math.min(numThreads, modules.length));
+            moduleDists = ThreadingUtilities.computeAll(executor, modulePredictions, true);
+        }
+        else {
+            for (Callable<double[][]> modulePrediction : modulePredictions)
+                moduleDists.add(modulePrediction.call());
+        }
+        
+        long moduleTimePerInst = 0;
+        for (int m = 0; m < modules.length; m++) {
+            long predTime = moduleTimes[m] / numInsts;
+            moduleTimePerInst += predTime;
+            for (double[] dist : moduleDists.get(m))
+                votingScheme.storeModuleTestResult(modules[m], dist, predTime);
+        }
+        
+        double[][] dists = new double[numInsts][];
+        testResults.turnOffZeroTimingsErrors();
+        for (int i = 0; i < numInsts; i++) {
+            long startTime = System.nanoTime();
+            dists[i] = votingScheme.distributionForTestInstance(modules, firstIndex + i);
+            long predTime = System.nanoTime() - startTime + moduleTimePerInst;
+            testResults.addPrediction(dists[i], findIndexOfMax(dists[i], rand), predTime, "");
+        }
+        testResults.turnOnZeroTimingsErrors();
+        
+        testInstCounter += numInsts;
+        prevTestInstance = data.lastInstance();
+        
+        return dists;
+    }
+    
+    private static double[][] distributionForInstances(Classifier classifier, Instances data) throws Exception {
+        if (classifier instanceof EnhancedAbstractClassifier)
+            return ((EnhancedAbstractClassifier) classifier).distributionForInstances(data);
+        
+        double[][] dists = new double[data.numInstances()][];
+        for (int i = 0; i < dists.length; i++)
+            dists[i] = classifier.distributionForInstance(data.get(i));
+        return dists;
+    }
+
     @Override
     public double classifyInstance(Instance instance) throws Exception {
         double[] dist = distributionForInstance(instance);
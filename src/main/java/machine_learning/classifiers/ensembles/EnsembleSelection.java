@@ -339,7 +339,8 @@ public class EnsembleSelection extends CAWPE {
         assert(ensembleSoFarResults.getTimeUnit().equals(newModelResults.getTimeUnit()));
         newResults.setTimeUnit(ensembleSoFarResults.getTimeUnit());
         
-        for (int inst = 0; inst < ensembleSoFarResults.getProbabilityDistributions().size(); inst++) {
+        int numInsts = ensembleSoFarResults.getProbabilityDistributions().size();
+        for (int inst = 0; inst < numInsts; inst++) {
             double[] ensDist = ensembleSoFarResults.getProbabilityDistribution(inst);
             double[] indDist = newModelResults.getProbabilityDistribution(inst);
             
@@ -17,6 +17,7 @@
  
 package machine_learning.clusterers;
 
+import tsml.classifiers.MultiThreadable;
 import weka.clusterers.AbstractClusterer;
 import weka.core.DistanceFunction;
 import weka.core.EuclideanDistance;
@@ -30,11 +31,12 @@ import java.util.ArrayList;
  *
  * @author Matthew Middlehurst
  */
-public abstract class AbstractVectorClusterer extends AbstractClusterer{
+public abstract class AbstractVectorClusterer extends AbstractClusterer implements MultiThreadable {
 
     protected DistanceFunction distFunc = new EuclideanDistance();
     protected boolean normaliseData = true;
     protected boolean copyInstances = true;
+    protected int numThreads = 1;
 
     protected int[] assignments;
     protected ArrayList<Integer>[] clusters;
@@ -63,6 +65,11 @@ public abstract class AbstractVectorClusterer extends AbstractClusterer{
         copyInstances = b;
     }
 
+    @Override
+    public void enableMultiThreading(int numThreads){
+        this.numThreads = Math.max(1, numThreads);
+    }
+
     //Normalise instances and save the means and standard deviations.
     protected void normaliseData(Instances data) throws Exception{
         if (data.classIndex() >= 0 && data.classIndex() != data.numAttributes()-1){
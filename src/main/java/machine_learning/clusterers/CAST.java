@@ -18,12 +18,12 @@
 package machine_learning.clusterers;
 
 import experiments.data.DatasetLoading;
+import utilities.DistanceMatrix;
 import weka.core.Instances;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 
-import static utilities.ClusteringUtilities.createDistanceMatrix;
 import static utilities.InstanceTools.deleteClassAttribute;
 import static utilities.Utilities.maxIndex;
 import static utilities.Utilities.minIndex;
@@ -43,7 +43,7 @@ public class CAST extends AbstractVectorClusterer {
     private boolean dynamicAffinityThreshold = false;
     private double eCastThreshold = 0.25;
 
-    private double[][] distanceMatrix;
+    private DistanceMatrix distanceMatrix;
     private boolean hasDistances = false;
 
     private ArrayList<double[]> clusterAffinities;
@@ -51,6 +51,10 @@ public class CAST extends AbstractVectorClusterer {
     public CAST(){}
 
     public CAST(double[][] distanceMatrix){
+        this(DistanceMatrix.fromLowerTriangle(distanceMatrix));
+    }
+
+    public CAST(DistanceMatrix distanceMatrix){
         this.distanceMatrix = distanceMatrix;
         this.hasDistances = true;
     }
@@ -85,7 +89,7 @@ public class CAST extends AbstractVectorClusterer {
         }
 
         if(!hasDistances){
-            distanceMatrix = createDistanceMatrix(data, distFunc);
+            distanceMatrix = DistanceMatrix.compute(data, distFunc, numThreads);
         }
 
         normaliseDistanceMatrix();
@@ -110,8 +114,8 @@ public class CAST extends AbstractVectorClusterer {
 
     private ArrayList<ArrayList<Integer>> runCAST(){
         ArrayList<ArrayList<Integer>> subclusters = new ArrayList();
-        ArrayList<Integer> indicies = new ArrayList(distanceMatrix.length);
-        for (int i = 0; i < distanceMatrix.length; i++){
+        ArrayList<Integer> indicies = new ArrayList(distanceMatrix.size());
+        for (int i = 0; i < distanceMatrix.size(); i++){
             indicies.add(i);
         }
         clusterAffinities = new ArrayList();
@@ -178,11 +182,7 @@ public class CAST extends AbstractVectorClusterer {
             for (int i = 0; i < subcluster.size(); i++) {
                 if (indicies.get(n).equals(subcluster.get(i))) continue;
 
-                if (indicies.get(n) > subcluster.get(i)) {
-                    affinities[n] += distanceMatrix[indicies.get(n)][subcluster.get(i)];
-                } else {
-                    affinities[n] += distanceMatrix[subcluster.get(i)][indicies.get(n)];
-                }
+                affinities[n] += distanceMatrix.get(indicies.get(n), subcluster.get(i));
             }
         }
 
@@ -196,13 +196,7 @@ public class CAST extends AbstractVectorClusterer {
         for (int n = 0; n < indicies.size(); n++) {
             for (int i = 0; i < indicies.size(); i++) {
                 if(indicies.get(n).equals(indicies.get(i))) continue;
-                double dist;
-
-                if (indicies.get(n) > indicies.get(i)) {
-                    dist = distanceMatrix[indicies.get(n)][indicies.get(i)];
-                } else {
-                    dist = distanceMatrix[indicies.get(i)][indicies.get(n)];
-                }
+                double dist = distanceMatrix.get(indicies.get(n), indicies.get(i));
 
                 if (dist < minDist){
                     minDist = dist;
@@ -218,20 +212,21 @@ public class CAST extends AbstractVectorClusterer {
         double maxDist = -99999999;
         double minDist = Double.MAX_VALUE;
 
-        for (int i = 0; i < distanceMatrix.length; i++){
+        for (int i = 0; i < distanceMatrix.size(); i++){
             for (int n = 0; n < i; n++){
-                if (distanceMatrix[i][n] > maxDist){
-                    maxDist = distanceMatrix[i][n];
+                double dist = distanceMatrix.get(i, n);
+                if (dist > maxDist){
+                    maxDist = dist;
                 }
-                if (distanceMatrix[i][n] < minDist){
-                    minDist = distanceMatrix[i][n];
+                if (dist < minDist){
+                    minDist = dist;
                 }
             }
         }
 
-        for (int i = 0; i < distanceMatrix.length; i++){
+        for (int i = 0; i < distanceMatrix.size(); i++){
             for (int n = 0; n < i; n++){
-                distanceMatrix[i][n] = (distanceMatrix[i][n] - minDist)/(maxDist - minDist);
+                distanceMatrix.set(i, n, (distanceMatrix.get(i, n) - minDist)/(maxDist - minDist));
             }
         }
     }
@@ -247,13 +242,7 @@ public class CAST extends AbstractVectorClusterer {
         for (int n = 0; n < indicies.size(); n++) {
             for (int i = 0; i < indicies.size(); i++) {
                 if (indicies.get(n).equals(indicies.get(i))) continue;
-                double dist;
-
-                if (indicies.get(n) > indicies.get(i)) {
-                    dist = distanceMatrix[indicies.get(n)][indicies.get(i)];
-                } else {
-                    dist = distanceMatrix[indicies.get(i)][indicies.get(n)];
-                }
+                double dist = distanceMatrix.get(indicies.get(n), indicies.get(i));
 
                 if (dist < eCastThreshold){
                     a += dist - eCastThreshold;
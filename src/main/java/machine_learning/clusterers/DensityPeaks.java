@@ -22,10 +22,10 @@ import java.util.Arrays;
 import java.util.Collections;
 
 import experiments.data.DatasetLoading;
+import utilities.DistanceMatrix;
 import utilities.GenericTools;
 import weka.core.Instances;
 
-import static utilities.ClusteringUtilities.createDistanceMatrix;
 import static utilities.InstanceTools.deleteClassAttribute;
 
 /**
@@ -47,7 +47,7 @@ public class DensityPeaks extends AbstractVectorClusterer {
     private double clusterCenterCutoff = -1;
     private double outlierCutoff = -1;
 
-    private double[][] distanceMatrix;
+    private DistanceMatrix distanceMatrix;
     private double[] localDensities;
     private double[] shortestDist;
     private int[] nearestNeighbours;
@@ -104,7 +104,7 @@ public class DensityPeaks extends AbstractVectorClusterer {
         }
 
         numInstances = data.size();
-        distanceMatrix = createDistanceMatrix(data, distFunc);
+        distanceMatrix = DistanceMatrix.compute(data, distFunc, numThreads);
 
         if (distC < 0){
             distC = getDistCDefault();
@@ -145,7 +145,7 @@ public class DensityPeaks extends AbstractVectorClusterer {
 
         for (int i = 0; i < numInstances; i++){
             for (int n = 0; n < i; n++){
-                sortedDistances.add(distanceMatrix[i][n]);
+                sortedDistances.add(distanceMatrix.get(i, n));
             }
         }
 
@@ -163,7 +163,7 @@ public class DensityPeaks extends AbstractVectorClusterer {
 
         for (int i = 0; i < numInstances; i++){
             for (int n = 0; n < i; n++){
-                if (distanceMatrix[i][n] - distC < 0){
+                if (distanceMatrix.get(i, n) - distC < 0){
                     localDensities[i]++;
                     localDensities[n]++;
                 }
@@ -178,7 +178,7 @@ public class DensityPeaks extends AbstractVectorClusterer {
 
         for (int i = 0; i < numInstances; i++){
             for (int n = 0; n < i; n++){
-                double j = distanceMatrix[i][n] / distC;
+                double j = distanceMatrix.get(i, n) / distC;
                 j = Math.exp(-(j*j));
 
                 localDensities[i] += j;
@@ -206,17 +206,10 @@ public class DensityPeaks extends AbstractVectorClusterer {
             shortestDist[sortedDensitiesIndex[i]] = Double.MAX_VALUE;
 
             for (int n = 0; n < i; n++){
-                if (sortedDensitiesIndex[n] > sortedDensitiesIndex[i]){
-                    if (distanceMatrix[sortedDensitiesIndex[n]][sortedDensitiesIndex[i]] < shortestDist[sortedDensitiesIndex[i]]){
-                        shortestDist[sortedDensitiesIndex[i]] = distanceMatrix[sortedDensitiesIndex[n]][sortedDensitiesIndex[i]];
-                        nearestNeighbours[sortedDensitiesIndex[i]] = sortedDensitiesIndex[n];
-                    }
-                }
-                else {
-                    if (distanceMatrix[sortedDensitiesIndex[i]][sortedDensitiesIndex[n]] < shortestDist[sortedDensitiesIndex[i]]){
-                        shortestDist[sortedDensitiesIndex[i]] = distanceMatrix[sortedDensitiesIndex[i]][sortedDensitiesIndex[n]];
-                        nearestNeighbours[sortedDensitiesIndex[i]] = sortedDensitiesIndex[n];
-                    }
+                double dist = distanceMatrix.get(sortedDensitiesIndex[n], sortedDensitiesIndex[i]);
+                if (dist < shortestDist[sortedDensitiesIndex[i]]){
+                    shortestDist[sortedDensitiesIndex[i]] = dist;
+                    nearestNeighbours[sortedDensitiesIndex[i]] = sortedDensitiesIndex[n];
                 }
             }
         }
@@ -337,7 +330,7 @@ public class DensityPeaks extends AbstractVectorClusterer {
 
             for (int i = 0; i < numInstances; i++){
                 for (int n = 0; n < i; n++){
-                    if (assignments[i] != assignments[n] && distanceMatrix[i][n] <= distC){
+                    if (assignments[i] != assignments[n] && distanceMatrix.get(i, n) <= distC){
                         double ldAvg = (localDensities[i] + localDensities[n])/2;
 
                         if (ldAvg > border[assignments[i]]) {
@@ -23,10 +23,10 @@ import java.util.Collections;
 import java.util.Random;
 
 import experiments.data.DatasetLoading;
+import utilities.DistanceMatrix;
 import weka.core.Instance;
 import weka.core.Instances;
 
-import static utilities.ClusteringUtilities.createDistanceMatrix;
 import static utilities.InstanceTools.deleteClassAttribute;
 
 /**
@@ -429,7 +429,7 @@ public class KMeans extends AbstractVectorClusterer{
         int maxK = 10;
         double bestSilVal = 0;
 
-        double[][] distMatrix = createDistanceMatrix(data, distFunc);
+        DistanceMatrix distMatrix = DistanceMatrix.compute(data, distFunc, numThreads);
 
         //For each value of K
         for (int i = 2; i <= maxK; i++){
@@ -455,12 +455,7 @@ public class KMeans extends AbstractVectorClusterer{
                     //Find mean distance of the point to other points in its
                     //cluster
                     for (int j = 0; j < kmeans.clusters[n].size(); j++){
-                        if (index > kmeans.clusters[n].get(j)){
-                            clusterDist += distMatrix[index][kmeans.clusters[n].get(j)];
-                        }
-                        else {
-                            clusterDist += distMatrix[kmeans.clusters[n].get(j)][index];
-                        }
+                        clusterDist += distMatrix.get(index, kmeans.clusters[n].get(j));
                     }
 
                     clusterDist /= kmeans.clusters[n].size();
@@ -474,12 +469,7 @@ public class KMeans extends AbstractVectorClusterer{
                         double otherClusterDist = 0;
 
                         for (int j = 0; j < kmeans.clusters[m].size(); j++){
-                            if (index > kmeans.clusters[m].get(j)){
-                                otherClusterDist += distMatrix[index][kmeans.clusters[m].get(j)];
-                            }
-                            else {
-                                otherClusterDist += distMatrix[kmeans.clusters[m].get(j)][index];
-                            }
+                            otherClusterDist += distMatrix.get(index, kmeans.clusters[m].get(j));
                         }
 
                         otherClusterDist /= kmeans.clusters[m].size();
@@ -23,9 +23,9 @@ import java.util.Collections;
 import java.util.Random;
 
 import experiments.data.DatasetLoading;
+import utilities.DistanceMatrix;
 import weka.core.Instances;
 
-import static utilities.ClusteringUtilities.createDistanceMatrix;
 import static utilities.InstanceTools.deleteClassAttribute;
 
 /**
@@ -46,7 +46,7 @@ public class PAM extends AbstractVectorClusterer{
     private int numSubsamples = 30;
     private int seed = Integer.MIN_VALUE;
 
-    private double[][] distanceMatrix;
+    private DistanceMatrix distanceMatrix;
     private int numInstances;
     boolean hasInitialMedoids = false;
     private boolean hasDistances = false;
@@ -57,6 +57,10 @@ public class PAM extends AbstractVectorClusterer{
 
     //Used when finding best value for k to avoid recalculating distances
     public PAM(double[][] distanceMatrix){
+        this(DistanceMatrix.fromLowerTriangle(distanceMatrix));
+    }
+
+    public PAM(DistanceMatrix distanceMatrix){
         this.distanceMatrix = distanceMatrix;
         this.hasDistances = true;
     }
@@ -138,7 +142,7 @@ public class PAM extends AbstractVectorClusterer{
 
 
         if (!hasDistances){
-            distanceMatrix = createDistanceMatrix(data, distFunc);
+            distanceMatrix = DistanceMatrix.compute(data, distFunc, numThreads);
         }
 
         if (findBestK){
@@ -182,14 +186,8 @@ public class PAM extends AbstractVectorClusterer{
             for(int n = 0; n < clusters[i].size(); n++){
                 if (medoids[i] == clusters[i].get(n)) continue;
 
-                if (medoids[i] > clusters[i].get(n)){
-                    distSum += distanceMatrix[medoids[i]][clusters[i].get(n)]
-                        * distanceMatrix[medoids[i]][clusters[i].get(n)];
-                }
-                else {
-                    distSum += distanceMatrix[clusters[i].get(n)][medoids[i]]
-                            + distanceMatrix[clusters[i].get(n)][medoids[i]];
-                }
+                double dist = distanceMatrix.get(medoids[i], clusters[i].get(n));
+                distSum += dist * dist;
             }
         }
 
@@ -317,22 +315,14 @@ public class PAM extends AbstractVectorClusterer{
             double minDist = Double.MAX_VALUE;
 
             for (int n = 0; n < k; n++){
-                if (medoids[n] > i){
-                    if (distanceMatrix[medoids[n]][i] < minDist){
-                        minDist = distanceMatrix[medoids[n]][i];
-                        assignments[i] = medoids[n];
-                    }
-                }
                 //If a point is a medoid set it to its own cluster.
-                else if (medoids[n] == i){
+                if (medoids[n] == i){
                     assignments[i] = medoids[n];
                     break;
                 }
-                else {
-                    if (distanceMatrix[i][medoids[n]] < minDist){
-                        minDist = distanceMatrix[i][medoids[n]];
-                        assignments[i] = medoids[n];
-                    }
+                else if (distanceMatrix.get(medoids[n], i) < minDist){
+                    minDist = distanceMatrix.get(medoids[n], i);
+                    assignments[i] = medoids[n];
                 }
             }
         }
@@ -367,12 +357,7 @@ public class PAM extends AbstractVectorClusterer{
                 for (int g = 0; g < clusters[i].size(); g++){
                     if (clusters[i].get(n) == clusters[i].get(g)) continue;
 
-                    if (clusters[i].get(n) > clusters[i].get(g)){
-                        clusterDist += distanceMatrix[clusters[i].get(n)][clusters[i].get(g)];
-                    }
-                    else {
-                        clusterDist += distanceMatrix[clusters[i].get(g)][clusters[i].get(n)];
-                    }
+                    clusterDist += distanceMatrix.get(clusters[i].get(n), clusters[i].get(g));
                 }
 
                 if (clusterDist < minDist){
@@ -426,12 +411,7 @@ public class PAM extends AbstractVectorClusterer{
                     for (int j = 0; j < pam.clusters[n].size(); j++){
                         if (index == pam.clusters[n].get(j)) continue;
 
-                        if (index > pam.clusters[n].get(j)){
-                            clusterDist += distanceMatrix[index][pam.clusters[n].get(j)];
-                        }
-                        else {
-                            clusterDist += distanceMatrix[pam.clusters[n].get(j)][index];
-                        }
+                        clusterDist += distanceMatrix.get(index, pam.clusters[n].get(j));
                     }
 
                     clusterDist /= pam.clusters[n].size();
@@ -445,12 +425,7 @@ public class PAM extends AbstractVectorClusterer{
                         double otherClusterDist = 0;
 
                         for (int j = 0; j < pam.clusters[m].size(); j++){
-                            if (index > pam.clusters[m].get(j)){
-                                otherClusterDist += distanceMatrix[index][pam.clusters[m].get(j)];
-                            }
-                            else {
-                                otherClusterDist += distanceMatrix[pam.clusters[m].get(j)][index];
-                            }
+                            otherClusterDist += distanceMatrix.get(index, pam.clusters[m].get(j));
                         }
 
                         otherClusterDist /= pam.clusters[m].size();
@@ -39,7 +39,8 @@ import statistics.tests.Tests;
 public class OneSampleTests extends Tests{
     public static boolean beQuiet = false;
     
-    private static DecimalFormat df = new DecimalFormat("##.########");
+    //per instance, as DecimalFormat is not thread safe
+    private DecimalFormat df = new DecimalFormat("##.########");
     public static DataPoint[] absRankedData;
 
     public String performTests(double[] data){
@@ -182,7 +183,8 @@ Need to rerank the data
 */
     {
         T.testName="wilcoxonSignRank";	
-        absRankedData=new DataPoint[ranked.length];
+        //local rather than the static absRankedData while working, so that tests can run concurrently
+        DataPoint[] absRankedData=new DataPoint[ranked.length];
         double diff;
         int nonZeroDifferences=0;
         for(int j=0;j<ranked.length;j++)
@@ -201,7 +203,7 @@ Need to rerank the data
             T.findCriticalValue();
             T.findPValue();		
 
-
+            OneSampleTests.absRankedData=absRankedData;
             return;  
             
         }
@@ -243,6 +245,7 @@ Need to rerank the data
         T.dist = new NormalDistribution(nonZeroDifferences*(nonZeroDifferences+1)/4.0,Math.sqrt(nonZeroDifferences*(nonZeroDifferences+1)*(2*nonZeroDifferences+1)/24.0));	
         T.findCriticalValue();
         T.findPValue();		
+        OneSampleTests.absRankedData=absRankedData;
 
     }
 
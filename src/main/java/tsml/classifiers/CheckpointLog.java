@@ -0,0 +1,275 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+package tsml.classifiers;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.JavaSerializer;
+import com.esotericsoftware.kryo.util.DefaultInstantiatorStrategy;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+import utilities.FileUtils;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Append-only checkpoint for Checkpointable ensembles which grow one member at a time, e.g. a forest adding trees.
+ * Rewriting the whole classifier at every checkpoint costs more and more as the ensemble grows, so instead each
+ * checkpoint appends a record of only the members built since the previous checkpoint, plus a header holding the rest
+ * of the classifier's state. Loading replays the log: the members of every record in the order they were appended,
+ * plus the header of the most recent record.
+ *
+ * Each record is checksummed. A partially written or corrupt record at the end of the log, i.e. from a checkpoint
+ * which was interrupted part way through, is dropped when the log is replayed. The log is then truncated back to the
+ * last complete checkpoint, so appending can carry on from there.
+ *
+ * Records are serialised with Kryo and deflated. Any JDK class Kryo has no serialiser of its own for (e.g.
+ * java.util.Random), or class extending one, is written with Java serialisation instead, as the private fields of JDK
+ * classes cannot be accessed reflectively. As with Java serialisation, transient fields are not written.
+ */
+public class CheckpointLog {
+
+    // the size and checksum preceding each record
+    private static final int RECORD_PREFIX_LENGTH = 8;
+
+    private final File file;
+    private final Kryo kryo;
+    // the number of members in complete checkpoints in the log
+    private int numMembers = 0;
+
+    public CheckpointLog(String path) {
+        this(new File(path));
+    }
+
+    public CheckpointLog(File file) {
+        this.file = file;
+        kryo = newKryo();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public boolean exists() {
+        return file.exists();
+    }
+
+    /**
+     * @return the number of members saved in the log so far, i.e. the index of the next member to append
+     */
+    public synchronized int getNumMembers() {
+        return numMembers;
+    }
+
+    /**
+     * Save a checkpoint by appending the members built since the last checkpoint along with the header.
+     *
+     * @param members the new members, in the order they should be replayed
+     * @param header the current state of everything other than the members
+     * @throws Exception if the log cannot be written to
+     */
+    public synchronized void append(List<?> members, Object header) throws Exception {
+        final byte[] record = writeRecord(members, header);
+        FileUtils.makeParentDir(file);
+        // locked and unlocked explicitly as FileLock.close() declares InterruptedException, which try-with-resources
+        // warns about
+        final FileUtils.FileLock fileLocker = new FileUtils.FileLock(file);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(fileLocker.getFile(), true)))) {
+            out.writeInt(record.length);
+            out.writeInt((int) checksum(record));
+            out.write(record);
+        } finally {
+            fileLocker.unlock();
+        }
+        numMembers += members.size();
+    }
+
+    /**
+     * Read back the last complete checkpoint in the log, dropping anything written after it.
+     *
+     * @return the last checkpoint, or null if the log holds no complete checkpoint
+     * @throws Exception if the log cannot be read
+     */
+    public synchronized Checkpoint replay() throws Exception {
+        final List<Object> members = new ArrayList<>();
+        Object header = null;
+        long length = 0;
+        final FileUtils.FileLock fileLocker = new FileUtils.FileLock(file);
+        try {
+            final long fileLength = fileLocker.getFile().length();
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(fileLocker.getFile())))) {
+                while (fileLength - length >= RECORD_PREFIX_LENGTH) {
+                    final int size = in.readInt();
+                    final long checksum = in.readInt() & 0xFFFFFFFFL;
+                    if (size < 0 || size > fileLength - length - RECORD_PREFIX_LENGTH) {
+                        break;
+                    }
+                    final byte[] record = new byte[size];
+                    in.readFully(record);
+                    if (checksum(record) != checksum) {
+                        break;
+                    }
+                    header = readRecord(record, members);
+                    length += RECORD_PREFIX_LENGTH + size;
+                }
+            }
+
+            if (length < fileLength) {
+                try (RandomAccessFile raf = new RandomAccessFile(fileLocker.getFile(), "rw")) {
+                    raf.setLength(length);
+                }
+            }
+        } finally {
+            fileLocker.unlock();
+        }
+
+        numMembers = members.size();
+        if (header == null) {
+            return null;
+        }
+        return new Checkpoint(header, members);
+    }
+
+    public synchronized boolean delete() {
+        numMembers = 0;
+        return !file.exists() || file.delete();
+    }
+
+    private byte[] writeRecord(List<?> members, Object header) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (Output output = new Output(new DeflaterOutputStream(bytes, deflater))) {
+            output.writeInt(members.size(), true);
+            for (Object member : members) {
+                kryo.writeClassAndObject(output, member);
+            }
+            kryo.writeClassAndObject(output, header);
+        } catch (KryoException e) {
+            throw new IOException("unable to serialise checkpoint to " + file, e);
+        } finally {
+            kryo.reset();
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return the header of the record, after adding its members to the given list
+     */
+    private Object readRecord(byte[] record, List<Object> members) throws IOException {
+        try (Input input = new Input(new InflaterInputStream(new ByteArrayInputStream(record)))) {
+            final int numRecordMembers = input.readInt(true);
+            for (int i = 0; i < numRecordMembers; i++) {
+                members.add(kryo.readClassAndObject(input));
+            }
+            return kryo.readClassAndObject(input);
+        } catch (KryoException e) {
+            throw new IOException("unable to deserialise checkpoint from " + file, e);
+        } finally {
+            kryo.reset();
+        }
+    }
+
+    private static long checksum(byte[] payload) {
+        final CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return crc.getValue();
+    }
+
+    private static Kryo newKryo() {
+        final Kryo kryo = new Kryo() {
+            // Kryo declares these with raw types
+            @SuppressWarnings("rawtypes")
+            @Override public Serializer getDefaultSerializer(Class type) {
+                // Kryo's own serialisers for JDK classes would lose the fields of any subclass outside the JDK, e.g.
+                // weka's Instances list, so those are written the way they serialise themselves
+                if (!isJdkClass(type) && !type.isEnum() && extendsJdkClass(type)
+                        && Serializable.class.isAssignableFrom(type)) {
+                    return new JavaSerializer();
+                }
+                return super.getDefaultSerializer(type);
+            }
+
+            @SuppressWarnings("rawtypes")
+            @Override protected Serializer newDefaultSerializer(Class type) {
+                if (extendsJdkClass(type) && Serializable.class.isAssignableFrom(type)) {
+                    return new JavaSerializer();
+                }
+                return super.newDefaultSerializer(type);
+            }
+        };
+        // checkpoints hold arbitrary classifiers, so classes cannot be registered up front
+        kryo.setRegistrationRequired(false);
+        kryo.setReferences(true);
+        // class names and references are shared by everything in a record, so are only reset between records
+        kryo.setAutoReset(false);
+        // classes need not have a no-arg constructor, as with Java serialisation
+        kryo.setInstantiatorStrategy(new DefaultInstantiatorStrategy(new StdInstantiatorStrategy()));
+        return kryo;
+    }
+
+    private static boolean isJdkClass(Class<?> type) {
+        final String name = type.getName();
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("jdk.")
+                || name.startsWith("sun.") || name.startsWith("com.sun.");
+    }
+
+    private static boolean extendsJdkClass(Class<?> type) {
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            if (isJdkClass(c)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A checkpoint read back from the log.
+     */
+    public static class Checkpoint {
+        private final Object header;
+        private final List<Object> members;
+
+        private Checkpoint(Object header, List<Object> members) {
+            this.header = header;
+            this.members = Collections.unmodifiableList(members);
+        }
+
+        public Object getHeader() {
+            return header;
+        }
+
+        /**
+         * @return every member in the log, in the order they were appended
+         */
+        public List<Object> getMembers() {
+            return members;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+package tsml.classifiers;
+
+import experiments.data.DatasetLoading;
+import org.junit.Assert;
+import org.junit.Test;
+import tsml.classifiers.interval_based.DrCIF;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * Purpose: test checkpoints replay from the log, ignoring a checkpoint interrupted part way through, and that DrCIF
+ * resumes from them
+ */
+public class CheckpointLogTest {
+
+    @Test
+    public void testReplayDropsIncompleteCheckpoint() throws Exception {
+        final File file = Files.createTempFile("checkpoint", ".log").toFile();
+        file.deleteOnExit();
+        Assert.assertTrue(file.delete());
+
+        final CheckpointLog log = new CheckpointLog(file);
+        log.append(Arrays.asList(new int[] {0}, new int[] {1}), new Random(1));
+        log.append(Collections.singletonList(new int[] {2}), new Random(2));
+        final long length = file.length();
+        // the start of a record from a checkpoint which never finished
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file, true))) {
+            out.writeInt(1000);
+            out.writeInt(0);
+            out.write(new byte[100]);
+        }
+
+        final CheckpointLog reloaded = new CheckpointLog(file);
+        CheckpointLog.Checkpoint checkpoint = reloaded.replay();
+        Assert.assertEquals(length, file.length());
+        Assert.assertEquals(3, reloaded.getNumMembers());
+        Assert.assertEquals(new Random(2).nextInt(), ((Random) checkpoint.getHeader()).nextInt());
+        for (int i = 0; i < 3; i++) {
+            Assert.assertArrayEquals(new int[] {i}, (int[]) checkpoint.getMembers().get(i));
+        }
+
+        reloaded.append(Collections.singletonList(new int[] {3}), new Random(3));
+        checkpoint = new CheckpointLog(file).replay();
+        Assert.assertEquals(4, checkpoint.getMembers().size());
+        Assert.assertArrayEquals(new int[] {3}, (int[]) checkpoint.getMembers().get(3));
+        Assert.assertTrue(file.delete());
+    }
+
+    private static DrCIF drcif(String checkpointPath) {
+        final DrCIF drcif = new DrCIF();
+        drcif.setSeed(0);
+        drcif.setNumTrees(120);
+        drcif.setCheckpointPath(checkpointPath);
+        return drcif;
+    }
+
+    @Test
+    public void testDrCIFResumesFromLog() throws Exception {
+        final Instances[] data = DatasetLoading.sampleItalyPowerDemand(0);
+        final File dir = Files.createTempDirectory("checkpoint").toFile();
+        final String checkpointPath = dir.getPath() + "/";
+        final DrCIF built = drcif(checkpointPath);
+        built.buildClassifier(data[0]);
+        final File file = new File(checkpointPath + "DrCIF0.log");
+        Assert.assertTrue(file.exists());
+
+        // a fully built checkpoint, so nothing is left to build
+        final DrCIF loaded = drcif(checkpointPath);
+        loaded.buildClassifier(data[0]);
+        for (Instance inst : data[1]) {
+            Assert.assertArrayEquals(built.distributionForInstance(inst), loaded.distributionForInstance(inst), 0d);
+        }
+        Assert.assertTrue(file.delete());
+        new File(file.getPath() + ".lock").delete();
+        dir.delete();
+    }
+
+    @Test
+    public void testDrCIFResumesPartialBuild() throws Exception {
+        final Instances[] data = DatasetLoading.sampleItalyPowerDemand(0);
+        final File dir = Files.createTempDirectory("checkpoint").toFile();
+        final String checkpointPath = dir.getPath() + "/";
+        final DrCIF built = drcif(checkpointPath);
+        built.buildClassifier(data[0]);
+        final File file = new File(checkpointPath + "DrCIF0.log");
+
+        // the log holds a checkpoint after 100 trees then one for the last 20. Cut it part way through the second, as
+        // if the build died while writing its final checkpoint
+        final int firstRecordLength;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            firstRecordLength = 8 + in.readInt();
+        }
+        Assert.assertTrue(file.length() > firstRecordLength + 8);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength((firstRecordLength + file.length()) / 2);
+        }
+        Assert.assertEquals(100, new CheckpointLog(file).replay().getMembers().size());
+
+        // resumes from the first 100 trees, building the last 20 as the uninterrupted build did
+        final DrCIF resumed = drcif(checkpointPath);
+        resumed.buildClassifier(data[0]);
+        Assert.assertEquals(120, new CheckpointLog(file).replay().getMembers().size());
+        for (Instance inst : data[1]) {
+            Assert.assertArrayEquals(built.distributionForInstance(inst), resumed.distributionForInstance(inst), 0d);
+        }
+        Assert.assertTrue(file.delete());
+        new File(file.getPath() + ".lock").delete();
+        dir.delete();
+    }
+}
@@ -18,6 +18,7 @@
 package tsml.classifiers;
 
 import tsml.data_containers.TimeSeriesInstances;
+import tsml.data_containers.utilities.Converter;
 import weka.classifiers.AbstractClassifier;
 import evaluation.storage.ClassifierResults;
 
@@ -493,6 +494,27 @@ abstract public class EnhancedAbstractClassifier extends AbstractClassifier impl
                 return Utils.missingValue();
         }
     }
+
+    /**
+     * Finds the class probabilities for a batch of test instances. By default this simply calls
+     * distributionForInstance on each instance in turn. Classifiers which can share work between test instances,
+     * e.g. by transforming the whole batch at once or predicting instances in parallel, should override this.
+     *
+     * @param data the instances to be classified
+     * @return array of class probabilities, one per instance in the order given
+     * @exception Exception if an error occurred during the prediction
+     */
+    public double[][] distributionForInstances(Instances data) throws Exception {
+        double[][] out = new double[data.numInstances()][];
+        for (int i = 0; i < out.length; i++)
+            out[i] = distributionForInstance(data.get(i));
+        return out;
+    }
+
+    @Override //TSClassifier
+    public double[][] distributionForInstances(TimeSeriesInstances data) throws Exception {
+        return distributionForInstances(Converter.toArff(data));
+    }
     
     /**
      * Sets a printing-friendly and/or context/parameter-aware name that can optionally 
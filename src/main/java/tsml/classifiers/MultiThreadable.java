@@ -23,6 +23,10 @@ package tsml.classifiers;
  * 
  * Known classifiers: AbstractEnsemble, BOSS, cBOSS, BOSSIndividual, MultiSamplingEvaluator
  * 
+ * Implementations should run their threads through utilities.ComputePool.newExecutor(numThreads) rather than building
+ * their own thread pool, so nested multithreaded classifiers and evaluators share one pool instead of oversubscribing
+ * the machine.
+ * 
  * @author Matthew Middlehurst, James Large (james.large@uea.ac.uk)
  */
 public interface MultiThreadable {
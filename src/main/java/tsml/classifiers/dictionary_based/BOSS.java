@@ -24,7 +24,6 @@ import tsml.classifiers.*;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import utilities.*;
 import weka.core.*;
@@ -202,7 +201,7 @@ public class BOSS extends EnhancedAbstractClassifier implements
 
         if (multiThread){
             if (numThreads == 1) numThreads = Runtime.getRuntime().availableProcessors();
-            if (ex == null) ex = Executors.newFixedThreadPool(numThreads);
+            if (ex == null) ex = ComputePool.newExecutor(numThreads);
         }
 
         //required to deal with multivariate datasets, each channel is split into its own instances
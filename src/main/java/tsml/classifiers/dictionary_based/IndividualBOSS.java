@@ -28,8 +28,8 @@ import java.io.Serializable;
 import java.util.*;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import utilities.ComputePool;
 
 /**
  * BOSS classifier to be used with known parameters, for boss with parameter search, use BOSSEnsemble.
@@ -219,122 +219,6 @@ public class IndividualBOSS extends AbstractClassifier implements Serializable,
         return dft;
     }
 
-    private double[] DFTunnormed(double[] series) {
-        //taken from FFT.java but
-        //return just a double[] size n, { real1, imag1, ... realn/2, imagn/2 }
-        //instead of Complex[] size n/2
-
-        //only calculating first wordlength/2 coefficients (output values),
-        //and skipping first coefficient if the data is to be normalised
-        int n=series.length;
-        int outputLength = wordLength/2;
-        int start = (norm ? 1 : 0);
-
-        double[] dft = new double[outputLength*2];
-        double twoPi = 2*Math.PI / n;
-
-        for (int k = start; k < start + outputLength; k++) {  // For each output element
-            float sumreal = 0;
-            float sumimag = 0;
-            for (int t = 0; t < n; t++) {  // For each input element
-                sumreal +=  series[t]*Math.cos(twoPi * t * k);
-                sumimag += -series[t]*Math.sin(twoPi * t * k);
-            }
-            dft[(k-start)*2]   = sumreal;
-            dft[(k-start)*2+1] = sumimag;
-        }
-        return dft;
-    }
-
-    private double[] normalizeDFT(double[] dft, double std) {
-        double normalisingFactor = (std > 0? 1.0 / std : 1.0) * inverseSqrtWindowSize;
-        for (int i = 0; i < dft.length; i++)
-            dft[i] *= normalisingFactor;
-
-        return dft;
-    }
-
-    private double[][] performMFT(double[] series) {
-        // ignore DC value?
-        int startOffset = norm ? 2 : 0;
-        int l = wordLength;
-        l = l + l % 2; // make it even
-        double[] phis = new double[l];
-        for (int u = 0; u < phis.length; u += 2) {
-            double uHalve = -(u + startOffset) / 2;
-            phis[u] = realephi(uHalve, windowSize);
-            phis[u + 1] = complexephi(uHalve, windowSize);
-        }
-
-        // means and stddev for each sliding window
-        int end = Math.max(1, series.length - windowSize + 1);
-        double[] means = new double[end];
-        double[] stds = new double[end];
-        calcIncrementalMeanStddev(windowSize, series, means, stds);
-        // holds the DFT of each sliding window
-        double[][] transformed = new double[end][];
-        double[] mftData = null;
-
-        for (int t = 0; t < end; t++) {
-            // use the MFT
-            if (t > 0) {
-                for (int k = 0; k < l; k += 2) {
-                    double real1 = (mftData[k] + series[t + windowSize - 1] - series[t - 1]);
-                    double imag1 = (mftData[k + 1]);
-                    double real = complexMulReal(real1, imag1, phis[k], phis[k + 1]);
-                    double imag = complexMulImag(real1, imag1, phis[k], phis[k + 1]);
-                    mftData[k] = real;
-                    mftData[k + 1] = imag;
-                }
-            } // use the DFT for the first offset
-            else {
-                mftData = Arrays.copyOf(series, windowSize);
-                mftData = DFTunnormed(mftData);
-            }
-            // normalization for lower bounding
-            transformed[t] = normalizeDFT(Arrays.copyOf(mftData, l), stds[t]);
-        }
-        return transformed;
-    }
-
-    private void calcIncrementalMeanStddev(int windowLength, double[] series, double[] means, double[] stds) {
-        double sum = 0;
-        double squareSum = 0;
-        // it is faster to multiply than to divide
-        double rWindowLength = 1.0 / (double) windowLength;
-        double[] tsData = series;
-        for (int ww = 0; ww < windowLength; ww++) {
-            sum += tsData[ww];
-            squareSum += tsData[ww] * tsData[ww];
-        }
-        means[0] = sum * rWindowLength;
-        double buf = squareSum * rWindowLength - means[0] * means[0];
-        stds[0] = buf > 0 ? Math.sqrt(buf) : 0;
-        for (int w = 1, end = tsData.length - windowLength + 1; w < end; w++) {
-            sum += tsData[w + windowLength - 1] - tsData[w - 1];
-            means[w] = sum * rWindowLength;
-            squareSum += tsData[w + windowLength - 1] * tsData[w + windowLength - 1] - tsData[w - 1] * tsData[w - 1];
-            buf = squareSum * rWindowLength - means[w] * means[w];
-            stds[w] = buf > 0 ? Math.sqrt(buf) : 0;
-        }
-    }
-
-    private static double complexMulReal(double r1, double im1, double r2, double im2) {
-        return r1 * r2 - im1 * im2;
-    }
-
-    private static double complexMulImag(double r1, double im1, double r2, double im2) {
-        return r1 * im2 + r2 * im1;
-    }
-
-    private static double realephi(double u, double M) {
-        return Math.cos(2 * Math.PI * u / M);
-    }
-
-    private static double complexephi(double u, double M) {
-        return -Math.sin(2 * Math.PI * u / M);
-    }
-
     protected double[][] disjointWindows(double [] data) {
         int amount = (int)Math.ceil(data.length/(double)windowSize);
         double[][] subSequences = new double[amount][windowSize];
@@ -391,17 +275,19 @@ public class IndividualBOSS extends AbstractClassifier implements Serializable,
     }
 
     /**
-     * Builds a brand new boss bag from the passed fourier transformed data, rather than from
+     * Builds a brand new boss bag from the passed series, rather than from
      * looking up existing transforms from earlier builds (i.e. SFAWords).
      *
      * to be used e.g to transform new test instances
      */
-    protected Bag createBagSingle(double[][] dfts) {
+    protected Bag createBagSingle(double[] series) {
         Bag bag = new Bag();
         BitWordInt lastWord = new BitWordInt();
 
-        for (double[] d : dfts) {
-            BitWordInt word = createWord(d);
+        SlidingMFT mft = new SlidingMFT(wordLength, windowSize, norm);
+        mft.reset(series);
+        while (mft.next()) {
+            BitWordInt word = createWord(mft.getDFT()); //approximation and discretisation
             //add to bag, unless num reduction applies
             if (numerosityReduction && word.equals(lastWord))
                 continue;
@@ -450,8 +336,7 @@ public class IndividualBOSS extends AbstractClassifier implements Serializable,
      * @return BOSSTransform-ed bag, built using current parameters
      */
     public Bag BOSSTransform(Instance inst) {
-        double[][] mfts = performMFT(toArrayNoClass(inst)); //approximation
-        Bag bag = createBagSingle(mfts); //discretisation/bagging
+        Bag bag = createBagSingle(toArrayNoClass(inst)); //approximation, discretisation and bagging
         bag.setClassVal(inst.classValue());
 
         return bag;
@@ -512,10 +397,11 @@ public class IndividualBOSS extends AbstractClassifier implements Serializable,
     }
 
     protected BitWordInt[] createSFAwords(Instance inst) {
-        double[][] dfts = performMFT(toArrayNoClass(inst)); //approximation
-        BitWordInt[] words = new BitWordInt[dfts.length];
-        for (int window = 0; window < dfts.length; ++window)
-            words[window] = createWord(dfts[window]);//discretisation
+        SlidingMFT mft = new SlidingMFT(wordLength, windowSize, norm);
+        mft.reset(toArrayNoClass(inst));
+        BitWordInt[] words = new BitWordInt[mft.getNumWindows()];
+        while (mft.next())
+            words[mft.getWindow()] = createWord(mft.getDFT()); //approximation and discretisation
 
         return words;
     }
@@ -532,7 +418,7 @@ public class IndividualBOSS extends AbstractClassifier implements Serializable,
 
         if (multiThread){
             if (numThreads == 1) numThreads = Runtime.getRuntime().availableProcessors();
-            if (ex == null) ex = Executors.newFixedThreadPool(numThreads);
+            if (ex == null) ex = ComputePool.newExecutor(numThreads);
 
             ArrayList<Future<Bag>> futures = new ArrayList<>(data.numInstances());
 
@@ -24,7 +24,6 @@ import tsml.classifiers.EnhancedAbstractClassifier;
 import tsml.classifiers.MultiThreadable;
 import tsml.classifiers.dictionary_based.bitword.BitWord;
 import tsml.classifiers.dictionary_based.bitword.BitWordInt;
-import tsml.classifiers.dictionary_based.bitword.BitWordLong;
 import tsml.data_containers.TimeSeriesInstance;
 import tsml.data_containers.TimeSeriesInstances;
 import tsml.data_containers.utilities.Converter;
@@ -33,8 +32,12 @@ import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.UnassignedClassException;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.util.*;
 import java.util.concurrent.*;
+import utilities.ComputePool;
 
 /**
  * Improved BOSS classifier to be used with known parameters, for ensemble use TDE.
@@ -74,8 +77,8 @@ public class IndividualTDE extends EnhancedAbstractClassifier implements Compara
     protected boolean cleanAfterBuild = false;
     protected int seriesLength;
 
-    //feature selection
-    private ObjectHashSet<SerialisableComparablePair<BitWord, Byte>> chiSquare;
+    //feature selection, words kept for each level indexed by level + 1
+    private LongHashSet[] chiSquare;
     protected int chiLimit = 2;
 
     protected int ensembleID = -1;
@@ -167,21 +170,108 @@ public class IndividualTDE extends EnhancedAbstractClassifier implements Compara
         this.numThreads = numThreads;
     }
 
-    //map of <word, level> => count
-    public static class Bag extends HashMap<SerialisableComparablePair<BitWord, Byte>, Integer> {
+    /**
+     * Histogram of <word, level> => count, where level is the pyramid quadrant of a word or -1 for bigrams. Words are
+     * counted in primitive hash maps while the bag is built. Once packed, the bag is held as parallel arrays sorted by
+     * level then word, which the distance measures merge-join over. Words can no longer be added after packing.
+     */
+    public static class Bag implements Serializable {
         private int classVal;
 
-        public Bag() {
-            super();
-        }
+        //word counts while the bag is being built, indexed by level + 1
+        private transient LongIntHashMap[] wordCounts = new LongIntHashMap[0];
+
+        private byte[] levels;
+        private long[] words;
+        private int[] counts;
+
+        public Bag() {}
 
         public Bag(int classValue) {
-            super();
             classVal = classValue;
         }
 
+        private Bag(int classValue, byte[] levels, long[] words, int[] counts) {
+            classVal = classValue;
+            wordCounts = null;
+            this.levels = levels;
+            this.words = words;
+            this.counts = counts;
+        }
+
         public int getClassVal() { return classVal; }
         public void setClassVal(int classVal) { this.classVal = classVal; }
+
+        public void add(BitWord word, byte level) {
+            add(word.getWord().longValue(), level);
+        }
+
+        public void add(long word, byte level) {
+            if (wordCounts == null)
+                throw new IllegalStateException("cannot add to a packed bag");
+
+            int slot = level + 1;
+            if (slot >= wordCounts.length)
+                wordCounts = Arrays.copyOf(wordCounts, slot + 1);
+            if (wordCounts[slot] == null)
+                wordCounts[slot] = new LongIntHashMap();
+            wordCounts[slot].addTo(word, 1);
+        }
+
+        /**
+         * Sorts the words counted so far into arrays, after which the bag can be read but not added to.
+         */
+        public void pack() {
+            if (wordCounts == null)
+                return;
+
+            int size = 0;
+            for (LongIntHashMap map : wordCounts)
+                if (map != null) size += map.size();
+
+            levels = new byte[size];
+            words = new long[size];
+            counts = new int[size];
+            int n = 0;
+            for (int slot = 0; slot < wordCounts.length; slot++) {
+                if (wordCounts[slot] == null)
+                    continue;
+
+                long[] keys = wordCounts[slot].keys().toArray();
+                Arrays.sort(keys);
+                for (long key : keys) {
+                    levels[n] = (byte)(slot - 1);
+                    words[n] = key;
+                    counts[n] = wordCounts[slot].get(key);
+                    n++;
+                }
+            }
+            wordCounts = null;
+        }
+
+        public int size() {
+            pack();
+            return words.length;
+        }
+
+        public long getWord(int i) { return words[i]; }
+        public byte getLevel(int i) { return levels[i]; }
+        public int getCount(int i) { return counts[i]; }
+        public void setCount(int i, int count) { counts[i] = count; }
+
+        /**
+         * @return position of entry i of this bag relative to entry j of the other bag in the sort order
+         */
+        private int compare(int i, Bag other, int j) {
+            if (levels[i] != other.levels[j])
+                return Byte.compare(levels[i], other.levels[j]);
+            return Long.compare(words[i], other.words[j]);
+        }
+
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            pack();
+            out.defaultWriteObject();
+        }
     }
 
     public int getWindowSize() { return windowSize; }
@@ -264,113 +354,6 @@ public class IndividualTDE extends EnhancedAbstractClassifier implements Compara
         return dft;
     }
 
-    protected double[] DFTunnormed(double[] series) {
-        //taken from FFT.java but
-        //return just a double[] size n, { real1, imag1, ... realn/2, imagn/2 }
-        //instead of Complex[] size n/2
-
-        //only calculating first wordlength/2 coefficients (output values),
-        //and skipping first coefficient if the data is to be normalised
-        int n=series.length;
-        int outputLength = wordLength/2;
-        int start = (norm ? 1 : 0);
-
-        double[] dft = new double[outputLength*2];
-        double twoPi = 2*Math.PI / n;
-
-        for (int k = start; k < start + outputLength; k++) {  // For each output element
-            float sumreal = 0;
-            float sumimag = 0;
-            for (int t = 0; t < n; t++) {  // For each input element
-                sumreal +=  series[t]*Math.cos(twoPi * t * k);
-                sumimag += -series[t]*Math.sin(twoPi * t * k);
-            }
-            dft[(k-start)*2]   = sumreal;
-            dft[(k-start)*2+1] = sumimag;
-        }
-        return dft;
-    }
-
-    protected double[] normalizeDFT(double[] dft, double std) {
-        double normalisingFactor = (std > 0? 1.0 / std : 1.0) * inverseSqrtWindowSize;
-        for (int i = 0; i < dft.length; i++)
-            dft[i] *= normalisingFactor;
-
-        return dft;
-    }
-
-    protected double[][] performMFT(double[] series) {
-        // ignore DC value?
-        int startOffset = norm ? 2 : 0;
-        int l = wordLength;
-        l = l + l % 2; // make it even
-        double[] phis = new double[l];
-        for (int u = 0; u < phis.length; u += 2) {
-            double uHalve = -(u + startOffset) / 2; //intentional int
-            phis[u] = realephi(uHalve, windowSize);
-            phis[u + 1] = complexephi(uHalve, windowSize);
-        }
-
-        // means and stddev for each sliding window
-        int end = Math.max(1, series.length - windowSize + 1);
-        double[] means = new double[end];
-        double[] stds = new double[end];
-        calcIncrementalMeanStddev(windowSize, series, means, stds);
-        // holds the DFT of each sliding window
-        double[][] transformed = new double[end][];
-        double[] mftData = null;
-
-        for (int t = 0; t < end; t++) {
-            // use the MFT
-            if (t > 0) {
-                for (int k = 0; k < l; k += 2) {
-                    double real1 = (mftData[k] + series[t + windowSize - 1] - series[t - 1]);
-                    double imag1 = (mftData[k + 1]);
-                    double real = complexMulReal(real1, imag1, phis[k], phis[k + 1]);
-                    double imag = complexMulImag(real1, imag1, phis[k], phis[k + 1]);
-                    mftData[k] = real;
-                    mftData[k + 1] = imag;
-                }
-            } // use the DFT for the first offset
-            else {
-                mftData = Arrays.copyOf(series, windowSize);
-                mftData = DFTunnormed(mftData);
-            }
-            // normalization for lower bounding
-            transformed[t] = normalizeDFT(Arrays.copyOf(mftData, l), stds[t]);
-        }
-        return transformed;
-    }
-
-    protected void calcIncrementalMeanStddev(int windowLength, double[] series, double[] means, double[] stds) {
-        double sum = 0;
-        double squareSum = 0;
-        // it is faster to multiply than to divide
-        double rWindowLength = 1.0 / (double) windowLength;
-        for (int ww = 0; ww < windowLength; ww++) {
-            sum += series[ww];
-            squareSum += series[ww] * series[ww];
-        }
-        means[0] = sum * rWindowLength;
-        double buf = squareSum * rWindowLength - means[0] * means[0];
-        stds[0] = buf > 0 ? Math.sqrt(buf) : 0;
-        for (int w = 1, end = series.length - windowLength + 1; w < end; w++) {
-            sum += series[w + windowLength - 1] - series[w - 1];
-            means[w] = sum * rWindowLength;
-            squareSum += series[w + windowLength - 1] * series[w + windowLength - 1] - series[w - 1] * series[w - 1];
-            buf = squareSum * rWindowLength - means[w] * means[w];
-            stds[w] = buf > 0 ? Math.sqrt(buf) : 0;
-        }
-    }
-
-    protected static double complexMulReal(double r1, double im1, double r2, double im2) { return r1 * r2 - im1 * im2; }
-
-    protected static double complexMulImag(double r1, double im1, double r2, double im2) { return r1 * im2 + r2 * im1; }
-
-    protected static double realephi(double u, double M) { return Math.cos(2 * Math.PI * u / M); }
-
-    protected static double complexephi(double u, double M) { return -Math.sin(2 * Math.PI * u / M); }
-
     protected double[][] disjointWindows(double [] data) {
         int amount = (int)Math.ceil(data.length/(double)windowSize);
         double[][] subSequences = new double[amount][windowSize];
@@ -554,22 +537,26 @@ public class IndividualTDE extends EnhancedAbstractClassifier implements Compara
     }
 
     private void trainChiSquared() {
-        // Chi2 Test
-        ObjectIntHashMap<SerialisableComparablePair<BitWord, Byte>> featureCount
-                = new ObjectIntHashMap<>(bags.get(0).size());
+        // Chi2 Test, counts for each level indexed by level + 1
+        int numSlots = 0;
+        for (Bag bag : bags) {
+            if (bag.size() > 0) numSlots = Math.max(numSlots, bag.levels[bag.size() - 1] + 2);
+        }
+
+        LongIntHashMap[] featureCount = newCounts(numSlots);
         DoubleDoubleHashMap classProb = new DoubleDoubleHashMap(10);
-        DoubleObjectHashMap<ObjectIntHashMap<SerialisableComparablePair<BitWord, Byte>>> observed
-                = new DoubleObjectHashMap<>(bags.get(0).size());
+        DoubleObjectHashMap<LongIntHashMap[]> observed = new DoubleObjectHashMap<>();
 
         // count number of samples with this word
         for (Bag bag : bags) {
             if (!observed.containsKey(bag.classVal)) {
-                observed.put(bag.classVal, new ObjectIntHashMap<>());
+                observed.put(bag.classVal, newCounts(numSlots));
             }
-            for (Map.Entry<SerialisableComparablePair<BitWord, Byte>, Integer> word : bag.entrySet()) {
-                if (word.getValue() > 0) {
-                    featureCount.putOrAdd(word.getKey(), 1, 1);
-                    observed.get(bag.classVal).putOrAdd(word.getKey(), 1, 1);
+            LongIntHashMap[] observe = observed.get(bag.classVal);
+            for (int i = 0; i < bag.size(); i++) {
+                if (bag.counts[i] > 0) {
+                    featureCount[bag.levels[i] + 1].putOrAdd(bag.words[i], 1, 1);
+                    observe[bag.levels[i] + 1].putOrAdd(bag.words[i], 1, 1);
                 }
             }
 
@@ -577,17 +564,22 @@ public class IndividualTDE extends EnhancedAbstractClassifier implements Compara
         }
 
         // chi-squared: observed minus expected occurrence
-        chiSquare = new ObjectHashSet<>(featureCount.size());
+        chiSquare = new LongHashSet[numSlots];
+        for (int slot = 0; slot < numSlots; slot++) {
+            chiSquare[slot] = new LongHashSet(featureCount[slot].size());
+        }
         for (DoubleDoubleCursor classLabel : classProb) {
             classLabel.value /= bags.size();
             if (observed.get(classLabel.key) != null) {
-                ObjectIntHashMap<SerialisableComparablePair<BitWord, Byte>> observe = observed.get(classLabel.key);
-                for (ObjectIntCursor<SerialisableComparablePair<BitWord, Byte>> feature : featureCount) {
-                    double expected = classLabel.value * feature.value;
-                    double chi = observe.get(feature.key) - expected;
-                    double newChi = chi * chi / expected;
-                    if (newChi >= chiLimit && !chiSquare.contains(feature.key)) {
-                        chiSquare.add(feature.key);
+                LongIntHashMap[] observe = observed.get(classLabel.key);
+                for (int slot = 0; slot < numSlots; slot++) {
+                    for (LongIntCursor feature : featureCount[slot]) {
+                        double expected = classLabel.value * feature.value;
+                        double chi = observe[slot].get(feature.key) - expected;
+                        double newChi = chi * chi / expected;
+                        if (newChi >= chiLimit) {
+                            chiSquare[slot].add(feature.key);
+                        }
                     }
                 }
             }
@@ -595,73 +587,58 @@ public class IndividualTDE extends EnhancedAbstractClassifier implements Compara
 
         // best elements above limit
         for (int i = 0; i < bags.size(); i++) {
-            Bag newBag = new Bag(bags.get(i).classVal);
-            for (Map.Entry<SerialisableComparablePair<BitWord, Byte>, Integer> cursor : bags.get(i).entrySet()) {
-                if (chiSquare.contains(cursor.getKey())) {
-                    newBag.put(cursor.getKey(), cursor.getValue());
-                }
-            }
-            bags.set(i, newBag);
+            bags.set(i, filterChiSquared(bags.get(i)));
         }
     }
 
+    private static LongIntHashMap[] newCounts(int numSlots) {
+        LongIntHashMap[] counts = new LongIntHashMap[numSlots];
+        for (int slot = 0; slot < numSlots; slot++) {
+            counts[slot] = new LongIntHashMap();
+        }
+        return counts;
+    }
+
     private Bag filterChiSquared(Bag bag) {
-        Bag newBag = new Bag(bag.classVal);
-        for (Map.Entry<SerialisableComparablePair<BitWord, Byte>, Integer> cursor : bag.entrySet()) {
-            if (chiSquare.contains(cursor.getKey())) {
-                newBag.put(cursor.getKey(), cursor.getValue());
+        int size = 0;
+        boolean[] keep = new boolean[bag.size()];
+        for (int i = 0; i < bag.size(); i++) {
+            int slot = bag.levels[i] + 1;
+            if (slot < chiSquare.length && chiSquare[slot].contains(bag.words[i])) {
+                keep[i] = true;
+                size++;
             }
         }
-        return newBag;
+
+        byte[] levels = new byte[size];
+        long[] words = new long[size];
+        int[] counts = new int[size];
+        for (int i = 0, n = 0; i < keep.length; i++) {
+            if (keep[i]) {
+                levels[n] = bag.levels[i];
+                words[n] = bag.words[i];
+                counts[n] = bag.counts[i];
+                n++;
+            }
+        }
+        return new Bag(bag.classVal, levels, words, counts);
     }
 
     /**
-     * Builds a brand new boss bag from the passed fourier transformed data, rather than from
-     * looking up existing transforms from earlier builds (i.e. SFAWords).
+     * Builds a brand new boss bag from the passed series, rather than from looking up existing transforms from
+     * earlier builds (i.e. SFAWords). Each window is transformed and discretised in turn straight into the bag.
      *
      * to be used e.g to transform new test instances
      */
-    private Bag createSPBagSingle(double[][] dfts) {
-        Bag bag = new Bag();
-        BitWord lastWord = new BitWordInt();
-        BitWord[] words = new BitWord[dfts.length];
-
-        int wInd = 0;
-        int trivialMatchCount = 0;
-
-        for (double[] d : dfts) {
-            BitWord word = createWord(d);
-            words[wInd] = word;
-
-            if (useBigrams) {
-                if (wInd - windowSize >= 0) {
-                    BitWord bigram = new BitWordLong(words[wInd - windowSize], word);
-
-                    SerialisableComparablePair<BitWord, Byte> key = new SerialisableComparablePair<>(bigram, (byte) -1);
-                    bag.merge(key, 1, Integer::sum);
-                }
-            }
-
-            //add to bag, unless num reduction applies
-            if (numerosityReduction && word.equals(lastWord)) {
-                ++trivialMatchCount;
-                ++wInd;
-            }
-            else {
-                //if a run of equivalent words, those words essentially representing the same
-                //elongated pattern. still apply numerosity reduction, however use the central
-                //time position of the elongated pattern to represent its position
-                addWordToPyramid(word, wInd - (trivialMatchCount/2), bag);
-
-                lastWord = word;
-                trivialMatchCount = 0;
-                ++wInd;
-            }
+    private Bag createSPBagSingle(double[] series) {
+        SPBagBuilder builder = new SPBagBuilder();
+        SlidingMFT mft = new SlidingMFT(wordLength, windowSize, norm);
+        mft.reset(series);
+        while (mft.next()) {
+            builder.add(createWordValue(mft.getDFT()));
         }
 
-        applyPyramidWeights(bag);
-
-        return bag;
+        return builder.build();
     }
 
     private BitWord createWord(double[] dft) {
@@ -676,6 +653,21 @@ public class IndividualTDE extends EnhancedAbstractClassifier implements Compara
         return word;
     }
 
+    /**
+     * @return value of the BitWordInt createWord would make from the dft
+     */
+    private int createWordValue(double[] dft) {
+        int word = 0;
+        for (int l = 0; l < wordLength; ++l) //for each letter
+            for (int bp = 0; bp < alphabetSize; ++bp) //run through breakpoints until right one found
+                if (dft[l] <= breakpoints[l][bp]) {
+                    word = (word << BitWordInt.BITS_PER_LETTER) | bp; //add corresponding letter to word
+                    break;
+                }
+
+        return word;
+    }
+
     /**
      * @return data of passed instance in a double array with the class value removed if present
      */
@@ -697,8 +689,7 @@ public class IndividualTDE extends EnhancedAbstractClassifier implements Compara
      * @return BOSSSpatialPyramidsTransform-ed bag, built using current parameters
      */
     private Bag BOSSSpatialPyramidsTransform(TimeSeriesInstance inst) {
-        double[][] mfts = performMFT(inst.toValueArray()[0]); //approximation
-        Bag bag = createSPBagSingle(mfts); //discretisation/bagging
+        Bag bag = createSPBagSingle(inst.toValueArray()[0]); //approximation, discretisation and bagging
         bag.setClassVal(inst.getLabelIndex());
         return bag;
     }
@@ -735,37 +726,49 @@ public class IndividualTDE extends EnhancedAbstractClassifier implements Compara
      * Builds a bag from the set of words for a pre-transformed series of a given wordlength.
      */
     private Bag createSPBagFromWords(int thisWordLength, BitWord[] words) {
-        Bag bag = new Bag();
-        BitWord lastWord = new BitWordInt();
-        BitWord[] newWords = new BitWord[words.length];
+        SPBagBuilder builder = new SPBagBuilder();
+        for (BitWord w : words) {
+            int word = w.getWord().intValue();
+            if (wordLength != thisWordLength) //max word length, no classifier currently uses past 16.
+                word >>>= (BitWordInt.MAX_LENGTH-thisWordLength) * BitWordInt.BITS_PER_LETTER;
+            builder.add(word);
+        }
 
-        int wInd = 0;
-        int trivialMatchCount = 0; //keeps track of how many words have been the same so far
+        return builder.build();
+    }
 
-        for (BitWord w : words) {
-            BitWord word = new BitWordInt(w);
-            if (wordLength != thisWordLength)
-                word.shorten(16-thisWordLength); //max word length, no classifier currently uses past 16.
-            newWords[wInd] = word;
+    /**
+     * Adds the words of consecutive windows to a bag, with numerosity reduction and bigrams if selected. Words are
+     * held as the int values of their BitWordInts.
+     */
+    private class SPBagBuilder {
+        private final Bag bag = new Bag();
+        //words of the last windowSize windows, for bigrams
+        private final int[] pastWords = useBigrams ? new int[windowSize] : null;
+        private int lastWord = 0; //value of an empty word
+
+        private int wInd = 0;
+        private int trivialMatchCount = 0; //keeps track of how many words have been the same so far
 
+        private void add(int word) {
             if (useBigrams) {
                 if (wInd - windowSize >= 0) {
-                    BitWord bigram = new BitWordLong(newWords[wInd - windowSize], word);
-
-                    SerialisableComparablePair<BitWord, Byte> key = new SerialisableComparablePair<>(bigram, (byte) -1);
-                    bag.merge(key, 1, Integer::sum);
+                    //same value as the BitWordLong of the two words
+                    long bigram = ((long) pastWords[wInd % windowSize] << 32) | Integer.toUnsignedLong(word);
+                    bag.add(bigram, (byte) -1);
                 }
+                pastWords[wInd % windowSize] = word;
             }
 
             //add to bag, unless num reduction applies
-            if (numerosityReduction && word.equals(lastWord)) {
+            if (numerosityReduction && word == lastWord) {
                 ++trivialMatchCount;
                 ++wInd;
             }
             else {
                 //if a run of equivalent words, those words essentially representing the same
                 //elongated pattern. still apply numerosity reduction, however use the central
-                //time position to represent its position
+                //time position of the elongated pattern to represent its position
                 addWordToPyramid(word, wInd - (trivialMatchCount/2), bag);
 
                 lastWord = word;
@@ -774,9 +777,10 @@ public class IndividualTDE extends EnhancedAbstractClassifier implements Compara
             }
         }
 
-        applyPyramidWeights(bag);
-
-        return bag;
+        private Bag build() {
+            applyPyramidWeights(bag);
+            return bag;
+        }
     }
 
     public void changeNumLevels(int newLevels) {
@@ -796,9 +800,10 @@ public class IndividualTDE extends EnhancedAbstractClassifier implements Compara
     }
 
     protected void applyPyramidWeights(Bag bag) {
-        for (Map.Entry<SerialisableComparablePair<BitWord, Byte>, Integer> ent : bag.entrySet()) {
+        bag.pack();
+        for (int i = 0; i < bag.size(); i++) {
             //find level that this quadrant is on
-            int quadrant = ent.getKey().var2;
+            int quadrant = bag.getLevel(i);
             int qEnd = 0;
             int level = 0;
             while (qEnd < quadrant) {
@@ -807,12 +812,12 @@ public class IndividualTDE extends EnhancedAbstractClassifier implements Compara
             }
 
             //double val = ent.getValue() * (Math.pow(levelWeighting, levels-level-1)); //weighting ^ (levels - level)
-            int val = ent.getValue() * (int)Math.pow(2,level);
-            bag.put(ent.getKey(), val);
+            int val = bag.getCount(i) * (int)Math.pow(2,level);
+            bag.setCount(i, val);
         }
     }
 
-    private void addWordToPyramid(BitWord word, int wInd, Bag bag) {
+    private void addWordToPyramid(long word, int wInd, Bag bag) {
         int qStart = 0; //for this level, whats the start index for quadrants
         //e.g level 0 = 0
         //    level 1 = 1
@@ -824,18 +829,18 @@ public class IndividualTDE extends EnhancedAbstractClassifier implements Compara
             int pos = wInd + (windowSize/2); //use the middle of the window as its position
             int quadrant = qStart + (pos/quadrantSize);
 
-            SerialisableComparablePair<BitWord, Byte> key = new SerialisableComparablePair<>(word, (byte)quadrant);
-            bag.merge(key, 1, Integer::sum);
+            bag.add(word, (byte)quadrant);
 
             qStart += numQuadrants;
         }
     }
 
     private BitWord[] createSFAwords(double[] inst) {
-        double[][] dfts = performMFT(inst); //approximation
-        BitWord[] words = new BitWord[dfts.length];
-        for (int window = 0; window < dfts.length; ++window) {
-            words[window] = createWord(dfts[window]);//discretisation
+        SlidingMFT mft = new SlidingMFT(wordLength, windowSize, norm);
+        mft.reset(inst);
+        BitWord[] words = new BitWord[mft.getNumWindows()];
+        while (mft.next()) {
+            words[mft.getWindow()] = createWord(mft.getDFT()); //approximation and discretisation
         }
 
         return words;
@@ -862,7 +867,7 @@ public class IndividualTDE extends EnhancedAbstractClassifier implements Compara
 
         if (multiThread){
             if (numThreads == 1) numThreads = Runtime.getRuntime().availableProcessors();
-            if (ex == null) ex = Executors.newFixedThreadPool(numThreads);
+            if (ex == null) ex = ComputePool.newExecutor(numThreads);
 
             ArrayList<Future<Bag>> futures = new ArrayList<>(data.numInstances());
 
@@ -909,11 +914,15 @@ public class IndividualTDE extends EnhancedAbstractClassifier implements Compara
     public double BOSSdistance(Bag instA, Bag instB, double bestDist) {
         double dist = 0.0;
 
-        //find dist only from values in instA
-        for (Map.Entry<SerialisableComparablePair<BitWord, Byte>, Integer> entry : instA.entrySet()) {
-            Integer valA = entry.getValue();
-            Integer valB = instB.get(entry.getKey());
-            if (valB == null) valB = 1;
+        //find dist only from values in instA, merging over the sorted words of both bags
+        int sizeB = instB.size();
+        int j = 0;
+        for (int i = 0; i < instA.size(); i++) {
+            while (j < sizeB && instB.compare(j, instA, i) < 0)
+                j++;
+
+            int valA = instA.counts[i];
+            int valB = j < sizeB && instB.compare(j, instA, i) == 0 ? instB.counts[j] : 1;
             dist += (valA-valB)*(valA-valB);
 
             if (dist > bestDist)
@@ -929,15 +938,25 @@ public class IndividualTDE extends EnhancedAbstractClassifier implements Compara
         //therefore will simply loop over words in a, skipping those that dont appear in b
         //no need to loop over b, since only words missed will be those not in a anyway
 
+        //both bags are sorted, so merge over their words
         double sim = 0.0;
-
-        for (Map.Entry<SerialisableComparablePair<BitWord, Byte>, Integer> entry : instA.entrySet()) {
-            Integer valA = entry.getValue();
-            Integer valB = instB.get(entry.getKey());
-            if (valB == null)
-                continue;
-
-            sim += Math.min(valA,valB);
+        int sizeA = instA.size();
+        int sizeB = instB.size();
+        int i = 0;
+        int j = 0;
+        while (i < sizeA && j < sizeB) {
+            int c = instA.compare(i, instB, j);
+            if (c < 0) {
+                i++;
+            }
+            else if (c > 0) {
+                j++;
+            }
+            else {
+                sim += Math.min(instA.counts[i], instB.counts[j]);
+                i++;
+                j++;
+            }
         }
 
         return sim;
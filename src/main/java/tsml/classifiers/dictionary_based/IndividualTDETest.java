@@ -0,0 +1,81 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+package tsml.classifiers.dictionary_based;
+
+import org.junit.Assert;
+import org.junit.Test;
+import tsml.classifiers.dictionary_based.IndividualTDE.Bag;
+import tsml.classifiers.dictionary_based.bitword.BitWord;
+import tsml.classifiers.dictionary_based.bitword.BitWordInt;
+import tsml.classifiers.dictionary_based.bitword.BitWordLong;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * Purpose: test the similarity measures over packed bags against counts worked out by hand
+ */
+public class IndividualTDETest {
+
+    private static BitWord word(int... letters) throws Exception {
+        return new BitWordInt(letters);
+    }
+
+    private static Bag bag(Object... wordsAndLevels) {
+        Bag bag = new Bag();
+        for (int i = 0; i < wordsAndLevels.length; i += 2) {
+            bag.add((BitWord) wordsAndLevels[i], (byte) (int) wordsAndLevels[i + 1]);
+        }
+        bag.pack();
+        return bag;
+    }
+
+    @Test
+    public void testSimilarityMeasures() throws Exception {
+        BitWord a = word(3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3); // negative as an int
+        BitWord b = word(0, 1, 2);
+        BitWord bigram = new BitWordLong(a, b);
+        Bag bagA = bag(a, 0, a, 0, b, 0, bigram, -1, bigram, -1, bigram, -1);
+        Bag bagB = bag(b, 1, a, 0, bigram, -1, b, 2);
+
+        IndividualTDE tde = new IndividualTDE(16, 4, 10, true, 2, false);
+        // <a, 0> min(2, 1) + <bigram, -1> min(3, 1)
+        Assert.assertEquals(2, tde.histogramIntersection(bagA, bagB), 0);
+        Assert.assertEquals(2, tde.histogramIntersection(bagB, bagA), 0);
+        // <a, 0> (2 - 1)^2 + <b, 0> missing from bagB so (1 - 1)^2 + <bigram, -1> (3 - 1)^2
+        Assert.assertEquals(5, tde.BOSSdistance(bagA, bagB, Double.MAX_VALUE), 0);
+        Assert.assertEquals(Double.MAX_VALUE, tde.BOSSdistance(bagA, bagB, 4), 0);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(bagA);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            Bag copy = (Bag) in.readObject();
+            Assert.assertEquals(bagA.size(), copy.size());
+            Assert.assertEquals(6, tde.histogramIntersection(bagA, copy), 0);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAddAfterPack() throws Exception {
+        bag(word(1, 2), 0).add(word(1, 2), (byte) 0);
+    }
+}
@@ -34,6 +34,7 @@ import utilities.generic_storage.SerialisableComparablePair;
 import java.io.Serializable;
 import java.util.*;
 import java.util.concurrent.*;
+import utilities.ComputePool;
 
 /**
  * Improved BOSS classifier to be used with known parameters, for ensemble use TDE.
@@ -303,20 +304,22 @@ public class MultivariateIndividualTDE extends IndividualTDE {
     }
 
     /**
-     * Builds a brand new boss bag from the passed fourier transformed data, rather than from
+     * Builds a brand new boss bag from the passed series, rather than from
      * looking up existing transforms from earlier builds (i.e. SFAWords).
      *
      * to be used e.g to transform new test instances
      */
-    private void addToSPBagSingle(BagMV bag, double[][] dfts, int dimension) {
+    private void addToSPBagSingle(BagMV bag, double[] series, int dimension) {
         BitWord lastWord = new BitWordInt();
-        BitWord[] words = new BitWord[dfts.length];
+        SlidingMFT mft = new SlidingMFT(wordLength, windowSize, norm);
+        mft.reset(series);
+        BitWord[] words = new BitWord[mft.getNumWindows()];
 
         int wInd = 0;
         int trivialMatchCount = 0;
 
-        for (double[] d : dfts) {
-            BitWord word = createWord(d, dimension);
+        while (mft.next()) {
+            BitWord word = createWord(mft.getDFT(), dimension); //approximation and discretisation
             words[wInd] = word;
 
             if (useBigrams) {
@@ -367,8 +370,7 @@ public class MultivariateIndividualTDE extends IndividualTDE {
         double[][] split = inst.toValueArray();
 
         for (Integer d : dimensionSubsample) {
-            double[][] mfts = performMFT(split[d]); //approximation
-            addToSPBagSingle(bag, mfts, d); //discretisation/bagging
+            addToSPBagSingle(bag, split[d], d); //approximation, discretisation and bagging
         }
         applyPyramidWeights(bag);
 
@@ -507,10 +509,11 @@ public class MultivariateIndividualTDE extends IndividualTDE {
     }
 
     private BitWord[] createSFAwords(double[] inst, int dimension) {
-        double[][] dfts = performMFT(inst); //approximation
-        BitWord[] words = new BitWord[dfts.length];
-        for (int window = 0; window < dfts.length; ++window) {
-            words[window] = createWord(dfts[window], dimension);//discretisation
+        SlidingMFT mft = new SlidingMFT(wordLength, windowSize, norm);
+        mft.reset(inst);
+        BitWord[] words = new BitWord[mft.getNumWindows()];
+        while (mft.next()) {
+            words[mft.getWindow()] = createWord(mft.getDFT(), dimension); //approximation and discretisation
         }
 
         return words;
@@ -535,9 +538,7 @@ public class MultivariateIndividualTDE extends IndividualTDE {
                         int pos = wInd + (windowSize/2); //use the middle of the window as its position
                         int quadrant = qStart + (pos/quadrantSize);
 
-                        SerialisableComparablePair<BitWord, Byte> key = new SerialisableComparablePair<>(word,
-                                (byte)quadrant);
-                        bag.merge(key, 1, Integer::sum);
+                        bag.add(word, (byte)quadrant);
 
                         qStart += numQuadrants;
                     }
@@ -622,7 +623,7 @@ public class MultivariateIndividualTDE extends IndividualTDE {
 
         if (multiThread){
             if (numThreads == 1) numThreads = Runtime.getRuntime().availableProcessors();
-            if (ex == null) ex = Executors.newFixedThreadPool(numThreads);
+            if (ex == null) ex = ComputePool.newExecutor(numThreads);
 
             ArrayList<Future<BagMV>> futures = new ArrayList<>(data.numInstances());
 
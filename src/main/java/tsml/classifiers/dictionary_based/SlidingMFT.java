@@ -0,0 +1,168 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+package tsml.classifiers.dictionary_based;
+
+import java.util.Arrays;
+
+/**
+ * Momentary Fourier transform (MFT) of every sliding window of a series, for discretising into SFA words. Windows are
+ * transformed one at a time: the Fourier coefficients of each window are updated from those of the previous window
+ * and its standard deviation from running sums, so nothing is held per window. Only the first window takes a full
+ * DFT.
+ *
+ * Usage:
+ * <pre>
+ *     SlidingMFT mft = new SlidingMFT(wordLength, windowSize, norm);
+ *     mft.reset(series);
+ *     while (mft.next()) {
+ *         double[] dft = mft.getDFT(); // coefficients of window mft.getWindow(), overwritten by the next call to next
+ *     }
+ * </pre>
+ */
+public class SlidingMFT {
+
+    private final int wordLength;
+    private final int windowSize;
+    private final boolean norm;
+    private final double inverseSqrtWindowSize;
+    private final double rWindowSize;
+
+    //rotation of each coefficient when sliding the window along one step
+    private final double[] phis;
+    //normalised coefficients of the current window
+    private final double[] dft;
+    //unnormalised coefficients of the current window
+    private double[] mftData;
+
+    private double[] series;
+    private int numWindows;
+    private int window;
+    private double sum;
+    private double squareSum;
+
+    public SlidingMFT(int wordLength, int windowSize, boolean norm) {
+        this.wordLength = wordLength;
+        this.windowSize = windowSize;
+        this.norm = norm;
+        this.inverseSqrtWindowSize = 1.0 / Math.sqrt(windowSize);
+        // it is faster to multiply than to divide
+        this.rWindowSize = 1.0 / (double) windowSize;
+
+        // ignore DC value?
+        int startOffset = norm ? 2 : 0;
+        int l = wordLength;
+        l = l + l % 2; // make it even
+        phis = new double[l];
+        for (int u = 0; u < phis.length; u += 2) {
+            double uHalve = -(u + startOffset) / 2; //intentional int
+            phis[u] = Math.cos(2 * Math.PI * uHalve / windowSize);
+            phis[u + 1] = -Math.sin(2 * Math.PI * uHalve / windowSize);
+        }
+        dft = new double[l];
+    }
+
+    /**
+     * Start transforming the windows of a new series.
+     */
+    public void reset(double[] series) {
+        this.series = series;
+        numWindows = Math.max(1, series.length - windowSize + 1);
+        window = -1;
+    }
+
+    public int getNumWindows() { return numWindows; }
+
+    public int getWindow() { return window; }
+
+    /**
+     * @return normalised Fourier coefficients of the current window, { real1, imag1, ... }
+     */
+    public double[] getDFT() { return dft; }
+
+    /**
+     * Slide the window along one step and transform it.
+     *
+     * @return false if there are no windows left
+     */
+    public boolean next() {
+        if (window + 1 >= numWindows)
+            return false;
+
+        int t = ++window;
+        // use the MFT
+        if (t > 0) {
+            sum += series[t + windowSize - 1] - series[t - 1];
+            squareSum += series[t + windowSize - 1] * series[t + windowSize - 1] - series[t - 1] * series[t - 1];
+
+            for (int k = 0; k < dft.length; k += 2) {
+                double real1 = (mftData[k] + series[t + windowSize - 1] - series[t - 1]);
+                double imag1 = (mftData[k + 1]);
+                mftData[k] = real1 * phis[k] - imag1 * phis[k + 1];
+                mftData[k + 1] = real1 * phis[k + 1] + phis[k] * imag1;
+            }
+        } // use the DFT for the first offset
+        else {
+            sum = 0;
+            squareSum = 0;
+            for (int ww = 0; ww < windowSize; ww++) {
+                sum += series[ww];
+                squareSum += series[ww] * series[ww];
+            }
+
+            mftData = DFTunnormed(Arrays.copyOf(series, windowSize));
+        }
+
+        double mean = sum * rWindowSize;
+        double buf = squareSum * rWindowSize - mean * mean;
+        double std = buf > 0 ? Math.sqrt(buf) : 0;
+
+        // normalization for lower bounding
+        double normalisingFactor = (std > 0 ? 1.0 / std : 1.0) * inverseSqrtWindowSize;
+        for (int i = 0; i < dft.length; i++)
+            dft[i] = (i < mftData.length ? mftData[i] : 0) * normalisingFactor;
+
+        return true;
+    }
+
+    private double[] DFTunnormed(double[] series) {
+        //taken from FFT.java but
+        //return just a double[] size n, { real1, imag1, ... realn/2, imagn/2 }
+        //instead of Complex[] size n/2
+
+        //only calculating first wordlength/2 coefficients (output values),
+        //and skipping first coefficient if the data is to be normalised
+        int n = series.length;
+        int outputLength = wordLength/2;
+        int start = (norm ? 1 : 0);
+
+        double[] dft = new double[outputLength*2];
+        double twoPi = 2*Math.PI / n;
+
+        for (int k = start; k < start + outputLength; k++) {  // For each output element
+            float sumreal = 0;
+            float sumimag = 0;
+            for (int t = 0; t < n; t++) {  // For each input element
+                sumreal +=  series[t]*Math.cos(twoPi * t * k);
+                sumimag += -series[t]*Math.sin(twoPi * t * k);
+            }
+            dft[(k-start)*2]   = sumreal;
+            dft[(k-start)*2+1] = sumimag;
+        }
+        return dft;
+    }
+}
@@ -31,9 +31,9 @@ import weka.core.*;
 import java.io.*;
 import java.util.*;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import utilities.ComputePool;
 
 import static utilities.InstanceTools.resampleTrainAndTestInstances;
 import static utilities.Utilities.argMax;
@@ -363,7 +363,7 @@ public class TDE extends EnhancedAbstractClassifier implements TrainTimeContract
         }
 
         if (multiThread) {
-            ex = Executors.newFixedThreadPool(numThreads);
+            ex = ComputePool.newExecutor(numThreads);
         }
 
         //Contracting
@@ -967,38 +967,56 @@ public class TDE extends EnhancedAbstractClassifier implements TrainTimeContract
      */
     @Override //TSClassifier
     public double[] distributionForInstance(TimeSeriesInstance instance) throws Exception {
+        if (!multiThread)
+            return distributionForInstanceSingleThread(instance);
+
         double[] classHist = new double[numClasses];
 
         //get sum of all channels, votes from each are weighted the same.
         double sum = 0;
 
-        if (multiThread){
-            ArrayList<Future<Double>> futures = new ArrayList<>(classifiers.size());
+        ArrayList<Future<Double>> futures = new ArrayList<>(classifiers.size());
 
-            for (IndividualTDE classifier : classifiers) {
-                if (train.isMultivariate())
-                    futures.add(ex.submit(((MultivariateIndividualTDE)classifier)
-                            .new TestNearestNeighbourThread(instance)));
-                else
-                    futures.add(ex.submit(classifier.new TestNearestNeighbourThread(instance)));
-            }
+        for (IndividualTDE classifier : classifiers) {
+            if (train.isMultivariate())
+                futures.add(ex.submit(((MultivariateIndividualTDE)classifier)
+                        .new TestNearestNeighbourThread(instance)));
+            else
+                futures.add(ex.submit(classifier.new TestNearestNeighbourThread(instance)));
+        }
 
-            int idx = 0;
-            for (Future<Double> f : futures) {
-                double weight = classifiers.get(idx).getWeight();
-                classHist[f.get().intValue()] += weight;
-                sum += weight;
-                idx++;
-            }
+        int idx = 0;
+        for (Future<Double> f : futures) {
+            double weight = classifiers.get(idx).getWeight();
+            classHist[f.get().intValue()] += weight;
+            sum += weight;
+            idx++;
         }
-        else {
-            for (IndividualTDE classifier : classifiers) {
-                double classification = classifier.classifyInstance(instance);
-                classHist[(int) classification] += classifier.getWeight();
-                sum += classifier.getWeight();
-            }
+
+        return normaliseVotes(classHist, sum);
+    }
+
+    /**
+     * Find class probabilities of an instance using the trained model, using only the calling thread.
+     *
+     * @param instance TimeSeriesInstance object
+     * @return array of doubles: probability of each class
+     * @throws Exception failure to classify
+     */
+    private double[] distributionForInstanceSingleThread(TimeSeriesInstance instance) throws Exception {
+        double[] classHist = new double[numClasses];
+        double sum = 0;
+
+        for (IndividualTDE classifier : classifiers) {
+            double classification = classifier.classifyInstance(instance);
+            classHist[(int) classification] += classifier.getWeight();
+            sum += classifier.getWeight();
         }
 
+        return normaliseVotes(classHist, sum);
+    }
+
+    private double[] normaliseVotes(double[] classHist, double sum) {
         double[] distributions = new double[numClasses];
 
         if (sum != 0) {
@@ -1013,6 +1031,52 @@ public class TDE extends EnhancedAbstractClassifier implements TrainTimeContract
         return distributions;
     }
 
+    /**
+     * Find class probabilities of a batch of instances using the trained model. If multithreading, each instance is
+     * predicted by a single thread with instances spread over the threads, rather than spreading the ensemble members
+     * of each instance over the threads.
+     *
+     * @param data TimeSeriesInstances object
+     * @return array of doubles: probability of each class for each instance
+     * @throws Exception failure to classify
+     */
+    @Override //TSClassifier
+    public double[][] distributionForInstances(TimeSeriesInstances data) throws Exception {
+        double[][] probs = new double[data.numInstances()][];
+
+        if (multiThread){
+            ArrayList<Future<double[]>> futures = new ArrayList<>(probs.length);
+
+            for (TimeSeriesInstance instance : data) {
+                futures.add(ex.submit(() -> distributionForInstanceSingleThread(instance)));
+            }
+
+            int i = 0;
+            for (Future<double[]> f : futures) {
+                probs[i++] = f.get();
+            }
+        }
+        else {
+            for (int i = 0; i < probs.length; i++) {
+                probs[i] = distributionForInstanceSingleThread(data.get(i));
+            }
+        }
+
+        return probs;
+    }
+
+    /**
+     * Find class probabilities of a batch of instances using the trained model.
+     *
+     * @param data weka Instances object
+     * @return array of doubles: probability of each class for each instance
+     * @throws Exception failure to classify
+     */
+    @Override //EnhancedAbstractClassifier
+    public double[][] distributionForInstances(Instances data) throws Exception {
+        return distributionForInstances(Converter.fromArff(data));
+    }
+
     /**
      * Find class probabilities of an instance using the trained model.
      *
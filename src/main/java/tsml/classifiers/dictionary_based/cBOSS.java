@@ -28,7 +28,6 @@ import java.io.ObjectOutputStream;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import tsml.classifiers.MemoryContractable;
 import utilities.*;
@@ -550,7 +549,7 @@ public class cBOSS extends EnhancedAbstractClassifier implements TrainTimeContra
 
         if (multiThread){
             if (numThreads == 1) numThreads = Runtime.getRuntime().availableProcessors();
-            if (ex == null) ex = Executors.newFixedThreadPool(numThreads);
+            if (ex == null) ex = ComputePool.newExecutor(numThreads);
         }
 
         //required to deal with multivariate datasets, each channel is split into its own instances
@@ -21,6 +21,11 @@ import machine_learning.classifiers.kNN;
 import weka.core.*;
 
 import tsml.classifiers.legacy.elastic_ensemble.distance_functions.DTW;
+import tsml.classifiers.distance_based.distances.dtw.DTWDistance;
+import tsml.classifiers.distance_based.distances.lowerbound.LowerBound;
+import tsml.classifiers.distance_based.distances.lowerbound.LowerBounds;
+import tsml.data_containers.TimeSeriesInstances;
+import tsml.data_containers.utilities.Converter;
 
 /* This class is a specialisation of kNN that can only be used with the efficient DTW distance
  * 
@@ -39,6 +44,10 @@ import tsml.classifiers.legacy.elastic_ensemble.distance_functions.DTW;
  * 2. Set the increment size 
  * setIncrementSize(int s) where s is on range 1...trainSetSize 
  * 
+ * The search skips any distance whose LB_Kim/LB_Improved lower bound already exceeds the 
+ * nearest so far, which does not change the result. Turn this off with setLowerBound(false). 
+ * Predictions use the IBk neighbour search, which only early abandons.
+ * 
  * This is a basic brute force implementation,
  * @author Tony Bagnall, circa 2012?
  */
@@ -52,6 +61,13 @@ public class DTW_kNN extends kNN {
     private int trainSize;
     private int bestWarp;
     DTW dtw=new DTW();
+    private boolean lowerBound=true;
+//Lower bound cascade for the window search, over the train data converted to TimeSeriesInstances. 
+//lbDtw holds the window the bounds are for    
+    private DTWDistance lbDtw;
+    private LowerBound lb;
+    private TimeSeriesInstances tsTrain;
+    private long lowerBoundPruneCount;
 
 //	DTW_DistanceEfficient dtw=new DTW_DistanceEfficient();
     public DTW_kNN(){
@@ -66,6 +82,10 @@ public class DTW_kNN extends kNN {
     public void optimiseWindow(boolean b){ optimiseWindow=b;}
     public void setMaxR(double r){ maxWindowSize=r;}
     public void setIncrementSize(int x){incrementSize=x;}
+    public void setLowerBound(boolean b){ lowerBound=b;}
+    public boolean getLowerBound(){ return lowerBound;}
+/** The number of distances skipped by the lower bounds during the last window search */
+    public long getLowerBoundPruneCount(){ return lowerBoundPruneCount;}
 
     public DTW_kNN(int k){
             super(k);
@@ -90,11 +110,23 @@ data*/
             else
                 dataLength=train.numAttributes()-1;
             int max=(int)(dataLength*maxWindowSize);
+            lowerBoundPruneCount=0;
+//The bounds are for univariate DTW only
+            if(lowerBound && !train.attribute(0).isRelationValued()){
+                tsTrain=Converter.fromArff(train);
+                lbDtw=new DTWDistance();
+                lb=LowerBounds.forDistanceMeasure(lbDtw);
+            }
+            else
+                lb=null;
 			System.out.println(" MAX ="+max+" increment size ="+incrementSize);
             for(double i=0;i<max;i+=incrementSize){
 
                 //Set r for current value
                 dtw.setR(i/(double)dataLength);
+//The bound window is at least as wide as the window DTW uses, (int)(r*n), so remains a valid bound                
+                if(lb!=null)
+                    lbDtw.setWindow(i/(double)dataLength);
                 double acc=crossValidateAccuracy();
 				System.out.println("\ti="+i+" r="+(i/(double)dataLength)+" Acc = "+acc);
                 if(acc>maxAcc){
@@ -105,6 +137,8 @@ data*/
             }
             bestWarp=(int)(maxR*dataLength);
             dtw.setR(maxR);
+            lb=null;
+            tsTrain=null;
 //			System.out.println(" Best R = "+maxR+" Best Warp ="+bestWarp+" Size = "+(maxR*dataLength));
         }
 // Then just use the normal kNN with the DTW distance. 
@@ -122,6 +156,11 @@ data*/
             inst=train.instance(i);
             for(int j=0;j<trainSize;j++){
                 if(i!=j){
+//If the bound exceeds the nearest so far then so must the distance                    
+                    if(lb!=null && lb.lowerBound(tsTrain.get(i),tsTrain.get(j),minDist)>minDist){
+                        lowerBoundPruneCount++;
+                        continue;
+                    }
                     d=dtw.distance(inst,train.instance(j),minDist);
                     if(d<minDist){
                             nearest=j;
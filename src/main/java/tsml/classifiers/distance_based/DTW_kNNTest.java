@@ -0,0 +1,50 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+ 
+package tsml.classifiers.distance_based;
+
+import experiments.data.DatasetLoading;
+import org.junit.Assert;
+import org.junit.Test;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * Purpose: test lower bounding the window search prunes distances without changing the window found or the predictions
+ */
+public class DTW_kNNTest {
+
+    @Test
+    public void testLowerBoundedWindowSearch() throws Exception {
+        final Instances[] data = DatasetLoading.sampleItalyPowerDemand(0);
+        final DTW_kNN bounded = new DTW_kNN();
+        final DTW_kNN unbounded = new DTW_kNN();
+        unbounded.setLowerBound(false);
+        for(DTW_kNN knn : new DTW_kNN[] {bounded, unbounded}) {
+            knn.optimiseWindow(true);
+            knn.setIncrementSize(1);
+            knn.buildClassifier(data[0]);
+        }
+        Assert.assertEquals(unbounded.getParameters(), bounded.getParameters());
+        Assert.assertTrue(bounded.getLowerBoundPruneCount() > 0);
+        Assert.assertEquals(0, unbounded.getLowerBoundPruneCount());
+        for(Instance inst : data[1]) {
+            Assert.assertArrayEquals(unbounded.distributionForInstance(inst), bounded.distributionForInstance(inst), 0d);
+        }
+    }
+}
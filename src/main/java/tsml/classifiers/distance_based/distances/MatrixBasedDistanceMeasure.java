@@ -17,6 +17,9 @@
  
 package tsml.classifiers.distance_based.distances;
 
+import tsml.data_containers.TimeSeries;
+import tsml.data_containers.TimeSeriesInstance;
+
 import java.util.Arrays;
 
 /**
@@ -37,6 +40,10 @@ public abstract class MatrixBasedDistanceMeasure extends BaseDistanceMeasure {
     private double[] evenRow;
     private int numCols;
     private boolean recycleRows;
+    // primitive copies of the values of the pair of insts being compared. These are reused between distance
+    // computations to avoid boxing / allocating in the inner loop of the cost matrix
+    private transient double[][] aValues;
+    private transient double[][] bValues;
 
     /**
      * Indicate that a new distance is being computed and a corresponding matrix or pair or rows are required
@@ -44,30 +51,65 @@ public abstract class MatrixBasedDistanceMeasure extends BaseDistanceMeasure {
      * @param numCols
      */
     protected void setup(int numRows, int numCols, boolean recycleRows) {
-        oddRow = null;
-        evenRow = null;
         costMatrix = null;
         this.numCols = numCols;
         this.recycleRows = recycleRows;
         if(recordCostMatrix) {
+            oddRow = null;
+            evenRow = null;
             costMatrix = new double[numRows][numCols];
             for(double[] array : costMatrix) Arrays.fill(array, getFillerValue());
-        } else {
+        } else if(recycleRows && (oddRow == null || oddRow.length != numCols)) {
+            // the pair of rows is kept between computations, so only reallocate when the length changes
             oddRow = new double[numCols];
             evenRow = new double[numCols];
         }
     }
+
+    /**
+     * Get the values of the first inst as a primitive array, indexed by dimension then time point. The array is a
+     * buffer reused between distance computations so must not be retained.
+     * @param a
+     * @return
+     */
+    protected double[][] getValuesA(TimeSeriesInstance a) {
+        return aValues = copyValues(a, aValues);
+    }
+
+    /**
+     * Get the values of the second inst as a primitive array, indexed by dimension then time point. The array is a
+     * buffer reused between distance computations so must not be retained.
+     * @param b
+     * @return
+     */
+    protected double[][] getValuesB(TimeSeriesInstance b) {
+        return bValues = copyValues(b, bValues);
+    }
+
+    private static double[][] copyValues(TimeSeriesInstance inst, double[][] buffer) {
+        final int numDimensions = inst.getNumDimensions();
+        if(buffer == null || buffer.length != numDimensions) {
+            buffer = new double[numDimensions][];
+        }
+        for(int i = 0; i < numDimensions; i++) {
+            final TimeSeries dim = inst.get(i);
+            final int length = dim.getSeriesLength();
+            if(buffer[i] == null || buffer[i].length != length) {
+                buffer[i] = new double[length];
+            }
+            dim.copyValues(buffer[i], 0);
+        }
+        return buffer;
+    }
     
     protected double getFillerValue() {
         return Double.POSITIVE_INFINITY;
     }
 
     /**
-     * Indicate that distance has been computed and any resources can be discarded. This preserves the distance matrix if set to do so, and discards all other resources. This is helpful to avoid the DistanceMeasure(s) retaining various rows / matrices post computation, never to be needed again but remaining in use in memory.
+     * Indicate that distance has been computed and any resources can be discarded. This preserves the distance matrix if set to do so, and discards all other resources apart from the pair of recycled rows, which are kept for the next computation. This is helpful to avoid the DistanceMeasure(s) retaining various rows / matrices post computation, never to be needed again but remaining in use in memory.
      */
     protected void teardown() {
-        oddRow = null;
-        evenRow = null;
         numCols = -1;
         recycleRows = false;
         if(!recordCostMatrix) {
@@ -96,6 +138,10 @@ public abstract class MatrixBasedDistanceMeasure extends BaseDistanceMeasure {
 
     public void clear() {
         costMatrix = null;
+        oddRow = null;
+        evenRow = null;
+        aValues = null;
+        bValues = null;
     }
 
     public boolean isRecordCostMatrix() {
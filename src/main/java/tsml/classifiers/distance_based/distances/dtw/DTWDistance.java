@@ -38,10 +38,21 @@ public class DTWDistance extends MatrixBasedDistanceMeasure implements DTW {
         for(int i = 0; i < a.getNumDimensions(); i++) {
             final TimeSeries aDim = a.get(i);
             final TimeSeries bDim = b.get(i);
-            final double aValue = aDim.get(aIndex);
-            final double bValue = bDim.get(bIndex);
-            final double sqDiff = StrictMath.pow(aValue - bValue, 2);
-            sum += sqDiff;
+            final double diff = aDim.getValue(aIndex) - bDim.getValue(bIndex);
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    /**
+     * Squared difference summed over dimensions, using primitive values indexed by dimension then time point. Note
+     * diff * diff is bitwise identical to StrictMath.pow(diff, 2).
+     */
+    public static double cost(final double[][] a, final int aIndex, final double[][] b, final int bIndex) {
+        double sum = 0;
+        for(int i = 0; i < a.length; i++) {
+            final double diff = a[i][aIndex] - b[i][bIndex];
+            sum += diff * diff;
         }
         return sum;
     }
@@ -68,6 +79,8 @@ public class DTWDistance extends MatrixBasedDistanceMeasure implements DTW {
         final int aLength = a.getMaxLength();
         final int bLength = b.getMaxLength();
         setup(aLength, bLength, true);
+        final double[][] aValues = getValuesA(a);
+        final double[][] bValues = getValuesB(b);
         
         // step is the increment of the mid point for each row
         final double step = (double) (bLength - 1) / (aLength - 1);
@@ -87,10 +100,10 @@ public class DTWDistance extends MatrixBasedDistanceMeasure implements DTW {
         // col index
         int j = start;
         // process the first row (can only warp left - not top/topLeft)
-        double min = row[j++] = cost(a, 0, b, 0); // process top left sqaure of mat
+        double min = row[j++] = cost(aValues, 0, bValues, 0); // process top left sqaure of mat
         // compute the first row
         for(; j <= end; j++) {
-            row[j] = row[j - 1] + cost(a, i, b, j);
+            row[j] = row[j - 1] + cost(aValues, i, bValues, j);
             min = Math.min(min, row[j]);
         }
         if(min > limit) return Double.POSITIVE_INFINITY; // quit if beyond limit
@@ -122,13 +135,13 @@ public class DTWDistance extends MatrixBasedDistanceMeasure implements DTW {
 
             // if assessing the left most column then only mapping option is top - not left or topleft
             if(j == 0) {
-                row[j] = prevRow[j] + cost(a, i, b, j);
+                row[j] = prevRow[j] + cost(aValues, i, bValues, j);
                 min = Math.min(min, row[j++]);
             }
 
             // compute the distance for each cell in the row
             for(; j <= end; j++) {
-                row[j] = Math.min(prevRow[j], Math.min(row[j - 1], prevRow[j - 1])) + cost(a, i, b, j);
+                row[j] = Math.min(prevRow[j], Math.min(row[j - 1], prevRow[j - 1])) + cost(aValues, i, bValues, j);
                 min = Math.min(min, row[j]);
             }
             
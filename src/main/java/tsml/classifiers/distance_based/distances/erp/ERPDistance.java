@@ -19,9 +19,9 @@ package tsml.classifiers.distance_based.distances.erp;
 
 import tsml.classifiers.distance_based.distances.MatrixBasedDistanceMeasure;
 import tsml.classifiers.distance_based.distances.dtw.DTW;
+import tsml.classifiers.distance_based.distances.dtw.DTWDistance;
 import tsml.classifiers.distance_based.utils.collections.checks.Checks;
 import tsml.classifiers.distance_based.utils.collections.params.ParamSet;
-import tsml.data_containers.TimeSeries;
 import tsml.data_containers.TimeSeriesInstance;
 import utilities.Utilities;
 
@@ -47,28 +47,17 @@ public class ERPDistance extends MatrixBasedDistanceMeasure {
         this.g = g;
     }
     
-    public double cost(final TimeSeriesInstance a, final int aIndex) {
+    public double cost(final double[][] a, final int aIndex) {
         double sum = 0;
-        for(int i = 0; i < a.getNumDimensions(); i++) {
-            final TimeSeries aDim = a.get(i);
-            final double aValue = aDim.get(aIndex);
-            final double sqDiff = StrictMath.pow(aValue - g, 2);
-            sum += sqDiff;
+        for(int i = 0; i < a.length; i++) {
+            final double diff = a[i][aIndex] - g;
+            sum += diff * diff;
         }
         return sum;
     }
     
-    public double cost(TimeSeriesInstance a, int aIndex, TimeSeriesInstance b, int bIndex) {
-        double sum = 0;
-        for(int i = 0; i < a.getNumDimensions(); i++) {
-            final TimeSeries aDim = a.get(i);
-            final TimeSeries bDim = b.get(i);
-            final double aValue = aDim.get(aIndex);
-            final double bValue = bDim.get(bIndex);
-            final double sqDiff = StrictMath.pow(aValue - bValue, 2);
-            sum += sqDiff;
-        }
-        return sum;
+    public double cost(final double[][] a, final int aIndex, final double[][] b, final int bIndex) {
+        return DTWDistance.cost(a, aIndex, b, bIndex);
     }
     
     @Override
@@ -84,6 +73,8 @@ public class ERPDistance extends MatrixBasedDistanceMeasure {
         final int aLength = a.getMaxLength();
         final int bLength = b.getMaxLength();
         setup(aLength, bLength, true);
+        final double[][] aValues = getValuesA(a);
+        final double[][] bValues = getValuesB(b);
 
         // step is the increment of the mid point for each row
         final double step = (double) (bLength - 1) / (aLength - 1);
@@ -106,7 +97,7 @@ public class ERPDistance extends MatrixBasedDistanceMeasure {
         double min = row[j++] = 0; // top left cell is always zero
         // compute the first row
         for(; j <= end; j++) {
-            row[j] = row[j - 1] + cost(b, j);
+            row[j] = row[j - 1] + cost(bValues, j);
             min = Math.min(min, row[j]);
         }
         if(min > limit) return Double.POSITIVE_INFINITY; // quit if beyond limit
@@ -138,15 +129,15 @@ public class ERPDistance extends MatrixBasedDistanceMeasure {
             
             // if assessing the left most column then only mapping option is top - not left or topleft
             if(j == 0) {
-                row[j] = prevRow[j] + cost(a, i);
+                row[j] = prevRow[j] + cost(aValues, i);
                 min = Math.min(min, row[j++]);
             }
             
             // compute the distance for each cell in the row
             for(; j <= end; j++) {
-                final double topLeft = prevRow[j - 1] + cost(a, i, b, j);
-                final double left = row[j - 1] + cost(b, j);
-                final double top = prevRow[j] + cost(a, i);
+                final double topLeft = prevRow[j - 1] + cost(aValues, i, bValues, j);
+                final double left = row[j - 1] + cost(bValues, j);
+                final double top = prevRow[j] + cost(aValues, i);
                 if(topLeft > left && left < top) {
                     // del
                     row[j] = left;
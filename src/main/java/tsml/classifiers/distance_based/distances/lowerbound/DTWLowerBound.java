@@ -0,0 +1,78 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+package tsml.classifiers.distance_based.distances.lowerbound;
+
+import tsml.classifiers.distance_based.distances.DistanceMeasure;
+import tsml.classifiers.distance_based.distances.dtw.DTWDistance;
+import tsml.classifiers.distance_based.distances.wdtw.WDTWDistance;
+
+import java.util.Objects;
+
+/**
+ * Base class for lower bounds on DTW. These also apply to WDTW by scaling the bound by the smallest weight WDTW can
+ * apply to a cell.
+ */
+public abstract class DTWLowerBound implements LowerBound {
+
+    private final DistanceMeasure distanceMeasure;
+
+    public DTWLowerBound(final DistanceMeasure distanceMeasure) {
+        if(!supports(distanceMeasure)) {
+            throw new IllegalArgumentException("lower bound does not apply to " + distanceMeasure);
+        }
+        this.distanceMeasure = Objects.requireNonNull(distanceMeasure);
+    }
+
+    public static boolean supports(DistanceMeasure distanceMeasure) {
+        return distanceMeasure instanceof DTWDistance || distanceMeasure instanceof WDTWDistance;
+    }
+
+    public DistanceMeasure getDistanceMeasure() {
+        return distanceMeasure;
+    }
+
+    /**
+     * The radius of the warping window for series of the given length. Note the window params are read on every call
+     * as they may be changed between distance computations, e.g. during tuning.
+     * @param length
+     * @return
+     */
+    protected int getRadius(int length) {
+        if(distanceMeasure instanceof DTWDistance) {
+            return LowerBounds.getRadius(((DTWDistance) distanceMeasure).getWindow(), length);
+        }
+        // WDTW uses a full window
+        return length - 1;
+    }
+
+    /**
+     * Factor to scale the DTW bound by to bound the actual distance measure.
+     * @param length the length of the longest series
+     * @return
+     */
+    protected double getScale(int length) {
+        if(distanceMeasure instanceof WDTWDistance) {
+            return ((WDTWDistance) distanceMeasure).getMinWeight(length);
+        }
+        return 1;
+    }
+
+    @Override public String toString() {
+        return getName();
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+package tsml.classifiers.distance_based.distances.lowerbound;
+
+import tsml.classifiers.distance_based.distances.erp.ERPDistance;
+import tsml.data_containers.TimeSeries;
+import tsml.data_containers.TimeSeriesInstance;
+
+import java.util.Objects;
+
+/**
+ * LB_Keogh adapted to ERP (Chen and Ng, 2004). Every point in a (bar the first, which ERP never charges for) is either
+ * matched to a point in b within the window or to the gap value g, so the distance from each point to the envelope of
+ * b widened to include g is a lower bound. Equal length series only, otherwise no bound is given.
+ */
+public class ERPLBKeogh implements LowerBound {
+
+    private final ERPDistance distanceMeasure;
+    private final EnvelopeCache envelopeCache;
+
+    public ERPLBKeogh(final ERPDistance distanceMeasure, final EnvelopeCache envelopeCache) {
+        this.distanceMeasure = Objects.requireNonNull(distanceMeasure);
+        this.envelopeCache = Objects.requireNonNull(envelopeCache);
+    }
+
+    public ERPLBKeogh(final ERPDistance distanceMeasure) {
+        this(distanceMeasure, new EnvelopeCache());
+    }
+
+    @Override public double lowerBound(final TimeSeriesInstance a, final TimeSeriesInstance b, final double limit) {
+        if(!Envelope.isSameShape(a, b)) {
+            return 0;
+        }
+        final int length = a.getMaxLength();
+        final double g = distanceMeasure.getG();
+        final Envelope envelope = envelopeCache.get(b, LowerBounds.getRadius(distanceMeasure.getWindow(), length));
+        double sum = 0;
+        for(int i = 0; i < a.getNumDimensions(); i++) {
+            final TimeSeries dim = a.get(i);
+            final double[] upper = envelope.getUpper(i);
+            final double[] lower = envelope.getLower(i);
+            for(int j = 1; j < length; j++) {
+                sum += Envelope.distToBand(dim.getValue(j), Math.min(lower[j], g), Math.max(upper[j], g));
+                if(sum > limit) {
+                    return sum;
+                }
+            }
+        }
+        return sum;
+    }
+
+    @Override public String toString() {
+        return getName();
+    }
+}
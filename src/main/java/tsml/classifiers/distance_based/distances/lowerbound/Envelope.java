@@ -0,0 +1,130 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+package tsml.classifiers.distance_based.distances.lowerbound;
+
+import tsml.data_containers.TimeSeries;
+import tsml.data_containers.TimeSeriesInstance;
+
+import java.io.Serializable;
+
+/**
+ * The upper and lower envelope of a time series, i.e. the max and min value within a window of radius r around each
+ * time point. Envelopes are computed in linear time using a monotonic deque (Lemire's streaming min / max).
+ */
+public class Envelope implements Serializable {
+
+    // indexed by dimension then time point
+    private final double[][] upper;
+    private final double[][] lower;
+    private final int radius;
+
+    public Envelope(final TimeSeriesInstance inst, final int radius) {
+        this.radius = radius;
+        final int numDimensions = inst.getNumDimensions();
+        upper = new double[numDimensions][];
+        lower = new double[numDimensions][];
+        final int[] deque = new int[inst.getMaxLength()];
+        for(int i = 0; i < numDimensions; i++) {
+            final double[] values = inst.get(i).toValueArray();
+            upper[i] = new double[values.length];
+            lower[i] = new double[values.length];
+            envelope(values, values.length, radius, upper[i], lower[i], deque);
+        }
+    }
+
+    /**
+     * Compute the envelope of the first length values.
+     * @param values the values
+     * @param length number of values to use
+     * @param radius the window either side of each point
+     * @param upper output for the max in each window
+     * @param lower output for the min in each window
+     * @param deque working space of at least length
+     */
+    public static void envelope(double[] values, int length, int radius, double[] upper, double[] lower, int[] deque) {
+        slidingExtreme(values, length, radius, upper, deque, true);
+        slidingExtreme(values, length, radius, lower, deque, false);
+    }
+
+    private static void slidingExtreme(double[] values, int length, int radius, double[] out, int[] deque, boolean max) {
+        // deque holds indices of candidate extremes in the window, their values monotonically decreasing (for max)
+        int head = 0;
+        int tail = 0;
+        int next = 0;
+        for(int i = 0; i < length; i++) {
+            final int end = Math.min(length - 1, i + radius);
+            // add values entering the window, dropping any which can no longer be the extreme
+            for(; next <= end; next++) {
+                final double value = values[next];
+                while(tail > head && (max ? values[deque[tail - 1]] <= value : values[deque[tail - 1]] >= value)) {
+                    tail--;
+                }
+                deque[tail++] = next;
+            }
+            // drop values leaving the window
+            while(deque[head] < i - radius) {
+                head++;
+            }
+            out[i] = values[deque[head]];
+        }
+    }
+
+    public double[] getUpper(int dimension) {
+        return upper[dimension];
+    }
+
+    public double[] getLower(int dimension) {
+        return lower[dimension];
+    }
+
+    public int getNumDimensions() {
+        return upper.length;
+    }
+
+    public int getLength() {
+        return upper.length == 0 ? 0 : upper[0].length;
+    }
+
+    public int getRadius() {
+        return radius;
+    }
+
+    /**
+     * Squared distance from a value to the band [lower, upper], i.e. 0 if inside the band.
+     */
+    public static double distToBand(double value, double lower, double upper) {
+        if(value > upper) {
+            final double diff = value - upper;
+            return diff * diff;
+        } else if(value < lower) {
+            final double diff = lower - value;
+            return diff * diff;
+        }
+        return 0;
+    }
+
+    /**
+     * Whether the insts are the same shape, i.e. same number of dimensions and all dimensions the same length.
+     */
+    public static boolean isSameShape(TimeSeriesInstance a, TimeSeriesInstance b) {
+        if(a.getNumDimensions() != b.getNumDimensions() || !a.isEqualLength() || !b.isEqualLength()) {
+            return false;
+        }
+        return a.getMaxLength() == b.getMaxLength();
+    }
+}
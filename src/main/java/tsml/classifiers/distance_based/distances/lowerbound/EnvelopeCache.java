@@ -0,0 +1,46 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+package tsml.classifiers.distance_based.distances.lowerbound;
+
+import tsml.data_containers.TimeSeriesInstance;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Cache of envelopes by inst and radius. Envelopes of the train insts are computed once and reused for every query.
+ * Insts are keyed by identity, not content, to avoid hashing entire series on every lookup.
+ */
+public class EnvelopeCache implements Serializable {
+
+    // transient as envelopes are cheap to rebuild and keyed by identity, which does not survive serialisation
+    private transient Map<TimeSeriesInstance, Map<Integer, Envelope>> envelopes;
+
+    public synchronized Envelope get(TimeSeriesInstance inst, int radius) {
+        if(envelopes == null) {
+            envelopes = new IdentityHashMap<>();
+        }
+        return envelopes.computeIfAbsent(inst, i -> new HashMap<>()).computeIfAbsent(radius, r -> new Envelope(inst, r));
+    }
+
+    public synchronized void clear() {
+        envelopes = null;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+package tsml.classifiers.distance_based.distances.lowerbound;
+
+import tsml.classifiers.distance_based.distances.DistanceMeasure;
+import tsml.data_containers.TimeSeries;
+import tsml.data_containers.TimeSeriesInstance;
+
+import java.util.Objects;
+
+/**
+ * LB_Improved (Lemire, 2009). First computes LB_Keogh of a against the envelope of b, projecting a onto that envelope
+ * as it goes. If the limit has not been exceeded, LB_Keogh of b against the envelope of the projection is added. This
+ * is at least as tight as LB_Keogh for roughly twice the cost. Equal length series only, otherwise no bound is given.
+ * <p>
+ * This holds working buffers so is not thread safe.
+ */
+public class LBImproved extends DTWLowerBound {
+
+    private final EnvelopeCache envelopeCache;
+    // working space, indexed by dimension then time point
+    private transient double[][] projection;
+    private transient double[] projectionUpper;
+    private transient double[] projectionLower;
+    private transient int[] deque;
+
+    public LBImproved(final DistanceMeasure distanceMeasure, final EnvelopeCache envelopeCache) {
+        super(distanceMeasure);
+        this.envelopeCache = Objects.requireNonNull(envelopeCache);
+    }
+
+    public LBImproved(final DistanceMeasure distanceMeasure) {
+        this(distanceMeasure, new EnvelopeCache());
+    }
+
+    private void setup(int numDimensions, int length) {
+        if(projection == null || projection.length != numDimensions || projectionUpper.length != length) {
+            projection = new double[numDimensions][length];
+            projectionUpper = new double[length];
+            projectionLower = new double[length];
+            deque = new int[length];
+        }
+    }
+
+    @Override public double lowerBound(final TimeSeriesInstance a, final TimeSeriesInstance b, final double limit) {
+        if(!Envelope.isSameShape(a, b)) {
+            return 0;
+        }
+        final int length = a.getMaxLength();
+        final int numDimensions = a.getNumDimensions();
+        final int radius = getRadius(length);
+        final double scale = getScale(length);
+        final double scaledLimit = limit / scale;
+        final Envelope envelope = envelopeCache.get(b, radius);
+        setup(numDimensions, length);
+        // LB_Keogh of a against the envelope of b, recording the projection of a onto the envelope
+        double sum = 0;
+        for(int i = 0; i < numDimensions; i++) {
+            final TimeSeries dim = a.get(i);
+            final double[] upper = envelope.getUpper(i);
+            final double[] lower = envelope.getLower(i);
+            final double[] projected = projection[i];
+            for(int j = 0; j < length; j++) {
+                final double value = dim.getValue(j);
+                if(value > upper[j]) {
+                    final double diff = value - upper[j];
+                    sum += diff * diff;
+                    projected[j] = upper[j];
+                } else if(value < lower[j]) {
+                    final double diff = lower[j] - value;
+                    sum += diff * diff;
+                    projected[j] = lower[j];
+                } else {
+                    projected[j] = value;
+                }
+            }
+            if(sum > scaledLimit) {
+                return sum * scale;
+            }
+        }
+        // LB_Keogh of b against the envelope of the projection
+        for(int i = 0; i < numDimensions; i++) {
+            final TimeSeries dim = b.get(i);
+            Envelope.envelope(projection[i], length, radius, projectionUpper, projectionLower, deque);
+            for(int j = 0; j < length; j++) {
+                sum += Envelope.distToBand(dim.getValue(j), projectionLower[j], projectionUpper[j]);
+                if(sum > scaledLimit) {
+                    return sum * scale;
+                }
+            }
+        }
+        return sum * scale;
+    }
+
+    public EnvelopeCache getEnvelopeCache() {
+        return envelopeCache;
+    }
+}
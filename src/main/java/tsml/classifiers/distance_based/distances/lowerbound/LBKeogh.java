@@ -0,0 +1,70 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+package tsml.classifiers.distance_based.distances.lowerbound;
+
+import tsml.classifiers.distance_based.distances.DistanceMeasure;
+import tsml.data_containers.TimeSeries;
+import tsml.data_containers.TimeSeriesInstance;
+
+import java.util.Objects;
+
+/**
+ * LB_Keogh. Every point in a must be warped to a point in b inside the warping window, so the distance from each point
+ * in a to the envelope of b is a lower bound on DTW. The envelope of b is cached, so b should be the train inst. O(n)
+ * for equal length series, otherwise no bound is given.
+ */
+public class LBKeogh extends DTWLowerBound {
+
+    private final EnvelopeCache envelopeCache;
+
+    public LBKeogh(final DistanceMeasure distanceMeasure, final EnvelopeCache envelopeCache) {
+        super(distanceMeasure);
+        this.envelopeCache = Objects.requireNonNull(envelopeCache);
+    }
+
+    public LBKeogh(final DistanceMeasure distanceMeasure) {
+        this(distanceMeasure, new EnvelopeCache());
+    }
+
+    @Override public double lowerBound(final TimeSeriesInstance a, final TimeSeriesInstance b, final double limit) {
+        if(!Envelope.isSameShape(a, b)) {
+            return 0;
+        }
+        final int length = a.getMaxLength();
+        final double scale = getScale(length);
+        final double scaledLimit = limit / scale;
+        final Envelope envelope = envelopeCache.get(b, getRadius(length));
+        double sum = 0;
+        for(int i = 0; i < a.getNumDimensions(); i++) {
+            final TimeSeries dim = a.get(i);
+            final double[] upper = envelope.getUpper(i);
+            final double[] lower = envelope.getLower(i);
+            for(int j = 0; j < length; j++) {
+                sum += Envelope.distToBand(dim.getValue(j), lower[j], upper[j]);
+                if(sum > scaledLimit) {
+                    return sum * scale;
+                }
+            }
+        }
+        return sum * scale;
+    }
+
+    public EnvelopeCache getEnvelopeCache() {
+        return envelopeCache;
+    }
+}
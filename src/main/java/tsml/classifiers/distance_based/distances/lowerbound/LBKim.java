@@ -0,0 +1,47 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+package tsml.classifiers.distance_based.distances.lowerbound;
+
+import tsml.classifiers.distance_based.distances.DistanceMeasure;
+import tsml.classifiers.distance_based.distances.dtw.DTWDistance;
+import tsml.data_containers.TimeSeriesInstance;
+
+/**
+ * LB_Kim, first / last variant. Every warping path includes the first and last cells of the cost matrix, so their
+ * cost is a lower bound on DTW. This is O(1) and works on unequal length series.
+ */
+public class LBKim extends DTWLowerBound {
+
+    public LBKim(final DistanceMeasure distanceMeasure) {
+        super(distanceMeasure);
+    }
+
+    @Override public double lowerBound(final TimeSeriesInstance a, final TimeSeriesInstance b, final double limit) {
+        if(a.getNumDimensions() != b.getNumDimensions() || !a.isEqualLength() || !b.isEqualLength()) {
+            return 0;
+        }
+        final int aLength = a.getMaxLength();
+        final int bLength = b.getMaxLength();
+        double sum = DTWDistance.cost(a, 0, b, 0);
+        if(aLength > 1 || bLength > 1) {
+            // first and last cells are distinct
+            sum += DTWDistance.cost(a, aLength - 1, b, bLength - 1);
+        }
+        return sum * getScale(Math.max(aLength, bLength));
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+package tsml.classifiers.distance_based.distances.lowerbound;
+
+import tsml.classifiers.distance_based.distances.lcss.LCSSDistance;
+import tsml.data_containers.TimeSeriesInstance;
+
+import java.util.Objects;
+
+/**
+ * Envelope bound for LCSS (Vlachos et al., 2003). A point in a can only be part of the common subsequence if it is
+ * within epsilon of the envelope of b, so the number of such points bounds the LCSS from above and therefore the LCSS
+ * distance from below. Equal length series only, otherwise no bound is given.
+ */
+public class LCSSLBKeogh implements LowerBound {
+
+    private final LCSSDistance distanceMeasure;
+    private final EnvelopeCache envelopeCache;
+
+    public LCSSLBKeogh(final LCSSDistance distanceMeasure, final EnvelopeCache envelopeCache) {
+        this.distanceMeasure = Objects.requireNonNull(distanceMeasure);
+        this.envelopeCache = Objects.requireNonNull(envelopeCache);
+    }
+
+    public LCSSLBKeogh(final LCSSDistance distanceMeasure) {
+        this(distanceMeasure, new EnvelopeCache());
+    }
+
+    @Override public double lowerBound(final TimeSeriesInstance a, final TimeSeriesInstance b, final double limit) {
+        if(!Envelope.isSameShape(a, b)) {
+            return 0;
+        }
+        final int length = a.getMaxLength();
+        final int numDimensions = a.getNumDimensions();
+        final double epsilon = distanceMeasure.getEpsilon();
+        final Envelope envelope = envelopeCache.get(b, LowerBounds.getRadius(distanceMeasure.getWindow(), length));
+        // count the points which cannot possibly match
+        int misses = 0;
+        for(int j = 0; j < length; j++) {
+            for(int i = 0; i < numDimensions; i++) {
+                final double value = a.get(i).getValue(j);
+                // LCSS needs |a - b| <= epsilon in every dimension to match
+                if(value - envelope.getUpper(i)[j] > epsilon || envelope.getLower(i)[j] - value > epsilon) {
+                    misses++;
+                    break;
+                }
+            }
+            if(distance(misses, length) > limit) {
+                break;
+            }
+        }
+        return distance(misses, length);
+    }
+
+    // the LCSS distance if all but the missed points matched. Computed exactly as LCSSDistance does, as e.g.
+    // misses / length can round to above it, wrongly pruning neighbours tied with the limit
+    private static double distance(int misses, int length) {
+        return 1d - (double) (length - misses) / length;
+    }
+
+    @Override public String toString() {
+        return getName();
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+package tsml.classifiers.distance_based.distances.lowerbound;
+
+import tsml.data_containers.TimeSeriesInstance;
+
+import java.io.Serializable;
+
+/**
+ * A cheap lower bound on a distance measure. If the lower bound between two insts exceeds the limit then so must the
+ * distance, therefore the (expensive) distance computation can be skipped.
+ */
+public interface LowerBound extends Serializable {
+
+    /**
+     * Compute a lower bound on the distance between a and b. Implementations may stop early once the bound exceeds the
+     * limit and return any value above the limit. A bound of 0 is always valid, e.g. when the bound does not apply to
+     * the given insts.
+     * @param a
+     * @param b
+     * @param limit
+     * @return
+     */
+    double lowerBound(TimeSeriesInstance a, TimeSeriesInstance b, double limit);
+
+    default double lowerBound(TimeSeriesInstance a, TimeSeriesInstance b) {
+        return lowerBound(a, b, Double.POSITIVE_INFINITY);
+    }
+
+    default String getName() {
+        return getClass().getSimpleName();
+    }
+}
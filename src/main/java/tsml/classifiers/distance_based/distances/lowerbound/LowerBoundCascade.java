@@ -0,0 +1,62 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+package tsml.classifiers.distance_based.distances.lowerbound;
+
+import tsml.data_containers.TimeSeriesInstance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Apply several lower bounds in turn, typically from cheapest / loosest to most expensive / tightest. The cascade
+ * stops as soon as any bound exceeds the limit. The result is the tightest (i.e. largest) bound computed.
+ */
+public class LowerBoundCascade implements LowerBound {
+
+    private final List<LowerBound> lowerBounds;
+
+    public LowerBoundCascade(List<? extends LowerBound> lowerBounds) {
+        this.lowerBounds = new ArrayList<>(lowerBounds);
+        this.lowerBounds.forEach(Objects::requireNonNull);
+    }
+
+    public LowerBoundCascade(LowerBound... lowerBounds) {
+        this(Arrays.asList(lowerBounds));
+    }
+
+    @Override public double lowerBound(final TimeSeriesInstance a, final TimeSeriesInstance b, final double limit) {
+        double max = 0;
+        for(LowerBound lowerBound : lowerBounds) {
+            max = Math.max(max, lowerBound.lowerBound(a, b, limit));
+            if(max > limit) {
+                break;
+            }
+        }
+        return max;
+    }
+
+    public List<LowerBound> getLowerBounds() {
+        return lowerBounds;
+    }
+
+    @Override public String toString() {
+        return lowerBounds.toString();
+    }
+}
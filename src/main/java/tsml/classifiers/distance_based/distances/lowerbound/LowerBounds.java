@@ -0,0 +1,70 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+package tsml.classifiers.distance_based.distances.lowerbound;
+
+import tsml.classifiers.distance_based.distances.DistanceMeasure;
+import tsml.classifiers.distance_based.distances.erp.ERPDistance;
+import tsml.classifiers.distance_based.distances.lcss.LCSSDistance;
+
+/**
+ * Utilities for lower bounds.
+ */
+public class LowerBounds {
+
+    private LowerBounds() {}
+
+    /**
+     * Build the default lower bound cascade for a distance measure. The envelopes are shared between the bounds in the
+     * cascade and cached per inst and window.
+     * @param distanceMeasure
+     * @return the cascade, or null if no lower bounds are available for the distance measure
+     */
+    public static LowerBound forDistanceMeasure(DistanceMeasure distanceMeasure) {
+        return forDistanceMeasure(distanceMeasure, new EnvelopeCache());
+    }
+
+    /**
+     * Build the default lower bound cascade for a distance measure, caching envelopes in the given cache. Several
+     * cascades can share a cache, e.g. one per thread over the same train data.
+     * @param distanceMeasure
+     * @param envelopeCache
+     * @return the cascade, or null if no lower bounds are available for the distance measure
+     */
+    public static LowerBound forDistanceMeasure(DistanceMeasure distanceMeasure, EnvelopeCache envelopeCache) {
+        if(DTWLowerBound.supports(distanceMeasure)) {
+            // LB_Improved begins with LB_Keogh, so LB_Keogh is not needed separately
+            return new LowerBoundCascade(new LBKim(distanceMeasure), new LBImproved(distanceMeasure, envelopeCache));
+        } else if(distanceMeasure instanceof ERPDistance) {
+            return new LowerBoundCascade(new ERPLBKeogh((ERPDistance) distanceMeasure, envelopeCache));
+        } else if(distanceMeasure instanceof LCSSDistance) {
+            return new LowerBoundCascade(new LCSSLBKeogh((LCSSDistance) distanceMeasure, envelopeCache));
+        }
+        return null;
+    }
+
+    /**
+     * The radius of the warping window for equal length series. The distance measures place the window around the
+     * diagonal at i +/- window * length, so the ceil ensures the envelope covers at least the same window.
+     * @param window proportion of the series length
+     * @param length
+     * @return
+     */
+    public static int getRadius(double window, int length) {
+        return (int) Math.max(0, Math.min(length - 1, Math.ceil(window * length)));
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+package tsml.classifiers.distance_based.distances.lowerbound;
+
+import org.junit.Assert;
+import org.junit.Test;
+import tsml.classifiers.distance_based.distances.DistanceMeasure;
+import tsml.classifiers.distance_based.distances.dtw.DTWDistance;
+import tsml.classifiers.distance_based.distances.erp.ERPDistance;
+import tsml.classifiers.distance_based.distances.lcss.LCSSDistance;
+import tsml.classifiers.distance_based.distances.wdtw.WDTWDistance;
+import tsml.data_containers.TimeSeriesInstance;
+
+import java.util.Random;
+
+/**
+ * Purpose: test the lower bounds never exceed the distance they bound
+ */
+public class LowerBoundsTest {
+
+    private static TimeSeriesInstance randomInst(Random random, int numDimensions, int length) {
+        final double[][] data = new double[numDimensions][length];
+        for(double[] dim : data) {
+            for(int i = 0; i < length; i++) {
+                dim[i] = random.nextGaussian();
+            }
+        }
+        return new TimeSeriesInstance(data);
+    }
+
+    private static void assertLowerBound(DistanceMeasure distanceMeasure, LowerBound lowerBound) {
+        final Random random = new Random(0);
+        for(int i = 0; i < 200; i++) {
+            final int numDimensions = 1 + random.nextInt(3);
+            final int length = 1 + random.nextInt(30);
+            final TimeSeriesInstance a = randomInst(random, numDimensions, length);
+            final TimeSeriesInstance b = randomInst(random, numDimensions, length);
+            final double distance = distanceMeasure.distance(a, b);
+            final double bound = lowerBound.lowerBound(a, b);
+            Assert.assertTrue(lowerBound + " " + bound + " exceeds " + distanceMeasure + " " + distance, bound <= distance + 1e-9);
+        }
+    }
+
+    @Test
+    public void testDTW() {
+        for(double window : new double[] {0, 0.1, 0.33, 1}) {
+            final DTWDistance dtw = new DTWDistance();
+            dtw.setWindow(window);
+            assertLowerBound(dtw, new LBKim(dtw));
+            assertLowerBound(dtw, new LBKeogh(dtw));
+            assertLowerBound(dtw, new LBImproved(dtw));
+        }
+    }
+
+    @Test
+    public void testLBImprovedTighterThanLBKeogh() {
+        final DTWDistance dtw = new DTWDistance();
+        dtw.setWindow(0.1);
+        final Random random = new Random(0);
+        final TimeSeriesInstance a = randomInst(random, 1, 50);
+        final TimeSeriesInstance b = randomInst(random, 1, 50);
+        Assert.assertTrue(new LBImproved(dtw).lowerBound(a, b) >= new LBKeogh(dtw).lowerBound(a, b));
+    }
+
+    @Test
+    public void testWDTW() {
+        final WDTWDistance wdtw = new WDTWDistance();
+        assertLowerBound(wdtw, new LBKim(wdtw));
+        assertLowerBound(wdtw, new LBImproved(wdtw));
+    }
+
+    @Test
+    public void testERP() {
+        for(double window : new double[] {0, 0.2, 1}) {
+            final ERPDistance erp = new ERPDistance();
+            erp.setWindow(window);
+            erp.setG(0.5);
+            assertLowerBound(erp, new ERPLBKeogh(erp));
+        }
+    }
+
+    @Test
+    public void testLCSS() {
+        for(double window : new double[] {0, 0.2, 1}) {
+            final LCSSDistance lcss = new LCSSDistance();
+            lcss.setWindow(window);
+            lcss.setEpsilon(0.5);
+            assertLowerBound(lcss, new LCSSLBKeogh(lcss));
+        }
+    }
+
+    @Test
+    public void testCascadeAbandons() {
+        final DTWDistance dtw = new DTWDistance();
+        final LowerBound cascade = LowerBounds.forDistanceMeasure(dtw);
+        final TimeSeriesInstance a = new TimeSeriesInstance(new double[] {0, 0, 0, 0});
+        final TimeSeriesInstance b = new TimeSeriesInstance(new double[] {10, 10, 10, 10});
+        Assert.assertTrue(cascade.lowerBound(a, b, 1) > 1);
+        Assert.assertEquals(dtw.distance(a, b), cascade.lowerBound(a, b), 0d);
+    }
+
+    @Test
+    public void testEnvelope() {
+        final double[] values = {3, 1, 4, 1, 5, 9, 2, 6};
+        final double[] upper = new double[values.length];
+        final double[] lower = new double[values.length];
+        Envelope.envelope(values, values.length, 1, upper, lower, new int[values.length]);
+        Assert.assertArrayEquals(new double[] {3, 4, 4, 5, 9, 9, 9, 6}, upper, 0d);
+        Assert.assertArrayEquals(new double[] {1, 1, 1, 1, 1, 2, 2, 2}, lower, 0d);
+    }
+}
@@ -20,7 +20,6 @@ package tsml.classifiers.distance_based.distances.msm;
 import tsml.classifiers.distance_based.distances.MatrixBasedDistanceMeasure;
 import tsml.classifiers.distance_based.utils.collections.params.ParamHandlerUtils;
 import tsml.classifiers.distance_based.utils.collections.params.ParamSet;
-import tsml.data_containers.TimeSeries;
 import tsml.data_containers.TimeSeriesInstance;
 
 import java.util.Arrays;
@@ -78,16 +77,10 @@ public class MSMDistance extends MatrixBasedDistanceMeasure {
      * @param cIndex
      * @return
      */
-    private double cost(final TimeSeriesInstance a, final int aIndex, final TimeSeriesInstance b, final int bIndex, final TimeSeriesInstance c, final int cIndex) {
+    private double cost(final double[][] a, final int aIndex, final double[][] b, final int bIndex, final double[][] c, final int cIndex) {
         double sum = 0;
-        for(int i = 0; i < a.getNumDimensions(); i++) {
-            final TimeSeries aDim = a.get(i);
-            final TimeSeries bDim = b.get(i);
-            final TimeSeries cDim = c.get(i);
-            final Double aValue = aDim.get(aIndex);
-            final Double bValue = bDim.get(bIndex);
-            final Double cValue = cDim.get(cIndex);
-            sum += findCost(aValue, bValue, cValue);
+        for(int i = 0; i < a.length; i++) {
+            sum += findCost(a[i][aIndex], b[i][bIndex], c[i][cIndex]);
         }
         return sum;
     }
@@ -100,14 +93,10 @@ public class MSMDistance extends MatrixBasedDistanceMeasure {
      * @param bIndex
      * @return
      */
-    private double directCost(final TimeSeriesInstance a, final int aIndex, final TimeSeriesInstance b, final int bIndex) {
+    private double directCost(final double[][] a, final int aIndex, final double[][] b, final int bIndex) {
         double sum = 0;
-        for(int i = 0; i < a.getNumDimensions(); i++) {
-            final TimeSeries aDim = a.get(i);
-            final TimeSeries bDim = b.get(i);
-            final Double aValue = aDim.get(aIndex);
-            final Double bValue = bDim.get(bIndex);
-            sum += Math.abs(aValue - bValue);
+        for(int i = 0; i < a.length; i++) {
+            sum += Math.abs(a[i][aIndex] - b[i][bIndex]);
         }
         return sum;
     }
@@ -125,6 +114,8 @@ public class MSMDistance extends MatrixBasedDistanceMeasure {
         final int aLength = a.getMaxLength();
         final int bLength = b.getMaxLength();
         setup(aLength, bLength, true);
+        final double[][] aValues = getValuesA(a);
+        final double[][] bValues = getValuesB(b);
 
         // step is the increment of the mid point for each row
         final double step = (double) (bLength - 1) / (aLength - 1);
@@ -144,11 +135,11 @@ public class MSMDistance extends MatrixBasedDistanceMeasure {
         // col index
         int j = start;
         // process top left sqaure of mat
-        double min = row[j] = directCost(a, i, b, j);
+        double min = row[j] = directCost(aValues, i, bValues, j);
         j++;
         // compute the first row
         for(; j <= end; j++) {
-            row[j] = row[j - 1] + cost(b, j, a, i, b, j - 1);
+            row[j] = row[j - 1] + cost(bValues, j, aValues, i, bValues, j - 1);
             min = Math.min(min, row[j]);
         }
         if(min > limit) return Double.POSITIVE_INFINITY; // quit if beyond limit
@@ -180,15 +171,15 @@ public class MSMDistance extends MatrixBasedDistanceMeasure {
             
             // if assessing the left most column then only mapping option is top - not left or topleft
             if(j == 0) {
-                row[j] = prevRow[j] + cost(a, i, a, i - 1, b, j);
+                row[j] = prevRow[j] + cost(aValues, i, aValues, i - 1, bValues, j);
                 min = Math.min(min, row[j++]);
             }
             
             // compute the distance for each cell in the row
             for(; j <= end; j++) {
-                final double topLeft = prevRow[j - 1] + directCost(a, i, b, j);
-                final double top = prevRow[j] + cost(a, i, a, i - 1, b, j);
-                final double left = row[j - 1] + cost(b, j, a, i, b, j - 1);
+                final double topLeft = prevRow[j - 1] + directCost(aValues, i, bValues, j);
+                final double top = prevRow[j] + cost(aValues, i, aValues, i - 1, bValues, j);
+                final double left = row[j - 1] + cost(bValues, j, aValues, i, bValues, j - 1);
                 row[j] = Math.min(top, Math.min(left, topLeft));
                 min = Math.min(min, row[j]);
             }
@@ -19,7 +19,7 @@ package tsml.classifiers.distance_based.distances.twed;
 
 import tsml.classifiers.distance_based.distances.MatrixBasedDistanceMeasure;
 import tsml.classifiers.distance_based.utils.collections.params.ParamSet;
-import tsml.data_containers.TimeSeries;
+import tsml.classifiers.distance_based.distances.dtw.DTWDistance;
 import tsml.data_containers.TimeSeriesInstance;
 import utilities.ArrayUtilities;
 
@@ -39,26 +39,15 @@ public class TWEDistance
     public static final String NU_FLAG = "n";
     public static final String LAMBDA_FLAG = "l";
 
-    private double cost(final TimeSeriesInstance a, final int aIndex, final TimeSeriesInstance b, final int bIndex) {
-        double sum = 0;
-        for(int i = 0; i < a.getNumDimensions(); i++) {
-            final TimeSeries aDim = a.get(i);
-            final TimeSeries bDim = b.get(i);
-            final double aValue = aDim.get(aIndex);
-            final double bValue = bDim.get(bIndex);
-            final double sqDiff = StrictMath.pow(aValue - bValue, 2);
-            sum += sqDiff;
-        }
-        return sum;
+    private double cost(final double[][] a, final int aIndex, final double[][] b, final int bIndex) {
+        return DTWDistance.cost(a, aIndex, b, bIndex);
     }
     
-    private double cellCost(final TimeSeriesInstance a, final int aIndex) {
+    private double cellCost(final double[][] a, final int aIndex) {
         double sum = 0;
-        for(int i = 0; i < a.getNumDimensions(); i++) {
-            final TimeSeries aDim = a.get(i);
-            final double aValue = aDim.get(aIndex);
-            final double sq = StrictMath.pow(aValue, 2);
-            sum += sq;
+        for(int i = 0; i < a.length; i++) {
+            final double value = a[i][aIndex];
+            sum += value * value;
         }
         return sum;
     }
@@ -76,6 +65,8 @@ public class TWEDistance
         final int aLength = a.getMaxLength();
         final int bLength = b.getMaxLength();
         setup(aLength + 1, bLength + 1, true);
+        final double[][] aValues = getValuesA(a);
+        final double[][] bValues = getValuesB(b);
 
         // step is the increment of the mid point for each row
         final double step = (double) (bLength) / (aLength);
@@ -99,12 +90,12 @@ public class TWEDistance
 
         // border of the cost matrix initialization
         row[j++] = 0;
-        row[j] = jCosts[j] = cellCost(b, i);
+        row[j] = jCosts[j] = cellCost(bValues, i);
         j++;
         // compute the first padded row
         for(; j <= end; j++) {
             //CHANGE AJB 8/1/16: Only use power of 2 for speed up
-            jCosts[j] = cost(b, j - 2, b, j - 1);
+            jCosts[j] = cost(bValues, j - 2, bValues, j - 1);
             row[j] = row[j - 1] + jCosts[j];
         }
         i++;
@@ -136,14 +127,14 @@ public class TWEDistance
 
             // fill any jCosts which have not yet been visited
             for(int x = prevEnd + 1; x <= end; x++) {
-                jCosts[x] = cost(b, x - 2, b, x - 1);
+                jCosts[x] = cost(bValues, x - 2, bValues, x - 1);
             }
 
             // the ith cost for this row
             if(i > 1) {
-                iCost = cost(a, i - 2, a, i - 1);
+                iCost = cost(aValues, i - 2, aValues, i - 1);
             } else {
-                iCost = cellCost(a, i - 1);
+                iCost = cellCost(aValues, i - 1);
             }
 
             // if assessing the left most column then only mapping option is top - not left or topleft
@@ -154,10 +145,10 @@ public class TWEDistance
 
             // compute the distance for each cell in the row
             for(; j <= end; j++) {
-                double dist = cost(a, i - 1, b, j - 1);
+                double dist = cost(aValues, i - 1, bValues, j - 1);
                 double htrans = Math.abs(i - j);
                 if(i > 1 && j > 1) {
-                    dist += cost(a, i - 2, b, j - 2);
+                    dist += cost(aValues, i - 2, bValues, j - 2);
                     htrans *= 2;
                 }
                 final double topLeft = prevRow[j - 1] + nu * htrans + dist;
@@ -63,6 +63,20 @@ public class WDTWDistance
         }
     }
 
+    /**
+     * Get the smallest weight applied to any cell when comparing series up to the given length.
+     * @param length the length of the longest series
+     * @return
+     */
+    public double getMinWeight(int length) {
+        generateWeights(length);
+        double min = Double.POSITIVE_INFINITY;
+        for(int i = 0; i < length; i++) {
+            min = Math.min(min, weights[i]);
+        }
+        return min;
+    }
+
     @Override
     public double distance(TimeSeriesInstance a, TimeSeriesInstance b, final double limit) {
         
@@ -76,6 +90,8 @@ public class WDTWDistance
         final int aLength = a.getMaxLength();
         final int bLength = b.getMaxLength();
         setup(aLength, bLength, true);
+        final double[][] aValues = getValuesA(a);
+        final double[][] bValues = getValuesB(b);
 
         // step is the increment of the mid point for each row
         final double step = (double) (bLength - 1) / (aLength - 1);
@@ -100,11 +116,11 @@ public class WDTWDistance
         int j = start;
         
         // process top left cell of mat
-        double min = row[j] = weights[j] * cost(a, i, b, j);
+        double min = row[j] = weights[j] * cost(aValues, i, bValues, j);
         j++;
         // compute the first row
         for(; j <= end; j++) {
-            row[j] = row[j - 1] + weights[j] * cost(a, i, b, j);
+            row[j] = row[j - 1] + weights[j] * cost(aValues, i, bValues, j);
             min = Math.min(min, row[j]);
         }
         if(min > limit) return Double.POSITIVE_INFINITY; // quit if beyond limit
@@ -137,12 +153,12 @@ public class WDTWDistance
             
             // if assessing the left most column then only mapping option is top - not left or topleft
             if(j == 0) {
-                row[j] = prevRow[j] + weights[Math.abs(i - j)] * cost(a, i, b, j);
+                row[j] = prevRow[j] + weights[Math.abs(i - j)] * cost(aValues, i, bValues, j);
                 min = Math.min(min, row[j++]);
             }
             // compute the distance for each cell in the row
             for(; j <= end; j++) {
-                row[j] = Math.min(prevRow[j], Math.min(row[j - 1], prevRow[j - 1])) + weights[Math.abs(i - j)] * cost(a, i, b, j);;
+                row[j] = Math.min(prevRow[j], Math.min(row[j - 1], prevRow[j - 1])) + weights[Math.abs(i - j)] * cost(aValues, i, bValues, j);;
                 min = Math.min(min, row[j]);
             }
             
@@ -19,13 +19,27 @@ package tsml.classifiers.distance_based.knn;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import evaluation.storage.ClassifierResults;
 import experiments.data.DatasetLoading;
+import tsml.classifiers.MultiThreadable;
 import tsml.classifiers.TrainEstimateTimeable;
 import tsml.classifiers.distance_based.distances.DistanceMeasure;
+import tsml.classifiers.distance_based.distances.dtw.DTWDistance;
 import tsml.classifiers.distance_based.distances.ed.EDistance;
+import tsml.classifiers.distance_based.distances.erp.ERPDistance;
+import tsml.classifiers.distance_based.distances.lcss.LCSSDistance;
+import tsml.classifiers.distance_based.distances.lowerbound.EnvelopeCache;
+import tsml.classifiers.distance_based.distances.lowerbound.LowerBound;
+import tsml.classifiers.distance_based.distances.lowerbound.LowerBounds;
 import tsml.classifiers.distance_based.utils.classifiers.configs.Configs;
 import tsml.classifiers.distance_based.utils.collections.pruned.PrunedMap;
 import tsml.classifiers.distance_based.utils.classifiers.BaseClassifier;
@@ -46,9 +60,10 @@ import tsml.data_containers.TimeSeriesInstance;
 import tsml.data_containers.TimeSeriesInstances;
 import utilities.ArrayUtilities;
 import utilities.ClassifierTools;
+import utilities.ComputePool;
 
 public class KNN extends BaseClassifier implements ParamHandler, Checkpointed, ContractedTrain, TrainEstimateTimeable,
-                                                         ContractedTest {
+                                                         ContractedTest, MultiThreadable {
 
     public static void main(String[] args) throws Exception {
         final int seed = 0;
@@ -127,6 +142,29 @@ public class KNN extends BaseClassifier implements ParamHandler, Checkpointed, C
             knn.setNeighbourhoodSizeLimitProportional(1d);
         });
 
+        // the elastic measures early abandon and prune with their lower bound cascades (see LowerBounds)
+        configs.add("1NN_DTW", "DTW with full window, lower bounded by LB_Kim and LB_Improved", "1NN_ED", knn -> {
+            knn.setDistanceMeasure(new DTWDistance());
+            knn.setEarlyAbandonDistances(true);
+            knn.setLowerBoundDistances(true);
+        });
+
+        configs.add("1NN_ERP", "ERP with full window, lower bounded by LB_Keogh for ERP", "1NN_ED", knn -> {
+            knn.setDistanceMeasure(new ERPDistance());
+            knn.setEarlyAbandonDistances(true);
+            knn.setLowerBoundDistances(true);
+        });
+
+        // a full window envelope spans the whole series, so LB_Keogh for LCSS only prunes with a narrower window
+        configs.add("1NN_LCSS", "LCSS with epsilon 0.2 and 10% window, lower bounded by LB_Keogh", "1NN_ED", knn -> {
+            final LCSSDistance lcss = new LCSSDistance();
+            lcss.setEpsilon(0.2);
+            lcss.setWindow(0.1);
+            knn.setDistanceMeasure(lcss);
+            knn.setEarlyAbandonDistances(true);
+            knn.setLowerBoundDistances(true);
+        });
+
         return configs;
     }
     
@@ -142,6 +180,14 @@ public class KNN extends BaseClassifier implements ParamHandler, Checkpointed, C
     private int neighbourhoodSize;
     private boolean earlyPredict;
     private boolean earlyAbandonDistances;
+    // whether to use lower bounds (if available for the distance measure) to skip distances which must exceed the
+    // early abandon limit
+    private boolean lowerBoundDistances;
+    private LowerBound lowerBound;
+    // envelopes of the train data, shared between the lower bounds of all threads
+    private EnvelopeCache envelopeCache;
+    // the number of distance computations skipped by the lower bounds since the build began
+    private final LongAdder lowerBoundPruneCount = new LongAdder();
     private boolean autoK;
     private int bestK;
     
@@ -156,12 +202,19 @@ public class KNN extends BaseClassifier implements ParamHandler, Checkpointed, C
     
     public static final String EARLY_PREDICT_FLAG = "p";
     public static final String EARLY_ABANDON_DISTANCES_FLAG = "e";
+    public static final String LOWER_BOUND_DISTANCES_FLAG = "l";
     public static final String NEIGHBOURHOOD_SIZE_LIMIT_FLAG = "n";
     public static final String AUTO_K_FLAG = "a";
     
     private final CheckpointConfig checkpointConfig = new CheckpointConfig();
     private long trainTimeLimit = -1;
     private long testTimeLimit = -1;
+    // the number of threads used to search for the neighbours of a test inst
+    private int numThreads = 1;
+    private transient ExecutorService executor;
+    // copies of the distance measure and lower bound for the threads, as neither are thread safe. These are reused
+    // between test insts
+    private transient Queue<Worker> workers;
 
     @Override public long getRunTime() {
         return runTimer.elapsedTime();
@@ -188,6 +241,7 @@ public class KNN extends BaseClassifier implements ParamHandler, Checkpointed, C
         return super.getParams()
                        .add(DistanceMeasure.DISTANCE_MEASURE_FLAG, distanceMeasure)
                        .add(EARLY_ABANDON_DISTANCES_FLAG, earlyAbandonDistances)
+                       .add(LOWER_BOUND_DISTANCES_FLAG, lowerBoundDistances)
                        .add(EARLY_PREDICT_FLAG, earlyPredict)
                        .add(NEIGHBOURHOOD_SIZE_LIMIT_FLAG, neighbourhoodSizeLimit)
                        .add(AUTO_K_FLAG, autoK);
@@ -197,6 +251,7 @@ public class KNN extends BaseClassifier implements ParamHandler, Checkpointed, C
         super.setParams(params);
         setDistanceMeasure(params.get(DistanceMeasure.DISTANCE_MEASURE_FLAG, distanceMeasure));
         setEarlyAbandonDistances(params.get(EARLY_ABANDON_DISTANCES_FLAG, earlyAbandonDistances));
+        setLowerBoundDistances(params.get(LOWER_BOUND_DISTANCES_FLAG, lowerBoundDistances));
         setEarlyPredict(params.get(EARLY_PREDICT_FLAG, earlyPredict));
         setAutoK(params.get(AUTO_K_FLAG, autoK));
     }
@@ -264,8 +319,13 @@ public class KNN extends BaseClassifier implements ParamHandler, Checkpointed, C
                 super.buildClassifier(data);
                 neighbourhoodSize = 0;
                 trainData = data;
+                // the lower bounds cache envelopes of the train data, so rebuild them for each new train data
+                envelopeCache = new EnvelopeCache();
+                lowerBound = lowerBoundDistances ? LowerBounds.forDistanceMeasure(distanceMeasure, envelopeCache) : null;
+                lowerBoundPruneCount.reset();
+                workers = null;
                 longestAddNeighbourTime = 0;
-                runTimer.reset();
+                runTimer.resetAndStart();
                 evaluationTimer.reset();
                 checkpointConfig.resetCheckpointingTime();
                 if(getEstimateOwnPerformance()) {
@@ -404,6 +464,12 @@ public class KNN extends BaseClassifier implements ParamHandler, Checkpointed, C
     
     @Override public double[] distributionForInstance(final TimeSeriesInstance testInst) throws Exception {
         testTimer.resetAndStart();
+        if(numThreads > 1) {
+            final ParallelSearch search = new ParallelSearch(testInst, autoK ? bestK : k);
+            search.run();
+            testTimer.stop();
+            return search.predict();
+        }
         final Search search = new Search(testInst);
         if(autoK) {
             search.setK(bestK);
@@ -418,12 +484,58 @@ public class KNN extends BaseClassifier implements ParamHandler, Checkpointed, C
         return search.predict();
     }
 
+    /**
+     * Compute the distance between a target inst and a neighbour. If the lower bound of the distance exceeds the limit
+     * the distance computation is skipped and treated as early abandoned.
+     * @param target
+     * @param neighbour
+     * @param limit
+     * @return
+     */
+    private double distance(DistanceMeasure distanceMeasure, LowerBound lowerBound, TimeSeriesInstance target,
+            TimeSeriesInstance neighbour, double limit) {
+        if(lowerBound != null && limit != Double.POSITIVE_INFINITY && lowerBound.lowerBound(target, neighbour, limit) > limit) {
+            lowerBoundPruneCount.increment();
+            return Double.POSITIVE_INFINITY;
+        }
+        return distanceMeasure.distance(target, neighbour, limit);
+    }
+
+    /**
+     * Build the class distribution from the k nearest neighbours.
+     * @param nearestNeighbourIndices
+     * @param distribution
+     */
+    private void predict(PrunedMap<Double, Integer> nearestNeighbourIndices, double[] distribution) {
+        Arrays.fill(distribution, 0d);
+        // note that more than k neighbours may be held as the nearest neighbours if there are ties.
+        // it makes most sense to keep the ties. The ties should get the kth
+        final Double lastKey = nearestNeighbourIndices.lastKey();
+        for(Double distance : nearestNeighbourIndices.keySet()) {
+            final List<Integer> instIndices = nearestNeighbourIndices.get(distance);
+            final double weight;
+            if(distance.equals(lastKey)) {
+                // last list contains any tie breaks for the kth nearest neighbour
+                // give any ties equal share for the kth vote
+                weight = 1d / instIndices.size();
+            } else {
+                weight = 1d;
+            }
+            for(Integer i : instIndices) {
+                final TimeSeriesInstance nearestNeighbour = trainData.get(i);
+                distribution[nearestNeighbour.getLabelIndex()] += weight;
+            }
+        }
+        ArrayUtilities.normalise(distribution, true);
+    }
+
     public DistanceMeasure getDistanceMeasure() {
         return distanceMeasure;
     }
 
     public void setDistanceMeasure(final DistanceMeasure distanceMeasure) {
         this.distanceMeasure = Objects.requireNonNull(distanceMeasure);
+        workers = null;
     }
 
     public int getK() {
@@ -462,6 +574,41 @@ public class KNN extends BaseClassifier implements ParamHandler, Checkpointed, C
         this.earlyAbandonDistances = earlyAbandonDistances;
     }
 
+    public boolean isLowerBoundDistances() {
+        return lowerBoundDistances;
+    }
+
+    /**
+     * @return the number of distance computations skipped because a lower bound exceeded the early abandon limit,
+     * over the build and any predictions since
+     */
+    public long getLowerBoundPruneCount() {
+        return lowerBoundPruneCount.sum();
+    }
+
+    /**
+     * Use lower bounds to prune distance computations. Only applies when early abandoning distances, as the lower
+     * bounds are checked against the early abandon limit.
+     * @param lowerBoundDistances
+     */
+    public void setLowerBoundDistances(final boolean lowerBoundDistances) {
+        this.lowerBoundDistances = lowerBoundDistances;
+        workers = null;
+    }
+
+    /**
+     * Search for the neighbours of each test inst using several threads. The train estimate is unaffected.
+     * @param numThreads
+     */
+    @Override public void enableMultiThreading(final int numThreads) {
+        this.numThreads = Math.max(1, numThreads);
+        executor = null;
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
     @Override public long getTrainTimeLimit() {
         return trainTimeLimit;
     }
@@ -580,7 +727,8 @@ public class KNN extends BaseClassifier implements ParamHandler, Checkpointed, C
             final boolean nearest = nearestNeighbourIndices.add(distance, neighbourIndexInTrainData);
 
             if(nearest) {
-                if(earlyAbandonDistances) {
+                // the kth nearest distance is only a valid limit once k neighbours have been found
+                if(earlyAbandonDistances && nearestNeighbourIndices.size() >= nearestNeighbourIndices.getLimit()) {
                     // update the limit for early abandoning distances
                     this.limit = nearestNeighbourIndices.lastKey();
                 } // else leave limit at pos inf
@@ -649,7 +797,7 @@ public class KNN extends BaseClassifier implements ParamHandler, Checkpointed, C
                 }
 
                 // compute the distance to the neighbour
-                distance = distanceMeasure.distance(getTarget(), neighbour, limit);
+                distance = distance(distanceMeasure, lowerBound, getTarget(), neighbour, limit);
                 nearest = add(neighbourIndexInTrainData, distance);
                 
                 if(nearest && earlyPredict) {
@@ -713,26 +861,7 @@ public class KNN extends BaseClassifier implements ParamHandler, Checkpointed, C
         public double[] predict() {
             if(updateDistribution) {
                 updateDistribution = false;
-                Arrays.fill(distribution, 0d);
-                // note that more than k neighbours may be held as the nearest neighbours if there are ties.
-                // it makes most sense to keep the ties. The ties should get the kth
-                final Double lastKey = nearestNeighbourIndices.lastKey();
-                for(Double distance : nearestNeighbourIndices.keySet()) {
-                    final List<Integer> instIndices = nearestNeighbourIndices.get(distance);
-                    final double weight;
-                    if(distance.equals(lastKey)) {
-                        // last list contains any tie breaks for the kth nearest neighbour
-                        // give any ties equal share for the kth vote
-                        weight = 1d / instIndices.size();
-                    } else {
-                        weight = 1d;
-                    }
-                    for(Integer i : instIndices) {
-                        final TimeSeriesInstance nearestNeighbour = trainData.get(i);
-                        distribution[nearestNeighbour.getLabelIndex()] += weight;
-                    }
-                }
-                ArrayUtilities.normalise(distribution, true);
+                KNN.this.predict(nearestNeighbourIndices, distribution);
             }
             return distribution;
         }
@@ -754,5 +883,107 @@ public class KNN extends BaseClassifier implements ParamHandler, Checkpointed, C
         }
         
     }
-}
 
+    // a copy of the distance measure and lower bound confined to a single thread at a time
+    private class Worker {
+        private final DistanceMeasure distanceMeasure;
+        private final LowerBound lowerBound;
+
+        private Worker() {
+            distanceMeasure = CopierUtils.deepCopy(KNN.this.distanceMeasure);
+            // the envelope cache is thread safe so is shared by all workers
+            lowerBound = lowerBoundDistances ? LowerBounds.forDistanceMeasure(distanceMeasure, envelopeCache) : null;
+        }
+
+        public double distance(TimeSeriesInstance target, TimeSeriesInstance neighbour, double limit) {
+            return KNN.this.distance(distanceMeasure, lowerBound, target, neighbour, limit);
+        }
+    }
+
+    // class to search for the nearest neighbours of a test inst over several threads. The train data is split into
+    // chunks which the threads take in turn until none are left. All threads share the best-so-far limit, so a close
+    // neighbour found by one thread tightens the early abandoning and lower bounding in every other thread.
+    private class ParallelSearch {
+        private final TimeSeriesInstance target;
+        private final PrunedMap<Double, Integer> nearestNeighbourIndices;
+        // the order to examine the train insts in
+        private final int[] order;
+        // the number of train insts taken by a thread at a time
+        private final int chunkSize;
+        // the start of the next chunk to be taken
+        private final AtomicInteger nextChunk = new AtomicInteger();
+        // the time by which the search must finish, if test contracted
+        private final long deadline;
+        private volatile double limit = Double.POSITIVE_INFINITY;
+
+        public ParallelSearch(final TimeSeriesInstance target, final int k) {
+            this.target = Objects.requireNonNull(target);
+            nearestNeighbourIndices = PrunedMap.asc(k);
+            // random order, as for the sequential search, so close neighbours are found early on average rather than
+            // depending on the order of the train data
+            final List<Integer> indices = new ArrayList<>(trainData.numInstances());
+            for(int i = 0; i < trainData.numInstances(); i++) {
+                indices.add(i);
+            }
+            Collections.shuffle(indices, getRandom());
+            order = indices.stream().mapToInt(Integer::intValue).toArray();
+            // several chunks per thread so threads which finish early take more of the work
+            chunkSize = Math.max(1, order.length / (numThreads * 8));
+            deadline = hasTestTimeLimit() ? System.nanoTime() + testTimeLimit - getTestTime() : Long.MAX_VALUE;
+        }
+
+        public void run() throws Exception {
+            if(workers == null) {
+                workers = new ConcurrentLinkedQueue<>();
+            }
+            if(executor == null) {
+                executor = ComputePool.newExecutor(numThreads);
+            }
+            final List<Callable<Object>> tasks = new ArrayList<>(numThreads);
+            for(int i = 0; i < numThreads; i++) {
+                tasks.add(Executors.callable(this::searchChunks));
+            }
+            for(Future<Object> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        }
+
+        private void searchChunks() {
+            Worker worker = workers.poll();
+            if(worker == null) {
+                worker = new Worker();
+            }
+            try {
+                int start;
+                while((start = nextChunk.getAndAdd(chunkSize)) < order.length) {
+                    final int end = Math.min(order.length, start + chunkSize);
+                    for(int i = start; i < end; i++) {
+                        if(System.nanoTime() >= deadline) {
+                            return;
+                        }
+                        final int neighbourIndexInTrainData = order[i];
+                        final TimeSeriesInstance neighbour = trainData.get(neighbourIndexInTrainData);
+                        add(neighbourIndexInTrainData, worker.distance(target, neighbour, limit));
+                    }
+                }
+            } finally {
+                workers.add(worker);
+            }
+        }
+
+        private synchronized void add(int neighbourIndexInTrainData, double distance) {
+            final boolean nearest = nearestNeighbourIndices.add(distance, neighbourIndexInTrainData);
+            if(nearest && earlyAbandonDistances && nearestNeighbourIndices.size() >= nearestNeighbourIndices.getLimit()) {
+                limit = nearestNeighbourIndices.lastKey();
+            }
+        }
+
+        public synchronized double[] predict() {
+            final double[] distribution = ArrayUtilities.uniformDistribution(trainData.numClasses());
+            if(!nearestNeighbourIndices.isEmpty()) {
+                KNN.this.predict(nearestNeighbourIndices, distribution);
+            }
+            return distribution;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+package tsml.classifiers.distance_based.knn;
+
+import experiments.data.DatasetLoading;
+import org.junit.Assert;
+import org.junit.Test;
+import tsml.classifiers.distance_based.distances.dtw.DTWDistance;
+import tsml.data_containers.TimeSeriesInstance;
+import tsml.data_containers.TimeSeriesInstances;
+import tsml.data_containers.utilities.Converter;
+import weka.core.Instances;
+
+/**
+ * Purpose: test the parallel neighbour search gives the same predictions as the sequential search, and that the lower
+ * bounding configs prune distances without changing predictions
+ */
+public class KNNTest {
+
+    private static void assertParallelMatchesSequential(int k, boolean earlyAbandon) throws Exception {
+        final Instances[] data = DatasetLoading.sampleGunPoint(0);
+        final TimeSeriesInstances train = Converter.fromArff(data[0]);
+        final TimeSeriesInstances test = Converter.fromArff(data[1]);
+        final KNN sequential = new KNN();
+        final KNN parallel = new KNN();
+        for(KNN knn : new KNN[] {sequential, parallel}) {
+            final DTWDistance dtw = new DTWDistance();
+            dtw.setWindow(0.1);
+            knn.setDistanceMeasure(dtw);
+            knn.setK(k);
+            knn.setEarlyAbandonDistances(earlyAbandon);
+            knn.setEstimateOwnPerformance(false);
+            knn.setSeed(0);
+            knn.buildClassifier(train);
+        }
+        parallel.enableMultiThreading(4);
+        for(TimeSeriesInstance inst : test) {
+            Assert.assertArrayEquals(sequential.distributionForInstance(inst), parallel.distributionForInstance(inst), 0d);
+        }
+    }
+
+    @Test
+    public void testParallel1NN() throws Exception {
+        assertParallelMatchesSequential(1, true);
+    }
+
+    @Test
+    public void testParallelKNN() throws Exception {
+        assertParallelMatchesSequential(5, true);
+    }
+
+    @Test
+    public void testParallelWithoutEarlyAbandon() throws Exception {
+        assertParallelMatchesSequential(3, false);
+    }
+
+    // the lower bounding config must skip distances yet predict exactly as without lower bounds
+    private static void assertLowerBoundsPrune(String config) throws Exception {
+        final Instances[] data = DatasetLoading.sampleItalyPowerDemand(0);
+        final TimeSeriesInstances train = Converter.fromArff(data[0]);
+        final TimeSeriesInstances test = Converter.fromArff(data[1]);
+        final KNN bounded = KNN.CONFIGS.get(config).build();
+        final KNN unbounded = KNN.CONFIGS.get(config).build();
+        Assert.assertTrue(bounded.isLowerBoundDistances());
+        unbounded.setLowerBoundDistances(false);
+        for(KNN knn : new KNN[] {bounded, unbounded}) {
+            knn.setEstimateOwnPerformance(false);
+            knn.setSeed(0);
+            knn.buildClassifier(train);
+        }
+        for(TimeSeriesInstance inst : test) {
+            Assert.assertArrayEquals(unbounded.distributionForInstance(inst), bounded.distributionForInstance(inst), 0d);
+        }
+        Assert.assertTrue(config + " pruned nothing", bounded.getLowerBoundPruneCount() > 0);
+        Assert.assertEquals(0, unbounded.getLowerBoundPruneCount());
+    }
+
+    @Test
+    public void testDTWLowerBoundsPrune() throws Exception {
+        assertLowerBoundsPrune("1NN_DTW");
+    }
+
+    @Test
+    public void testERPLowerBoundsPrune() throws Exception {
+        assertLowerBoundsPrune("1NN_ERP");
+    }
+
+    @Test
+    public void testLCSSLowerBoundsPrune() throws Exception {
+        assertLowerBoundsPrune("1NN_LCSS");
+    }
+}
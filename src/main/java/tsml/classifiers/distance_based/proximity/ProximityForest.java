@@ -22,6 +22,7 @@ import evaluation.evaluators.Evaluator;
 import evaluation.evaluators.OutOfBagEvaluator;
 import evaluation.storage.ClassifierResults;
 import experiments.data.DatasetLoading;
+import tsml.classifiers.MultiThreadable;
 import tsml.classifiers.TrainEstimateTimeable;
 import tsml.classifiers.distance_based.utils.classifiers.*;
 import tsml.classifiers.distance_based.utils.classifiers.checkpointing.CheckpointConfig;
@@ -39,8 +40,14 @@ import tsml.classifiers.distance_based.utils.system.timing.StopWatch;
 import tsml.data_containers.TimeSeriesInstance;
 import tsml.data_containers.TimeSeriesInstances;
 import utilities.ClassifierTools;
+import utilities.ComputePool;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 
 import static utilities.ArrayUtilities.*;
@@ -52,7 +59,7 @@ import static utilities.Utilities.argMax;
  * Contributors: goastler
  */
 public class ProximityForest extends BaseClassifier implements ContractedTrain, ContractedTest, TrainEstimateTimeable,
-                                                                       Checkpointed, MemoryWatchable {
+                                                                       Checkpointed, MemoryWatchable, MultiThreadable {
 
     public static void main(String[] args) throws Exception {
 ////        Thread.sleep(10000);
@@ -156,6 +163,12 @@ public class ProximityForest extends BaseClassifier implements ContractedTrain,
     private double[][] trainEstimateDistributions;
     private final StopWatch evaluationTimer = new StopWatch();
     private long[] trainEstimatePredictionTimes;
+    // the seed of every tree started so far, by tree index. Trees being built in parallel when a checkpoint is saved
+    // are not in the checkpoint, so they are rebuilt with the same seeds on resuming
+    private List<Integer> treeSeeds;
+    // the number of trees to build / predict with at once
+    private int numThreads = 1;
+    private transient ExecutorService executor;
 
     @Override public long getMaxMemoryUsage() {
         return memoryWatcher.getMaxMemoryUsage();
@@ -198,6 +211,7 @@ public class ProximityForest extends BaseClassifier implements ContractedTrain,
                 trees = new ArrayList<>();
                 treeEvaluators = new ArrayList<>();
                 treeTrainResults = new ArrayList<>();
+                treeSeeds = new ArrayList<>();
                 // zero tree build time so the first tree build will always set the bar
                 longestTrainStageTime = 0;
                 // init the running train estimate variables if using OOB
@@ -210,6 +224,10 @@ public class ProximityForest extends BaseClassifier implements ContractedTrain,
             }  // case (1a)
 
         } // else case (2)
+        if(treeSeeds == null) {
+            // resuming from a checkpoint saved before tree seeds were recorded
+            treeSeeds = new ArrayList<>(Collections.nCopies(trees.size(), null));
+        }
         
         // update the run timer with the start time of this session 
         // as the runtimer has been overwritten with the one from the checkpoint (if loaded)
@@ -220,8 +238,6 @@ public class ProximityForest extends BaseClassifier implements ContractedTrain,
         LogUtils.logTimeContract(runTimer.elapsedTime(), trainTimeLimit, getLogger(), "train");
         // whether work has been done in this call to buildClassifier
         boolean workDone = false;
-        // maintain a timer for how long trees take to build
-        final StopWatch trainStageTimer = new StopWatch();
         // while remaining time / more trees need to be built
         if(estimateOwnPerformance && trainEstimateMethod.equals(TrainEstimateMethod.CV)) {
             // if there's a train contract then need to spend half the time CV'ing
@@ -254,65 +270,54 @@ public class ProximityForest extends BaseClassifier implements ContractedTrain,
             LogUtils.logTimeContract(runTimer.elapsedTime(), trainTimeLimit, getLogger(), "train");
             getLogger().info("cross validation finished, acc " + trainResults.getAcc());
         }
-        while(
-                // there's remaining trees to be built
-                insideNumTreeLimit()
-                &&
-                // and there's remaining time left to build more trees
-                insideTrainTimeLimit(runTimer.elapsedTime() + longestTrainStageTime)
-        ) {
-            // reset the tree build timer
-            trainStageTimer.resetAndStart();
-            // setup a new tree
-            final int treeIndex = trees.size();
-            final ProximityTree tree = proximityTreeBuilder.build();
-            final int treeSeed = rand.nextInt();
-            tree.setSeed(treeSeed);
-            // setup the constituent
-            trees.add(tree);
-            // estimate the performance of the tree
-            if(estimateOwnPerformance && trainEstimateMethod.equals(TrainEstimateMethod.OOB)) {
-                // the timer for contracting the estimate of train error
-                evaluationTimer.start();
-                // build train estimate based on method
-                final OutOfBagEvaluator oobe = new OutOfBagEvaluator();
-                oobe.setCloneClassifier(false);
-                oobe.setSeed(treeSeed);
-                treeEvaluators.add(oobe);
-                getLogger().info(() -> "oob evaluating tree " + treeIndex);
-                // evaluate the tree
-                final ClassifierResults treeEvaluationResults = oobe.evaluate(tree, trainData);
-                treeTrainResults.add(treeEvaluationResults);
-                // for each index in the test data of the oobe
-                final List<Integer> outOfBagTestDataIndices = oobe.getOutOfBagTestDataIndices();
-                // for each instance in the oobe test data, add the distribution and prediction time to the corresponding instance predictions in the train estimate results
-                for(int oobeIndex = 0; oobeIndex < outOfBagTestDataIndices.size(); oobeIndex++) {
-                    final int trainDataIndex = outOfBagTestDataIndices.get(oobeIndex);
-                    // get the corresponding distribution from the oobe results
-                    double[] distribution = treeEvaluationResults.getProbabilityDistribution(oobeIndex);
-                    distribution = vote(treeIndex, distribution);
-                    // get the corresponding distribution from the train estimate distribution
-                    // add tree's distribution for this instance onto the overall train estimate distribution for this instance
-                    add(trainEstimateDistributions[trainDataIndex], distribution);
-                    // add the prediction time from the oobe to the time for this instance in the train estimate
-                    trainEstimatePredictionTimes[trainDataIndex] += treeEvaluationResults.getPredictionTime(oobeIndex);
+        // trees being built, oldest first. Up to numThreads trees are built at once, but they are added to the forest
+        // in order so the forest (and therefore any checkpoint) only ever holds trees 0..n-1
+        final Deque<Future<TreeBuild>> treeBuilds = new ArrayDeque<>();
+        try {
+            while(true) {
+                while(
+                        // there's a free thread
+                        treeBuilds.size() < numThreads
+                        &&
+                        // there's remaining trees to be built
+                        insideNumTreeLimit(trees.size() + treeBuilds.size())
+                        &&
+                        // and there's remaining time left to build more trees
+                        insideTrainTimeLimit(runTimer.elapsedTime() + longestTrainStageTime)
+                ) {
+                    final int treeIndex = trees.size() + treeBuilds.size();
+                    // seeds are drawn in tree order whatever the number of threads, so the forest is the same
+                    if(treeIndex == treeSeeds.size()) {
+                        treeSeeds.add(rand.nextInt());
+                    }
+                    final int treeSeed = treeSeeds.get(treeIndex);
+                    final Callable<TreeBuild> job = () -> buildTree(treeIndex, treeSeed, trainData);
+                    if(numThreads > 1) {
+                        treeBuilds.add(getExecutor().submit(job));
+                    } else {
+                        final FutureTask<TreeBuild> task = new FutureTask<>(job);
+                        task.run();
+                        treeBuilds.add(task);
+                    }
+                }
+                if(treeBuilds.isEmpty()) {
+                    break;
                 }
-                treeEvaluationResults.setErrorEstimateMethod(getEstimatorMethod());
-                evaluationTimer.stop();
+                final TreeBuild treeBuild = get(treeBuilds.peek());
+                treeBuilds.remove();
+                addTree(treeBuild, trainData);
+                workDone = true;
+                // optional checkpoint
+                saveCheckpoint();
+                // update train timer
+                LogUtils.logTimeContract(runTimer.elapsedTime(), trainTimeLimit, getLogger(), "train");
+                // update longest tree build time
+                longestTrainStageTime = Math.max(longestTrainStageTime, treeBuild.buildTime);
+            }
+        } finally {
+            for(Future<TreeBuild> treeBuild : treeBuilds) {
+                treeBuild.cancel(true);
             }
-            // build the tree if not producing train estimate OR rebuild after evaluation
-            getLogger().info(() -> "building tree " + treeIndex);
-            tree.setRebuild(true);
-            tree.buildClassifier(trainData);
-            // tree fully built
-            trainStageTimer.stop();
-            workDone = true;
-            // optional checkpoint
-            saveCheckpoint();
-            // update train timer
-            LogUtils.logTimeContract(runTimer.elapsedTime(), trainTimeLimit, getLogger(), "train");
-            // update longest tree build time
-            longestTrainStageTime = Math.max(longestTrainStageTime, trainStageTimer.elapsedTime());
         }
         // if work has been done towards estimating the train error via OOB
         if(estimateOwnPerformance && workDone && trainEstimateMethod.equals(TrainEstimateMethod.OOB)) {
@@ -349,6 +354,115 @@ public class ProximityForest extends BaseClassifier implements ContractedTrain,
         }
     }
 
+    // a tree which has been built, along with its OOB evaluation if estimating the train error by OOB
+    private static class TreeBuild {
+        private ProximityTree tree;
+        private OutOfBagEvaluator evaluator;
+        private ClassifierResults evaluationResults;
+        // the time taken to build, including any evaluation
+        private long buildTime;
+        // the time taken to evaluate
+        private long evaluationTime;
+    }
+
+    /**
+     * Build a tree, and evaluate it if estimating the train error by OOB. This does not touch the forest, so can be
+     * run for several trees at once.
+     */
+    private TreeBuild buildTree(int treeIndex, int treeSeed, TimeSeriesInstances trainData) throws Exception {
+        final long timeStamp = System.nanoTime();
+        final TreeBuild treeBuild = new TreeBuild();
+        // setup a new tree
+        final ProximityTree tree = proximityTreeBuilder.build();
+        tree.setSeed(treeSeed);
+        treeBuild.tree = tree;
+        // estimate the performance of the tree
+        if(estimateOwnPerformance && trainEstimateMethod.equals(TrainEstimateMethod.OOB)) {
+            // build train estimate based on method
+            final OutOfBagEvaluator oobe = new OutOfBagEvaluator();
+            oobe.setCloneClassifier(false);
+            oobe.setSeed(treeSeed);
+            treeBuild.evaluator = oobe;
+            getLogger().info(() -> "oob evaluating tree " + treeIndex);
+            // evaluate the tree
+            treeBuild.evaluationResults = oobe.evaluate(tree, trainData);
+            treeBuild.evaluationResults.setErrorEstimateMethod(getEstimatorMethod());
+            treeBuild.evaluationTime = System.nanoTime() - timeStamp;
+        }
+        // build the tree if not producing train estimate OR rebuild after evaluation
+        getLogger().info(() -> "building tree " + treeIndex);
+        tree.setRebuild(true);
+        tree.buildClassifier(trainData);
+        // tree fully built
+        treeBuild.buildTime = System.nanoTime() - timeStamp;
+        return treeBuild;
+    }
+
+    /**
+     * Add a built tree to the forest, and its OOB predictions to the train estimate.
+     */
+    private void addTree(TreeBuild treeBuild, TimeSeriesInstances trainData) {
+        final int treeIndex = trees.size();
+        trees.add(treeBuild.tree);
+        if(treeBuild.evaluator == null) {
+            return;
+        }
+        // the evaluation was timed in parallel with other trees, so take this tree's share of the elapsed time
+        evaluationTimer.add(treeBuild.evaluationTime / numThreads);
+        treeEvaluators.add(treeBuild.evaluator);
+        final ClassifierResults treeEvaluationResults = treeBuild.evaluationResults;
+        treeTrainResults.add(treeEvaluationResults);
+        // ties are broken by the tree's own random source rather than the forest's, so the trees are seeded the
+        // same however many are built at once
+        final Random treeRandom = new Random(treeSeeds.get(treeIndex));
+        // for each index in the test data of the oobe
+        final List<Integer> outOfBagTestDataIndices = treeBuild.evaluator.getOutOfBagTestDataIndices();
+        // for each instance in the oobe test data, add the distribution and prediction time to the corresponding instance predictions in the train estimate results
+        for(int oobeIndex = 0; oobeIndex < outOfBagTestDataIndices.size(); oobeIndex++) {
+            final int trainDataIndex = outOfBagTestDataIndices.get(oobeIndex);
+            // get the corresponding distribution from the oobe results
+            double[] distribution = treeEvaluationResults.getProbabilityDistribution(oobeIndex);
+            distribution = oneHot(distribution.length, argMax(distribution, treeRandom));
+            // get the corresponding distribution from the train estimate distribution
+            // add tree's distribution for this instance onto the overall train estimate distribution for this instance
+            add(trainEstimateDistributions[trainDataIndex], distribution);
+            // add the prediction time from the oobe to the time for this instance in the train estimate
+            trainEstimatePredictionTimes[trainDataIndex] += treeEvaluationResults.getPredictionTime(oobeIndex);
+        }
+    }
+
+    private static <A> A get(Future<A> future) throws Exception {
+        try {
+            return future.get();
+        } catch(ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if(cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    private ExecutorService getExecutor() {
+        if(executor == null) {
+            executor = ComputePool.newExecutor(numThreads);
+        }
+        return executor;
+    }
+
+    /**
+     * Build and predict with several trees at once. The forest built is the same whatever the number of threads.
+     * @param numThreads
+     */
+    @Override public void enableMultiThreading(final int numThreads) {
+        this.numThreads = Math.max(1, numThreads);
+        executor = null;
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
     @Override
     public double[] distributionForInstance(final TimeSeriesInstance instance) throws Exception {
         // start timer
@@ -358,6 +472,24 @@ public class ProximityForest extends BaseClassifier implements ContractedTrain,
         // time each stage of the prediction
         final StopWatch testStageTimer = new StopWatch();
         final double[] finalDistribution = new double[getNumClasses()];
+        if(numThreads > 1) {
+            // each tree predicts if there's remaining test time when it's reached
+            final long deadline = testTimeLimit > 0 ? System.nanoTime() + testTimeLimit - testTimer.elapsedTime() : Long.MAX_VALUE;
+            final List<Future<double[]>> distributions = new ArrayList<>(trees.size());
+            for(ProximityTree tree : trees) {
+                distributions.add(getExecutor().submit(() -> System.nanoTime() < deadline ? tree.distributionForInstance(instance) : null));
+            }
+            // vote in tree order, as random tie breaks must be in the same order as when predicting sequentially
+            for(int i = 0; i < distributions.size(); i++) {
+                final double[] distribution = get(distributions.get(i));
+                if(distribution != null) {
+                    add(finalDistribution, vote(i, distribution));
+                }
+            }
+            normalise(finalDistribution);
+            testTimer.stop();
+            return finalDistribution;
+        }
         // while there's remaining constituents to be examined and remaining test time
         for(int i = 0;
             i < trees.size()
@@ -397,7 +529,11 @@ public class ProximityForest extends BaseClassifier implements ContractedTrain,
     }
 
     public boolean insideNumTreeLimit() {
-        return !hasNumTreeLimit() || trees.size() < numTreeLimit;
+        return insideNumTreeLimit(trees.size());
+    }
+
+    private boolean insideNumTreeLimit(int numTrees) {
+        return !hasNumTreeLimit() || numTrees < numTreeLimit;
     }
 
     public boolean hasNumTreeLimit() {
@@ -0,0 +1,61 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+package tsml.classifiers.distance_based.proximity;
+
+import evaluation.storage.ClassifierResults;
+import experiments.data.DatasetLoading;
+import org.junit.Assert;
+import org.junit.Test;
+import tsml.data_containers.TimeSeriesInstance;
+import tsml.data_containers.TimeSeriesInstances;
+import tsml.data_containers.utilities.Converter;
+import weka.core.Instances;
+
+/**
+ * Purpose: test building and predicting with several threads gives the same forest as a single thread
+ */
+public class ProximityForestTest {
+
+    private static ProximityForest build(TimeSeriesInstances train, int numThreads) throws Exception {
+        final ProximityForest pf = ProximityForest.CONFIGS.get("PF_R1_OOB").build();
+        pf.setEstimateOwnPerformance(true);
+        pf.setNumTreeLimit(6);
+        pf.setSeed(0);
+        pf.enableMultiThreading(numThreads);
+        pf.buildClassifier(train);
+        return pf;
+    }
+
+    @Test
+    public void testParallelMatchesSequential() throws Exception {
+        final Instances[] data = DatasetLoading.sampleItalyPowerDemand(0);
+        final TimeSeriesInstances train = Converter.fromArff(data[0]);
+        final TimeSeriesInstances test = Converter.fromArff(data[1]);
+        final ProximityForest sequential = build(train, 1);
+        final ProximityForest parallel = build(train, 4);
+        Assert.assertTrue(parallel.isFullyBuilt());
+        final ClassifierResults sequentialResults = sequential.getTrainResults();
+        final ClassifierResults parallelResults = parallel.getTrainResults();
+        for(int i = 0; i < train.numInstances(); i++) {
+            Assert.assertArrayEquals(sequentialResults.getProbabilityDistribution(i), parallelResults.getProbabilityDistribution(i), 0d);
+        }
+        for(TimeSeriesInstance inst : test) {
+            Assert.assertArrayEquals(sequential.distributionForInstance(inst), parallel.distributionForInstance(inst), 0d);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+package tsml.classifiers.distance_based.utils.collections.cache;
+
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Purpose: a thread safe map which holds at most a given total weight of values, evicting the least recently used
+ * entries to make room for new ones. The weight of a value is given by a weigher function, e.g. the approximate number
+ * of bytes it occupies.
+ * <p>
+ * Entries are spread over independently locked segments by key hash so concurrent callers rarely contend. Each
+ * segment holds an equal share of the weight budget and evicts in least recently used order within itself, so
+ * eviction order is approximately rather than strictly LRU over the whole cache. A value heavier than a segment's
+ * share is never stored. Null values are not stored.
+ * <p>
+ * The cache is serialisable when its keys, values and weigher are, so pass a serialisable weigher rather than a
+ * lambda or method reference if the cache is to be serialised, e.g. as part of a checkpointed classifier.
+ */
+public class LruCache<K, V> implements Serializable {
+
+    private static final int DEFAULT_NUM_SEGMENTS = 16;
+
+    private final Segment<K, V>[] segments;
+    private final ToLongFunction<? super V> weigher;
+    private final long maxWeight;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public LruCache(long maxWeight, ToLongFunction<? super V> weigher) {
+        this(maxWeight, weigher, DEFAULT_NUM_SEGMENTS);
+    }
+
+    @SuppressWarnings("unchecked")
+    public LruCache(long maxWeight, ToLongFunction<? super V> weigher, int numSegments) {
+        if(maxWeight < 0) {
+            throw new IllegalArgumentException("max weight must be non-negative: " + maxWeight);
+        }
+        if(numSegments < 1) {
+            throw new IllegalArgumentException("number of segments must be positive: " + numSegments);
+        }
+        this.maxWeight = maxWeight;
+        this.weigher = Objects.requireNonNull(weigher);
+        segments = (Segment<K, V>[]) new Segment<?, ?>[numSegments];
+        // spread the budget over the segments, handing any remainder to the first few
+        for(int i = 0; i < numSegments; i++) {
+            segments[i] = new Segment<>(maxWeight / numSegments + (i < maxWeight % numSegments ? 1 : 0));
+        }
+    }
+
+    private Segment<K, V> segmentFor(Object key) {
+        int hash = key.hashCode();
+        // mix the high bits down as weak hashes often only differ there
+        hash ^= hash >>> 16;
+        return segments[Math.floorMod(hash, segments.length)];
+    }
+
+    /**
+     * Get the value for a key, marking it as most recently used.
+     * @param key the key
+     * @return the cached value or null if there is none
+     */
+    public V get(K key) {
+        final Segment<K, V> segment = segmentFor(key);
+        final V value;
+        synchronized(segment) {
+            final Entry<V> entry = segment.map.get(key);
+            value = entry == null ? null : entry.value;
+        }
+        if(value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    /**
+     * Store a value against a key, evicting least recently used entries if the segment's share of the budget is
+     * exceeded.
+     * @param key the key
+     * @param value the value. A null value removes any current entry.
+     */
+    public void put(K key, V value) {
+        final Segment<K, V> segment = segmentFor(key);
+        if(value == null) {
+            synchronized(segment) {
+                segment.remove(key);
+            }
+            return;
+        }
+        final long weight = weigher.applyAsLong(value);
+        if(weight < 0) {
+            throw new IllegalArgumentException("negative weight " + weight + " for " + value);
+        }
+        synchronized(segment) {
+            segment.remove(key);
+            if(weight > segment.maxWeight) {
+                // would evict everything else and still not fit
+                evictions.increment();
+                return;
+            }
+            segment.map.put(key, new Entry<>(value, weight));
+            segment.weight += weight;
+            evictions.add(segment.evict());
+        }
+    }
+
+    /**
+     * Get the value for a key, computing and storing it if absent. The function is run outside of any lock, so
+     * concurrent callers missing on the same key may each compute the value; the last to finish is kept.
+     * @param key the key
+     * @param function the function to compute a missing value
+     * @return the cached or computed value
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> function) {
+        V value = get(key);
+        if(value == null) {
+            value = function.apply(key);
+            put(key, value);
+        }
+        return value;
+    }
+
+    public void remove(K key) {
+        final Segment<K, V> segment = segmentFor(key);
+        synchronized(segment) {
+            segment.remove(key);
+        }
+    }
+
+    public void clear() {
+        for(Segment<K, V> segment : segments) {
+            synchronized(segment) {
+                segment.map.clear();
+                segment.weight = 0;
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for(Segment<K, V> segment : segments) {
+            synchronized(segment) {
+                size += segment.map.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return the total weight of the values currently held
+     */
+    public long getWeight() {
+        long weight = 0;
+        for(Segment<K, V> segment : segments) {
+            synchronized(segment) {
+                weight += segment.weight;
+            }
+        }
+        return weight;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of entries evicted or refused to stay within the budget
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the proportion of lookups which found a value, or NaN if there have been no lookups
+     */
+    public double getHitRate() {
+        final long hitCount = getHitCount();
+        final long total = hitCount + getMissCount();
+        return total == 0 ? Double.NaN : (double) hitCount / total;
+    }
+
+    public void resetStats() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    @Override public String toString() {
+        return "LruCache{" +
+                       "size=" + size() +
+                       ", weight=" + getWeight() +
+                       ", maxWeight=" + maxWeight +
+                       ", hits=" + getHitCount() +
+                       ", misses=" + getMissCount() +
+                       ", evictions=" + getEvictionCount() +
+                       '}';
+    }
+
+    private static class Entry<V> implements Serializable {
+        private final V value;
+        private final long weight;
+
+        private Entry(final V value, final long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    private static class Segment<K, V> implements Serializable {
+        private final long maxWeight;
+        // access ordered, so iteration starts at the least recently used entry
+        private final LinkedHashMap<K, Entry<V>> map = new LinkedHashMap<>(16, 0.75f, true);
+        private long weight;
+
+        private Segment(final long maxWeight) {
+            this.maxWeight = maxWeight;
+        }
+
+        private void remove(Object key) {
+            final Entry<V> entry = map.remove(key);
+            if(entry != null) {
+                weight -= entry.weight;
+            }
+        }
+
+        private int evict() {
+            int count = 0;
+            final Iterator<Entry<V>> iterator = map.values().iterator();
+            while(weight > maxWeight) {
+                weight -= iterator.next().weight;
+                iterator.remove();
+                count++;
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+package tsml.classifiers.distance_based.utils.collections.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Purpose: test the cache keeps within its weight budget, evicts least recently used entries first and counts hits.
+ */
+public class LruCacheTest {
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        // single segment so eviction order is exact
+        final LruCache<Integer, String> cache = new LruCache<>(3, String::length, 1);
+        cache.put(1, "a");
+        cache.put(2, "b");
+        cache.put(3, "c");
+        // touch 1 so 2 becomes the eldest
+        Assert.assertEquals("a", cache.get(1));
+        cache.put(4, "d");
+        Assert.assertNull(cache.get(2));
+        Assert.assertEquals("a", cache.get(1));
+        Assert.assertEquals("c", cache.get(3));
+        Assert.assertEquals("d", cache.get(4));
+        Assert.assertEquals(3, cache.getWeight());
+        Assert.assertEquals(1, cache.getEvictionCount());
+        Assert.assertEquals(4, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testWeightBudget() {
+        final LruCache<Integer, String> cache = new LruCache<>(5, String::length, 1);
+        cache.put(1, "aa");
+        cache.put(2, "bbb");
+        Assert.assertEquals(5, cache.getWeight());
+        // replacing a value swaps its weight
+        cache.put(1, "a");
+        Assert.assertEquals(4, cache.getWeight());
+        // evicts both older entries to make room
+        cache.put(3, "ccccc");
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals(5, cache.getWeight());
+        // too heavy to ever fit, so not stored and nothing else is lost
+        cache.put(4, "dddddd");
+        Assert.assertNull(cache.get(4));
+        Assert.assertEquals("ccccc", cache.get(3));
+    }
+
+    @Test
+    public void testConcurrentComputeIfAbsent() throws Exception {
+        final int numKeys = 100;
+        final LruCache<Integer, Integer> cache = new LruCache<>(numKeys, value -> 1);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for(int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    for(int i = 0; i < 10_000; i++) {
+                        final int key = i % numKeys;
+                        Assert.assertEquals(key * 2, (int) cache.computeIfAbsent(key, k -> k * 2));
+                    }
+                }));
+            }
+            for(Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertTrue(cache.getWeight() <= numKeys);
+        Assert.assertEquals(40_000, cache.getHitCount() + cache.getMissCount());
+    }
+}
@@ -322,6 +322,30 @@ public class Arsenal extends EnhancedAbstractClassifier implements TrainTimeCont
         return probs;
     }
 
+    @Override
+    public double[][] distributionForInstances(Instances data) throws Exception {
+        if (data.classIndex() < 0)
+            return super.distributionForInstances(data);
+
+        double[][] probs = new double[data.numInstances()][header.numClasses()];
+        double sum = 0;
+        for (int i = 0; i < classifiers.length; i++){
+            //transform the whole batch at once, in parallel over instances if multithreading
+            Instances transformedData = rockets[i].transform(data);
+            double s = cls instanceof RidgeClassifierCV ?
+                    Math.pow(((RidgeClassifierCV) classifiers[i]).getBestScore(), 4) : 1;
+            for (int n = 0; n < probs.length; n++) {
+                double pls = classifiers[i].classifyInstance(transformedData.get(n));
+                probs[n][(int)pls] += s;
+            }
+            sum += s;
+        }
+
+        for (double[] p : probs)
+            for (int i = 0; i < p.length; i++) p[i] /= sum;
+        return probs;
+    }
+
     private void copyParameters(Arsenal other){
         this.numKernels = other.numKernels;
         this.ensembleSize = other.ensembleSize;
@@ -320,9 +320,10 @@ public class HIVE_COTE extends AbstractEnsemble implements TechnicalInformationH
      *      a 10fold cv) will very likely overshoot the contract, since the classifier would be
      *      trying to keep to contract on each fold and the full build individually, not in total. 
      *      This is an active research question moreso than an implementation question
-     *  3) The contract currently does not consider whether the ensemble is being threaded,
-     *      i.e. even if it can run the building of two or more classifiers in parallel, 
-     *      this will still naively set the contract per classifier as amount/numClassifiers
+     *  3) If the ensemble is being threaded, the modules are built concurrently (see 
+     *      AbstractEnsemble.divideThreadBudget), so the time is split between as many rounds of 
+     *      builds as are needed to build every contractable classifier with the threads available, 
+     *      rather than between every classifier
      */
     /**
      * Overriding TrainTimeContract methods
@@ -368,7 +369,10 @@ public class HIVE_COTE extends AbstractEnsemble implements TechnicalInformationH
         //force nanos in setting base classifier contracts in case e.g. 1 hour was passed, 1/5 = 0...
         TimeUnit highFidelityUnit = TimeUnit.NANOSECONDS;
         long conservativeBaseClassifierContract = (long) (BASE_CLASSIFIER_CONTRACT_PROP * highFidelityUnit.convert(trainContractTimeNanos, contractTrainTimeUnit));
-        long highFidelityTimePerClassifier = (conservativeBaseClassifierContract) / numContractableClassifiers;
+        //when threaded, up to one module per thread is built at once, so the contract is split between rounds of builds
+        int concurrentModules = multiThread ? Math.min(numThreads, modules.length) : 1;
+        int numRounds = Math.max(1, (numContractableClassifiers + concurrentModules - 1) / concurrentModules);
+        long highFidelityTimePerClassifier = (conservativeBaseClassifierContract) / numRounds;
         printLineDebug(" Setting up contract\nTotal Contract = "+trainContractTimeNanos/1000000000+" Secs");
         printLineDebug(" Per Classifier = "+highFidelityTimePerClassifier+" Nanos");
         for (EnsembleModule module : modules)
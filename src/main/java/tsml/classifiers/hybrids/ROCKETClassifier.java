@@ -244,6 +244,19 @@ public class ROCKETClassifier extends EnhancedAbstractClassifier implements Trai
         return cls.distributionForInstance(transformedInst);
     }
 
+    @Override
+    public double[][] distributionForInstances(Instances data) throws Exception {
+        if (data.classIndex() < 0)
+            return super.distributionForInstances(data);
+
+        //transform the whole batch at once, in parallel over instances if multithreading
+        Instances transformedData = rocket.transform(data);
+        double[][] probs = new double[transformedData.numInstances()][];
+        for (int i = 0; i < probs.length; i++)
+            probs[i] = cls.distributionForInstance(transformedData.get(i));
+        return probs;
+    }
+
     public static void main(String[] args) throws Exception {
         int fold = 0;
 
@@ -41,6 +41,7 @@ import java.io.InputStreamReader;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.function.Function;
+import utilities.ComputePool;
 
 import static tsml.classifiers.interval_based.DrCIF.*;
 import static utilities.StatisticalUtilities.median;
@@ -406,7 +407,7 @@ public class CIF extends EnhancedAbstractClassifier implements TechnicalInformat
         }
 
         if (multiThread) {
-            ex = Executors.newFixedThreadPool(numThreads);
+            ex = ComputePool.newExecutor(numThreads);
             if (checkpoint) System.out.println("Unable to checkpoint until end of build when multi threading.");
         }
 
@@ -35,6 +35,7 @@ import java.io.File;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.function.Function;
+import utilities.ComputePool;
 
 import static utilities.ArrayUtilities.sum;
 import static utilities.StatisticalUtilities.median;
@@ -117,6 +118,7 @@ public class DrCIF extends EnhancedAbstractClassifier implements TechnicalInform
     private long lastCheckpointTime = 0;
     private long checkpointTimeDiff = 0;
     private boolean internalContractCheckpointHandling = true;
+    private transient CheckpointLog checkpointLog;
 
     /** Flags and data required if Contracting **/
     private boolean trainTimeContract = false;
@@ -126,7 +128,7 @@ public class DrCIF extends EnhancedAbstractClassifier implements TechnicalInform
     /** Multithreading **/
     private int numThreads = 1;
     private boolean multiThread = false;
-    private ExecutorService ex;
+    private transient ExecutorService ex;
 
     /** data information **/
     private int numInstances;
@@ -319,16 +321,9 @@ public class DrCIF extends EnhancedAbstractClassifier implements TechnicalInform
         di.setSubtractFormerValue(true);
         representations[2] = di.transform(representations[0]);
 
-        File file = new File(checkpointPath + "DrCIF" + seed + ".ser");
-        //if checkpointing and serialised files exist load said files
-        if (checkpoint && file.exists()){
-            //path checkpoint files will be saved to
-            if(debug)
-                System.out.println("Loading from checkpoint file");
-            loadFromFile(checkpointPath + "DrCIF" + seed + ".ser");
-        }
-        //initialise variables
-        else {
+        //if checkpointing and a checkpoint exists load it
+        if (!(checkpoint && loadCheckpoint())){
+            //initialise variables
             numInstances = data.numInstances();
             numDimensions = data.getMaxNumChannels();
 
@@ -402,8 +397,7 @@ public class DrCIF extends EnhancedAbstractClassifier implements TechnicalInform
         }
 
         if (multiThread) {
-            ex = Executors.newFixedThreadPool(numThreads);
-            if (checkpoint) System.out.println("Unable to checkpoint until end of build when multi threading.");
+            ex = ComputePool.newExecutor(numThreads);
         }
 
         //Set up instances size and format.
@@ -697,7 +691,7 @@ public class DrCIF extends EnhancedAbstractClassifier implements TechnicalInform
 
     /**
      * Build the DrCIF classifier using multiple threads.
-     * Unable to checkpoint until after the build process while using multiple threads.
+     * Checkpoints can only be saved between each batch of trees built in parallel.
      * For each base classifier
      *     generate random intervals
      *     do the transfrorms
@@ -747,6 +741,12 @@ public class DrCIF extends EnhancedAbstractClassifier implements TechnicalInform
                     }
                 }
             }
+
+            //Timed checkpointing if enabled, else checkpoint every 100 trees
+            if(checkpoint && ((checkpointTime>0 && System.nanoTime()-lastCheckpointTime>checkpointTime)
+                    || trees.size()-checkpointLog.getNumMembers() >= 100)) {
+                saveToFile(checkpointPath);
+            }
         }
     }
 
@@ -938,6 +938,52 @@ public class DrCIF extends EnhancedAbstractClassifier implements TechnicalInform
         return distributionForInstance(Converter.fromArff(ins));
     }
 
+    /**
+     * Find class probabilities of a batch of instances using the trained model. If multithreading, each instance is
+     * predicted by a single thread with instances spread over the threads, rather than spreading the trees of each
+     * instance over the threads.
+     *
+     * @param data TimeSeriesInstances object
+     * @return array of doubles: probability of each class for each instance
+     * @throws Exception failure to classify
+     */
+    @Override //TSClassifier
+    public double[][] distributionForInstances(TimeSeriesInstances data) throws Exception {
+        double[][] probs = new double[data.numInstances()][];
+
+        if (multiThread){
+            ArrayList<Future<double[]>> futures = new ArrayList<>(probs.length);
+
+            for (TimeSeriesInstance ins : data) {
+                futures.add(ex.submit(new InstancePredictionThread(ins)));
+            }
+
+            int i = 0;
+            for (Future<double[]> f : futures) {
+                probs[i++] = f.get();
+            }
+        }
+        else {
+            for (int i = 0; i < probs.length; i++) {
+                probs[i] = distributionForInstance(data.get(i));
+            }
+        }
+
+        return probs;
+    }
+
+    /**
+     * Find class probabilities of a batch of instances using the trained model.
+     *
+     * @param data weka Instances object
+     * @return array of doubles: probability of each class for each instance
+     * @throws Exception failure to classify
+     */
+    @Override //EnhancedAbstractClassifier
+    public double[][] distributionForInstances(Instances data) throws Exception {
+        return distributionForInstances(Converter.fromArff(data));
+    }
+
     /**
      * Classify an instance using the trained model.
      *
@@ -1015,7 +1061,8 @@ public class DrCIF extends EnhancedAbstractClassifier implements TechnicalInform
     }
 
     /**
-     * Serialises this DrCIF object to the specified path.
+     * Checkpoints this DrCIF object to the checkpoint log in the specified path. Only the trees built since the last
+     * checkpoint are appended to the log, followed by the rest of the object with the trees left out.
      *
      * @param path save path for object
      * @throws Exception object fails to save
@@ -1023,14 +1070,78 @@ public class DrCIF extends EnhancedAbstractClassifier implements TechnicalInform
     @Override //Checkpointable
     public void saveToFile(String path) throws Exception{
         lastCheckpointTime = System.nanoTime();
-        Checkpointable.super.saveToFile(path + "DrCIF" + seed + "temp.ser");
-        File file = new File(path + "DrCIF" + seed + "temp.ser");
-        File file2 = new File(path + "DrCIF" + seed + ".ser");
-        file2.delete();
-        file.renameTo(file2);
+        String logPath = path + "DrCIF" + seed + ".log";
+        if (checkpointLog == null || !checkpointLog.getFile().getPath().equals(new File(logPath).getPath()))
+            checkpointLog = new CheckpointLog(logPath);
+
+        ArrayList<Object[]> newTrees = new ArrayList<>();
+        for (int i = checkpointLog.getNumMembers(); i < trees.size(); i++) {
+            newTrees.add(new Object[]{ trees.get(i), intervals.get(i), subsampleAtts.get(i),
+                    intervalDimensions.get(i) });
+        }
+
+        ArrayList<Classifier> savedTrees = trees;
+        ArrayList<int[][][]> savedIntervals = intervals;
+        ArrayList<int[]> savedSubsampleAtts = subsampleAtts;
+        ArrayList<int[][]> savedIntervalDimensions = intervalDimensions;
+        trees = null;
+        intervals = null;
+        subsampleAtts = null;
+        intervalDimensions = null;
+        try {
+            checkpointLog.append(newTrees, this);
+        } finally {
+            trees = savedTrees;
+            intervals = savedIntervals;
+            subsampleAtts = savedSubsampleAtts;
+            intervalDimensions = savedIntervalDimensions;
+        }
+
         if (internalContractCheckpointHandling) checkpointTimeDiff += System.nanoTime()-lastCheckpointTime;
     }
 
+    /**
+     * Loads the last checkpoint from the checkpoint log in the checkpoint path, replaying the trees in the log. Falls
+     * back to a serialised DrCIF object saved by versions which did not keep a checkpoint log.
+     *
+     * @return true if a checkpoint was loaded, false if there was no checkpoint
+     * @throws Exception checkpoint fails to load
+     */
+    private boolean loadCheckpoint() throws Exception {
+        checkpointLog = new CheckpointLog(checkpointPath + "DrCIF" + seed + ".log");
+        if (checkpointLog.exists()) {
+            CheckpointLog.Checkpoint saved = checkpointLog.replay();
+            if (saved == null)
+                return false;
+
+            if(debug)
+                System.out.println("Loading from checkpoint log");
+            copyFromSerObject(saved.getHeader());
+            int size = Math.max(saved.getMembers().size(), trainTimeContract ? 0 : numClassifiers);
+            trees = new ArrayList<>(size);
+            intervals = new ArrayList<>(size);
+            subsampleAtts = new ArrayList<>(size);
+            intervalDimensions = new ArrayList<>(size);
+            for (Object member : saved.getMembers()) {
+                Object[] tree = (Object[]) member;
+                trees.add((Classifier) tree[0]);
+                intervals.add((int[][][]) tree[1]);
+                subsampleAtts.add((int[]) tree[2]);
+                intervalDimensions.add((int[][]) tree[3]);
+            }
+            return true;
+        }
+
+        File file = new File(checkpointPath + "DrCIF" + seed + ".ser");
+        if (file.exists()) {
+            if(debug)
+                System.out.println("Loading from checkpoint file");
+            loadFromFile(checkpointPath + "DrCIF" + seed + ".ser");
+            return true;
+        }
+        return false;
+    }
+
     /**
      * Copies values from a loaded DrCIF object into this object.
      *
@@ -1042,7 +1153,7 @@ public class DrCIF extends EnhancedAbstractClassifier implements TechnicalInform
         if (!(obj instanceof DrCIF))
             throw new Exception("The SER file is not an instance of TSF");
         DrCIF saved = ((DrCIF)obj);
-        System.out.println("Loading DrCIF" + seed + ".ser");
+        System.out.println("Loading DrCIF" + seed + " checkpoint");
 
         try {
             numClassifiers = saved.numClassifiers;
@@ -1576,8 +1687,47 @@ public class DrCIF extends EnhancedAbstractClassifier implements TechnicalInform
         }
     }
 
+    /**
+     * Class to find the class probabilities of a test instance using every DrCIF tree when multi threading over
+     * instances.
+     */
+    private class InstancePredictionThread implements Callable<double[]> {
+        TimeSeriesInstance ins;
+
+        public InstancePredictionThread(TimeSeriesInstance ins){
+            this.ins = ins;
+        }
+
+        @Override
+        public double[] call() throws Exception{
+            double[] d = new double[numClasses];
+
+            double[][][] dimensions = new double[3][][];
+            dimensions[0] = ins.toValueArray();
+            dimensions[1] = fft.transform(ins).toValueArray();
+            dimensions[2] = di.transform(ins).toValueArray();
+
+            Instances testCopy = new Instances(testHolder, 1);
+            DenseInstance in = new DenseInstance(testHolder.numAttributes());
+            in.setValue(testHolder.numAttributes()-1, -1);
+            testCopy.add(in);
+
+            for (int i = 0; i < trees.size(); i++) {
+                d[new TreePredictionThread(i, dimensions, trees.get(i), testCopy).call().c]++;
+            }
+
+            double sum = 0;
+            for(double x: d)
+                sum += x ;
+            for(int i = 0; i < d.length; i++)
+                d[i] = d[i]/sum;
+
+            return d;
+        }
+    }
+
     /** DrCIF attributes as functions **/
-    public Function<Interval, Double>[] functions = new Function[]{c22_0, c22_1, c22_2, c22_3, c22_4, c22_5, c22_6,
+    public transient Function<Interval, Double>[] functions = new Function[]{c22_0, c22_1, c22_2, c22_3, c22_4, c22_5, c22_6,
             c22_7, c22_8, c22_9, c22_10, c22_11, c22_12, c22_13, c22_14, c22_15, c22_16, c22_17, c22_18, c22_19, c22_20,
             c22_21, mean, median, stdev, slope, iqr, min, max};
 
@@ -45,6 +45,7 @@ import tsml.transformers.shapelet_tools.search_functions.ShapeletSearch;
 import tsml.transformers.shapelet_tools.search_functions.ShapeletSearch.SearchType;
 import tsml.transformers.shapelet_tools.search_functions.ShapeletSearchOptions;
 import tsml.classifiers.EnhancedAbstractClassifier;
+import tsml.classifiers.MultiThreadable;
 import tsml.classifiers.TrainTimeContractable;
 import fileIO.FullAccessOutFile;
 import fileIO.OutFile;
@@ -69,7 +70,7 @@ import fileIO.OutFile;
  *
  */
 public class ShapeletTransformClassifier  extends EnhancedAbstractClassifier
-        implements TrainTimeContractable, Tuneable {
+        implements TrainTimeContractable, Tuneable, MultiThreadable {
     private ShapeletTransform transform;    //Configurable ST
     private Instances shapeletData;         //Transformed shapelets header info stored here
     private Classifier classifier;          //Final classifier built on transformed shapelet data
@@ -131,6 +132,10 @@ public class ShapeletTransformClassifier  extends EnhancedAbstractClassifier
     private String shapeletOutputPath;
     private boolean saveShapelets=false;
     private boolean pruneMatchingShapelets=false;
+
+    /************* MULTITHREADING ************/
+    //Threads for the shapelet search. The contract estimate assumes the search scales with them
+    private int numThreads=1;
     /**
      * @param pruneMatchingShapelets the pruneMatchingShapelets to set
      */
@@ -139,6 +144,11 @@ public class ShapeletTransformClassifier  extends EnhancedAbstractClassifier
     }
 
 
+    @Override
+    public void enableMultiThreading(int numThreads) {
+        this.numThreads = Math.max(1, numThreads);
+    }
+
     public ShapeletTransformClassifier(){
         super(CAN_ESTIMATE_OWN_PERFORMANCE);
 //Data independent config set here, so user can change them after construction
@@ -187,11 +197,12 @@ public class ShapeletTransformClassifier  extends EnhancedAbstractClassifier
         //by series, so this is hopefully just an interim measure
         if(transformContractTime >0) {
             printLineDebug(" Contract time limit = "+ transformContractTime);
-            configureTrainTimeContract(data, transformContractTime);
+            configureTrainTimeContract(data, transformContractTime*numThreads);
         }
         //This is hacked to build a cShapeletTransform
         transform= constructShapeletTransform(data);
         transform.setSuppressOutput(debug);
+        transform.enableMultiThreading(numThreads);
 
 //The cConfig CONTRACT option is currently hacked into buildTransfom. here for now
 //        if(transform instanceof cShapeletFilter)
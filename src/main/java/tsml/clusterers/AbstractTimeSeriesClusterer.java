@@ -17,6 +17,7 @@
  
 package tsml.clusterers;
 
+import tsml.classifiers.MultiThreadable;
 import weka.clusterers.AbstractClusterer;
 
 import java.util.ArrayList;
@@ -25,9 +26,10 @@ import java.util.ArrayList;
  *
  * @author pfm15hbu
  */
-public abstract class AbstractTimeSeriesClusterer extends AbstractClusterer{
+public abstract class AbstractTimeSeriesClusterer extends AbstractClusterer implements MultiThreadable {
 
     protected boolean copyInstances = true;
+    protected int numThreads = 1;
 
     protected int[] assignments;
     protected ArrayList<Integer>[] clusters;
@@ -43,4 +45,9 @@ public abstract class AbstractTimeSeriesClusterer extends AbstractClusterer{
     public void setCopyInstances(boolean b){
         copyInstances = b;
     }
+
+    @Override
+    public void enableMultiThreading(int numThreads){
+        this.numThreads = Math.max(1, numThreads);
+    }
 }
@@ -19,26 +19,37 @@ package tsml.clusterers;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import experiments.data.DatasetLoading;
-import weka.core.Instance;
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.EigenDecomposition;
+import org.apache.commons.math3.transform.DftNormalization;
+import org.apache.commons.math3.transform.FastFourierTransformer;
+import org.apache.commons.math3.transform.TransformType;
+import utilities.ComputePool;
 import weka.core.Instances;
-import tsml.transformers.FFT;
-import tsml.transformers.FFT.Complex;
-import static tsml.transformers.FFT.MathsPower2;
 
+import static tsml.transformers.FFT.MathsPower2;
 import static utilities.ClusteringUtilities.randIndex;
 import static utilities.ClusteringUtilities.zNormalise;
 import static utilities.InstanceTools.deleteClassAttribute;
-import weka.core.Attribute;
-import weka.core.DenseInstance;
-import weka.core.matrix.EigenvalueDecomposition;
-import weka.core.matrix.Matrix;
 
 /**
  * Class for the KShape clustering algorithm.
  *
+ * The spectrum of every series is computed once per build, and each centroid's once per iteration, so a shape based
+ * distance costs one inverse FFT. The shift aligning each series to its closest centroid is kept from the assignment
+ * step for the following centroid extraction. Assignment runs in parallel across series, and the matrices for
+ * extraction in parallel across cluster members, when multithreading is enabled.
+ *
+ * For large datasets, setMiniBatchSize caps the number of members of each cluster, sampled at random each
+ * iteration, used to extract its centroid. All series are still assigned every iteration.
+ *
  * @author Matthew Middlehurst
  */
 public class KShape extends AbstractTimeSeriesClusterer {
@@ -47,10 +58,15 @@ public class KShape extends AbstractTimeSeriesClusterer {
     //"k-shape: Efficient and accurate clustering of time series."
     //Proceedings of the 2015 ACM SIGMOD International Conference on Management of Data. ACM, 2015.
 
+    private static final int CHUNK_SIZE = 64;
+
     private int k = 2;
     private int seed = Integer.MIN_VALUE;
+    private int miniBatchSize = 0;
+
+    private double[][] centroids;
 
-    private Instances centroids;
+    private transient ExecutorService ex;
 
     public KShape(){}
 
@@ -61,6 +77,17 @@ public class KShape extends AbstractTimeSeriesClusterer {
 
     public void setNumberOfClusters(int n){ k = n; }
 
+    public void setSeed(int seed){ this.seed = seed; }
+
+    /**
+     * Extract each centroid from at most this many randomly sampled members of its cluster, 0 to use all members.
+     */
+    public void setMiniBatchSize(int miniBatchSize){ this.miniBatchSize = miniBatchSize; }
+
+    public double[][] getCentroids(){
+        return centroids;
+    }
+
     @Override
     public void buildClusterer(Instances data) throws Exception {
         if (copyInstances){
@@ -70,18 +97,43 @@ public class KShape extends AbstractTimeSeriesClusterer {
         deleteClassAttribute(data);
         zNormalise(data);
 
-        ArrayList<Attribute> atts = new ArrayList(data.numAttributes());
+        ex = numThreads > 1 ? ComputePool.newExecutor(numThreads) : null;
 
-        for (int i = 0; i < data.numAttributes(); i++){
-            atts.add(new Attribute("att" + i));
+        try {
+            cluster(data);
         }
+        finally {
+            if (ex != null){
+                ex.shutdown();
+                ex = null;
+            }
+        }
+    }
 
-        centroids = new Instances("centroids", atts, k);
-
-        for (int i = 0; i < k; i++) {
-            centroids.add(new DenseInstance(1, new double[data.numAttributes()]));
+    private void cluster(Instances data) throws Exception {
+        int numInstances = data.numInstances();
+        int seriesLength = data.numAttributes();
+        double[][] series = new double[numInstances][];
+        for (int i = 0; i < numInstances; i++){
+            series[i] = data.get(i).toDoubleArray();
         }
 
+        //Spectra and norms of every series, reused for every distance
+        SBD sbd = new SBD(seriesLength);
+        double[][] spectra = new double[numInstances][];
+        double[] norms = new double[numInstances];
+        parallelFor(numInstances, CHUNK_SIZE, (start, end) -> {
+            Workspace workspace = sbd.workspace();
+            for (int i = start; i < end; i++){
+                spectra[i] = sbd.spectrum(series[i], workspace);
+                norms[i] = sumSquare(series[i]);
+            }
+        });
+
+        centroids = new double[k][seriesLength];
+        double[][] centroidSpectra = new double[k][];
+        double[] centroidNorms = new double[k];
+
         Random rand;
 
         if (seed == Integer.MIN_VALUE){
@@ -92,14 +144,16 @@ public class KShape extends AbstractTimeSeriesClusterer {
         }
 
         int iterations = 0;
-        assignments = new int[data.numInstances()];
+        assignments = new int[numInstances];
+        //Shift aligning each series to the centroid of its cluster
+        int[] shifts = new int[numInstances];
 
         //Randomly assign clusters
         for (int i = 0; i < assignments.length; i++){
             assignments[i] = (int)Math.ceil(rand.nextDouble()*k)-1;
         }
 
-        int[] prevCluster = new int[data.numInstances()];
+        int[] prevCluster = new int[numInstances];
         prevCluster[0] = -1;
 
         //While clusters change and less than max iterations
@@ -107,23 +161,30 @@ public class KShape extends AbstractTimeSeriesClusterer {
             prevCluster = Arrays.copyOf(assignments, assignments.length);
 
             //Select centroids
+            int[][] members = clusterMembers(rand);
             for (int i = 0; i < k; i ++){
-                centroids.set(i, shapeExtraction(data, centroids.get(i), i));
+                centroids[i] = shapeExtraction(series, members[i], shifts, centroids[i], sbd);
+                centroidSpectra[i] = sbd.spectrum(centroids[i], sbd.workspace());
+                centroidNorms[i] = sumSquare(centroids[i]);
             }
 
             //Set each instance to the cluster of its closest centroid using shape based distance
-            for (int i = 0; i < data.numInstances(); i++){
-                double minDist = Double.MAX_VALUE;
-
-                for (int n = 0; n < k; n++){
-                    SBD sbd = new SBD(centroids.get(n), data.get(i), false);
-
-                    if (sbd.dist < minDist){
-                        minDist = sbd.dist;
-                        assignments[i] = n;
+            parallelFor(numInstances, CHUNK_SIZE, (start, end) -> {
+                Workspace workspace = sbd.workspace();
+                for (int i = start; i < end; i++){
+                    double minDist = Double.MAX_VALUE;
+
+                    for (int n = 0; n < k; n++){
+                        sbd.calculateDistance(centroidSpectra[n], centroidNorms[n], spectra[i], norms[i], workspace);
+
+                        if (workspace.dist < minDist){
+                            minDist = workspace.dist;
+                            assignments[i] = n;
+                            shifts[i] = workspace.shift;
+                        }
                     }
                 }
-            }
+            });
 
             iterations++;
         }
@@ -136,7 +197,7 @@ public class KShape extends AbstractTimeSeriesClusterer {
             clusters[i] = new ArrayList();
         }
 
-        for (int i = 0; i < data.numInstances(); i++){
+        for (int i = 0; i < numInstances; i++){
             for (int n = 0; n < k; n++){
                 if(n == assignments[i]){
                     clusters[n].add(i);
@@ -146,80 +207,123 @@ public class KShape extends AbstractTimeSeriesClusterer {
         }
     }
 
-    private Instance shapeExtraction(Instances data, Instance centroid, int centroidNum) throws Exception {
-        Instances subsample = new Instances(data, 0);
-        int seriesSize = centroid.numAttributes();
+    //Indexes of the instances in each cluster, sampled down to the mini batch size if set
+    private int[][] clusterMembers(Random rand){
+        int[] sizes = new int[k];
+        for (int assignment : assignments){
+            sizes[assignment]++;
+        }
 
-        double sum = 0;
-        for (int i = 0; i < seriesSize; i++){
-            sum += centroid.value(i);
+        int[][] members = new int[k][];
+        for (int i = 0; i < k; i++){
+            members[i] = new int[sizes[i]];
+            sizes[i] = 0;
+        }
+        for (int i = 0; i < assignments.length; i++){
+            members[assignments[i]][sizes[assignments[i]]++] = i;
         }
-        boolean sumZero = sum == 0;
 
-        //Take subsample of instances in centroids cluster
-        for (int i = 0; i < data.numInstances(); i++){
-            if (assignments[i] == centroidNum){
-                //If the centroid sums to 0 add full instance to the subsample
-                if (sumZero){
-                    subsample.add(data.get(i));
-                }
-                else{
-                    SBD sbd = new SBD(centroid, data.get(i), true);
-                    subsample.add(sbd.yShift);
+        if (miniBatchSize > 0){
+            for (int i = 0; i < k; i++){
+                if (members[i].length > miniBatchSize){
+                    //Partial Fisher-Yates shuffle, keeping members in index order
+                    int[] sample = members[i];
+                    for (int n = 0; n < miniBatchSize; n++){
+                        int swap = n + rand.nextInt(sample.length - n);
+                        int temp = sample[n];
+                        sample[n] = sample[swap];
+                        sample[swap] = temp;
+                    }
+                    members[i] = Arrays.copyOf(sample, miniBatchSize);
+                    Arrays.sort(members[i]);
                 }
             }
         }
 
-        //Return instances of 0s as centroid if subsample empty
-        if (subsample.numInstances() == 0){
-            return new DenseInstance(1, new double[centroid.numAttributes()]);
-        }
-
-        zNormalise(subsample);
+        return members;
+    }
 
-        double[][] subsampleArray = new double[subsample.numInstances()][];
+    private double[] shapeExtraction(double[][] series, int[] members, int[] shifts, double[] centroid, SBD sbd)
+            throws Exception {
+        int seriesSize = centroid.length;
 
-        for (int i = 0; i < subsample.numInstances(); i++){
-            subsampleArray[i] = subsample.get(i).toDoubleArray();
+        //Return instances of 0s as centroid if subsample empty
+        if (members.length == 0){
+            return new double[seriesSize];
         }
 
-        //Calculate eignenvectors for subsample
-        Matrix matrix = new Matrix(subsampleArray);
-        Matrix matrixT = matrix.transpose();
-
-        matrix = matrixT.times(matrix);
+        double sum = 0;
+        for (int i = 0; i < seriesSize; i++){
+            sum += centroid[i];
+        }
+        boolean sumZero = sum == 0;
 
-        Matrix identity = Matrix.identity(seriesSize, seriesSize);
-        Matrix ones = new Matrix(seriesSize, seriesSize, 1);
-        ones = ones.times(1.0/seriesSize);
-        identity = identity.minus(ones);
+        //Take subsample of instances in centroids cluster
+        double[][] subsample = new double[members.length][];
+        for (int i = 0; i < members.length; i++){
+            //If the centroid sums to 0 add full instance to the subsample
+            if (sumZero){
+                subsample[i] = Arrays.copyOf(series[members[i]], seriesSize);
+            }
+            else{
+                subsample[i] = sbd.shift(series[members[i]], shifts[members[i]]);
+            }
+            zNormalise(subsample[i]);
 
-        matrix = identity.times(matrix).times(identity);
+            //Centre the rows, i.e. multiply by (I - 1/m) from the right
+            double mean = 0;
+            for (int n = 0; n < seriesSize; n++){
+                mean += subsample[i][n];
+            }
+            mean /= seriesSize;
+            for (int n = 0; n < seriesSize; n++){
+                subsample[i][n] -= mean;
+            }
+        }
 
-        EigenvalueDecomposition eig = matrix.eig();
-        Matrix v = eig.getV();
-        double[] eigVector = new double[centroid.numAttributes()];
-        double[] eigVectorNeg = new double[centroid.numAttributes()];
+        //Eigenvectors of (I - 1/m) S^T S (I - 1/m), largest eigenvalue first. This is Y^T Y for the centred
+        //subsample Y, so solve whichever of Y^T Y and Y Y^T is smaller
+        boolean gram = members.length < seriesSize;
+        double[][] matrix = gram ? gramMatrix(subsample) : covarianceMatrix(subsample);
+        EigenDecomposition eig = new EigenDecomposition(new Array2DRowRealMatrix(matrix, false));
 
+        double[] first = subsample[0];
+        double[] eigVector = new double[seriesSize];
+        double[] eigVectorNeg = new double[seriesSize];
         double eigSum = 0;
         double eigSumNeg = 0;
 
-        int col = 0;
-        while(true) {
+        for (int col = 0; col < matrix.length; col++){
+            double[] v = eig.getEigenvector(col).toArray();
+            if (gram){
+                //Map the eigenvector of Y Y^T to the matching unit eigenvector Y^T u of Y^T Y
+                double[] mapped = new double[seriesSize];
+                for (int i = 0; i < v.length; i++){
+                    for (int n = 0; n < seriesSize; n++){
+                        mapped[n] += subsample[i][n] * v[i];
+                    }
+                }
+                double norm = Math.sqrt(sumSquare(mapped));
+                for (int n = 0; n < seriesSize; n++){
+                    mapped[n] = norm == 0 ? 0 : mapped[n] / norm;
+                }
+                v = mapped;
+            }
+
+            eigSum = 0;
+            eigSumNeg = 0;
             for (int i = 0; i < seriesSize; i++) {
-                eigVector[i] = v.get(i, col);
+                eigVector[i] = v[i];
                 eigVectorNeg[i] = -eigVector[i];
 
-                double firstVal = subsample.get(0).value(i);
-
-                eigSum += (firstVal - eigVector[i]) * (firstVal - eigVector[i]);
-                eigSumNeg += (firstVal - eigVectorNeg[i]) * (firstVal - eigVectorNeg[i]);
+                eigSum += (first[i] - eigVector[i]) * (first[i] - eigVector[i]);
+                eigSumNeg += (first[i] - eigVectorNeg[i]) * (first[i] - eigVectorNeg[i]);
             }
 
             //Hack to move to next column if the correct values dont appear on the first one for some reason
             //I have no idea why this happens or which datasets this may happen in
-            if (Math.round(eigSum) == subsample.get(0).numAttributes() && Math.round(eigSumNeg) == subsample.get(0).numAttributes()){
-                col++;
+            if (Math.round(eigSum) == seriesSize && Math.round(eigSumNeg) == seriesSize
+                    && col < matrix.length - 1){
                 System.err.println("Possible eigenvalue error, moving onto next column. Look into why this happens.");
             }
             else{
@@ -227,14 +331,7 @@ public class KShape extends AbstractTimeSeriesClusterer {
             }
         }
 
-        Instance newCent;
-
-        if (eigSum < eigSumNeg){
-            newCent = new DenseInstance(1, eigVector);
-        }
-        else{
-            newCent = new DenseInstance(1, eigVectorNeg);
-        }
+        double[] newCent = eigSum < eigSumNeg ? eigVector : eigVectorNeg;
 
         //Normalise and return eigenvector as new centroid
         zNormalise(newCent);
@@ -242,6 +339,89 @@ public class KShape extends AbstractTimeSeriesClusterer {
         return newCent;
     }
 
+    //Y Y^T for the rows of Y
+    private double[][] gramMatrix(double[][] rows) throws Exception {
+        double[][] gram = new double[rows.length][rows.length];
+        parallelFor(rows.length, CHUNK_SIZE, (start, end) -> {
+            for (int i = start; i < end; i++){
+                for (int n = 0; n <= i; n++){
+                    double dot = 0;
+                    for (int j = 0; j < rows[i].length; j++){
+                        dot += rows[i][j] * rows[n][j];
+                    }
+                    gram[i][n] = dot;
+                }
+            }
+        });
+        for (int i = 0; i < rows.length; i++){
+            for (int n = 0; n < i; n++){
+                gram[n][i] = gram[i][n];
+            }
+        }
+        return gram;
+    }
+
+    //Y^T Y for the rows of Y
+    private double[][] covarianceMatrix(double[][] rows) throws Exception {
+        int numCols = rows[0].length;
+        double[][] cov = new double[numCols][numCols];
+        parallelFor(numCols, 8, (start, end) -> {
+            for (double[] row : rows){
+                for (int i = start; i < end; i++){
+                    double value = row[i];
+                    double[] covRow = cov[i];
+                    for (int n = 0; n <= i; n++){
+                        covRow[n] += value * row[n];
+                    }
+                }
+            }
+        });
+        for (int i = 0; i < numCols; i++){
+            for (int n = 0; n < i; n++){
+                cov[n][i] = cov[i][n];
+            }
+        }
+        return cov;
+    }
+
+    private static double sumSquare(double[] series){
+        double sum = 0;
+
+        for (double value : series){
+            sum += value*value;
+        }
+
+        return sum;
+    }
+
+    /**
+     * Runs the task over chunks of indexes from 0 to size, across threads if multithreading. Each chunk must write
+     * to its own outputs.
+     */
+    private void parallelFor(int size, int chunkSize, ChunkTask task) throws Exception {
+        if (ex == null || size <= chunkSize) {
+            task.run(0, size);
+            return;
+        }
+
+        List<Callable<Object>> chunks = new ArrayList<>();
+        for (int start = 0; start < size; start += chunkSize) {
+            int chunkStart = start;
+            int chunkEnd = Math.min(start + chunkSize, size);
+            chunks.add(() -> {
+                task.run(chunkStart, chunkEnd);
+                return null;
+            });
+        }
+        for (Future<Object> future : ex.invokeAll(chunks)) {
+            future.get();
+        }
+    }
+
+    private interface ChunkTask {
+        void run(int start, int end) throws Exception;
+    }
+
     public static void main(String[] args) throws Exception{
 //        double[] d = {1,2,3,4,5,6,7,8,9,10};
 //        DenseInstance inst1 = new DenseInstance(1, d);
@@ -281,129 +461,125 @@ public class KShape extends AbstractTimeSeriesClusterer {
         System.out.println(randIndex(k.assignments, inst));
     }
 
-    //Class for calculating Shape Based Distance
-    private class SBD {
-
-        public double dist;
-        public Instance yShift;
+    //Class for calculating Shape Based Distance from precomputed spectra. Matches the original implementation in
+    //correlating the first seriesLength-1 values of each series, with norms over all values
+    private static class SBD {
 
-        private FFT fft;
+        private final FastFourierTransformer transformer = new FastFourierTransformer(DftNormalization.STANDARD);
+        private final int oldLength;
+        private final int length;
 
-        public SBD(){}
-
-        public SBD(Instance first, Instance second, boolean calcShift){
-            calculateDistance(first, second, calcShift);
+        private SBD(int seriesLength){
+            oldLength = seriesLength-1;
+            length = paddedLength(oldLength);
         }
 
-        public double calculateDistance(Instance first, Instance second){
-            calculateDistance(first, second, false);
-            return dist;
+        private Workspace workspace(){
+            return new Workspace(length);
         }
 
-        public void calculateDistance(Instance first, Instance second, boolean calcShift){
-            int oldLength = first.numAttributes()-1;
-            int oldLengthY = second.numAttributes()-1;
-
-            int length = paddedLength(oldLength);
+        //Amount of padding required for FFT
+        private static int paddedLength(int oldLength){
+            int length = (int)MathsPower2.roundPow2((float)oldLength);
+            if (length < oldLength) length *= 2;
+            return length;
+        }
 
-            //FFT and IFFT
-            fft = new FFT();
+        //Run FFT and return the non-negative frequencies, interleaved real and imaginary. The rest follow by
+        //symmetry as the series is real
+        private double[] spectrum(double[] series, Workspace workspace){
+            double[][] complex = workspace.complex;
+            Arrays.fill(complex[0], 0);
+            Arrays.fill(complex[1], 0);
+            System.arraycopy(series, 0, complex[0], 0, oldLength);
 
-            Complex[] firstC = fft(first, oldLength, length);
-            Complex[] secondC = fft(second, oldLengthY, length);
+            FastFourierTransformer.transformInPlace(complex, DftNormalization.STANDARD, TransformType.FORWARD);
 
-            for (int i = 0; i < length; i++){
-                secondC[i].conjugate();
-                firstC[i].multiply(secondC[i]);
+            double[] spectrum = new double[(length/2+1)*2];
+            for (int i = 0; i <= length/2; i++){
+                spectrum[2*i] = complex[0][i];
+                spectrum[2*i+1] = complex[1][i];
             }
+            return spectrum;
+        }
 
-            fft.inverseFFT(firstC, length);
-
-            //Calculate NCCc values
-            double firstNorm = sumSquare(first);
-            double secondNorm = sumSquare(second);
-            double norm = Math.sqrt(firstNorm * secondNorm);
-
-            double[] ncc = new double[oldLength*2-1];
-            int idx = 0;
-
-            for (int i = length-oldLength+1; i < length; i++){
-                ncc[idx++] = firstC[i].getReal()/norm;
+        //Sets the workspace dist and shift for the second series relative to the first
+        private void calculateDistance(double[] firstSpectrum, double firstNorm, double[] secondSpectrum,
+                                       double secondNorm, Workspace workspace){
+            double[] real = workspace.complex[0];
+            double[] imag = workspace.complex[1];
+
+            //Cross power spectrum, first times the conjugate of second
+            for (int i = 0; i <= length/2; i++){
+                double fr = firstSpectrum[2*i], fi = firstSpectrum[2*i+1];
+                double sr = secondSpectrum[2*i], si = secondSpectrum[2*i+1];
+                real[i] = fr * sr + fi * si;
+                imag[i] = fi * sr - fr * si;
             }
-
-            for (int i = 0; i < oldLength; i++){
-                ncc[idx++] = firstC[i].getReal()/norm;
+            for (int i = length/2+1; i < length; i++){
+                real[i] = real[length-i];
+                imag[i] = -imag[length-i];
             }
 
+            FastFourierTransformer.transformInPlace(workspace.complex, DftNormalization.STANDARD,
+                    TransformType.INVERSE);
+
+            //Calculate NCCc values, largest value and index
+            double norm = Math.sqrt(firstNorm * secondNorm);
             double maxValue = 0;
             int shift = -1;
+            int idx = 0;
 
-            //Largest NCCc value and index
-            for (int i = 0; i < ncc.length; i++){
-                if (ncc[i] > maxValue){
-                    maxValue = ncc[i];
-                    shift = i;
+            for (int i = length-oldLength+1; i < length; i++, idx++){
+                double ncc = real[i]/norm;
+                if (ncc > maxValue){
+                    maxValue = ncc;
+                    shift = idx;
                 }
             }
 
-            dist = 1 - maxValue;
-
-            //Create y', shifting the second instance in a direction and padding with 0s
-            if (calcShift){
-                if (oldLength > oldLengthY){
-                    shift -= oldLength-1;
-                }
-                else {
-                    shift -= oldLengthY-1;
-                }
-
-                yShift = new DenseInstance(1, new double[second.numAttributes()]);
-
-                if (shift >= 0){
-                    for (int i = 0; i < oldLengthY-shift; i++){
-                        yShift.setValue(i + shift, second.value(i));
-                    }
-                }
-                else {
-                    for (int i = 0; i < oldLengthY+shift; i++){
-                        yShift.setValue(i, second.value(i-shift));
-                    }
+            for (int i = 0; i < oldLength; i++, idx++){
+                double ncc = real[i]/norm;
+                if (ncc > maxValue){
+                    maxValue = ncc;
+                    shift = idx;
                 }
             }
-        }
 
-        //Amount of padding required for FFT
-        private int paddedLength(int oldLength){
-            int length = (int)MathsPower2.roundPow2((float)oldLength);
-            if (length < oldLength) length *= 2;
-            return length;
+            workspace.dist = 1 - maxValue;
+            workspace.shift = shift;
         }
 
-        //Run FFT and return array of complex numbers
-        private Complex[] fft(Instance inst, int oldLength, int length){
-            Complex[] complex = new Complex[length];
+        //Create y', shifting the series in a direction and padding with 0s
+        private double[] shift(double[] series, int shift){
+            shift -= oldLength-1;
 
-            for (int i = 0; i < oldLength; i++){
-                complex[i] = new Complex(inst.value(i), 0);
-            }
+            double[] yShift = new double[series.length];
 
-            for (int i = oldLength; i < length; i++){
-                complex[i] = new Complex(0,0);
+            if (shift >= 0){
+                for (int i = 0; i < oldLength-shift; i++){
+                    yShift[i + shift] = series[i];
+                }
+            }
+            else {
+                for (int i = 0; i < oldLength+shift; i++){
+                    yShift[i] = series[i-shift];
+                }
             }
 
-            fft.fft(complex, length);
-
-            return complex;
+            return yShift;
         }
+    }
 
-        private double sumSquare(Instance inst){
-            double sum = 0;
+    //Per thread buffers and results for SBD
+    private static class Workspace {
 
-            for (int i = 0; i < inst.numAttributes(); i++){
-                sum += inst.value(i)*inst.value(i);
-            }
+        private final double[][] complex;
+        private double dist;
+        private int shift;
 
-            return sum;
+        private Workspace(int length){
+            complex = new double[2][length];
         }
     }
 }
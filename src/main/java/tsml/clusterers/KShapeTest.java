@@ -0,0 +1,68 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+package tsml.clusterers;
+
+import experiments.data.DatasetLoading;
+import org.junit.Assert;
+import org.junit.Test;
+import weka.core.Instances;
+
+/**
+ * Purpose: test KShape gives the same clusters and centroids whether or not assignment and extraction run across
+ * threads
+ */
+public class KShapeTest {
+
+    private static KShape build(Instances data, int numThreads, int miniBatchSize) throws Exception {
+        final KShape kShape = new KShape();
+        kShape.setSeed(0);
+        kShape.setNumberOfClusters(data.numClasses());
+        kShape.setMiniBatchSize(miniBatchSize);
+        kShape.enableMultiThreading(numThreads);
+        kShape.buildClusterer(data);
+        return kShape;
+    }
+
+    private static void assertMultiThreadedMatchesSerial(int miniBatchSize) throws Exception {
+        // more series than a chunk so the parallel path is split across threads
+        final Instances[] data = DatasetLoading.sampleItalyPowerDemand(0);
+        final Instances all = new Instances(data[0]);
+        all.addAll(data[1]);
+        final KShape serial = build(all, 1, miniBatchSize);
+        for (int numThreads : new int[] {2, 4}) {
+            final KShape parallel = build(all, numThreads, miniBatchSize);
+            Assert.assertArrayEquals(serial.getAssignments(), parallel.getAssignments());
+            Assert.assertEquals(serial.getCentroids().length, parallel.getCentroids().length);
+            for (int i = 0; i < serial.getCentroids().length; i++) {
+                Assert.assertArrayEquals(serial.getCentroids()[i], parallel.getCentroids()[i], 0d);
+            }
+        }
+    }
+
+    @Test
+    public void testMultiThreadedMatchesSerial() throws Exception {
+        // clusters larger than the series length, extracting from the covariance matrix
+        assertMultiThreadedMatchesSerial(0);
+    }
+
+    @Test
+    public void testMultiThreadedMatchesSerialMiniBatch() throws Exception {
+        // mini batches shorter than the series length, extracting from the gram matrix
+        assertMultiThreadedMatchesSerial(16);
+    }
+}
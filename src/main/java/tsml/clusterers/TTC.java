@@ -21,6 +21,7 @@ import experiments.data.DatasetLoading;
 import machine_learning.clusterers.CAST;
 import machine_learning.clusterers.PAM;
 import tsml.classifiers.legacy.elastic_ensemble.distance_functions.DTW;
+import utilities.DistanceMatrix;
 import weka.core.DenseInstance;
 import weka.core.EuclideanDistance;
 import weka.core.Instances;
@@ -46,7 +47,7 @@ public class TTC extends AbstractTimeSeriesClusterer {
     private int k = 2;
     private int seed = Integer.MIN_VALUE;
 
-    private double[][] distanceMatrix;
+    private DistanceMatrix distanceMatrix;
     private ArrayList<Integer>[] subclusters;
 
     public TTC(){}
@@ -69,11 +70,12 @@ public class TTC extends AbstractTimeSeriesClusterer {
 
         EuclideanDistance ed = new EuclideanDistance();
         ed.setDontNormalize(true);
-        distanceMatrix = createDistanceMatrix(data, ed);
+        distanceMatrix = DistanceMatrix.compute(data, ed, numThreads);
 
         //Cluster using the CAST algorithm
         CAST cast = new CAST(distanceMatrix);
         cast.setAffinityThreshold(affinityThreshold);
+        cast.enableMultiThreading(numThreads);
         cast.buildClusterer(data);
         subclusters = cast.getClusters();
         ArrayList<double[]> affinities = cast.getClusterAffinities();
@@ -102,6 +104,7 @@ public class TTC extends AbstractTimeSeriesClusterer {
         pam.setDistanceFunction(new DTW());
         pam.setNumberOfClusters(k);
         pam.setSeed(seed);
+        pam.enableMultiThreading(numThreads);
         pam.buildClusterer(cl);
 
         ArrayList<Integer>[] ptClusters = pam.getClusters();
@@ -17,6 +17,9 @@
 
 package tsml.data_containers;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -29,6 +32,10 @@ import java.util.stream.Stream;
  * The model for the indexes is the first is always zero the other indexes are in units of md.increment
  * Hopefully most of this can be encapsulated, so if the data has equal increments then indices is null and the user
  *
+ * The values are held in a primitive double[]. A series may be a window onto a larger array (i.e. a slab shared by
+ * many series) described by an offset and a length, so slicing a contiguous range never copies the data. The
+ * List<Double> accessors are read-only views over the primitive storage.
+ *
  * @author Aaron Bostrom, 2020
  */
 public class TimeSeries implements Iterable<Double>, Serializable {
@@ -36,21 +43,20 @@ public class TimeSeries implements Iterable<Double>, Serializable {
     public final static double DEFAULT_VALUE = Double.NaN;
     private final static List<Double> EMPTY_INDICES = Collections.emptyList();
 
-    private List<Double> series;
+    // the values are held in values[offset] to values[offset + length - 1]. The array may be shared with other series
+    private transient double[] values;
+    private transient int offset;
+    private transient int length;
+    private transient List<Double> series;
     private List<Double> indices = EMPTY_INDICES;
 
-    // just for internal use
-    private TimeSeries() {}
-
     /**
      * Create a TimeSeries object from an array of time series data.
      *
      * @param data time series raw data
      */
     public TimeSeries(double[] data){
-        series = new ArrayList<Double>();
-        for(double value : data)
-            series.add(value);
+        this(Arrays.copyOf(data, data.length), 0, data.length);
     }
 
     /**
@@ -59,7 +65,11 @@ public class TimeSeries implements Iterable<Double>, Serializable {
      * @param data time series raw data
      */
     public TimeSeries(List<Double> data) {
-        series = new ArrayList<>(data);
+        this(new double[data.size()], 0, data.size());
+        int i = 0;
+        for(Double value : data) {
+            values[i++] = value;
+        }
     }
 
     /**
@@ -68,7 +78,25 @@ public class TimeSeries implements Iterable<Double>, Serializable {
      * @param other TimeSeries object
      */
     public TimeSeries(TimeSeries other) {
-        this(other.series);
+        this(other.toValueArray(), 0, other.length);
+    }
+
+    /**
+     * Create a TimeSeries object which views a region of an existing array. The array is NOT copied, so this is
+     * intended for sharing a single slab of memory between many series. The array must not be modified afterwards.
+     *
+     * @param data   array holding the values
+     * @param offset index of the first value of the series in data
+     * @param length length of the series
+     */
+    TimeSeries(double[] data, int offset, int length) {
+        if(offset < 0 || length < 0 || length > data.length - offset) {
+            throw new IndexOutOfBoundsException("region [" + offset + ", " + (offset + length) + ") out of bounds for length " + data.length);
+        }
+        this.values = data;
+        this.offset = offset;
+        this.length = length;
+        series = new SeriesView();
     }
 
     /**
@@ -77,7 +105,7 @@ public class TimeSeries implements Iterable<Double>, Serializable {
      * @return int length of series
      */
     public int getSeriesLength() {
-        return series.size();
+        return length;
     }
 
     /**
@@ -89,7 +117,7 @@ public class TimeSeries implements Iterable<Double>, Serializable {
      */
     public boolean hasValidValueAt(int index) {
         // test whether its out of range, or NaN
-        return index < series.size() && Double.isFinite(series.get(index));
+        return index < length && Double.isFinite(values[offset + index]);
     }
 
     /**
@@ -99,7 +127,10 @@ public class TimeSeries implements Iterable<Double>, Serializable {
      * @return value at index
      */
     public double getValue(int index){
-        return series.get(index);
+        if(index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + " out of bounds for length " + length);
+        }
+        return values[offset + index];
     }
 
     /**
@@ -109,7 +140,7 @@ public class TimeSeries implements Iterable<Double>, Serializable {
      * @return value at index
      */
     public Double get(int index) {
-        return series.get(index);
+        return getValue(index);
     }
 
     /**
@@ -128,7 +159,7 @@ public class TimeSeries implements Iterable<Double>, Serializable {
      * @return stream of values in series
      */
     public DoubleStream streamValues() {
-        return series.stream().mapToDouble(Double::doubleValue);
+        return Arrays.stream(values, offset, offset + length);
     }
 
     /**
@@ -141,7 +172,7 @@ public class TimeSeries implements Iterable<Double>, Serializable {
     }
 
     /**
-     * Returns all values in series.
+     * Returns all values in series as a read-only view.
      *
      * @return values in series
      */
@@ -165,8 +196,8 @@ public class TimeSeries implements Iterable<Double>, Serializable {
     public String toString(){
         StringBuilder sb = new StringBuilder();
 
-        for(double val : series) {
-            sb.append(val).append(',');
+        for(int i = 0; i < length; i++) {
+            sb.append(values[offset + i]).append(',');
         }
 
         return sb.substring(0, sb.length() - 1);
@@ -178,7 +209,17 @@ public class TimeSeries implements Iterable<Double>, Serializable {
      * @return values in series
      */
 	public double[] toValueArray() {
-		return getSeries().stream().mapToDouble(Double::doubleValue).toArray();
+		return Arrays.copyOfRange(values, offset, offset + length);
+    }
+
+    /**
+     * Copies the values in the series into the given array.
+     *
+     * @param dest array to copy into
+     * @param destPos position in dest to start copying to
+     */
+    public void copyValues(double[] dest, int destPos) {
+        System.arraycopy(values, offset, dest, destPos, length);
     }
 
     /**
@@ -188,7 +229,8 @@ public class TimeSeries implements Iterable<Double>, Serializable {
      * @return a new TimeSeries object
      */
     public TimeSeries getVSlice(int[] indexesToKeep) {
-        return new TimeSeries(getVSliceArray(indexesToKeep));
+        final double[] data = getVSliceArray(indexesToKeep);
+        return new TimeSeries(data, 0, data.length);
     }
 
     /**
@@ -231,7 +273,8 @@ public class TimeSeries implements Iterable<Double>, Serializable {
      * @return a new TimeSeries object
      */
     public TimeSeries getVSliceComplement(int[] indexesToRemove) {
-        return new TimeSeries(getVSliceComplementArray(indexesToRemove));
+        final double[] data = getVSliceComplementArray(indexesToRemove);
+        return new TimeSeries(data, 0, data.length);
     }
 
     /**
@@ -255,14 +298,7 @@ public class TimeSeries implements Iterable<Double>, Serializable {
      * @return a list of new series
      */
     public List<Double> getVSliceComplementList(List<Integer> indexesToRemove){
-        //if the current index isn't in the removal list, then copy across.
-        List<Double> out = new ArrayList<>(this.getSeriesLength() - indexesToRemove.size());
-        for(int i=0; i<this.getSeriesLength(); ++i){
-            if(!indexesToRemove.contains(i))
-                out.add(getOrDefault(i));
-        }
-
-        return out;
+        return toList(getVSliceComplementArray(indexesToRemove));
     }
 
     /**
@@ -302,7 +338,8 @@ public class TimeSeries implements Iterable<Double>, Serializable {
      * @return an array of new series
      */
     public double[] getVSliceComplementArray(List<Integer> indexesToRemove){
-        return getVSliceComplementList(indexesToRemove).stream().mapToDouble(Double::doubleValue).toArray();
+        //if the current index isn't in the removal list, then copy across.
+        return getVSliceArray(indexMask(indexesToRemove), false);
     }
 
     /**
@@ -322,14 +359,7 @@ public class TimeSeries implements Iterable<Double>, Serializable {
      * @return a list of new series
      */
     public List<Double> getVSliceList(List<Integer> indexesToKeep){
-        //if the current index isn't in the removal list, then copy across.
-        List<Double> out = new ArrayList<>(indexesToKeep.size());
-        for(int i=0; i<this.getSeriesLength(); ++i){
-            if(indexesToKeep.contains(i))
-                out.add(getOrDefault(i));
-        }
-
-        return out;
+        return toList(getVSliceArray(indexesToKeep));
     }
 
     /**
@@ -379,7 +409,56 @@ public class TimeSeries implements Iterable<Double>, Serializable {
      * @return a list of new series
      */
     public double[] getVSliceArray(List<Integer> indexesToKeep) {
-        return getVSliceList(indexesToKeep).stream().mapToDouble(Double::doubleValue).toArray();
+        //if the current index is in the keep list, then copy across.
+        return getVSliceArray(indexMask(indexesToKeep), true);
+    }
+
+    /**
+     * Marks which indices of the series appear in the given list. Indices out of range are ignored.
+     *
+     * @param indexes to mark
+     * @return mask of length series length
+     */
+    private boolean[] indexMask(List<Integer> indexes) {
+        final boolean[] mask = new boolean[length];
+        for(Integer index : indexes) {
+            if(index >= 0 && index < length) {
+                mask[index] = true;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Returns the values, in series order, at the indices where the mask matches the given state.
+     *
+     * @param mask  of indices
+     * @param state to match
+     * @return array of values
+     */
+    private double[] getVSliceArray(boolean[] mask, boolean state) {
+        int count = 0;
+        for(boolean marked : mask) {
+            if(marked == state) {
+                count++;
+            }
+        }
+        final double[] out = new double[count];
+        int j = 0;
+        for(int i = 0; i < length; i++) {
+            if(mask[i] == state) {
+                out[j++] = getOrDefault(i);
+            }
+        }
+        return out;
+    }
+
+    private static List<Double> toList(double[] values) {
+        final List<Double> list = new ArrayList<>(values.length);
+        for(double value : values) {
+            list.add(value);
+        }
+        return list;
     }
 
     /**
@@ -400,7 +479,7 @@ public class TimeSeries implements Iterable<Double>, Serializable {
      * @return Sliding window of series
      */
     public List<Double> getVSliceList(int startInclusive, int endExclusive) {
-        return series.subList(startInclusive, endExclusive);
+        return getVSlice(startInclusive, endExclusive).getSeries();
     }
 
     /**
@@ -412,7 +491,8 @@ public class TimeSeries implements Iterable<Double>, Serializable {
      * @return Sliding window of series
      */
     public double[] getVSliceArray(int startInclusive, int endExclusive) {
-        return getVSliceList(startInclusive, endExclusive).stream().mapToDouble(d -> d).toArray();
+        checkRange(startInclusive, endExclusive);
+        return Arrays.copyOfRange(values, offset + startInclusive, offset + endExclusive);
     }
 
     /**
@@ -424,9 +504,15 @@ public class TimeSeries implements Iterable<Double>, Serializable {
      * @return Sliding window of series
      */
     public TimeSeries getVSlice(int startInclusive, int endExclusive) {
-        final TimeSeries ts = new TimeSeries();
-        ts.series = getVSliceList(startInclusive, endExclusive);
-        return ts;
+        checkRange(startInclusive, endExclusive);
+        // share the underlying array rather than copying
+        return new TimeSeries(values, offset + startInclusive, endExclusive - startInclusive);
+    }
+
+    private void checkRange(int startInclusive, int endExclusive) {
+        if(startInclusive < 0 || endExclusive > length || startInclusive > endExclusive) {
+            throw new IndexOutOfBoundsException("range [" + startInclusive + ", " + endExclusive + ") out of bounds for length " + length);
+        }
     }
 
     /**
@@ -442,7 +528,16 @@ public class TimeSeries implements Iterable<Double>, Serializable {
             return false;
         }
         final TimeSeries that = (TimeSeries) other;
-        return Objects.equals(series, that.series);
+        if(length != that.length) {
+            return false;
+        }
+        // compare bits to match Double.equals, i.e. NaN == NaN
+        for(int i = 0; i < length; i++) {
+            if(Double.doubleToLongBits(values[offset + i]) != Double.doubleToLongBits(that.values[that.offset + i])) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -451,7 +546,46 @@ public class TimeSeries implements Iterable<Double>, Serializable {
      * @return hash code
      */
     @Override public int hashCode() {
-        return Objects.hash(series);
+        // same as hashing the equivalent List<Double>
+        int hash = 1;
+        for(int i = 0; i < length; i++) {
+            hash = 31 * hash + Double.hashCode(values[offset + i]);
+        }
+        return 31 + hash;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        // only write the region of the array belonging to this series, not the whole shared slab
+        out.writeInt(length);
+        for(int i = 0; i < length; i++) {
+            out.writeDouble(values[offset + i]);
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        length = in.readInt();
+        offset = 0;
+        values = new double[length];
+        for(int i = 0; i < length; i++) {
+            values[i] = in.readDouble();
+        }
+        series = new SeriesView();
+    }
+
+    /**
+     * Read-only List view over the primitive values.
+     */
+    private class SeriesView extends AbstractList<Double> implements RandomAccess {
+
+        @Override public Double get(final int index) {
+            return getValue(index);
+        }
+
+        @Override public int size() {
+            return length;
+        }
     }
 
     /**
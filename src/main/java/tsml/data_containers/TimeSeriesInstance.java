@@ -271,22 +271,6 @@ public class TimeSeriesInstance implements Iterable<TimeSeries>, Serializable {
         this(data, discretiseLabelIndex(labelIndex), classLabels);
     }
 
-    /**
-     * Construct an instance from raw data. Copies over regression target /
-     * labelling variables. This is only intended for internal use in avoiding
-     * copying the data again after a vslice / hslice.
-     *
-     * @param data  series
-     * @param other TimeSeriesInstance
-     */
-    private TimeSeriesInstance(double[][] data, TimeSeriesInstance other) {
-        this(data, Double.NaN);
-        labelIndex = other.labelIndex;
-        targetValue = other.targetValue;
-
-        dataChecks();
-    }
-
     /**
      * Create a TimeSeriesInstance object from raw data.
      *
@@ -307,6 +291,22 @@ public class TimeSeriesInstance implements Iterable<TimeSeries>, Serializable {
 
     private TimeSeriesInstance() {}
 
+    /**
+     * Create a TimeSeriesInstance object around existing TimeSeries objects without copying them. Used when laying
+     * out instances in shared storage, see TimeSeriesInstances.
+     *
+     * @param series      dimensions
+     * @param labelIndex  of class label, -1 if none
+     * @param targetValue value
+     */
+    TimeSeriesInstance(List<TimeSeries> series, int labelIndex, double targetValue) {
+        this.seriesDimensions = series;
+        this.labelIndex = labelIndex;
+        this.targetValue = targetValue;
+
+        dataChecks();
+    }
+
     public TimeSeriesInstance(double targetValue, TimeSeries[] data) {
         this(targetValue, Arrays.asList(data));
     }
@@ -462,7 +462,24 @@ public class TimeSeriesInstance implements Iterable<TimeSeries>, Serializable {
      * @return a new TimeSeriesInstance
      */
     public TimeSeriesInstance getVSlice(List<Integer> indexesToKeep) {
-        return new TimeSeriesInstance(getVSliceArray(indexesToKeep), this);
+        // a contiguous run of indices can share the underlying data rather than copying it
+        if(!indexesToKeep.isEmpty() && indexesToKeep.get(0) >= 0) {
+            final int start = indexesToKeep.get(0);
+            boolean contiguous = start + indexesToKeep.size() <= minLength;
+            for(int i = 1; i < indexesToKeep.size() && contiguous; i++) {
+                contiguous = indexesToKeep.get(i) == start + i;
+            }
+            if(contiguous) {
+                return getVSlice(start, start + indexesToKeep.size());
+            }
+        }
+        final double[][] data = getVSliceArray(indexesToKeep);
+        final List<TimeSeries> dims = new ArrayList<>(data.length);
+        for(double[] dim : data) {
+            // the array is freshly allocated so wrap rather than copy
+            dims.add(new TimeSeries(dim, 0, dim.length));
+        }
+        return new TimeSeriesInstance(dims, labelIndex, targetValue);
     }
 
     /**
@@ -766,7 +783,7 @@ public class TimeSeriesInstance implements Iterable<TimeSeries>, Serializable {
      * @return 2d array
      */
     public double[][] getHSliceArray(int startInclusive, int endExclusive) {
-        return getHSliceList(startInclusive, endExclusive).stream().map(dim -> dim.stream().mapToDouble(d -> d).toArray()).toArray(double[][]::new);
+        return seriesDimensions.subList(startInclusive, endExclusive).stream().map(TimeSeries::toValueArray).toArray(double[][]::new);
     }
 
     /**
@@ -790,7 +807,11 @@ public class TimeSeriesInstance implements Iterable<TimeSeries>, Serializable {
      * @return 2d array
      */
     public double[][] getVSliceArray(int startInclusive, int endExclusive) {
-        return getVSliceList(startInclusive, endExclusive).stream().map(dim -> dim.stream().mapToDouble(d -> d).toArray()).toArray(double[][]::new);
+        final double[][] out = new double[seriesDimensions.size()][];
+        for(int i = 0; i < out.length; i++) {
+            out[i] = seriesDimensions.get(i).getVSliceArray(startInclusive, endExclusive);
+        }
+        return out;
     }
 
     /**
@@ -807,7 +828,7 @@ public class TimeSeriesInstance implements Iterable<TimeSeries>, Serializable {
         // trim current data to a subset
         tsi.seriesDimensions = seriesDimensions.stream().map(dim -> dim.getVSlice(startInclusive, endExclusive)).collect(Collectors.toList());
         tsi.labelIndex = labelIndex;
-        tsi.targetValue = labelIndex;
+        tsi.targetValue = targetValue;
         tsi.dataChecks();
         return tsi;
     }
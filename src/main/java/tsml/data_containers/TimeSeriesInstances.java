@@ -26,6 +26,13 @@ import java.util.stream.Stream;
  * Data structure able to handle unequal length, unequally spaced, univariate or
  * multivariate time series.
  *
+ * When built from raw data the values are laid out column-wise: each dimension is
+ * a single contiguous array holding that dimension of every instance back to back,
+ * and each TimeSeries is a view onto its region of that array. A dimension with
+ * more values in total than fit in one array (MAX_COLUMN_LENGTH) has an array per
+ * series instead. Use compact() to lay out instances built elsewhere in the same
+ * manner.
+ *
  * @author Aaron Bostrom, 2020
  *
  *
@@ -33,6 +40,12 @@ import java.util.stream.Stream;
  */
 public class TimeSeriesInstances implements Iterable<TimeSeriesInstance>, Serializable {
 
+    /**
+     * The most values held in a single column array. A little under Integer.MAX_VALUE, as some VMs reserve header
+     * words in an array.
+     */
+    public static final int MAX_COLUMN_LENGTH = Integer.MAX_VALUE - 8;
+
     /* Meta Information */
     private String description = "";
     private String problemName = "default";
@@ -175,10 +188,10 @@ public class TimeSeriesInstances implements Iterable<TimeSeriesInstance>, Serial
 
     public TimeSeriesInstances(final List<? extends List<? extends List<Double>>> rawData, List<Double> targetValues) {
 
+        final List<List<TimeSeries>> columnar = toColumnar(rawData);
         int index = 0;
-        for (final List<? extends List<Double>> series : rawData) {
-            //using the add function means all stats should be correctly counted.
-            seriesCollection.add(new TimeSeriesInstance(series, targetValues.get(index++)));
+        for (final List<TimeSeries> series : columnar) {
+            seriesCollection.add(new TimeSeriesInstance(series, -1, targetValues.get(index++)));
         }
 
         dataChecks();
@@ -192,10 +205,11 @@ public class TimeSeriesInstances implements Iterable<TimeSeriesInstance>, Serial
         
         this.classLabels = classLabels;
         
+        final List<List<TimeSeries>> columnar = toColumnar(rawData);
         int index = 0;
-        for (final List<? extends List<Double>> series : rawData) {
-            //using the add function means all stats should be correctly counted.
-            seriesCollection.add(new TimeSeriesInstance(series, labelIndexes.get(index++).intValue()));
+        for (final List<TimeSeries> series : columnar) {
+            final int labelIndex = labelIndexes.get(index++);
+            seriesCollection.add(new TimeSeriesInstance(series, labelIndex, labelIndex));
         }
 
         dataChecks();
@@ -213,10 +227,10 @@ public class TimeSeriesInstances implements Iterable<TimeSeriesInstance>, Serial
     
     public TimeSeriesInstances(double[][][] rawData, double[] targetValues) {
 
+        final List<List<TimeSeries>> columnar = toColumnar(rawData);
         int index = 0;
-        for (double[][] series : rawData) {
-            //using the add function means all stats should be correctly counted.
-            seriesCollection.add(new TimeSeriesInstance(series, targetValues[index++]));
+        for (List<TimeSeries> series : columnar) {
+            seriesCollection.add(new TimeSeriesInstance(series, -1, targetValues[index++]));
         }
     }
     
@@ -224,14 +238,170 @@ public class TimeSeriesInstances implements Iterable<TimeSeriesInstance>, Serial
 
         classLabels = labels;
 
+        final List<List<TimeSeries>> columnar = toColumnar(rawData);
         int index = 0;
-        for (double[][] series : rawData) {
-            //using the add function means all stats should be correctly counted.
-            seriesCollection.add(new TimeSeriesInstance(series, labelIndexes[index++], classLabels));
+        for (List<TimeSeries> series : columnar) {
+            final int labelIndex = labelIndexes[index++];
+            seriesCollection.add(new TimeSeriesInstance(series, labelIndex, labelIndex));
         }
 
         dataChecks();
     }
+
+    /**
+     * Lays out raw data column-wise, i.e. one contiguous array per dimension
+     * holding that dimension of every instance back to back.
+     *
+     * @param rawData instances by dimension by series
+     * @return for each instance, a view onto each dimension
+     */
+    private static List<List<TimeSeries>> toColumnar(double[][][] rawData) {
+        final int[][] lengths = new int[rawData.length][];
+        for(int i = 0; i < rawData.length; i++) {
+            lengths[i] = new int[rawData[i].length];
+            for(int j = 0; j < lengths[i].length; j++) {
+                lengths[i][j] = rawData[i][j].length;
+            }
+        }
+        return toColumnar(lengths, (i, j, column, offset) -> System.arraycopy(rawData[i][j], 0, column, offset, lengths[i][j]));
+    }
+
+    /**
+     * Lays out raw data column-wise, i.e. one contiguous array per dimension
+     * holding that dimension of every instance back to back.
+     *
+     * @param rawData instances by dimension by series
+     * @return for each instance, a view onto each dimension
+     */
+    private static List<List<TimeSeries>> toColumnar(List<? extends List<? extends List<Double>>> rawData) {
+        final int[][] lengths = new int[rawData.size()][];
+        for(int i = 0; i < lengths.length; i++) {
+            final List<? extends List<Double>> inst = rawData.get(i);
+            lengths[i] = new int[inst.size()];
+            for(int j = 0; j < lengths[i].length; j++) {
+                lengths[i][j] = inst.get(j).size();
+            }
+        }
+        return toColumnar(lengths, (i, j, column, offset) -> {
+            for(Double value : rawData.get(i).get(j)) {
+                column[offset++] = value;
+            }
+        });
+    }
+
+    interface ColumnFiller {
+        void fill(int instIndex, int dimIndex, double[] column, int offset);
+    }
+
+    private static List<List<TimeSeries>> toColumnar(int[][] lengths, ColumnFiller filler) {
+        return toColumnar(lengths, filler, MAX_COLUMN_LENGTH);
+    }
+
+    /**
+     * Lays out series of the given lengths column-wise, filling each from the filler. A dimension with more than
+     * maxColumnLength values in total has an array per series instead of a column.
+     */
+    static List<List<TimeSeries>> toColumnar(int[][] lengths, ColumnFiller filler, int maxColumnLength) {
+        int numDimensions = 0;
+        for(int[] instLengths : lengths) {
+            numDimensions = Math.max(numDimensions, instLengths.length);
+        }
+        // totalled as longs, as a dimension of a large dataset can hold more values than an int counts
+        final long[] columnLengths = new long[numDimensions];
+        for(int[] instLengths : lengths) {
+            for(int j = 0; j < instLengths.length; j++) {
+                columnLengths[j] += instLengths[j];
+            }
+        }
+        final double[][] columns = new double[numDimensions][];
+        for(int j = 0; j < numDimensions; j++) {
+            if(columnLengths[j] <= maxColumnLength) {
+                columns[j] = new double[(int) columnLengths[j]];
+            }
+        }
+        // where the next series begins in the column for each dimension
+        final int[] offsets = new int[numDimensions];
+        final List<List<TimeSeries>> out = new ArrayList<>(lengths.length);
+        for(int i = 0; i < lengths.length; i++) {
+            final List<TimeSeries> dims = new ArrayList<>(lengths[i].length);
+            for(int j = 0; j < lengths[i].length; j++) {
+                final double[] column;
+                final int offset;
+                if(columns[j] != null) {
+                    column = columns[j];
+                    offset = offsets[j];
+                    offsets[j] += lengths[i][j];
+                } else {
+                    column = new double[lengths[i][j]];
+                    offset = 0;
+                }
+                filler.fill(i, j, column, offset);
+                dims.add(new TimeSeries(column, offset, lengths[i][j]));
+            }
+            out.add(dims);
+        }
+        return out;
+    }
+
+    /**
+     * Builds instances around data which is already laid out column-wise, without
+     * copying it. columns[j] must hold dimension j of every instance back to back,
+     * in instance order, e.g. as read from a binary file by TSBinaryReader.
+     *
+     * @param columns      one array per dimension
+     * @param lengths      the length of each dimension of each instance
+     * @param labelIndexes the class label index of each instance, -1 if none
+     * @param targetValues the target value of each instance
+     * @param classLabels  class labels
+     * @return new TimeSeriesInstances object viewing the columns
+     * @throws IllegalArgumentException if the lengths of a dimension add up to more than its column holds
+     */
+    public static TimeSeriesInstances fromColumns(double[][] columns, int[][] lengths, int[] labelIndexes, double[] targetValues, String[] classLabels) {
+        final TimeSeriesInstances tsi = new TimeSeriesInstances(classLabels);
+        // longs, so lengths adding up to more than an int counts are reported rather than wrapping
+        final long[] offsets = new long[columns.length];
+        for(int i = 0; i < lengths.length; i++) {
+            final List<TimeSeries> dims = new ArrayList<>(lengths[i].length);
+            for(int j = 0; j < lengths[i].length; j++) {
+                if(offsets[j] + lengths[i][j] > columns[j].length) {
+                    throw new IllegalArgumentException("lengths of dimension " + j + " add up to more than the " + columns[j].length + " values in its column, at instance " + i);
+                }
+                dims.add(new TimeSeries(columns[j], (int) offsets[j], lengths[i][j]));
+                offsets[j] += lengths[i][j];
+            }
+            tsi.seriesCollection.add(new TimeSeriesInstance(dims, labelIndexes[i], targetValues[i]));
+        }
+        tsi.dataChecks();
+        return tsi;
+    }
+
+    /**
+     * Returns a copy of these instances with the data laid out column-wise, i.e.
+     * one contiguous array per dimension shared by all instances. Useful after
+     * instances have been assembled one at a time, e.g. via add().
+     *
+     * @return new TimeSeriesInstances object backed by columnar storage
+     */
+    public TimeSeriesInstances compact() {
+        final TimeSeriesInstances tsi = new TimeSeriesInstances(classLabels);
+        tsi.problemName = problemName;
+        tsi.description = description;
+        final int[][] lengths = new int[seriesCollection.size()][];
+        for(int i = 0; i < lengths.length; i++) {
+            final TimeSeriesInstance inst = seriesCollection.get(i);
+            lengths[i] = new int[inst.getNumDimensions()];
+            for(int j = 0; j < lengths[i].length; j++) {
+                lengths[i][j] = inst.get(j).getSeriesLength();
+            }
+        }
+        final List<List<TimeSeries>> columnar = toColumnar(lengths, (i, j, column, offset) -> seriesCollection.get(i).get(j).copyValues(column, offset));
+        for(int i = 0; i < columnar.size(); i++) {
+            final TimeSeriesInstance inst = seriesCollection.get(i);
+            tsi.seriesCollection.add(new TimeSeriesInstance(columnar.get(i), inst.getLabelIndex(), inst.getTargetValue()));
+        }
+        tsi.dataChecks();
+        return tsi;
+    }
 	
 	public TimeSeriesInstances(List<? extends TimeSeriesInstance> data) {
         this(data, EMPTY_CLASS_LABELS);
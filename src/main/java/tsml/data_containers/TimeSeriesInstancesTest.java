@@ -17,5 +17,119 @@
  
 package tsml.data_containers;
 
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static tsml.data_containers.TimeSeriesInstanceTest.assert2DArrayEquals;
+
 public class TimeSeriesInstancesTest {
+
+    private double[][][] array;
+    private int[] labelIndexes;
+    private String[] classLabels;
+    private TimeSeriesInstances insts;
+
+    @Before
+    public void before() {
+        // unequal length, multivariate
+        array = new double[][][] {
+                {{1,2,3,4}, {5,6,7,8}},
+                {{9,10}, {11,12,13}},
+                {{14,15,16}, {17}}
+        };
+        labelIndexes = new int[] {0, 1, 0};
+        classLabels = new String[] {"A", "B"};
+        insts = new TimeSeriesInstances(array, labelIndexes, classLabels);
+    }
+
+    @Test
+    public void testCtorArray() {
+        assertEquals(array.length, insts.numInstances());
+        for(int i = 0; i < array.length; i++) {
+            assert2DArrayEquals(array[i], insts.get(i).toValueArray());
+            assertEquals(labelIndexes[i], insts.get(i).getLabelIndex());
+            assertEquals(labelIndexes[i], insts.get(i).getTargetValue(), 0d);
+        }
+        assertEquals(1, insts.getMinLength());
+        assertEquals(4, insts.getMaxLength());
+    }
+
+    @Test
+    public void testCtorArrayMatchesInstanceCtor() {
+        for(int i = 0; i < array.length; i++) {
+            assertEquals(new TimeSeriesInstance(array[i], labelIndexes[i], classLabels), insts.get(i));
+        }
+    }
+
+    @Test
+    public void testCtorList() {
+        final List<List<List<Double>>> list = Arrays.stream(array).map(inst -> Arrays.stream(inst).map(
+                dim -> Arrays.stream(dim).boxed().collect(Collectors.toList())).collect(Collectors.toList())).collect(
+                Collectors.toList());
+        final List<Integer> labels = Arrays.stream(labelIndexes).boxed().collect(Collectors.toList());
+        assertEquals(insts, new TimeSeriesInstances(list, labels, classLabels));
+    }
+
+    @Test
+    public void testCompact() {
+        final TimeSeriesInstances other = new TimeSeriesInstances(classLabels);
+        for(int i = 0; i < array.length; i++) {
+            other.add(new TimeSeriesInstance(array[i], labelIndexes[i], classLabels));
+        }
+        assertEquals(other, other.compact());
+        assertEquals(insts, other.compact());
+    }
+
+    @Test
+    public void testColumnTooLongForArray() {
+        // the first dimension holds 9 values in total and the second 8
+        final int[][] lengths = Arrays.stream(array).map(inst -> Arrays.stream(inst).mapToInt(dim -> dim.length).toArray()).toArray(int[][]::new);
+        final List<List<TimeSeries>> columnar = TimeSeriesInstances.toColumnar(lengths,
+                (i, j, column, offset) -> System.arraycopy(array[i][j], 0, column, offset, lengths[i][j]), 8);
+        for(int i = 0; i < array.length; i++) {
+            for(int j = 0; j < array[i].length; j++) {
+                assertArrayEquals(array[i][j], columnar.get(i).get(j).toValueArray(), 0d);
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromColumnsLengthsOverflow() {
+        // lengths adding up to more than an int counts are reported, rather than wrapping round
+        final double[][] columns = {new double[2]};
+        final int[][] lengths = {{Integer.MAX_VALUE}, {Integer.MAX_VALUE}, {4}};
+        TimeSeriesInstances.fromColumns(columns, lengths, new int[] {0, 0, 0}, new double[3], classLabels);
+    }
+
+    @Test
+    public void testRawDataNotShared() {
+        array[0][0][0] = -1;
+        assertEquals(1, insts.get(0).get(0).getValue(0), 0d);
+    }
+
+    @Test
+    public void testVSliceContiguous() {
+        final TimeSeriesInstance inst = insts.get(0);
+        final TimeSeriesInstance slice = inst.getVSlice(Arrays.asList(1, 2));
+        assertEquals(inst.getVSlice(1, 3), slice);
+        assert2DArrayEquals(new double[][] {{2,3}, {6,7}}, slice.toValueArray());
+        assertEquals(inst.getLabelIndex(), slice.getLabelIndex());
+    }
+
+    @Test
+    public void testVSliceNonContiguous() {
+        final TimeSeriesInstance slice = insts.get(0).getVSlice(Arrays.asList(3, 0));
+        assert2DArrayEquals(new double[][] {{1,4}, {5,8}}, slice.toValueArray());
+    }
+
+    @Test
+    public void testVSliceArrayRange() {
+        assertArrayEquals(new double[] {10}, insts.get(1).getVSliceArray(1, 2)[0], 0d);
+    }
 }
@@ -20,9 +20,14 @@ package tsml.data_containers;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 import static org.junit.Assert.*;
@@ -89,8 +94,39 @@ public class TimeSeriesTest {
         }
     }
     
+    @Test
+    public void testVSliceRange() {
+        final TimeSeries slice = ts.getVSlice(1, 3);
+        assertEquals(2, slice.getSeriesLength());
+        assertArrayEquals(new double[] {second, third}, slice.toValueArray(), 0d);
+        assertEquals(Arrays.asList(second, third), slice.getSeries());
+        assertEquals(new TimeSeries(new double[] {second, third}), slice);
+        assertEquals(new TimeSeries(new double[] {second, third}).hashCode(), slice.hashCode());
+    }
+
+    @Test
+    public void testHashCodeMatchesList() {
+        assertEquals(Objects.hash(list), ts.hashCode());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSeriesViewReadOnly() {
+        ts.getSeries().set(0, 1d);
+    }
+
+    @Test
+    public void testSerialiseSlice() throws Exception {
+        final TimeSeries slice = ts.getVSlice(2, 4);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(slice);
+        }
+        try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertEquals(slice, in.readObject());
+        }
+    }
+
     // todo test hslice
-    // todo test vslice
     // todo test metadata / stats
     
 }
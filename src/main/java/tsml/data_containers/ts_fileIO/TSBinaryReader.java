@@ -0,0 +1,145 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+package tsml.data_containers.ts_fileIO;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import tsml.data_containers.TimeSeriesInstances;
+
+/**
+ * Reads TimeSeriesInstances written by TSBinaryWriter. Nothing is parsed: the header is read, then the file is memory
+ * mapped and each dimension is copied out in bulk into a single array shared by every instance, as for other column
+ * wise TimeSeriesInstances (see TimeSeriesInstances.fromColumns).
+ */
+public class TSBinaryReader {
+
+    public static final String EXTENSION = ".tsbin";
+
+    // "TSBN" when read little-endian
+    static final int MAGIC = 0x4E425354;
+    static final int VERSION = 1;
+    // magic, version and the offset of the data
+    static final int PRELUDE_SIZE = 16;
+    // the most values mapped at once, keeping each mapped region well under the 2GB limit
+    private static final int MAX_MAPPED_VALUES = 1 << 27;
+
+    /**
+     * @param file a dataset, with or without the .arff or .ts extension
+     * @return where the binary version of that dataset would be, which may not exist
+     */
+    public static File binaryFileFor(File file) {
+        String name = file.getName();
+        String lowerCase = name.toLowerCase();
+        if (lowerCase.endsWith(".arff"))
+            name = name.substring(0, name.length() - ".arff".length());
+        else if (lowerCase.endsWith(".ts"))
+            name = name.substring(0, name.length() - ".ts".length());
+        else if (lowerCase.endsWith(EXTENSION))
+            return file;
+        return new File(file.getParentFile(), name + EXTENSION);
+    }
+
+    public static TimeSeriesInstances read(File file) throws IOException {
+        return read(file.toPath());
+    }
+
+    public static TimeSeriesInstances read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer prelude = readFully(channel, 0, PRELUDE_SIZE);
+            if (prelude.getInt() != MAGIC)
+                throw new IOException(path + " is not a binary time series file");
+            int version = prelude.getInt();
+            if (version != VERSION)
+                throw new IOException(path + " has unsupported version " + version);
+            long dataOffset = prelude.getLong();
+            if (dataOffset < PRELUDE_SIZE || dataOffset > channel.size())
+                throw new IOException(path + " is corrupt, data offset " + dataOffset);
+
+            ByteBuffer header = readFully(channel, PRELUDE_SIZE, Math.toIntExact(dataOffset - PRELUDE_SIZE));
+            String problemName = readString(header);
+            String description = readString(header);
+            String[] classLabels = new String[header.getInt()];
+            for (int i = 0; i < classLabels.length; i++)
+                classLabels[i] = readString(header);
+
+            int numInstances = header.getInt();
+            int numDimensions = header.getInt();
+            int[] labelIndexes = new int[numInstances];
+            double[] targetValues = new double[numInstances];
+            int[][] lengths = new int[numInstances][];
+            long[] columnLengths = new long[numDimensions];
+            for (int i = 0; i < numInstances; i++) {
+                labelIndexes[i] = header.getInt();
+                targetValues[i] = header.getDouble();
+                lengths[i] = new int[header.getInt()];
+                for (int j = 0; j < lengths[i].length; j++) {
+                    lengths[i][j] = header.getInt();
+                    columnLengths[j] += lengths[i][j];
+                }
+            }
+
+            long position = dataOffset;
+            double[][] columns = new double[numDimensions][];
+            for (int j = 0; j < numDimensions; j++) {
+                if (columnLengths[j] > TimeSeriesInstances.MAX_COLUMN_LENGTH)
+                    throw new IOException(path + ": dimension " + j + " holds " + columnLengths[j] + " values, more than fit in one array");
+                columns[j] = new double[(int) columnLengths[j]];
+                for (int done = 0; done < columns[j].length; ) {
+                    int count = Math.min(columns[j].length - done, MAX_MAPPED_VALUES);
+                    if (position + (long) count * Double.BYTES > channel.size())
+                        throw new IOException(path + " is truncated");
+                    channel.map(FileChannel.MapMode.READ_ONLY, position, (long) count * Double.BYTES)
+                            .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(columns[j], done, count);
+                    done += count;
+                    position += (long) count * Double.BYTES;
+                }
+            }
+
+            TimeSeriesInstances data = TimeSeriesInstances.fromColumns(columns, lengths, labelIndexes, targetValues, classLabels);
+            data.setProblemName(problemName);
+            data.setDescription(description);
+            return data;
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new IOException("premature end of file");
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0)
+            return null;
+        String string = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return string;
+    }
+}
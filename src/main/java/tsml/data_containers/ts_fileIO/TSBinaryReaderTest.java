@@ -0,0 +1,86 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+package tsml.data_containers.ts_fileIO;
+
+import org.junit.Test;
+import tsml.data_containers.TimeSeriesInstance;
+import tsml.data_containers.TimeSeriesInstances;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class TSBinaryReaderTest {
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        // unequal length, multivariate, with missing values
+        double[][][] values = {
+                {{1, 2, 3}, {4, Double.NaN, 6}},
+                {{-7.5, 8e-300}, {9, 10, 11, 12}},
+                {{13}, {}},
+        };
+        TimeSeriesInstances data = new TimeSeriesInstances(values, new int[] {1, 0, 1}, new String[] {"a", "b"});
+        data.setProblemName("RoundTrip");
+
+        Path file = Files.createTempFile("tsbinary", TSBinaryReader.EXTENSION);
+        try {
+            TSBinaryWriter.write(data, file);
+            TimeSeriesInstances read = TSBinaryReader.read(file);
+
+            assertEquals("RoundTrip", read.getProblemName());
+            assertArrayEquals(data.getClassLabels(), read.getClassLabels());
+            assertEquals(data.numInstances(), read.numInstances());
+            for (int i = 0; i < data.numInstances(); i++) {
+                TimeSeriesInstance expected = data.get(i);
+                TimeSeriesInstance actual = read.get(i);
+                assertEquals(expected.getLabelIndex(), actual.getLabelIndex());
+                assertEquals(expected.getTargetValue(), actual.getTargetValue(), 0);
+                assertEquals(expected.getNumDimensions(), actual.getNumDimensions());
+                for (int j = 0; j < expected.getNumDimensions(); j++) {
+                    assertArrayEquals(expected.get(j).toValueArray(), actual.get(j).toValueArray(), 0);
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testBinaryFileFor() {
+        File dir = new File("data");
+        assertEquals(new File(dir, "Problem_TRAIN.tsbin"), TSBinaryReader.binaryFileFor(new File(dir, "Problem_TRAIN.arff")));
+        assertEquals(new File(dir, "Problem_TRAIN.tsbin"), TSBinaryReader.binaryFileFor(new File(dir, "Problem_TRAIN.ts")));
+        assertEquals(new File(dir, "Problem.tsbin"), TSBinaryReader.binaryFileFor(new File(dir, "Problem")));
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotBinary() throws IOException {
+        Path file = Files.createTempFile("tsbinary", TSBinaryReader.EXTENSION);
+        try {
+            Files.write(file, "@problemName Test\n@univariate true\n".getBytes());
+            TSBinaryReader.read(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+package tsml.data_containers.ts_fileIO;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import tsml.data_containers.TimeSeriesInstance;
+import tsml.data_containers.TimeSeriesInstances;
+import tsml.data_containers.utilities.Converter;
+import weka.core.Attribute;
+import weka.core.Instances;
+
+/**
+ * Writes TimeSeriesInstances in a compact binary format, read back by TSBinaryReader without any parsing. Reading
+ * text (.arff or .ts) is a large part of the run time of short experiments. Converting a dataset once removes that
+ * cost from every later run, as DatasetLoading uses a binary file found alongside the text one, e.g.
+ * ItalyPowerDemand_TRAIN.tsbin next to ItalyPowerDemand_TRAIN.arff.
+ *
+ * The format, all little-endian:
+ * <ul>
+ * <li>int magic ("TSBN"), int version, long offset of the data from the start of the file</li>
+ * <li>problem name and description, as strings (int byte length, -1 for null, then UTF-8)</li>
+ * <li>int number of class labels, then each label as a string</li>
+ * <li>int number of instances, int maximum number of dimensions</li>
+ * <li>per instance: int label index, double target value, int number of dimensions, int length of each
+ * dimension</li>
+ * <li>padding up to the data offset, a multiple of 8</li>
+ * <li>per dimension: that dimension of every instance back to back in instance order, as doubles</li>
+ * </ul>
+ */
+public class TSBinaryWriter {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Writes the data to path. The file is written under a temporary name and then moved into place, so concurrent
+     * experiments never see a partial file.
+     */
+    public static void write(TimeSeriesInstances data, Path path) throws IOException {
+        byte[] problemName = bytes(data.getProblemName());
+        byte[] description = bytes(data.getDescription());
+        String[] classLabels = data.getClassLabels();
+        byte[][] labels = new byte[classLabels.length][];
+        long headerSize = TSBinaryReader.PRELUDE_SIZE + stringSize(problemName) + stringSize(description) + Integer.BYTES
+                + Integer.BYTES * 2;
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = bytes(classLabels[i]);
+            headerSize += stringSize(labels[i]);
+        }
+        int numDimensions = 0;
+        for (TimeSeriesInstance instance : data) {
+            headerSize += Integer.BYTES + Double.BYTES + Integer.BYTES * (1 + instance.getNumDimensions());
+            numDimensions = Math.max(numDimensions, instance.getNumDimensions());
+        }
+        long dataOffset = (headerSize + Double.BYTES - 1) / Double.BYTES * Double.BYTES;
+
+        ByteBuffer header = ByteBuffer.allocate(Math.toIntExact(dataOffset)).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(TSBinaryReader.MAGIC).putInt(TSBinaryReader.VERSION).putLong(dataOffset);
+        putString(header, problemName);
+        putString(header, description);
+        header.putInt(labels.length);
+        for (byte[] label : labels)
+            putString(header, label);
+        header.putInt(data.numInstances()).putInt(numDimensions);
+        for (TimeSeriesInstance instance : data) {
+            header.putInt(instance.getLabelIndex()).putDouble(instance.getTargetValue()).putInt(instance.getNumDimensions());
+            for (int j = 0; j < instance.getNumDimensions(); j++)
+                header.putInt(instance.get(j).getSeriesLength());
+        }
+        header.position(0);
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header);
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            DoubleBuffer values = buffer.asDoubleBuffer();
+            for (int j = 0; j < numDimensions; j++) {
+                for (TimeSeriesInstance instance : data) {
+                    if (j >= instance.getNumDimensions())
+                        continue;
+                    double[] series = instance.get(j).toValueArray();
+                    for (int done = 0; done < series.length; ) {
+                        int count = Math.min(values.remaining(), series.length - done);
+                        values.put(series, done, count);
+                        done += count;
+                        if (!values.hasRemaining())
+                            flush(channel, buffer, values);
+                    }
+                }
+            }
+            flush(channel, buffer, values);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer, DoubleBuffer values) throws IOException {
+        buffer.position(0).limit(values.position() * Double.BYTES);
+        writeFully(channel, buffer);
+        buffer.clear();
+        values.clear();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    private static byte[] bytes(String string) {
+        return string == null ? null : string.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int stringSize(byte[] string) {
+        return Integer.BYTES + (string == null ? 0 : string.length);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] string) {
+        if (string == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(string.length).put(string);
+        }
+    }
+
+    /**
+     * Converts time series classification datasets (.ts, or .arff with only numeric or relational attributes) to
+     * binary files alongside them.
+     *
+     * @param args paths of the datasets to convert
+     */
+    public static void main(String[] args) throws IOException {
+        for (String arg : args) {
+            File file = new File(arg);
+            TimeSeriesInstances data;
+            try (Reader reader = new FileReader(file)) {
+                if (file.getName().toLowerCase().endsWith(".ts")) {
+                    data = new TSReader(reader).GetInstances();
+                } else {
+                    Instances instances = new Instances(reader);
+                    instances.setClassIndex(instances.numAttributes() - 1);
+                    if (!isTimeSeriesClassification(instances)) {
+                        System.out.println("Skipping " + file + ", only time series classification data can be converted");
+                        continue;
+                    }
+                    data = Converter.fromArff(instances);
+                }
+            }
+            File binary = TSBinaryReader.binaryFileFor(file);
+            write(data, binary.toPath());
+            System.out.println("Wrote " + binary);
+        }
+    }
+
+    // the binary format holds values and class labels only, so attribute names and types would be lost
+    private static boolean isTimeSeriesClassification(Instances instances) {
+        if (!instances.classAttribute().isNominal())
+            return false;
+        for (int i = 0; i < instances.numAttributes(); i++) {
+            Attribute attribute = instances.attribute(i);
+            if (i != instances.classIndex() && !attribute.isNumeric() && attribute.type() != Attribute.RELATIONAL)
+                return false;
+        }
+        return true;
+    }
+}
@@ -1,4 +1,4 @@
-/* 
+/*
  * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
  *
  * The UEA TSML toolbox is free software: you can redistribute it and/or 
@@ -17,25 +17,45 @@
  
 package tsml.data_containers.ts_fileIO;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
-import java.io.StreamTokenizer;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
-
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import tsml.data_containers.TimeSeriesInstance;
 import tsml.data_containers.TimeSeriesInstances;
-import utilities.generic_storage.Pair;
 
 /**
  * File for reading sktime format data into TimeSeriesInstances object
+ *
+ * The whole file can be read at once through TSReader(Reader) and GetInstances(). Alternatively, TSReader.open(path)
+ * only reads the header, after which the instances are streamed one at a time (as an Iterator or stream()) or in
+ * chunks (nextChunk()), so files larger than the heap can be transformed or scored. Values are parsed straight out
+ * of a character buffer rather than split into strings.
  * 
  * @author Aaron Bostrom, pushed 22/4/2020
  */
 
-public class TSReader {
+public class TSReader implements Iterator<TimeSeriesInstance>, Closeable {
 
     // need to change this to a map function.
     public static final String PROBLEM_NAME = "@problemName";
@@ -45,10 +65,23 @@ public class TSReader {
     public static final String MISSING = "@missing";
     public static final String DATA = "@data";
 
-    private HashMap<String, String> variables;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // powers of ten which are exactly representable as doubles
+    private static final double[] POWERS_OF_TEN = new double[23];
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++)
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
 
-    private final StreamTokenizer m_Tokenizer;
-    private int m_Lines;
+    private final Map<String, String> variables = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private int m_Lines = 1;
 
     TimeSeriesInstances m_data;
     private String description;
@@ -57,137 +90,357 @@ public class TSReader {
     private boolean missing;
     private boolean timeStamps;
     private boolean classLabel;
-    private List<String> classLabels;
+    private List<String> classLabels = new ArrayList<>();
+    private String[] classLabelsArray = new String[0];
 
-    private List<List<List<Double>>> raw_data;
+    // scratch space reused between lines: the text of the current value, and the values of each dimension so far
+    private char[] token = new char[64];
+    private double[][] dimensions = new double[1][256];
+    private int[] dimensionLengths = new int[1];
 
-    private List<Double> raw_labels;
+    // the next instance when streaming, read ahead by hasNext()
+    private TimeSeriesInstance next;
 
     public TSReader(Reader reader) throws IOException {
-        variables = new HashMap<>();
-        m_Tokenizer = new StreamTokenizer(reader);
-        initTokenizer();
+        this(reader, true);
+    }
+
+    private TSReader(Reader reader, boolean readAll) throws IOException {
+        this.reader = reader;
 
         readHeader();
 
-        CreateTimeSeriesInstances();
+        if (readAll)
+            CreateTimeSeriesInstances();
+    }
+
+    /**
+     * Opens a .ts file for streaming. Only the header is read here; the instances are read as they are asked for
+     * through next(), nextChunk() or stream(), so at most one chunk needs to be held in memory. The file is read
+     * sequentially through a file channel. Close the reader when finished with it.
+     *
+     * @param path the .ts file
+     * @return reader positioned at the first instance
+     * @throws IOException if the file cannot be opened or its header is malformed
+     */
+    public static TSReader open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new TSReader(Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE), BUFFER_SIZE), false);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
     }
 
     private void CreateTimeSeriesInstances() throws IOException {
-        raw_data = new ArrayList<>();
-        raw_labels = new ArrayList<>();
-
-        // read each line and extract a data Instance
-        Pair<List<List<Double>>, Double> multi_series_and_label;
-        // extract the multivariate series, and the possible label.
-        while ((multi_series_and_label = readMultivariateInstance()) != null) {
-            raw_data.add(multi_series_and_label.var1);
-            raw_labels.add(multi_series_and_label.var2);
+        List<TimeSeriesInstance> instances = new ArrayList<>();
+        TimeSeriesInstance instance;
+        while ((instance = readMultivariateInstance()) != null) {
+            instances.add(instance);
         }
 
         // create timeseries instances object.
-        m_data = new TimeSeriesInstances(raw_data, classLabels.toArray(new String[classLabels.size()]), raw_labels);
-        m_data.setProblemName(problemName);
+        m_data = toTimeSeriesInstances(instances);
+    }
+
+    private TimeSeriesInstances toTimeSeriesInstances(List<TimeSeriesInstance> instances) {
+        TimeSeriesInstances data = new TimeSeriesInstances(instances, classLabelsArray);
+        data.setProblemName(problemName);
 //        m_data.setHasTimeStamps(timeStamps); // todo this has been temp removed, should be computed from the data
-        m_data.setDescription(description);
+        data.setDescription(description);
+        // lay the values out in a single array per dimension, as for data built from raw arrays
+        return data.compact();
     }
 
+    /**
+     * @return all the instances in the file. When streaming, this reads all the instances which have not been read yet
+     */
     public TimeSeriesInstances GetInstances() {
+        if (m_data == null) {
+            List<TimeSeriesInstance> instances = new ArrayList<>();
+            while (hasNext())
+                instances.add(next());
+            m_data = toTimeSeriesInstances(instances);
+        }
         return m_data;
     }
 
-    private Pair<List<List<Double>>, Double> readMultivariateInstance() throws IOException {
-        getFirstToken();
-        if (m_Tokenizer.ttype == StreamTokenizer.TT_EOF) {
-            return null;
+    /**
+     * Reads up to maxInstances of the instances which have not been read yet.
+     *
+     * @param maxInstances the most instances to read
+     * @return the instances read, or null if there are none left
+     * @throws IOException if the data is malformed
+     */
+    public TimeSeriesInstances nextChunk(int maxInstances) throws IOException {
+        if (maxInstances < 1)
+            throw new IllegalArgumentException("maxInstances must be at least 1, was " + maxInstances);
+
+        List<TimeSeriesInstance> instances = new ArrayList<>(Math.min(maxInstances, 1024));
+        try {
+            while (instances.size() < maxInstances && hasNext())
+                instances.add(next());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
+        return instances.isEmpty() ? null : toTimeSeriesInstances(instances);
+    }
 
-        List<List<Double>> multi_timeSeries = new ArrayList<>();
-        String classValue = "";
-
-        ArrayList<Double> timeSeries = new ArrayList<>();
-        do {
-            // this means we're about to get the class value
-            if (m_Tokenizer.ttype == ':' && classLabel) {
-                // add the current time series to the list.
-                multi_timeSeries.add(timeSeries);
-                timeSeries = new ArrayList<>();
-            } else {
-                double val = m_Tokenizer.nval;
-                //Nasty hack to deal with Exponents not being supported in tokenizer - Look away!
-                //Aaron 15/02/2021
-                if(m_Tokenizer.sval != null && m_Tokenizer.sval.contains("E")){
-                    val = Double.parseDouble(m_Tokenizer.nval + m_Tokenizer.sval);
-                    //remove the value we just added. as it was a partial.
-                    timeSeries.remove(timeSeries.size()-1);
-                }
-                else if(m_Tokenizer.sval == "?")
-                    val = Double.NaN;
-
-                timeSeries.add(val);
-                classValue = m_Tokenizer.sval == null ? "" + m_Tokenizer.nval : m_Tokenizer.sval; // the last value to
-                                                                                                  // be tokenized should
-                                                                                                  // be the class value.
-                                                                                                  // can be in string or
-                                                                                                  // number format so
-                                                                                                  // check both.
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = readMultivariateInstance();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
-            m_Tokenizer.nextToken();
-        } while (m_Tokenizer.ttype != StreamTokenizer.TT_EOL);
+        }
+        return next != null;
+    }
 
-        // don't add the last series to the list, instead extract the first element and
-        // figure out what the class value is.
-        double classVal = classLabel ? (double) this.classLabels.indexOf(classValue) : -1.0;
-        return new Pair<>(multi_timeSeries, classVal);
+    @Override
+    public TimeSeriesInstance next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        TimeSeriesInstance instance = next;
+        next = null;
+        return instance;
     }
 
-    private void initTokenizer() {
-        // Setup the tokenizer to read the stream.
-        m_Tokenizer.resetSyntax();
+    /**
+     * @return the instances which have not been read yet, read lazily. Closing the stream closes this reader
+     */
+    public Stream<TimeSeriesInstance> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
 
-        //// ignore 0-9 chars
-        m_Tokenizer.wordChars(' ' + 1, '\u00FF');
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
 
-        m_Tokenizer.parseNumbers();
+    public String getProblemName() {
+        return problemName;
+    }
 
-        // setup the white space tokens
-        m_Tokenizer.whitespaceChars(' ', ' ');
-        m_Tokenizer.whitespaceChars(',', ',');
+    public String[] getClassLabels() {
+        return classLabelsArray;
+    }
 
-        // if we encounter a colon it means we need to start a new line? or it means a
-        // new multivariate instance.
-        m_Tokenizer.ordinaryChar(':');
+    public boolean isUnivariate() {
+        return univariate;
+    }
 
-        // setup the comment char
-        m_Tokenizer.commentChar('#');
+    public boolean hasMissing() {
+        return missing;
+    }
 
-        // end of line is a significant token. it means the end of an instance.
-        m_Tokenizer.eolIsSignificant(true);
+    public boolean hasTimeStamps() {
+        return timeStamps;
     }
 
-    // this function reads upto the @data bit in the file.
-    protected void readHeader() throws IOException {
-        // first token should be @problem name. as we skip whitespace and comments.
+    /**
+     * Reads the next data line. Dimensions are separated by ':' and values by ','. If the data is labelled, the
+     * label follows the last ':'.
+     *
+     * @return the instance, or null at the end of the file
+     */
+    private TimeSeriesInstance readMultivariateInstance() throws IOException {
+        int c = skipBlankLines();
+        if (c < 0) {
+            return null;
+        }
 
-        // this gets the token there may be weirdness at the front of the file.
-        getFirstToken();
-        if (m_Tokenizer.ttype == StreamTokenizer.TT_EOF) {
-            errorMessage("premature end of file");
+        int numDimensions = 0;
+        int labelIndex = -1;
+        dimensionLengths[0] = 0;
+        while (true) {
+            // read a value, ending at ',', ':', or the end of the line
+            int length = 0;
+            while (c != ',' && c != ':' && c != '\n' && c >= 0) {
+                if (c == '#') {
+                    c = skipLine();
+                    break;
+                }
+                if (c != ' ' && c != '\t' && c != '\r') {
+                    if (length == token.length)
+                        token = Arrays.copyOf(token, length * 2);
+                    token[length++] = (char) c;
+                }
+                c = read();
+            }
+            boolean endOfLine = c != ',' && c != ':';
+
+            if (endOfLine && classLabel) {
+                // the label is alone in the last section of the line
+                if (dimensionLengths[numDimensions] != 0 || length == 0)
+                    errorMessage("class label expected");
+                String label = normaliseLabel(new String(token, 0, length));
+                labelIndex = classLabels.indexOf(label);
+                if (labelIndex < 0)
+                    errorMessage("unknown class label " + label);
+                break;
+            }
+
+            if (length == 0) {
+                if (c == ',' || dimensionLengths[numDimensions] > 0)
+                    errorMessage("value expected");
+            } else {
+                addValue(numDimensions, parseValue(token, length));
+            }
+
+            if (endOfLine) {
+                numDimensions++;
+                break;
+            }
+            if (c == ':') {
+                numDimensions++;
+                if (numDimensions == dimensions.length) {
+                    dimensions = Arrays.copyOf(dimensions, numDimensions * 2);
+                    dimensionLengths = Arrays.copyOf(dimensionLengths, numDimensions * 2);
+                }
+                if (dimensions[numDimensions] == null)
+                    dimensions[numDimensions] = new double[dimensions[0].length];
+                dimensionLengths[numDimensions] = 0;
+            }
+            c = read();
         }
+        if (c == '\n')
+            m_Lines++;
+
+        double[][] data = new double[numDimensions][];
+        for (int i = 0; i < numDimensions; i++)
+            data[i] = Arrays.copyOf(dimensions[i], dimensionLengths[i]);
+        return new TimeSeriesInstance(data, labelIndex, classLabelsArray);
+    }
 
-        do {
+    private void addValue(int dimension, double value) {
+        int length = dimensionLengths[dimension];
+        if (length == dimensions[dimension].length)
+            dimensions[dimension] = Arrays.copyOf(dimensions[dimension], length * 2);
+        dimensions[dimension][length] = value;
+        dimensionLengths[dimension] = length + 1;
+    }
 
-            String token = m_Tokenizer.sval;
+    /**
+     * Parses a value, without allocating in the common case of a decimal with at most 18 significant digits. The
+     * result is always identical to Double.parseDouble. Missing values ('?') are NaN.
+     */
+    private double parseValue(char[] chars, int length) throws IOException {
+        if (length == 1 && chars[0] == '?')
+            return Double.NaN;
+
+        int i = 0;
+        boolean negative = false;
+        if (chars[0] == '-' || chars[0] == '+') {
+            negative = chars[0] == '-';
+            i++;
+        }
 
-            if (token.equalsIgnoreCase(CLASS_LABEL)) {
-                ExtractClassLabels();
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean digits = false;
+        boolean exact = true;
+        for (; i < length && chars[i] >= '0' && chars[i] <= '9'; i++) {
+            digits = true;
+            if (significantDigits < 18) {
+                mantissa = mantissa * 10 + (chars[i] - '0');
+                if (mantissa != 0)
+                    significantDigits++;
             } else {
-                variables.put(token, ExtractVariable(token));
+                exact = false;
+                exponent++;
+            }
+        }
+        if (i < length && chars[i] == '.') {
+            for (i++; i < length && chars[i] >= '0' && chars[i] <= '9'; i++) {
+                digits = true;
+                if (significantDigits < 18) {
+                    mantissa = mantissa * 10 + (chars[i] - '0');
+                    if (mantissa != 0)
+                        significantDigits++;
+                    exponent--;
+                } else {
+                    exact = false;
+                }
+            }
+        }
+        if (digits && i < length && (chars[i] == 'e' || chars[i] == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < length && (chars[i] == '-' || chars[i] == '+')) {
+                negativeExponent = chars[i] == '-';
+                i++;
             }
+            int start = i;
+            int value = 0;
+            for (; i < length && chars[i] >= '0' && chars[i] <= '9' && value < 10000; i++)
+                value = value * 10 + (chars[i] - '0');
+            if (i == start)
+                digits = false;
+            exponent += negativeExponent ? -value : value;
+        }
+
+        // the mantissa and power of ten are exact, so one multiplication or division rounds correctly
+        if (digits && i == length && exact && mantissa < (1L << 53)
+                && exponent >= -22 && exponent <= 22) {
+            double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+            return negative ? -value : value;
+        }
+
+        try {
+            return Double.parseDouble(new String(chars, 0, length));
+        } catch (NumberFormatException e) {
+            errorMessage("number expected, read " + new String(chars, 0, length));
+            return Double.NaN;
+        }
+    }
 
-            getNextToken();
+    // numeric labels are stored as the double they represent, e.g. "1" as "1.0", so they match however they are
+    // written in the header and data
+    private static String normaliseLabel(String label) {
+        try {
+            return Double.toString(Double.parseDouble(label));
+        } catch (NumberFormatException e) {
+            return label;
+        }
+    }
 
-        } while (!m_Tokenizer.sval.equalsIgnoreCase(DATA));
+    // this function reads upto the @data bit in the file.
+    protected void readHeader() throws IOException {
+        String line;
+        while (true) {
+            line = readHeaderLine();
+            if (line == null) {
+                errorMessage("premature end of file");
+            }
+            String[] tokens = line.split("[\\s,]+");
+            if (!tokens[0].startsWith("@")) {
+                errorMessage("keyword expected, read " + tokens[0]);
+            }
+            if (tokens[0].equalsIgnoreCase(DATA)) {
+                break;
+            }
+            if (tokens.length < 2) {
+                errorMessage("value expected for " + tokens[0]);
+            }
+            if (tokens[0].equalsIgnoreCase(CLASS_LABEL)) {
+                ExtractClassLabels(tokens);
+            } else {
+                variables.put(tokens[0], tokens[1]);
+            }
+        }
 
         // these are required.
         problemName = variables.get(PROBLEM_NAME);
@@ -206,99 +459,104 @@ public class TSReader {
             missing = Boolean.parseBoolean(variables.get(MISSING));
         if (variables.get(TIME_STAMPS) != null)
             timeStamps = Boolean.parseBoolean(variables.get(TIME_STAMPS));
-
-        // clear out last tokens.
-        getLastToken(false);
+        if (timeStamps)
+            errorMessage("time stamped data is not supported");
     }
 
-    private void ExtractClassLabels() throws IOException {
-        classLabels = new ArrayList<>();
-        getNextToken();
-        classLabel = Boolean.parseBoolean(m_Tokenizer.sval);
-
+    private void ExtractClassLabels(String[] tokens) {
+        classLabel = Boolean.parseBoolean(tokens[1]);
         if (!classLabel) {
-            getLastToken(false);
             return;
         }
 
-        getNextToken();
         // now read all the class values until we reach the EOL
-        do {
-            classLabels.add(m_Tokenizer.sval == null ? "" + m_Tokenizer.nval : m_Tokenizer.sval);
-            m_Tokenizer.nextToken();
-        } while (m_Tokenizer.ttype != StreamTokenizer.TT_EOL);
-    }
-
-    private String ExtractVariable(String VARIABLE) throws IOException {
-        // check if the current token matches the hardcoded value for @types e.g.
-        // @problemName etc.
-        getNextToken();
-        String value = m_Tokenizer.sval;
-        getLastToken(false);
-        return value;
+        for (int i = 2; i < tokens.length; i++) {
+            classLabels.add(normaliseLabel(tokens[i]));
+        }
+        classLabelsArray = classLabels.toArray(new String[0]);
     }
 
     /**
-     * Gets next token, skipping empty lines.
-     *
-     * @throws IOException if reading the next token fails
+     * @return the next header line which is not blank, without any comment, or null at the end of the file
      */
-    protected void getFirstToken() throws IOException {
-        while (m_Tokenizer.nextToken() == StreamTokenizer.TT_EOL) {}
-        ;
-        // this handles quotations single and double/
-        if ((m_Tokenizer.ttype == '\'') || (m_Tokenizer.ttype == '"')) {
-            m_Tokenizer.ttype = StreamTokenizer.TT_WORD;
-            // this handles ? in the file.
-        } else if ((m_Tokenizer.ttype == StreamTokenizer.TT_WORD) && (m_Tokenizer.sval.equals("?"))) {
-            m_Tokenizer.ttype = '?';
+    private String readHeaderLine() throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while (true) {
+            line.setLength(0);
+            while ((c = read()) != '\n' && c >= 0) {
+                if (c == '#') {
+                    c = skipLine();
+                    break;
+                }
+                line.append((char) c);
+            }
+            if (c == '\n')
+                m_Lines++;
+            String trimmed = line.toString().trim();
+            if (!trimmed.isEmpty())
+                return trimmed;
+            if (c < 0)
+                return null;
         }
     }
 
     /**
-     * Gets next token, checking for a premature and of line.
+     * Skips blank and comment lines.
      *
-     * @throws IOException if it finds a premature end of line
+     * @return the first character of the next data line, or -1 at the end of the file
      */
-    protected void getNextToken() throws IOException {
-        if (m_Tokenizer.nextToken() == StreamTokenizer.TT_EOL) {
-            errorMessage("premature end of line");
-        }
-        if (m_Tokenizer.ttype == StreamTokenizer.TT_EOF) {
-            errorMessage("premature end of file");
-        } else if ((m_Tokenizer.ttype == '\'') || (m_Tokenizer.ttype == '"')) {
-            m_Tokenizer.ttype = StreamTokenizer.TT_WORD;
-        } else if ((m_Tokenizer.ttype == StreamTokenizer.TT_WORD) && (m_Tokenizer.sval.equals("?"))) {
-            m_Tokenizer.ttype = '?';
+    private int skipBlankLines() throws IOException {
+        int c;
+        while (true) {
+            c = read();
+            if (c == '\n')
+                m_Lines++;
+            else if (c == '#')
+                c = skipComment();
+            else if (c != ' ' && c != '\t' && c != '\r')
+                return c;
         }
     }
 
+    private int skipComment() throws IOException {
+        int c = skipLine();
+        if (c == '\n')
+            m_Lines++;
+        return c;
+    }
+
     /**
-     * Gets token and checks if its end of line.
+     * Skips to the end of the line.
      *
-     * @param endOfFileOk whether EOF is OK
-     * @throws IOException if it doesn't find an end of line
+     * @return '\n', or -1 at the end of the file
      */
-    protected void getLastToken(boolean endOfFileOk) throws IOException {
-        if ((m_Tokenizer.nextToken() != StreamTokenizer.TT_EOL)
-                && ((m_Tokenizer.ttype != StreamTokenizer.TT_EOF) || !endOfFileOk)) {
-            errorMessage("end of line expected");
+    private int skipLine() throws IOException {
+        int c;
+        while ((c = read()) != '\n' && c >= 0) { }
+        return c;
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
         }
+        return buffer[position++];
     }
 
     /**
-     * Throws error message with line number and last token read.
+     * Throws error message with line number.
      *
      * @param msg the error message to be thrown
      * @throws IOException containing the error message
      */
     protected void errorMessage(String msg) throws IOException {
-        String str = msg + ", read " + m_Tokenizer.toString();
-        if (m_Lines > 0) {
-            int line = Integer.parseInt(str.replaceAll(".* line ", ""));
-            str = str.replaceAll(" line .*", " line " + (m_Lines + line - 1));
-        }
-        throw new IOException(str);
+        throw new IOException(msg + ", line " + m_Lines);
     }
 
     public static void main(String[] args) throws IOException {
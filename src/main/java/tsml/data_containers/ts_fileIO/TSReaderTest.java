@@ -0,0 +1,146 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+package tsml.data_containers.ts_fileIO;
+
+import org.junit.Test;
+import tsml.data_containers.TimeSeriesInstance;
+import tsml.data_containers.TimeSeriesInstances;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TSReaderTest {
+
+    private static final String MULTIVARIATE = "# a comment\n"
+            + "@problemName Test\n"
+            + "@timeStamps false\n"
+            + "@missing true\n"
+            + "@univariate false\n"
+            + "@classLabel true a b\n"
+            + "@data\n"
+            + "1,2,3:4.5,-6e-1,?:b\n"
+            + "\n"
+            + "0.25, 1E2 ,7:8:a\r\n"
+            + "-0,1:2,3:b";
+
+    @Test
+    public void testReadAll() throws IOException {
+        TSReader reader = new TSReader(new StringReader(MULTIVARIATE));
+        TimeSeriesInstances data = reader.GetInstances();
+        assertEquals("Test", data.getProblemName());
+        assertArrayEquals(new String[] {"a", "b"}, data.getClassLabels());
+        assertEquals(3, data.numInstances());
+
+        TimeSeriesInstance first = data.get(0);
+        assertEquals(1, first.getLabelIndex());
+        assertEquals(2, first.getNumDimensions());
+        assertArrayEquals(new double[] {1, 2, 3}, first.get(0).toValueArray(), 0);
+        assertArrayEquals(new double[] {4.5, -0.6, Double.NaN}, first.get(1).toValueArray(), 0);
+
+        TimeSeriesInstance second = data.get(1);
+        assertEquals(0, second.getLabelIndex());
+        assertArrayEquals(new double[] {0.25, 100, 7}, second.get(0).toValueArray(), 0);
+        assertArrayEquals(new double[] {8}, second.get(1).toValueArray(), 0);
+
+        assertEquals(2, data.get(2).getNumDimensions());
+    }
+
+    @Test
+    public void testNumericLabels() throws IOException {
+        String file = "@problemName Test\n@univariate true\n@classLabel true 1 2\n@data\n1,2:2\n3,4:1.0\n";
+        TimeSeriesInstances data = new TSReader(new StringReader(file)).GetInstances();
+        assertArrayEquals(new String[] {"1.0", "2.0"}, data.getClassLabels());
+        assertEquals(1, data.get(0).getLabelIndex());
+        assertEquals(0, data.get(1).getLabelIndex());
+    }
+
+    @Test
+    public void testStreaming() throws IOException {
+        Path file = Files.createTempFile("tsreader", ".ts");
+        try {
+            try (Writer writer = Files.newBufferedWriter(file)) {
+                writer.write("@problemName Stream\n@univariate true\n@classLabel true x y\n@data\n");
+                for (int i = 0; i < 25; i++) {
+                    writer.write(i + "," + (i + 1) + ":" + (i % 2 == 0 ? "x" : "y") + "\n");
+                }
+            }
+
+            try (TSReader reader = TSReader.open(file)) {
+                assertEquals("Stream", reader.getProblemName());
+                int count = 0;
+                TimeSeriesInstances chunk;
+                while ((chunk = reader.nextChunk(10)) != null) {
+                    assertTrue(chunk.numInstances() <= 10);
+                    assertArrayEquals(new String[] {"x", "y"}, chunk.getClassLabels());
+                    for (TimeSeriesInstance instance : chunk) {
+                        assertEquals(count, instance.get(0).getValue(0), 0);
+                        assertEquals(count % 2, instance.getLabelIndex());
+                        count++;
+                    }
+                }
+                assertEquals(25, count);
+                assertFalse(reader.hasNext());
+                assertNull(reader.nextChunk(10));
+            }
+
+            try (TSReader reader = TSReader.open(file)) {
+                assertEquals(25, reader.stream().count());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testValuesMatchParseDouble() throws IOException {
+        Random random = new Random(0);
+        String[] values = new String[2000];
+        for (int i = 0; i < values.length; i++) {
+            double value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(40) - 20);
+            switch (i % 4) {
+                case 0: values[i] = Double.toString(value); break;
+                case 1: values[i] = String.format("%.8f", value); break;
+                case 2: values[i] = String.format("%.17e", value); break;
+                default: values[i] = Float.toString((float) value); break;
+            }
+        }
+        TimeSeriesInstances data = new TSReader(new StringReader("@problemName Test\n@univariate true\n"
+                + "@classLabel false\n@data\n" + String.join(",", values) + "\n")).GetInstances();
+        double[] read = data.get(0).get(0).toValueArray();
+        assertEquals(values.length, read.length);
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(values[i], Double.doubleToLongBits(Double.parseDouble(values[i])),
+                    Double.doubleToLongBits(read[i]));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnknownLabel() throws IOException {
+        new TSReader(new StringReader("@problemName Test\n@univariate true\n@classLabel true a b\n@data\n1,2:c\n"));
+    }
+}
@@ -17,13 +17,18 @@
  
 package tsml.transformers;
 
+import java.io.Serializable;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
 
 import experiments.data.DatasetLoading;
+import tsml.classifiers.distance_based.utils.collections.cache.LruCache;
+import tsml.data_containers.TimeSeries;
 import tsml.data_containers.TimeSeriesInstance;
 import tsml.data_containers.TimeSeriesInstances;
 
@@ -38,6 +43,12 @@ import weka.core.Instances;
  * be hashed first to use the cache reliably otherwise issues occur with
  * instance copying changing the hashcode due to memory locations.
  * <p>
+ * The cache holds at most a given number of bytes of transformed output (a quarter of the max heap by default),
+ * evicting the least recently used entries beyond that. It is safe to share between threads, e.g. ensemble members
+ * built in parallel. Instances are keyed by content by default, hashing each instance once per transform call.
+ * Alternatively they can be keyed by identity, which avoids hashing entirely but only hits when the very same
+ * instance object is transformed again (and never after the cache has been serialised).
+ * <p>
  * Contributors: goastler, abostrom
  */
 public class CachedTransformer extends BaseTrainableTransformer {
@@ -47,14 +58,22 @@ public class CachedTransformer extends BaseTrainableTransformer {
     // whether to only cache instances from the fit() call OR all instances handed
     // to the transform method
     private boolean cacheFittedDataOnly;
+    // whether to key instances by identity rather than content
+    private boolean identityKeys;
+    // the most bytes of transformed output to hold in each of the ts and arff caches
+    private long maxCacheBytes;
 
     // the cache to store instances against their corresponding transform output
-    private Map<TimeSeriesInstance, TimeSeriesInstance> tsCache; // use object as key so we can accept either inst or tsinst
-    private Map<Instance, Instance> arffCache;
+    private LruCache<Key, TimeSeriesInstance> tsCache;
+    private LruCache<Key, Instance> arffCache;
+    // the instances handed to fit(). Only read once fitted, so safe to share between threads
+    private Set<Key> fittedTsKeys;
+    private Set<Key> fittedArffKeys;
 
     public CachedTransformer(final Transformer transformer) {
         setTransformer(transformer);
         setCacheFittedDataOnly(true);
+        setMaxCacheBytes(Runtime.getRuntime().maxMemory() / 4);
         reset();
     }
 
@@ -66,10 +85,40 @@ public class CachedTransformer extends BaseTrainableTransformer {
         this.cacheFittedDataOnly = cacheFittedDataOnly;
     }
 
+    public boolean isIdentityKeys() {
+        return identityKeys;
+    }
+
+    /**
+     * Key instances by identity rather than content. Takes effect from the next reset() / fit().
+     * @param identityKeys whether to key by identity
+     */
+    public void setIdentityKeys(final boolean identityKeys) {
+        this.identityKeys = identityKeys;
+    }
+
+    public long getMaxCacheBytes() {
+        return maxCacheBytes;
+    }
+
+    /**
+     * Set the most bytes of transformed output to cache per data format. Takes effect from the next reset() / fit().
+     * @param maxCacheBytes the cache size in bytes
+     */
+    public void setMaxCacheBytes(final long maxCacheBytes) {
+        if(maxCacheBytes < 0) {
+            throw new IllegalArgumentException("cache size must be non-negative: " + maxCacheBytes);
+        }
+        this.maxCacheBytes = maxCacheBytes;
+    }
+
     public void reset() {
         super.reset();
-        tsCache = new HashMap<>();
-        arffCache = new HashMap<>();
+        // each cache gets the whole budget as usually only one of the two is in use
+        tsCache = new LruCache<>(maxCacheBytes, new TsSizeOf());
+        arffCache = new LruCache<>(maxCacheBytes, new ArffSizeOf());
+        fittedTsKeys = new HashSet<>();
+        fittedArffKeys = new HashSet<>();
     }
 
     @Override
@@ -79,7 +128,7 @@ public class CachedTransformer extends BaseTrainableTransformer {
             ((TrainableTransformer) transformer).fit(data);
         }
         for (final Instance instance : data) {
-            arffCache.put(instance, null);
+            fittedArffKeys.add(keyOf(instance));
         }
     }
 
@@ -90,7 +139,7 @@ public class CachedTransformer extends BaseTrainableTransformer {
             ((TrainableTransformer) transformer).fit(data);
         }
         for (final TimeSeriesInstance instance : data) {
-            tsCache.put(instance, null);
+            fittedTsKeys.add(keyOf(instance));
         }
     }
 
@@ -109,28 +158,112 @@ public class CachedTransformer extends BaseTrainableTransformer {
         if(!isFit()) {
             throw new IllegalStateException("must be fitted first");
         }
-        TimeSeriesInstance transformed = tsCache.get(inst);
-        if(transformed == null) {
-            transformed = transformer.transform(inst);
-            if(!cacheFittedDataOnly || tsCache.containsKey(inst)) {
-                tsCache.put(inst, transformed);
-            }
+        final Key key = keyOf(inst);
+        if(cacheFittedDataOnly && !fittedTsKeys.contains(key)) {
+            return transformer.transform(inst);
         }
-        return transformed;
+        return tsCache.computeIfAbsent(key, k -> transformer.transform(inst));
     }
 
     @Override public Instance transform(final Instance inst) {
         if(!isFit()) {
             throw new IllegalStateException("must be fitted first");
         }
-        Instance transformed = arffCache.get(inst);
-        if(transformed == null) {
-            transformed = transformer.transform(inst);
-            if(!cacheFittedDataOnly || arffCache.containsKey(inst)) {
-                arffCache.put(inst, transformed);
+        final Key key = keyOf(inst);
+        if(cacheFittedDataOnly && !fittedArffKeys.contains(key)) {
+            return transformer.transform(inst);
+        }
+        return arffCache.computeIfAbsent(key, k -> transformer.transform(inst));
+    }
+
+    public long getHitCount() {
+        return tsCache.getHitCount() + arffCache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return tsCache.getMissCount() + arffCache.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return tsCache.getEvictionCount() + arffCache.getEvictionCount();
+    }
+
+    /**
+     * @return the proportion of cacheable transforms which were found in the cache, or NaN if there have been none
+     */
+    public double getHitRate() {
+        final long hits = getHitCount();
+        final long total = hits + getMissCount();
+        return total == 0 ? Double.NaN : (double) hits / total;
+    }
+
+    /**
+     * @return the approximate number of bytes of transformed output currently cached
+     */
+    public long getCacheBytes() {
+        return tsCache.getWeight() + arffCache.getWeight();
+    }
+
+    private Key keyOf(Object inst) {
+        return identityKeys ? new Key(inst, System.identityHashCode(inst), true) : new Key(inst, inst.hashCode(), false);
+    }
+
+    /**
+     * Approximate bytes held by a transformed instance: the values plus object headers and references.
+     */
+    private static long sizeOf(TimeSeriesInstance inst) {
+        long size = 64;
+        for(TimeSeries series : inst) {
+            size += 48 + 8L * series.getSeriesLength();
+        }
+        return size;
+    }
+
+    private static long sizeOf(Instance inst) {
+        return 64 + 8L * inst.numValues();
+    }
+
+    // weighers as classes rather than method references so the caches, and therefore this transformer, serialise
+    private static class TsSizeOf implements ToLongFunction<TimeSeriesInstance>, Serializable {
+        @Override public long applyAsLong(final TimeSeriesInstance inst) {
+            return sizeOf(inst);
+        }
+    }
+
+    private static class ArffSizeOf implements ToLongFunction<Instance>, Serializable {
+        @Override public long applyAsLong(final Instance inst) {
+            return sizeOf(inst);
+        }
+    }
+
+    /**
+     * Wraps an instance with its hash so content keyed lookups hash the instance once rather than per map operation.
+     */
+    private static class Key implements Serializable {
+        private final Object inst;
+        private final int hash;
+        private final boolean identity;
+
+        private Key(final Object inst, final int hash, final boolean identity) {
+            this.inst = inst;
+            this.hash = hash;
+            this.identity = identity;
+        }
+
+        @Override public boolean equals(final Object o) {
+            if(!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            if(inst == other.inst) {
+                return true;
             }
+            return !identity && hash == other.hash && Objects.equals(inst, other.inst);
+        }
+
+        @Override public int hashCode() {
+            return hash;
         }
-        return transformed;
     }
 
     @Override
@@ -0,0 +1,54 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+ 
+package tsml.transformers;
+
+import experiments.data.DatasetLoading;
+import org.junit.Assert;
+import org.junit.Test;
+import tsml.classifiers.distance_based.utils.system.copy.CopierUtils;
+import tsml.data_containers.TimeSeriesInstance;
+import tsml.data_containers.TimeSeriesInstances;
+import tsml.data_containers.utilities.Converter;
+
+/**
+ * Purpose: test a populated cache survives serialisation, e.g. when checkpointing a classifier holding it.
+ */
+public class CachedTransformerTest {
+
+    @Test
+    public void testSerialisesPopulatedCache() throws Exception {
+        final TimeSeriesInstances train = Converter.fromArff(DatasetLoading.sampleItalyPowerDemand(0)[0]);
+        final CachedTransformer transformer = new CachedTransformer(new Derivative());
+        transformer.fit(train);
+        for(TimeSeriesInstance inst : train) {
+            transformer.transform(inst);
+        }
+        Assert.assertTrue(transformer.getCacheBytes() > 0);
+
+        final CachedTransformer copy = CopierUtils.deserialise(CopierUtils.serialise(transformer));
+        Assert.assertEquals(transformer.getCacheBytes(), copy.getCacheBytes());
+        final long misses = copy.getMissCount();
+        final Derivative derivative = new Derivative();
+        for(TimeSeriesInstance inst : train) {
+            Assert.assertEquals(derivative.transform(inst), copy.transform(inst));
+        }
+        // content keyed, so the deserialised entries are found again
+        Assert.assertEquals(misses, copy.getMissCount());
+    }
+}
@@ -17,11 +17,9 @@
 
 package tsml.transformers;
 
-import org.apache.commons.math3.complex.Complex;
 import org.apache.commons.math3.transform.DftNormalization;
 import org.apache.commons.math3.transform.FastFourierTransformer;
 import org.apache.commons.math3.transform.TransformType;
-import utilities.GenericTools;
 import weka.core.Attribute;
 import weka.core.DenseInstance;
 import weka.core.Instance;
@@ -63,13 +61,8 @@ public class Catch22 implements Transformer {
 
     // for summary stat by index
     private int currentSeriesID = Integer.MIN_VALUE;
-    private double idxMin;
-    private double idxMax;
-    private double idxMean;
-    private Complex[] idxFFT;
-    private double[] idxAC;
-    private double[] idxOutlierSeries;
-    private double[] idxSeries;
+    private double[] currentSeries;
+    private SeriesContext currentContext;
 
     public Catch22() { }
 
@@ -123,421 +116,242 @@ public class Catch22 implements Transformer {
         int atts = classValue == Double.MIN_VALUE ? 22 : 23;
         double[] featureSet = new double[atts];
 
-        double[] arr;
-        double[] outlierArr;
-        if (norm) {
-            arr = new double[series.length];
-            System.arraycopy(series, 0, arr, 0, series.length);
-            zNormalise(arr);
-            outlierArr = arr;
-        } else if (outlierNorm) {
-            arr = series;
-            outlierArr = new double[series.length];
-            System.arraycopy(series, 0, outlierArr, 0, series.length);
-            zNormalise(outlierArr);
-        } else {
-            arr = series;
-            outlierArr = series;
+        SeriesContext context = createContext(series);
+        for (int i = 0; i < 22; i++) {
+            featureSet[i] = context.getFeature(i);
         }
 
-        // can reduce amount of computation by pre-computing stats and transforms
-        double min = Double.MAX_VALUE;
-        double max = -99999999;
-        double mean = 0;
-        for (double v : arr) {
-            if (v < min) {
-                min = v;
-            }
-            if (v > max) {
-                max = v;
-            }
-            mean += v;
-        }
-        mean /= arr.length;
-
-        int nfft = (int) Math.pow(2.0, (int) Math.ceil(Math.log(series.length) / Math.log(2)));
-        Complex[] fft = new Complex[nfft];
-        for (int j = 0; j < nfft; j++) {
-            if (j < series.length)
-                fft[j] = new Complex(series[j] - mean, 0);
-            else
-                fft[j] = new Complex(0, 0);
-        }
-
-        FastFourierTransformer f = new FastFourierTransformer(DftNormalization.STANDARD);
-        fft = f.transform(fft, TransformType.FORWARD);
-
-        double[] ac = autoCorr(arr, fft);
-
-        featureSet[0] = histMode5DN(arr, min, max);
-        featureSet[1] = histMode10DN(arr, min, max);
-        featureSet[2] = binaryStatsMeanLongstretch1SB(arr, mean);
-        featureSet[3] = outlierIncludeP001mdrmdDN(outlierArr);
-        featureSet[4] = outlierIncludeN001mdrmdDN(outlierArr);
-        featureSet[5] = f1ecacCO(ac);
-        featureSet[6] = firstMinacCO(ac);
-        featureSet[7] = summariesWelchRectArea51SP(arr, fft);
-        featureSet[8] = summariesWelchRectCentroidSP(arr, fft);
-        featureSet[9] = localSimpleMean3StderrFC(arr);
-        featureSet[10] = trev1NumCO(arr);
-        featureSet[11] = histogramAMIeven25CO(arr, min, max);
-        featureSet[12] = autoMutualInfoStats40GaussianFmmiIN(ac);
-        featureSet[13] = hrvClassicPnn40MD(arr);
-        featureSet[14] = binaryStatsDiffLongstretch0SB(arr);
-        featureSet[15] = motifThreeQuantileHhSB(arr);
-        featureSet[16] = localSimpleMean1TauresratFC(arr, ac);
-        featureSet[17] = embed2DistTauDExpfitMeandiffCO(arr, ac);
-        featureSet[18] = fluctAnal2Dfa5012LogiPropR1SC(arr);
-        featureSet[19] = fluctAnal2Rsrangefit501LogiPropR1SC(arr);
-        featureSet[20] = transitionMatrix3acSumdiagcovSB(arr, ac);
-        featureSet[21] = periodicityWangTh001PD(arr);
-
         if (classValue > Double.MIN_VALUE) featureSet[22] = classValue;
 
-        for (int i = 0; i < featureSet.length; i++){
-            if (Double.isNaN(featureSet[i]) || Double.isInfinite(featureSet[i])){
-                featureSet[i] = 0;
-            }
-        }
-
         return featureSet;
     }
 
+    /**
+     * Creates a context for calculating any subset of the catch22 features of the series, using the normalisation
+     * options of this transformer. Intermediate values shared between features are calculated once.
+     */
+    public SeriesContext createContext(double[] series) {
+        double[] arr = series;
+        if (norm) {
+            arr = new double[series.length];
+            System.arraycopy(series, 0, arr, 0, series.length);
+            zNormalise(arr);
+        }
+        return new SeriesContext(arr, outlierNorm && !norm);
+    }
+
+    /**
+     * Calculates a single feature of the series. Intermediate values are kept while the same series is passed in
+     * consecutive calls, so requesting multiple features for a series shares work between them.
+     */
     public double getSummaryStatByIndex(int summaryStatIndex, int seriesID, double[] series) throws Exception {
-        if (seriesID != currentSeriesID) {
+        if (seriesID != currentSeriesID || series != currentSeries) {
             currentSeriesID = seriesID;
-            idxMin = Double.MAX_VALUE;
-            idxMax = -99999999;
-            idxMean = Double.MIN_VALUE;
-            idxFFT = null;
-            idxAC = null;
-            idxOutlierSeries = null;
-
-            if (norm) {
-                idxSeries = new double[series.length];
-                System.arraycopy(series, 0, idxSeries, 0, series.length);
-                zNormalise(idxSeries);
-            } else {
-                idxSeries = series;
-            }
-        }
-
-        switch (summaryStatIndex) {
-            case 0:
-            case 1:
-            case 11:
-                if (idxMin == Double.MAX_VALUE) {
-                    for (double v : idxSeries) {
-                        if (v < idxMin) {
-                            idxMin = v;
-                        }
-                        if (v > idxMax) {
-                            idxMax = v;
-                        }
-                    }
-                }
-                break;
-            case 2:
-                if (idxMean == Double.MIN_VALUE) {
-                    idxMean = mean(idxSeries);
-                }
-                break;
-            case 3:
-            case 4:
-                if (idxOutlierSeries == null) {
-                    if (outlierNorm && !norm) {
-                        idxOutlierSeries = new double[idxSeries.length];
-                        System.arraycopy(idxSeries, 0, idxOutlierSeries, 0, idxSeries.length);
-                        zNormalise(idxOutlierSeries);
-                    } else {
-                        idxOutlierSeries = idxSeries;
-                    }
-                }
-                break;
-            case 7:
-            case 8:
-                if (idxFFT == null) {
-                    if (idxMean == Double.MIN_VALUE) {
-                        idxMean = mean(idxSeries);
-                    }
-
-                    int nfft = (int) Math.pow(2.0, (int) Math.ceil(Math.log(idxSeries.length) / Math.log(2)));
-                    idxFFT = new Complex[nfft];
-                    for (int j = 0; j < nfft; j++) {
-                        if (j < idxSeries.length)
-                            idxFFT[j] = new Complex(idxSeries[j] - idxMean, 0);
-                        else
-                            idxFFT[j] = new Complex(0, 0);
-                    }
-
-                    FastFourierTransformer f = new FastFourierTransformer(DftNormalization.STANDARD);
-                    idxFFT = f.transform(idxFFT, TransformType.FORWARD);
-                }
-                break;
-            case 5:
-            case 6:
-            case 12:
-            case 16:
-            case 17:
-            case 20:
-                if (idxAC == null) {
-                    if (idxFFT == null) {
-                        if (idxMean == Double.MIN_VALUE) {
-                            idxMean = mean(idxSeries);
-                        }
-
-                        int nfft = (int) Math.pow(2.0, (int) Math.ceil(Math.log(idxSeries.length) / Math.log(2)));
-                        idxFFT = new Complex[nfft];
-                        for (int j = 0; j < nfft; j++) {
-                            if (j < idxSeries.length)
-                                idxFFT[j] = new Complex(idxSeries[j] - idxMean, 0);
-                            else
-                                idxFFT[j] = new Complex(0, 0);
-                        }
-
-                        FastFourierTransformer f = new FastFourierTransformer(DftNormalization.STANDARD);
-                        idxFFT = f.transform(idxFFT, TransformType.FORWARD);
-                    }
+            currentSeries = series;
+            currentContext = createContext(series);
+        }
 
-                    idxAC = autoCorr(idxSeries, idxFFT);
-                }
-                break;
-        }
-
-        double feature;
-        switch (summaryStatIndex) {
-            case 0:
-                feature = histMode5DN(idxSeries, idxMin, idxMax);
-                break;
-            case 1:
-                feature = histMode10DN(idxSeries, idxMin, idxMax);
-                break;
-            case 2:
-                feature = binaryStatsMeanLongstretch1SB(idxSeries, idxMean);
-                break;
-            case 3:
-                feature = outlierIncludeP001mdrmdDN(idxOutlierSeries);
-                break;
-            case 4:
-                feature = outlierIncludeN001mdrmdDN(idxOutlierSeries);
-                break;
-            case 5:
-                feature = f1ecacCO(idxAC);
-                break;
-            case 6:
-                feature = firstMinacCO(idxAC);
-                break;
-            case 7:
-                feature = summariesWelchRectArea51SP(idxSeries, idxFFT);
-                break;
-            case 8:
-                feature = summariesWelchRectCentroidSP(idxSeries, idxFFT);
-                break;
-            case 9:
-                feature = localSimpleMean3StderrFC(idxSeries);
-                break;
-            case 10:
-                feature = trev1NumCO(idxSeries);
-                break;
-            case 11:
-                feature = histogramAMIeven25CO(idxSeries, idxMin, idxMax);
-                break;
-            case 12:
-                feature = autoMutualInfoStats40GaussianFmmiIN(idxAC);
-                break;
-            case 13:
-                feature = hrvClassicPnn40MD(idxSeries);
-                break;
-            case 14:
-                feature = binaryStatsDiffLongstretch0SB(idxSeries);
-                break;
-            case 15:
-                feature = motifThreeQuantileHhSB(idxSeries);
-                break;
-            case 16:
-                feature = localSimpleMean1TauresratFC(idxSeries, idxAC);
-                break;
-            case 17:
-                feature = embed2DistTauDExpfitMeandiffCO(idxSeries, idxAC);
-                break;
-            case 18:
-                feature = fluctAnal2Dfa5012LogiPropR1SC(idxSeries);
-                break;
-            case 19:
-                feature = fluctAnal2Rsrangefit501LogiPropR1SC(idxSeries);
-                break;
-            case 20:
-                feature = transitionMatrix3acSumdiagcovSB(idxSeries, idxAC);
-                break;
-            case 21:
-                feature = periodicityWangTh001PD(idxSeries);
-                break;
-            default:
-                throw new Exception("Invalid Catch22 summary stat index.");
-        }
-
-        if (Double.isNaN(feature) || Double.isInfinite(feature)){
-            feature = 0;
-        }
-
-        return feature;
+        return currentContext.getFeature(summaryStatIndex);
     }
 
     public static double getSummaryStatByIndex(int summaryStatIndex, double[] series, boolean outlierNorm) {
-        double min = Double.MAX_VALUE;
-        double max = -99999999;
-        double mean = Double.MIN_VALUE;
-        Complex[] fft = null;
-        double[] ac = null;
-        double[] newSeries = series;
-
         if (summaryStatIndex < 0 || summaryStatIndex > 21){
             System.err.println("Invalid Catch22 summary stat index.");
             return Double.MAX_VALUE;
         }
 
-        switch (summaryStatIndex) {
-            case 0:
-            case 1:
-            case 11:
-                for (double v : newSeries) {
-                    if (v < min) {
-                        min = v;
-                    }
-                    if (v > max) {
-                        max = v;
-                    }
+        return new SeriesContext(series, outlierNorm).getFeature(summaryStatIndex);
+    }
+
+    /**
+     * The catch22 features of a single series. Values shared between features, such as the autocorrelation, are
+     * calculated on first use and kept for any other features requested.
+     */
+    public static class SeriesContext {
+
+        private final double[] series;
+        // z-normalise the series for the outlier stats
+        private final boolean outlierNorm;
+
+        private boolean hasRange = false;
+        private double min = Double.MAX_VALUE;
+        private double max = -99999999;
+        private boolean hasMean = false;
+        private double mean;
+        private double[] outlierSeries;
+        private double[] diffs;
+        private double[][] fft;
+        private double[] ac;
+        private int acFirstZero = -1;
+        private int[] fluctTaus;
+
+        public SeriesContext(double[] series, boolean outlierNorm) {
+            this.series = series;
+            this.outlierNorm = outlierNorm;
+        }
+
+        public double getFeature(int summaryStatIndex) {
+            double feature;
+            switch (summaryStatIndex) {
+                case 0:
+                    feature = histMode5DN(series, getMin(), getMax());
+                    break;
+                case 1:
+                    feature = histMode10DN(series, getMin(), getMax());
+                    break;
+                case 2:
+                    feature = binaryStatsMeanLongstretch1SB(series, getMean());
+                    break;
+                case 3:
+                    feature = outlierIncludeP001mdrmdDN(getOutlierSeries());
+                    break;
+                case 4:
+                    feature = outlierIncludeN001mdrmdDN(getOutlierSeries());
+                    break;
+                case 5:
+                    feature = f1ecacCO(getAutoCorrelation());
+                    break;
+                case 6:
+                    feature = firstMinacCO(getAutoCorrelation());
+                    break;
+                case 7:
+                    feature = summariesWelchRectArea51SP(series, getFFT());
+                    break;
+                case 8:
+                    feature = summariesWelchRectCentroidSP(series, getFFT());
+                    break;
+                case 9:
+                    feature = localSimpleMean3StderrFC(series);
+                    break;
+                case 10:
+                    feature = trev1NumCO(getDiffs());
+                    break;
+                case 11:
+                    feature = histogramAMIeven25CO(series, getMin(), getMax());
+                    break;
+                case 12:
+                    feature = autoMutualInfoStats40GaussianFmmiIN(getAutoCorrelation());
+                    break;
+                case 13:
+                    feature = hrvClassicPnn40MD(getDiffs());
+                    break;
+                case 14:
+                    feature = binaryStatsDiffLongstretch0SB(getDiffs());
+                    break;
+                case 15:
+                    feature = motifThreeQuantileHhSB(series);
+                    break;
+                case 16:
+                    feature = localSimpleMean1TauresratFC(getDiffs(), getACFirstZero());
+                    break;
+                case 17:
+                    feature = embed2DistTauDExpfitMeandiffCO(series, getDiffs(), getACFirstZero());
+                    break;
+                case 18:
+                    feature = fluctAnal2Dfa5012LogiPropR1SC(series, getFluctTaus());
+                    break;
+                case 19:
+                    feature = fluctAnal2Rsrangefit501LogiPropR1SC(series, getFluctTaus());
+                    break;
+                case 20:
+                    feature = transitionMatrix3acSumdiagcovSB(series, getACFirstZero());
+                    break;
+                case 21:
+                    feature = periodicityWangTh001PD(series);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Invalid Catch22 summary stat index.");
+            }
+
+            if (Double.isNaN(feature) || Double.isInfinite(feature)){
+                feature = 0;
+            }
+
+            return feature;
+        }
+
+        private double getMin() {
+            findRange();
+            return min;
+        }
+
+        private double getMax() {
+            findRange();
+            return max;
+        }
+
+        private void findRange() {
+            if (hasRange) return;
+            for (double v : series) {
+                if (v < min) {
+                    min = v;
                 }
-                break;
-            case 2:
-                mean = mean(newSeries);
-                break;
-            case 3:
-            case 4:
-                if (outlierNorm) {
-                    newSeries = new double[newSeries.length];
-                    System.arraycopy(series, 0, newSeries, 0, series.length);
-                    zNormalise(newSeries);
+                if (v > max) {
+                    max = v;
                 }
-                break;
-            case 7:
-            case 8:
-                mean = mean(newSeries);
-
-                int nfft = (int) Math.pow(2.0, (int) Math.ceil(Math.log(newSeries.length) / Math.log(2)));
-                fft = new Complex[nfft];
-                for (int j = 0; j < nfft; j++) {
-                    if (j < newSeries.length)
-                        fft[j] = new Complex(newSeries[j] - mean, 0);
-                    else
-                        fft[j] = new Complex(0, 0);
+            }
+            hasRange = true;
+        }
+
+        private double getMean() {
+            if (!hasMean) {
+                mean = mean(series);
+                hasMean = true;
+            }
+            return mean;
+        }
+
+        private double[] getOutlierSeries() {
+            if (outlierSeries == null) {
+                if (outlierNorm) {
+                    outlierSeries = new double[series.length];
+                    System.arraycopy(series, 0, outlierSeries, 0, series.length);
+                    zNormalise(outlierSeries);
+                } else {
+                    outlierSeries = series;
                 }
+            }
+            return outlierSeries;
+        }
 
-                FastFourierTransformer f = new FastFourierTransformer(DftNormalization.STANDARD);
-                fft = f.transform(fft, TransformType.FORWARD);
-                break;
-            case 5:
-            case 6:
-            case 12:
-            case 16:
-            case 17:
-            case 20:
-                mean = mean(newSeries);
-
-                int nfft2 = (int) Math.pow(2.0, (int) Math.ceil(Math.log(newSeries.length) / Math.log(2)));
-                fft = new Complex[nfft2];
-                for (int j = 0; j < nfft2; j++) {
-                    if (j < newSeries.length)
-                        fft[j] = new Complex(newSeries[j] - mean, 0);
-                    else
-                        fft[j] = new Complex(0, 0);
+        // successive differences, x_t+1 - x_t
+        private double[] getDiffs() {
+            if (diffs == null) {
+                diffs = new double[Math.max(series.length - 1, 0)];
+                for (int i = 0; i < diffs.length; i++) {
+                    diffs[i] = series[i + 1] - series[i];
                 }
+            }
+            return diffs;
+        }
+
+        private double[][] getFFT() {
+            if (fft == null) {
+                fft = fft(series, getMean());
+            }
+            return fft;
+        }
+
+        private double[] getAutoCorrelation() {
+            if (ac == null) {
+                ac = autoCorr(series, getFFT());
+            }
+            return ac;
+        }
+
+        private int getACFirstZero() {
+            if (acFirstZero == -1) {
+                acFirstZero = acFirstZero(getAutoCorrelation());
+            }
+            return acFirstZero;
+        }
 
-                FastFourierTransformer f2 = new FastFourierTransformer(DftNormalization.STANDARD);
-                fft = f2.transform(fft, TransformType.FORWARD);
-
-                ac = autoCorr(newSeries, fft);
-                break;
-        }
-
-
-        double feature;
-        switch (summaryStatIndex) {
-            case 0:
-                feature = histMode5DN(newSeries, min, max);
-                break;
-            case 1:
-                feature = histMode10DN(newSeries, min, max);
-                break;
-            case 2:
-                feature = binaryStatsMeanLongstretch1SB(newSeries, mean);
-                break;
-            case 3:
-                feature = outlierIncludeP001mdrmdDN(newSeries);
-                break;
-            case 4:
-                feature = outlierIncludeN001mdrmdDN(newSeries);
-                break;
-            case 5:
-                feature = f1ecacCO(ac);
-                break;
-            case 6:
-                feature = firstMinacCO(ac);
-                break;
-            case 7:
-                feature = summariesWelchRectArea51SP(newSeries, fft);
-                break;
-            case 8:
-                feature = summariesWelchRectCentroidSP(newSeries, fft);
-                break;
-            case 9:
-                feature = localSimpleMean3StderrFC(newSeries);
-                break;
-            case 10:
-                feature = trev1NumCO(newSeries);
-                break;
-            case 11:
-                feature = histogramAMIeven25CO(newSeries, min, max);
-                break;
-            case 12:
-                feature = autoMutualInfoStats40GaussianFmmiIN(ac);
-                break;
-            case 13:
-                feature = hrvClassicPnn40MD(newSeries);
-                break;
-            case 14:
-                feature = binaryStatsDiffLongstretch0SB(newSeries);
-                break;
-            case 15:
-                feature = motifThreeQuantileHhSB(newSeries);
-                break;
-            case 16:
-                feature = localSimpleMean1TauresratFC(newSeries, ac);
-                break;
-            case 17:
-                feature = embed2DistTauDExpfitMeandiffCO(newSeries, ac);
-                break;
-            case 18:
-                feature = fluctAnal2Dfa5012LogiPropR1SC(newSeries);
-                break;
-            case 19:
-                feature = fluctAnal2Rsrangefit501LogiPropR1SC(newSeries);
-                break;
-            case 20:
-                feature = transitionMatrix3acSumdiagcovSB(newSeries, ac);
-                break;
-            case 21:
-                feature = periodicityWangTh001PD(newSeries);
-                break;
-            default:
-                feature = Double.MAX_VALUE;
-        }
-
-        if (Double.isNaN(feature) || Double.isInfinite(feature)){
-            feature = 0;
-        }
-
-        return feature;
+        private int[] getFluctTaus() {
+            if (fluctTaus == null) {
+                fluctTaus = fluctTaus(series.length);
+            }
+            return fluctTaus;
+        }
     }
 
     public static String getSummaryStatNameByIndex(int summaryStatIndex) throws Exception {
@@ -630,12 +444,12 @@ public class Catch22 implements Transformer {
     }
 
     // Total power in lowest fifth of frequencies in the Fourier power spectrum
-    private static double summariesWelchRectArea51SP(double[] arr, Complex[] fft) {
+    private static double summariesWelchRectArea51SP(double[] arr, double[][] fft) {
         return summariesWelchRect(arr, false, fft);
     }
 
     // Centroid of the Fourier power spectrum
-    private static double summariesWelchRectCentroidSP(double[] arr, Complex[] fft) {
+    private static double summariesWelchRectCentroidSP(double[] arr, double[][] fft) {
         return summariesWelchRect(arr, true, fft);
     }
 
@@ -649,14 +463,13 @@ public class Catch22 implements Transformer {
     }
 
     // Time-reversibility statistic, ((x_t+1 − x_t)^3)_t
-    private static double trev1NumCO(double[] arr) {
-        double[] y = new double[arr.length - 1];
-
-        for (int i = 0; i < y.length; i++) {
-            y[i] = Math.pow(arr[i + 1] - arr[i], 3);
+    private static double trev1NumCO(double[] diffs) {
+        double sum = 0;
+        for (double diff : diffs) {
+            sum += Math.pow(diff, 3);
         }
 
-        return mean(y);
+        return sum / diffs.length;
     }
 
     // Automutual information, m = 2, τ = 5
@@ -712,15 +525,10 @@ public class Catch22 implements Transformer {
     }
 
     // Proportion of successive differences exceeding 0.04σ (Mietus 2002)
-    private static double hrvClassicPnn40MD(double[] arr) {
-        double[] diffs = new double[arr.length - 1];
-        for (int i = 0; i < diffs.length; i++) {
-            diffs[i] = Math.abs(arr[i + 1] - arr[i]) * 1000;
-        }
-
+    private static double hrvClassicPnn40MD(double[] diffs) {
         double sum = 0;
         for (double diff : diffs) {
-            if (diff > 40) {
+            if (Math.abs(diff) * 1000 > 40) {
                 sum++;
             }
         }
@@ -729,10 +537,10 @@ public class Catch22 implements Transformer {
     }
 
     // Longest period of successive incremental decreases
-    private static double binaryStatsDiffLongstretch0SB(double[] arr) {
-        int[] diffBinary = new int[arr.length - 1];
+    private static double binaryStatsDiffLongstretch0SB(double[] diffs) {
+        int[] diffBinary = new int[diffs.length];
         for (int i = 0; i < diffBinary.length; i++) {
-            if (arr[i + 1] - arr[i] >= 0) {
+            if (diffs[i] >= 0) {
                 diffBinary[i] = 1;
             }
         }
@@ -743,44 +551,19 @@ public class Catch22 implements Transformer {
     // Shannon entropy of two successive letters in equiprobable 3-letter
     // symbolization
     private static double motifThreeQuantileHhSB(double[] arr) {
-        GenericTools.SortIndexAscending sort = new GenericTools.SortIndexAscending(arr);
-        Integer[] indicies = sort.getIndicies();
-        Arrays.sort(indicies, sort);
+        int[] bins = quantileBins(arr);
 
-        ArrayList<ArrayList<Integer>> p = new ArrayList<>();
-        int[] bins = new int[arr.length];
-        double q1 = arr.length / 3;
-        double q2 = q1 * 2;
-        p.add(new ArrayList<>());
-        for (int i = 0; i <= q1; i++) {
-            bins[indicies[i]] = 0;
-            p.get(0).add(indicies[i]);
-        }
-        p.add(new ArrayList<>());
-        for (int i = (int) Math.ceil(q1 + 0.1); i <= q2; i++) {
-            bins[indicies[i]] = 1;
-            p.get(1).add(indicies[i]);
-        }
-        p.add(new ArrayList<>());
-        for (int i = (int) Math.ceil(q2 + 0.1); i < indicies.length; i++) {
-            bins[indicies[i]] = 2;
-            p.get(2).add(indicies[i]);
+        // counts of each pair of successive letters
+        double[][] counts = new double[3][3];
+        for (int i = 0; i < arr.length - 1; i++) {
+            counts[bins[i]][bins[i + 1]]++;
         }
 
         double sum = 0;
 
         for (int i = 0; i < 3; i++) {
-            ArrayList<Integer> o = p.get(i);
-            o.remove((Integer) (arr.length - 1));
-
             for (int n = 0; n < 3; n++) {
-                double sum2 = 0;
-
-                for (Integer v : o) {
-                    if (bins[v + 1] == n) {
-                        sum2++;
-                    }
-                }
+                double sum2 = counts[i][n];
 
                 if (sum2 > 0) {
                     sum2 /= (arr.length - 1);
@@ -793,32 +576,19 @@ public class Catch22 implements Transformer {
     }
 
     // Change in correlation length after iterative differencing
-    private static double localSimpleMean1TauresratFC(double[] arr, double[] ac) {
-        if (arr.length - 1 < 1)
+    // the residuals of a rolling 1-sample mean are the successive differences
+    private static double localSimpleMean1TauresratFC(double[] diffs, int acFirstZero) {
+        if (diffs.length < 1)
             return 0;
-        double[] res = localSimpleMean(arr, 1);
-        double mean = mean(res);
-
-        int nfft = (int) Math.pow(2.0, (int) Math.ceil(Math.log(res.length) / Math.log(2)));
-        Complex[] fft = new Complex[nfft];
-        for (int j = 0; j < nfft; j++) {
-            if (j < res.length)
-                fft[j] = new Complex(res[j] - mean, 0);
-            else
-                fft[j] = new Complex(0, 0);
-        }
 
-        FastFourierTransformer f = new FastFourierTransformer(DftNormalization.STANDARD);
-        fft = f.transform(fft, TransformType.FORWARD);
+        double[] resAc = autoCorr(diffs, fft(diffs, mean(diffs)));
 
-        double[] resAc = autoCorr(res, fft);
-
-        return (double) acFirstZero(resAc) / acFirstZero(ac);
+        return (double) acFirstZero(resAc) / acFirstZero;
     }
 
     // Exponential fit to successive distances in 2-d embedding space
-    private static double embed2DistTauDExpfitMeandiffCO(double[] arr, double[] ac) {
-        int tau = acFirstZero(ac);
+    private static double embed2DistTauDExpfitMeandiffCO(double[] arr, double[] diffs, int acFirstZero) {
+        int tau = acFirstZero;
         if (tau > arr.length / 10) {
             tau = arr.length / 10;
         }
@@ -826,7 +596,7 @@ public class Catch22 implements Transformer {
         double[] d = new double[arr.length - tau - 1];
         double dMean = 0;
         for (int i = 0; i < d.length; i++) {
-            double n = Math.sqrt(Math.pow(arr[i + 1] - arr[i], 2) + Math.pow(arr[i + tau + 1] - arr[i + tau], 2));
+            double n = Math.sqrt(Math.pow(diffs[i], 2) + Math.pow(diffs[i + tau], 2));
             d[i] = n;
             dMean += n;
         }
@@ -865,54 +635,39 @@ public class Catch22 implements Transformer {
 
     // Proportion of slower timescale fluctuations that scale with DFA (50%
     // sampling)
-    private static double fluctAnal2Dfa5012LogiPropR1SC(double[] arr) {
+    private static double fluctAnal2Dfa5012LogiPropR1SC(double[] arr, int[] taus) {
         double[] cs = new double[arr.length / 2];
         cs[0] = arr[0];
         for (int i = 1; i < cs.length; i++) {
             cs[i] = cs[i - 1] + arr[i * 2];
         }
 
-        return fluctProp(cs, arr.length, true);
+        return fluctProp(cs, taus, true);
     }
 
     // Proportion of slower timescale fluctuations that scale with linearly rescaled
     // range fits
-    private static double fluctAnal2Rsrangefit501LogiPropR1SC(double[] arr) {
+    private static double fluctAnal2Rsrangefit501LogiPropR1SC(double[] arr, int[] taus) {
         double[] cs = new double[arr.length];
         cs[0] = arr[0];
         for (int i = 1; i < arr.length; i++) {
             cs[i] = cs[i - 1] + arr[i];
         }
 
-        return fluctProp(cs, arr.length, false);
+        return fluctProp(cs, taus, false);
     }
 
     // Trace of covariance of transition matrix between symbols in 3-letter alphabet
-    private static double transitionMatrix3acSumdiagcovSB(double[] arr, double[] ac) {
+    private static double transitionMatrix3acSumdiagcovSB(double[] arr, int acFirstZero) {
         // int numGroups = 3;
-        int tau = acFirstZero(ac);
+        int tau = acFirstZero;
         int dsSize = (arr.length - 1) / tau + 1;
         double[] ds = new double[dsSize];
         for (int i = 0; i < dsSize; i++) {
             ds[i] = arr[i * tau];
         }
 
-        GenericTools.SortIndexAscending sort = new GenericTools.SortIndexAscending(ds);
-        Integer[] indicies = sort.getIndicies();
-        Arrays.sort(indicies, sort);
-
-        int[] bins = new int[ds.length];
-        double q1 = ds.length / 3;
-        double q2 = q1 * 2;
-        for (int i = 0; i <= q1; i++) {
-            bins[indicies[i]] = 0;
-        }
-        for (int i = (int) Math.ceil(q1 + 0.1); i <= q2; i++) {
-            bins[indicies[i]] = 1;
-        }
-        for (int i = (int) Math.ceil(q2 + 0.1); i < indicies.length; i++) {
-            bins[indicies[i]] = 2;
-        }
+        int[] bins = quantileBins(ds);
 
         double[][] t = new double[3][3];
         for (int i = 0; i < dsSize - 1; i++) {
@@ -1050,6 +805,26 @@ public class Catch22 implements Transformer {
         return maxSum / numMaxs;
     }
 
+    // equiprobable 3-letter symbolisation of the series by rank
+    private static int[] quantileBins(double[] arr) {
+        int[] indicies = sortIndexAscending(arr);
+
+        int[] bins = new int[arr.length];
+        double q1 = arr.length / 3;
+        double q2 = q1 * 2;
+        for (int i = 0; i <= q1; i++) {
+            bins[indicies[i]] = 0;
+        }
+        for (int i = (int) Math.ceil(q1 + 0.1); i <= q2; i++) {
+            bins[indicies[i]] = 1;
+        }
+        for (int i = (int) Math.ceil(q2 + 0.1); i < indicies.length; i++) {
+            bins[indicies[i]] = 2;
+        }
+
+        return bins;
+    }
+
     private static double longStretch(int[] binary, int val) {
         double lastVal = 0;
         double maxStretch = 0;
@@ -1086,28 +861,27 @@ public class Catch22 implements Transformer {
         double[] means = new double[numThresholds];
         double[] dists = new double[numThresholds];
         double[] medians = new double[numThresholds];
+        // 1-based positions of the values over the threshold, in ascending order
+        int[] r = new int[arr.length];
         for (int i = 0; i < numThresholds; i++) {
             double d = i * 0.01;
 
-            ArrayList<Double> r = new ArrayList<>(arr.length);
+            int size = 0;
             for (int n = 0; n < arr.length; n++) {
                 if (arr[n] >= d) {
-                    r.add(n + 1.0);
+                    r[size++] = n + 1;
                 }
             }
 
-            if (r.size() == 0)
+            if (size == 0)
                 continue;
 
-            double[] diff = new double[r.size() - 1];
-            for (int n = 0; n < diff.length; n++) {
-                diff[n] = r.get(n + 1) - r.get(n);
-            }
-
-            means[i] = mean(diff);
-            dists[i] = diff.length * 100.0 / total;
+            // the differences between successive positions are whole numbers, so sum to the range exactly
+            means[i] = (double) (r[size - 1] - r[0]) / (size - 1);
+            dists[i] = (size - 1) * 100.0 / total;
 
-            medians[i] = median(r, false) / (arr.length / 2.0) - 1;
+            double median = size % 2 == 1 ? r[size / 2] : (r[size / 2 - 1] + r[size / 2]) / 2.0;
+            medians[i] = median / (arr.length / 2.0) - 1;
         }
 
         int mj = 0;
@@ -1126,36 +900,52 @@ public class Catch22 implements Transformer {
         return median(Arrays.copyOf(medians, trimLimit + 1), false);
     }
 
-    private static double[] autoCorr(double[] arr, Complex[] fft) {
-        Complex[] c = new Complex[fft.length];
-        for (int i = 0; i < fft.length; i++) {
-            c[i] = fft[i].multiply(new Complex(fft[i].getReal(), -fft[i].getImaginary()));
+    // forward transform of the series minus the mean, zero padded to a power of 2 length. {real, imaginary}
+    private static double[][] fft(double[] arr, double mean) {
+        int nfft = (int) Math.pow(2.0, (int) Math.ceil(Math.log(arr.length) / Math.log(2)));
+        double[][] fft = new double[2][nfft];
+        for (int j = 0; j < arr.length; j++) {
+            fft[0][j] = arr[j] - mean;
+        }
+
+        FastFourierTransformer.transformInPlace(fft, DftNormalization.STANDARD, TransformType.FORWARD);
+        return fft;
+    }
+
+    private static double[] autoCorr(double[] arr, double[][] fft) {
+        // multiply by the complex conjugate
+        double[][] c = new double[2][fft[0].length];
+        for (int i = 0; i < c[0].length; i++) {
+            double re = fft[0][i];
+            double im = fft[1][i];
+            c[0][i] = re * re - im * -im;
+            c[1][i] = re * -im + im * re;
         }
 
-        FastFourierTransformer f = new FastFourierTransformer(DftNormalization.STANDARD);
-        c = f.transform(c, TransformType.INVERSE);
+        FastFourierTransformer.transformInPlace(c, DftNormalization.STANDARD, TransformType.INVERSE);
 
         double[] acf = new double[arr.length];
-        double d = c[0].getReal();
+        double d = c[0][0];
         for (int i = 0; i < arr.length; i++) {
-            acf[i] = c[i].getReal() / d;
+            acf[i] = c[0][i] / d;
         }
 
         return acf;
     }
 
-    private static double summariesWelchRect(double[] arr, boolean centroid, Complex[] fft) {
-        int newLength = fft.length / 2 + 1;
+    private static double summariesWelchRect(double[] arr, boolean centroid, double[][] fft) {
+        int nfft = fft[0].length;
+        int newLength = nfft / 2 + 1;
         double[] p = new double[newLength];
-        p[0] = (Math.pow(complexMagnitude(fft[0]), 2) / arr.length) / (2 * Math.PI);
+        p[0] = (Math.pow(complexMagnitude(fft, 0), 2) / arr.length) / (2 * Math.PI);
         for (int i = 1; i < newLength - 1; i++) {
-            p[i] = ((Math.pow(complexMagnitude(fft[i]), 2) / arr.length) * 2) / (2 * Math.PI);
+            p[i] = ((Math.pow(complexMagnitude(fft, i), 2) / arr.length) * 2) / (2 * Math.PI);
         }
-        p[newLength - 1] = (Math.pow(complexMagnitude(fft[newLength - 1]), 2) / arr.length) / (2 * Math.PI);
+        p[newLength - 1] = (Math.pow(complexMagnitude(fft, newLength - 1), 2) / arr.length) / (2 * Math.PI);
 
         double[] w = new double[newLength];
         for (int i = 0; i < newLength; i++) {
-            w[i] = i * (1.0 / fft.length) * Math.PI * 2;
+            w[i] = i * (1.0 / nfft) * Math.PI * 2;
         }
 
         if (centroid) {
@@ -1205,29 +995,36 @@ public class Catch22 implements Transformer {
         return ac.length;
     }
 
-    private static double fluctProp(double[] arr, double ogLength, boolean dfa) {
-        // int q = 2;
-
-        ArrayList<Integer> a = new ArrayList<>();
-        a.add(5);
+    // the distinct timescales, log spaced from 5 to half the series length
+    private static int[] fluctTaus(int ogLength) {
+        int[] a = new int[50];
+        a[0] = 5;
+        int nTau = 1;
         double min = 1.6094379124341003; //Math.log(5);
-        double max = Math.log(ogLength/2);
+        double max = Math.log(ogLength/2.0);
         double inc = (max - min)/49;
         for (int i = 1; i < 50; i++){
             int val = (int)Math.round(Math.exp(min + inc*i));
-            if (val != a.get(a.size()-1)){
-                a.add(val);
+            if (val != a[nTau-1]){
+                a[nTau++] = val;
             }
         }
-        int nTau = a.size();
 
-        if (a.size() < 12)
+        return Arrays.copyOf(a, nTau);
+    }
+
+    private static double fluctProp(double[] arr, int[] a, boolean dfa) {
+        // int q = 2;
+
+        int nTau = a.length;
+
+        if (nTau < 12)
             return Double.NaN;
 
         double[] f = new double[nTau];
 
         for (int i = 0; i < nTau; i++) {
-            int tau = a.get(i);
+            int tau = a[i];
             int buffSize = arr.length / tau;
             int lag = 0;
             if (buffSize == 0) {
@@ -1274,7 +1071,7 @@ public class Catch22 implements Transformer {
         double[] logA = new double[nTau];
         double[] logF = new double[nTau];
         for (int i = 0; i < nTau; i++) {
-            logA[i] = Math.log(a.get(i));
+            logA[i] = Math.log(a[i]);
             logF[i] = Math.log(f[i]);
         }
 
@@ -1598,7 +1395,7 @@ public class Catch22 implements Transformer {
         return yOut;
     }
 
-    private static double complexMagnitude(Complex c){
-        return Math.sqrt(c.getReal() * c.getReal() + c.getImaginary() * c.getImaginary());
+    private static double complexMagnitude(double[][] c, int i){
+        return Math.sqrt(c[0][i] * c[0][i] + c[1][i] * c[1][i]);
     }
 }
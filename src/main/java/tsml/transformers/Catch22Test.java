@@ -0,0 +1,72 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+package tsml.transformers;
+
+import experiments.data.DatasetLoading;
+import org.junit.Assert;
+import org.junit.Test;
+import utilities.GenericTools;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Purpose: test features requested from a shared series context in any order match the full transform.
+ */
+public class Catch22Test {
+
+    @Test
+    public void testContextMatchesTransform() throws Exception {
+        final Instances[] data = DatasetLoading.sampleGunPoint(0);
+        final Catch22 c22 = new Catch22();
+        c22.setOutlierNormalise(true);
+        final Random random = new Random(0);
+        for(Instance inst : data[0]) {
+            final double[] series = Arrays.copyOf(inst.toDoubleArray(), inst.numAttributes() - 1);
+            final double[] expected = c22.transform(series);
+
+            final Catch22.SeriesContext context = c22.createContext(series);
+            for(int i = 0; i < 30; i++) {
+                final int feature = random.nextInt(22);
+                Assert.assertEquals(expected[feature], context.getFeature(feature), 0);
+            }
+            for(int i = 0; i < 22; i++) {
+                Assert.assertEquals(expected[i], Catch22.getSummaryStatByIndex(i, series, true), 0);
+            }
+        }
+    }
+
+    @Test
+    public void testSortIndexAscendingKeepsTiesInOrder() {
+        final Random random = new Random(0);
+        final double[] values = new double[200];
+        for(int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt(10);
+        }
+
+        final GenericTools.SortIndexAscending sort = new GenericTools.SortIndexAscending(values);
+        final Integer[] expected = sort.getIndicies();
+        Arrays.sort(expected, sort);
+        final int[] indices = GenericTools.sortIndexAscending(values);
+        for(int i = 0; i < values.length; i++) {
+            Assert.assertEquals((int) expected[i], indices[i]);
+        }
+    }
+}
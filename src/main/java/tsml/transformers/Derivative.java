@@ -38,14 +38,14 @@ public class Derivative implements Transformer, Serializable {
     // instead fetch from the cache the second time
     private static CachedTransformer GLOBAL_CACHE;
 
-    public static Derivative getGlobalInstance() {
+    public static synchronized Derivative getGlobalInstance() {
         if (INSTANCE == null) {
             INSTANCE = new Derivative();
         }
         return INSTANCE;
     }
 
-    public static CachedTransformer getGlobalCachedTransformer() {
+    public static synchronized CachedTransformer getGlobalCachedTransformer() {
         if (GLOBAL_CACHE == null) {
             GLOBAL_CACHE = new CachedTransformer(getGlobalInstance());
         }
@@ -18,10 +18,14 @@
 package tsml.transformers;
 
 import experiments.data.DatasetLoading;
+import tsml.classifiers.MultiThreadable;
 import tsml.data_containers.TimeSeries;
 import tsml.data_containers.TimeSeriesInstance;
+import tsml.transformers.matrix_profile.MatrixProfileEngine;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 import static utilities.rescalers.ZNormalisation.ROUNDING_ERROR_CORRECTION;
 import weka.core.Attribute;
 import weka.core.DenseInstance;
@@ -32,6 +36,10 @@ import weka.core.Instances;
  *
  * @author Jason Lines (j.lines@uea.ac.uk)
  * 
+ *         Profiles are computed by MatrixProfileEngine, exactly with STOMP by
+ *         default or as an anytime approximation with SCRIMP++ under a time limit
+ *         per series.
+ * 
  *         Note: if desired, once a set of Instances are processed the accessor
  *         methods getDistances() and getIndices() can be used for manually
  *         using the values, rather than having to extract the data back from
@@ -46,13 +54,14 @@ import weka.core.Instances;
  *         etc.)
  * 
  */
-public class MatrixProfile implements Transformer {
+public class MatrixProfile implements Transformer, MultiThreadable {
 
     private int windowSize = 10;
     private final int stride = 1; // to-do later (maybe!)
     private double[][] distances;
     private int[][] indices;
     private boolean m_Debug = false;
+    private final MatrixProfileEngine engine = new MatrixProfileEngine(windowSize);
 
     public MatrixProfile() {
         this(10);
@@ -65,7 +74,7 @@ public class MatrixProfile implements Transformer {
     @Override
     public Instance transform(Instance inst) {
 
-        SingleInstanceMatrixProfile mpIns = new SingleInstanceMatrixProfile(inst, this.windowSize, this.stride);
+        SingleInstanceMatrixProfile mpIns = new SingleInstanceMatrixProfile(inst, getEngine());
         Instance out = new DenseInstance(inst.numAttributes() + 1 - windowSize);
 
         for (int i = 0; i < mpIns.distances.length; i++) {
@@ -85,7 +94,7 @@ public class MatrixProfile implements Transformer {
         double[][] out = new double[inst.getNumDimensions()][];
         int i = 0;
         for (TimeSeries ts : inst) {
-            out[i++] = new SingleInstanceMatrixProfile(ts.toValueArray(), this.windowSize, this.stride).series;
+            out[i++] = new SingleInstanceMatrixProfile(ts.toValueArray(), getEngine()).distances;
         }
         return new TimeSeriesInstance(out, inst.getLabelIndex()); 
     }
@@ -157,7 +166,7 @@ public class MatrixProfile implements Transformer {
         outputIndices.setRelationName(outputIndices.relationName() + "_indices");
 
         for (int ins = 0; ins < instances.numInstances(); ins++) {
-            mpIns = new SingleInstanceMatrixProfile(instances.get(ins), this.windowSize, this.stride);
+            mpIns = new SingleInstanceMatrixProfile(instances.get(ins), getEngine());
             outDist = new DenseInstance(outputDistances.numAttributes());
             outIdx = new DenseInstance(outputIndices.numAttributes());
 
@@ -194,81 +203,44 @@ public class MatrixProfile implements Transformer {
         return this.indices;
     }
 
-    private static class SingleInstanceMatrixProfile {
-        private final double[] series;
-        private final int windowSize;
-        private final int stride;
-        private final double[] distances;
-        private final int[] indices;
-        private final int seriesLength;
-
-        public SingleInstanceMatrixProfile(Instance series, int windowSize, int stride) {
-            this.series = series.toDoubleArray();
-            this.seriesLength = series.classIndex() > 0 ? series.numAttributes() - 1 : series.numAttributes();
-            this.windowSize = windowSize;
-            this.stride = stride;
-            this.distances = new double[seriesLength + 1 - windowSize];
-            this.indices = new int[seriesLength + 1 - windowSize];
-
-            for (int a = 0; a <= seriesLength - windowSize; a++) {
-                this.locateBestMatch(a);
-            }
-        }
-
-        public SingleInstanceMatrixProfile(double[] series, int windowSize, int stride) {
-            this.series = series;
-            this.seriesLength = series.length;
-            this.windowSize = windowSize;
-            this.stride = stride;
-            this.distances = new double[seriesLength + 1 - windowSize];
-            this.indices = new int[seriesLength + 1 - windowSize];
-
-            for (int a = 0; a <= seriesLength - windowSize; a++) {
-                this.locateBestMatch(a);
-            }
-        }
-
-        // query is fixed, comparison is every possible match within the series
-        private void locateBestMatch(int queryStartIdx) {
-
-            double dist;
-            double bsfDist = Double.MAX_VALUE;
-            int bsfIdx = -1;
-
-            double[] query = zNormalise(series, queryStartIdx, this.windowSize, false);
-            double[] comparison;
+    private MatrixProfileEngine getEngine() {
+        engine.setWindowSize(windowSize);
+        return engine;
+    }
 
-            for (int comparisonStartIdx = 0; comparisonStartIdx <= seriesLength
-                    - windowSize; comparisonStartIdx += stride) {
+    public MatrixProfileEngine.Algorithm getAlgorithm() {
+        return engine.getAlgorithm();
+    }
 
-                // exclusion zone +/- windowSize/2 around the window
-                if (comparisonStartIdx >= queryStartIdx - windowSize * 1.5
-                        && comparisonStartIdx <= queryStartIdx + windowSize * 1.5) {
-                    continue;
-                }
+    public void setAlgorithm(MatrixProfileEngine.Algorithm algorithm) {
+        engine.setAlgorithm(algorithm);
+    }
 
-                // using a bespoke version of this, rather than the shapelet version, for
-                // efficiency - see notes with method
-                comparison = zNormalise(series, comparisonStartIdx, windowSize, false);
-                dist = 0;
+    /**
+     * Time limit per series when using SCRIMP++, negative for no limit.
+     */
+    public void setTimeLimit(long time, TimeUnit unit) {
+        engine.setTimeLimit(time, unit);
+    }
 
-                for (int j = 0; j < windowSize; j++) {
-                    dist += (query[j] - comparison[j]) * (query[j] - comparison[j]);
-                    if (dist > bsfDist) {
-                        dist = Double.MAX_VALUE;
-                        break;
-                    }
-                }
+    @Override
+    public void enableMultiThreading(int numThreads) {
+        engine.enableMultiThreading(numThreads);
+    }
 
-                if (dist < bsfDist) {
-                    bsfDist = dist;
-                    bsfIdx = comparisonStartIdx;
-                }
+    private static class SingleInstanceMatrixProfile {
+        private final double[] distances;
+        private final int[] indices;
 
-            }
+        public SingleInstanceMatrixProfile(Instance series, MatrixProfileEngine engine) {
+            this(Arrays.copyOf(series.toDoubleArray(),
+                    series.classIndex() > 0 ? series.numAttributes() - 1 : series.numAttributes()), engine);
+        }
 
-            this.distances[queryStartIdx] = bsfDist;
-            this.indices[queryStartIdx] = bsfIdx;
+        public SingleInstanceMatrixProfile(double[] series, MatrixProfileEngine engine) {
+            MatrixProfileEngine.Profile profile = engine.selfJoin(series);
+            this.distances = profile.getDistances();
+            this.indices = profile.getIndices();
         }
     }
 
@@ -390,10 +362,8 @@ public class MatrixProfile implements Transformer {
                             // </editor-fold>
                     };
                     int windowSize = 10;
-                    SingleInstanceMatrixProfile simp = new SingleInstanceMatrixProfile(exampleSeries, windowSize, 1);
-                    for (int i = 0; i < exampleSeries.length - windowSize + 1; i++) {
-                        simp.locateBestMatch(i);
-                    }
+                    SingleInstanceMatrixProfile simp = new SingleInstanceMatrixProfile(exampleSeries,
+                            new MatrixProfileEngine(windowSize));
                     System.out.println("Example series:");
                     for (int a = 0; a < exampleSeries.length; a++) {
                         System.out.print(exampleSeries[a] + ",");
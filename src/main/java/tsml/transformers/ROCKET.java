@@ -19,8 +19,12 @@ package tsml.transformers;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.*;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
 
 import org.apache.commons.lang3.ArrayUtils;
 
@@ -28,8 +32,8 @@ import tsml.classifiers.MultiThreadable;
 import tsml.data_containers.TimeSeriesInstance;
 import tsml.data_containers.TimeSeriesInstances;
 import tsml.data_containers.utilities.TimeSeriesSummaryStatistics;
-import utilities.generic_storage.Pair;
 import weka.core.*;
+import utilities.ComputePool;
 
 import static utilities.ClusteringUtilities.zNormalise;
 import static utilities.StatisticalUtilities.dot;
@@ -64,6 +68,7 @@ public class ROCKET implements TrainableTransformer, Randomizable, MultiThreadab
     private int seed;
 
     private boolean multithreading = false;
+    private int numThreads = 1;
     private ExecutorService ex;
 
     private boolean fit = false;
@@ -72,6 +77,16 @@ public class ROCKET implements TrainableTransformer, Randomizable, MultiThreadab
     private int[] lengths, dilations, paddings;
     private double[] weights, biases;
 
+    //kernel indexes in order of dilation, and the start of each kernels weights and dimensions. derived from the
+    //fitted kernels when first transforming
+    private transient int[] kernelOrder, weightOffsets, dimensionOffsets;
+    private transient int maxPadding;
+
+    //instances transformed together by a single task, each kernel is applied to the whole block in turn
+    private static final int INSTANCE_BLOCK_SIZE = 8;
+    //kernels applied by a single task when transforming one instance across threads
+    private static final int KERNEL_BLOCK_SIZE = 500;
+
     public ROCKET(){ }
 
     public ROCKET(int numKernels){
@@ -104,7 +119,8 @@ public class ROCKET implements TrainableTransformer, Randomizable, MultiThreadab
     @Override
     public void enableMultiThreading(int numThreads){
         multithreading = true;
-        ex = Executors.newFixedThreadPool(numThreads);
+        this.numThreads = numThreads;
+        ex = ComputePool.newExecutor(numThreads);
     }
 
     @Override
@@ -121,117 +137,240 @@ public class ROCKET implements TrainableTransformer, Randomizable, MultiThreadab
 
     @Override
     public TimeSeriesInstance transform(TimeSeriesInstance inst) {
-        double[][] output = new double[1][];
-        if (multithreading){
-            output[0] = transformRocketMultithread(inst.toValueArray());
-        }
-        else {
-            output[0] = transformRocket(inst.toValueArray());
-        }
+        double[][] output = new double[1][numKernels * 2];
+        transformSingle(inst.toValueArray(), output[0]);
 
         return new TimeSeriesInstance(output, inst.getLabelIndex());
     }
 
     @Override
-    public Instance transform(Instance inst) {
-        if (!fit) {
-            System.err.println("Must fit ROCKET prior to tranformation.");
-            return null;
-        }
+    public TimeSeriesInstances transform(TimeSeriesInstances data) {
+        if (!fit)
+            fit(data);
 
-        double[][] data;
-        if (inst.dataset().checkForAttributeType(Attribute.RELATIONAL)) {
-            data = convertMultiInstanceToArrays(splitMultivariateInstance(inst));
+        double[][] output = new double[data.numInstances()][numKernels * 2];
+        transformBatch(i -> data.get(i).toValueArray(), output);
+
+        TimeSeriesInstances transformedData = new TimeSeriesInstances(data.getClassLabels());
+        for (int i = 0; i < output.length; i++) {
+            transformedData.add(new TimeSeriesInstance(new double[][]{ output[i] }, data.get(i).getLabelIndex()));
         }
-        else{
-            data = new double[1][];
-            data[0] = extractTimeSeries(inst);
+        return transformedData;
+    }
+
+    @Override
+    public Instances transform(Instances data) {
+        if (!fit)
+            fit(data);
+
+        //the class value is set here, the kernel outputs are written straight into the rest of each row
+        double[][] output = new double[data.numInstances()][numKernels * 2 + 1];
+        for (int i = 0; i < output.length; i++) {
+            output[i][numKernels * 2] = data.get(i).classValue();
         }
+        transformBatch(i -> toArrays(data.get(i)), output);
 
-        double[] transform;
-        if (multithreading){
-            transform = transformRocketMultithread(data);
+        Instances transformedData = determineOutputFormat(data);
+        for (double[] row : output) {
+            transformedData.add(new DenseInstance(1, row));
         }
-        else{
-            transform = transformRocket(data);
+        return transformedData;
+    }
+
+    @Override
+    public Instance transform(Instance inst) {
+        if (!fit) {
+            System.err.println("Must fit ROCKET prior to tranformation.");
+            return null;
         }
 
         double[] output = new double[numKernels * 2 + 1];
-        System.arraycopy(transform, 0, output, 0, numKernels * 2);
+        transformSingle(toArrays(inst), output);
         output[output.length - 1] = inst.classValue();
 
         return new DenseInstance(1, output);
     }
 
-    private double[] transformRocket(double[][] inst) {
+    private static double[][] toArrays(Instance inst) {
+        if (inst.dataset().checkForAttributeType(Attribute.RELATIONAL)) {
+            return convertMultiInstanceToArrays(splitMultivariateInstance(inst));
+        }
+        else{
+            return new double[][]{ extractTimeSeries(inst) };
+        }
+    }
+
+    /**
+     * Transforms a single series into the first numKernels * 2 values of output. If multithreading, the kernels are
+     * split into blocks across threads.
+     */
+    private void transformSingle(double[][] inst, double[] output) {
+        prepareKernels();
         if (normalise){
             for (double[] dim : inst) {
                 zNormalise(dim);
             }
         }
 
-        // apply kernels to the dataset.
-        double[] output = new double[numKernels * 2]; // 2 features per kernel
+        double[][][] block = { inst };
+        double[][] outputs = { output };
+        if (!multithreading || numKernels <= KERNEL_BLOCK_SIZE) {
+            applyKernels(block, outputs, 0, numKernels);
+            return;
+        }
 
-        int a1 = 0, a2 = 0, a3 = 0, b1, b2; // for weights, channel indices and features
-        for (int i = 0; i < numKernels; i++) {
-            b1 = a1 + numSampledDimensions[i] * lengths[i];
-            b2 = a2 + numSampledDimensions[i];
+        List<Callable<Object>> tasks = new ArrayList<>();
+        for (int i = 0; i < numKernels; i += KERNEL_BLOCK_SIZE) {
+            int start = i;
+            int end = Math.min(i + KERNEL_BLOCK_SIZE, numKernels);
+            tasks.add(() -> {
+                applyKernels(block, outputs, start, end);
+                return null;
+            });
+        }
+        invokeAll(tasks);
+    }
 
-            Pair<Double, Double> out = applyKernel(inst, ArrayUtils.subarray(weights, a1, b1), lengths[i],
-                    biases[i], dilations[i], paddings[i], numSampledDimensions[i],
-                    ArrayUtils.subarray(dimensions, a2, b2));
-            output[a3] = out.var1;
-            output[a3 + 1] = out.var2;
+    /**
+     * Transforms the series returned for each index into the first numKernels * 2 values of the matching output
+     * row. Series are fetched and transformed in blocks of INSTANCE_BLOCK_SIZE, in parallel over blocks if
+     * multithreading.
+     */
+    private void transformBatch(IntFunction<double[][]> series, double[][] output) {
+        prepareKernels();
+
+        List<Callable<Object>> tasks = new ArrayList<>();
+        for (int i = 0; i < output.length; i += INSTANCE_BLOCK_SIZE) {
+            int start = i;
+            int end = Math.min(i + INSTANCE_BLOCK_SIZE, output.length);
+            tasks.add(() -> {
+                double[][][] block = new double[end - start][][];
+                for (int n = 0; n < block.length; n++) {
+                    block[n] = series.apply(start + n);
+                    if (normalise){
+                        for (double[] dim : block[n]) {
+                            zNormalise(dim);
+                        }
+                    }
+                }
 
-            a1 = b1;
-            a2 = b2;
-            a3 += 2;
+                applyKernels(block, Arrays.copyOfRange(output, start, end), 0, numKernels);
+                return null;
+            });
         }
 
-        return output;
+        if (multithreading) {
+            invokeAll(tasks);
+        }
+        else {
+            try {
+                for (Callable<Object> task : tasks) {
+                    task.call();
+                }
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
     }
 
-    private double[] transformRocketMultithread(double[][] inst){
-        if (normalise){
-            for (double[] dim : inst) {
-                zNormalise(dim);
+    private void invokeAll(List<Callable<Object>> tasks) {
+        try {
+            for (Future<Object> f : ex.invokeAll(tasks)) {
+                f.get();
             }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
         }
+    }
 
-        ArrayList<Future<Pair<Double, Double>>> futures = new ArrayList<>(numKernels);
+    /**
+     * Derives the transform order and weight and dimension offsets from the fitted kernels, if not done already.
+     */
+    private synchronized void prepareKernels() {
+        if (kernelOrder != null)
+            return;
+
+        weightOffsets = new int[numKernels];
+        dimensionOffsets = new int[numKernels];
+        maxPadding = 0;
+        int a1 = 0, a2 = 0;
+        for (int i = 0; i < numKernels; i++) {
+            weightOffsets[i] = a1;
+            dimensionOffsets[i] = a2;
+            a1 += numSampledDimensions[i] * lengths[i];
+            a2 += numSampledDimensions[i];
+            maxPadding = Math.max(maxPadding, paddings[i]);
+        }
 
-        int a1 = 0, a2 = 0, b1, b2;
-        for (int i = 0; i < numKernels; ++i) {
-            b1 = a1 + numSampledDimensions[i] * lengths[i];
-            b2 = a2 + numSampledDimensions[i];
+        //kernels sharing a dilation read the series with the same stride, so are applied one after another
+        kernelOrder = IntStream.range(0, numKernels).boxed().sorted(Comparator.comparingInt(i -> dilations[i]))
+                .mapToInt(Integer::intValue).toArray();
+    }
 
-            Kernel k = new Kernel(ArrayUtils.subarray(weights, a1, b1), lengths[i], biases[i], dilations[i],
-                    paddings[i], numSampledDimensions[i], ArrayUtils.subarray(dimensions, a2, b2));
+    /**
+     * Applies the kernels from kernelOrder[kernelStart] to kernelOrder[kernelEnd - 1] to every series in the block,
+     * writing the PPV and max of kernel k to outputs[i][k * 2] and outputs[i][k * 2 + 1].
+     */
+    private void applyKernels(double[][][] block, double[][] outputs, int kernelStart, int kernelEnd) {
+        int maxLength = 0;
+        for (double[][] inst : block) {
+            maxLength = Math.max(maxLength, inst[0].length);
+        }
+        double[] sums = new double[maxLength + 2 * maxPadding];
+
+        for (int k = kernelStart; k < kernelEnd; k++) {
+            int kernel = kernelOrder[k];
+            for (int i = 0; i < block.length; i++) {
+                applyKernel(block[i], kernel, sums, outputs[i]);
+            }
+        }
+    }
 
-            futures.add(ex.submit(new TransformThread(i, inst, k)));
+    /**
+     * Convolves the kernel with the series a weight at a time, accumulating the output for every position in sums.
+     * Each tap is a contiguous multiply-add over the positions it overlaps the series, with the weights added to
+     * each position in the same order as convolving one position at a time.
+     */
+    private void applyKernel(double[][] inst, int kernel, double[] sums, double[] output) {
+        int length = lengths[kernel];
+        int dilation = dilations[kernel];
+        int padding = paddings[kernel];
+        int numDims = numSampledDimensions[kernel];
+        int weightOffset = weightOffsets[kernel];
+        int dimensionOffset = dimensionOffsets[kernel];
 
-            a1 = b1;
-            a2 = b2;
+        int inputLength = inst[0].length;
+        int outputLength = (inputLength + (2 * padding)) - ((length - 1) * dilation);
+        int numPositions = Math.max(outputLength, 0);
+
+        Arrays.fill(sums, 0, numPositions, biases[kernel]);
+        for (int j = 0; j < length; j++) {
+            //index into the series of this weight for the first position
+            int shift = j * dilation - padding;
+            int start = Math.max(0, -shift);
+            int end = Math.min(numPositions, inputLength - shift);
+
+            for (int n = 0; n < numDims; n++) {
+                double weight = weights[weightOffset + j + n * numDims];
+                double[] dim = inst[dimensions[dimensionOffset + n]];
+                for (int i = start; i < end; i++) {
+                    sums[i] += weight * dim[i + shift];
+                }
+            }
         }
 
-        double[] output = new double[numKernels * 2];
-        int a3 = 0;
-        for (Future<Pair<Double, Double>> f : futures) {
-            Pair<Double, Double> out;
-            try {
-                out = f.get();
-            } catch (Exception e) {
-                e.printStackTrace();
-                return null;
-            }
+        double _ppv = 0;
+        double _max = -99999999;
+        for (int i = 0; i < numPositions; i++) {
+            if (sums[i] > _max)
+                _max = sums[i];
 
-            output[a3] = out.var1;
-            output[a3 + 1] = out.var2;
-            a3 += 2;
+            if (sums[i] > 0)
+                _ppv += 1;
         }
 
-        return output;
+        output[kernel * 2] = _ppv / outputLength;
+        output[kernel * 2 + 1] = _max;
     }
 
     @Override
@@ -242,6 +381,8 @@ public class ROCKET implements TrainableTransformer, Randomizable, MultiThreadab
         else {
             fitRocket(data.getMaxLength(), data.getMaxNumChannels());
         }
+
+        fit = true;
     }
 
     @Override
@@ -267,6 +408,7 @@ public class ROCKET implements TrainableTransformer, Randomizable, MultiThreadab
     }
 
     private void fitRocket(int inputLength, int numDimensions){
+        kernelOrder = null;
         Random random = new Random(seed);
         // generate random kernel lengths between 7,9 or 11, for numKernels.
         lengths = sampleLengths(random, candidateLengths, numKernels);
@@ -338,6 +480,7 @@ public class ROCKET implements TrainableTransformer, Randomizable, MultiThreadab
     }
 
     private void fitRocketMultithread(int inputLength, int numDimensions) {
+        kernelOrder = null;
         ArrayList<Future<Kernel>> futures = new ArrayList<>(numKernels);
 
         lengths = new int[numKernels];
@@ -386,38 +529,6 @@ public class ROCKET implements TrainableTransformer, Randomizable, MultiThreadab
         }
     }
 
-    private static Pair<Double, Double> applyKernel(double[][] inst, double[] weights, int length, double bias,
-                                            int dilation, int padding, int numSampledDimensions, int[] dimensions) {
-        int inputLength = inst[0].length;
-        int outputLength = (inputLength + (2 * padding)) - ((length - 1) * dilation);
-
-        double _ppv = 0;
-        double _max = -99999999;
-        int end = (inputLength + padding) - ((length - 1) * dilation);
-
-        for (int i = -padding; i < end; i++) {
-            double _sum = bias;
-            int index = i;
-
-            for (int j = 0; j < length; j++) {
-                if (index > -1 && index < inputLength) {
-                    for (int n = 0; n < numSampledDimensions; n++) {
-                        _sum = _sum + weights[j + n * numSampledDimensions] * inst[dimensions[n]][index];
-                    }
-                }
-                index = index + dilation;
-            }
-
-            if (_sum > _max)
-                _max = _sum;
-
-            if (_sum > 0)
-                _ppv += 1;
-        }
-
-        return new Pair<>(_ppv / outputLength, _max);
-    }
-
     private static double uniform(Random rand, double a, double b) {
         return a + rand.nextDouble() * (b - a);
     }
@@ -457,6 +568,7 @@ public class ROCKET implements TrainableTransformer, Randomizable, MultiThreadab
         paddings = ArrayUtils.addAll(paddings, rocket.paddings);
 
         numKernels += rocket.numKernels;
+        kernelOrder = null;
     }
 
     private static class Kernel {
@@ -480,50 +592,6 @@ public class ROCKET implements TrainableTransformer, Randomizable, MultiThreadab
         }
     }
 
-    private class TransformThread implements Callable<Pair<Double, Double>> {
-        int i;
-        double[][] inst;
-        Kernel k;
-
-        public TransformThread(int i, double[][] inst, Kernel k){
-            this.i = i;
-            this.inst = inst;
-            this.k = k;
-        }
-
-        @Override
-        public Pair<Double, Double> call() {
-            int inputLength = inst[0].length;
-            int outputLength = (inputLength + (2 * k.padding)) - ((k.length - 1) * k.dilation);
-
-            double _ppv = 0;
-            double _max = -99999999;
-            int end = (inputLength + k.padding) - ((k.length - 1) * k.dilation);
-
-            for (int i = -k.padding; i < end; i++) {
-                double _sum = k.bias;
-                int index = i;
-
-                for (int j = 0; j < k.length; j++) {
-                    if (index > -1 && index < inputLength) {
-                        for (int n = 0; n < k.numSampledDimensions; n++) {
-                            _sum = _sum + k.weights[j + n * k.numSampledDimensions] * inst[k.dimensions[n]][index];
-                        }
-                    }
-                    index = index + k.dilation;
-                }
-
-                if (_sum > _max)
-                    _max = _sum;
-
-                if (_sum > 0)
-                    _ppv += 1;
-            }
-
-            return new Pair<>(_ppv / outputLength, _max);
-        }
-    }
-
     private class FitThread implements Callable<Kernel>{
         int i;
         int inputLength;
@@ -0,0 +1,60 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+package tsml.transformers;
+
+import experiments.data.DatasetLoading;
+import org.junit.Assert;
+import org.junit.Test;
+import tsml.data_containers.TimeSeriesInstances;
+import tsml.data_containers.utilities.Converter;
+import weka.core.Instances;
+
+/**
+ * Purpose: test the batch, single instance and multithreaded transforms all give the same output.
+ */
+public class ROCKETTest {
+
+    private static void assertSameTransforms(Instances[] data) {
+        final ROCKET rocket = new ROCKET(1000);
+        rocket.setSeed(0);
+        final Instances batch = rocket.fitTransform(data[0]);
+        final TimeSeriesInstances tsBatch = rocket.transform(Converter.fromArff(data[0]));
+
+        // split into blocks of kernels across threads for single instances, blocks of instances for batches
+        rocket.enableMultiThreading(4);
+        final Instances parallelBatch = rocket.transform(data[0]);
+        for(int i = 0; i < data[0].numInstances(); i++) {
+            final double[] expected = batch.get(i).toDoubleArray();
+            Assert.assertArrayEquals(expected, rocket.transform(data[0].get(i)).toDoubleArray(), 0d);
+            Assert.assertArrayEquals(expected, parallelBatch.get(i).toDoubleArray(), 0d);
+            for(int j = 0; j < expected.length - 1; j++) {
+                Assert.assertEquals(expected[j], tsBatch.get(i).get(0).get(j), 0d);
+            }
+        }
+    }
+
+    @Test
+    public void testUnivariateTransforms() throws Exception {
+        assertSameTransforms(DatasetLoading.sampleGunPoint(0));
+    }
+
+    @Test
+    public void testMultivariateTransforms() throws Exception {
+        assertSameTransforms(DatasetLoading.sampleBasicMotions(0));
+    }
+}
@@ -17,6 +17,7 @@
  
 package tsml.transformers;
 
+import tsml.classifiers.MultiThreadable;
 import tsml.classifiers.TrainTimeContractable;
 import tsml.data_containers.TimeSeriesInstance;
 import tsml.data_containers.TimeSeriesInstances;
@@ -31,6 +32,7 @@ import tsml.transformers.shapelet_tools.quality_measures.ShapeletQuality.Shapele
 import tsml.transformers.shapelet_tools.search_functions.ShapeletSearch;
 import tsml.transformers.shapelet_tools.search_functions.ShapeletSearchFactory;
 import tsml.transformers.shapelet_tools.search_functions.ShapeletSearchOptions;
+import utilities.ComputePool;
 import utilities.NumUtils;
 import utilities.class_counts.ClassCounts;
 import utilities.rescalers.SeriesRescaler;
@@ -38,6 +40,15 @@ import weka.core.*;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -69,7 +80,8 @@ import java.util.logging.Logger;
  *
  *         Refactored version for
  */
-public class ShapeletTransform implements Serializable, TechnicalInformationHandler, TrainableTransformer {
+public class ShapeletTransform implements Serializable, TechnicalInformationHandler, TrainableTransformer,
+        MultiThreadable {
     // Global defaults. Max should be a lambda set to series length
     public final static int MAXTRANSFORMSIZE = 1000;
     public final static int DEFAULT_MINSHAPELETLENGTH = 3;
@@ -137,6 +149,17 @@ public class ShapeletTransform implements Serializable, TechnicalInformationHand
                                    // BalancedClassShapeletTransform
     private double beta = 0.2;
 
+    /**
+     * Multithreading. The candidates of each series are evaluated concurrently, each thread with its own copy of the
+     * distance function and quality measure. Every thread prunes against the worst shapelet kept before the series
+     * started, as a single thread does, and the shapelets found are merged in candidate order, so the transform does not
+     * depend on the number of threads. Adaptive timing measures wall clock time per shapelet, so a contract is spread
+     * over proportionally more shapelets.
+     */
+    protected int numThreads = 1;
+    private transient ExecutorService executor;
+    private transient ConcurrentLinkedQueue<CandidateEvaluator> evaluators;
+
     /**
      * Default constructor; Quality measure defaults to information gain.
      */
@@ -201,6 +224,10 @@ public class ShapeletTransform implements Serializable, TechnicalInformationHand
     }
 
     protected void initQualityBound(ClassCounts classDist) {
+        initQualityBound(quality, classDist);
+    }
+
+    protected void initQualityBound(ShapeletQuality quality, ClassCounts classDist) {
         if (!useCandidatePruning)
             return;
         quality.initQualityBound(classDist, candidatePruningStartPercentage);
@@ -262,7 +289,7 @@ public class ShapeletTransform implements Serializable, TechnicalInformationHand
         // we log the count from the subsequence distance before we reset it in the
         // transform.
         // we only care about the count from the train. What is it counting?
-        count = shapeletDistance.getCount();
+        count = shapeletDistance.getCount() + evaluatorCount();
     }
 
     @Override
@@ -319,7 +346,7 @@ public class ShapeletTransform implements Serializable, TechnicalInformationHand
         // we log the count from the subsequence distance before we reset it in the
         // transform.
         // we only care about the count from the train. What is it counting?
-        count = shapeletDistance.getCount();
+        count = shapeletDistance.getCount() + evaluatorCount();
     }
 
     protected void trainShapelets(Instances data) {
@@ -338,7 +365,12 @@ public class ShapeletTransform implements Serializable, TechnicalInformationHand
         outputPrint("num shapelets before search " + numShapelets);
         // Contract is controlled by restricting number of shapelets per series.
         shapeletsSearchedPerSeries = searchFunction.getNumShapeletsPerSeries();
-        shapelets = findBestKShapelets(inputData); // get k shapelets
+        initEvaluators(distance -> distance.init(inputData));
+        try {
+            shapelets = findBestKShapelets(inputData); // get k shapelets
+        } finally {
+            shutdownExecutor();
+        }
         outputPrint(shapelets.size() + " Shapelets have been generated num shapelets now " + numShapelets);
 
     }
@@ -359,7 +391,12 @@ public class ShapeletTransform implements Serializable, TechnicalInformationHand
         outputPrint("num shapelets before search " + numShapelets);
         // Contract is controlled by restricting number of shapelets per series.
         shapeletsSearchedPerSeries = searchFunction.getNumShapeletsPerSeries();
-        shapelets = findBestKShapelets(inputDataTS); // get k shapelets
+        initEvaluators(distance -> distance.init(inputDataTS));
+        try {
+            shapelets = findBestKShapelets(inputDataTS); // get k shapelets
+        } finally {
+            shutdownExecutor();
+        }
         outputPrint(shapelets.size() + " Shapelets have been generated num shapelets now " + numShapelets);
 
     }
@@ -577,7 +614,7 @@ public class ShapeletTransform implements Serializable, TechnicalInformationHand
             // set the class value of the series we're working with.
             classValue.setShapeletValue(data.get(casesSoFar));
             long t1 = System.nanoTime();
-            seriesShapelets = current.searchForShapeletsInSeries(data.get(casesSoFar), this::checkCandidate);
+            seriesShapelets = searchForShapeletsInSeries(current, data.get(casesSoFar));
             long t2 = System.nanoTime();
             numShapeletsEvaluated += seriesShapelets.size();
 
@@ -682,7 +719,7 @@ public class ShapeletTransform implements Serializable, TechnicalInformationHand
             // set the class value of the series we're working with.
             classValue.setShapeletValue(data.get(casesSoFar));
             long t1 = System.nanoTime();
-            seriesShapelets = current.searchForShapeletsInSeries(data.get(casesSoFar), this::checkCandidate);
+            seriesShapelets = searchForShapeletsInSeries(current, data.get(casesSoFar));
             long t2 = System.nanoTime();
             numShapeletsEvaluated += seriesShapelets.size();
 
@@ -799,7 +836,7 @@ public class ShapeletTransform implements Serializable, TechnicalInformationHand
             classValue.setShapeletValue(data.get(casesSoFar));
 
             long t1 = System.nanoTime();
-            seriesShapelets = searchFunction.searchForShapeletsInSeries(data.get(casesSoFar), this::checkCandidate);
+            seriesShapelets = searchForShapeletsInSeries(searchFunction, data.get(casesSoFar));
             long t2 = System.nanoTime();
             numShapeletsEvaluated += seriesShapelets.size();
 
@@ -887,7 +924,7 @@ public class ShapeletTransform implements Serializable, TechnicalInformationHand
             classValue.setShapeletValue(data.get(casesSoFar));
 
             long t1 = System.nanoTime();
-            seriesShapelets = searchFunction.searchForShapeletsInSeries(data.get(casesSoFar), this::checkCandidate);
+            seriesShapelets = searchForShapeletsInSeries(searchFunction, data.get(casesSoFar));
             long t2 = System.nanoTime();
             numShapeletsEvaluated += seriesShapelets.size();
 
@@ -1141,9 +1178,172 @@ public class ShapeletTransform implements Serializable, TechnicalInformationHand
         return outputShapelets;
     }
 
+    /**
+     * A thread's own distance function and quality measure, which hold the state of the candidate being evaluated.
+     */
+    private class CandidateEvaluator {
+        private final ShapeletDistance distance;
+        private final ShapeletQuality quality;
+        private long earlyAbandons;
+
+        private CandidateEvaluator(ShapeletDistance distance) {
+            this.distance = distance;
+            this.quality = new ShapeletQuality(ShapeletTransform.this.quality.getChoice());
+        }
+    }
+
+    /**
+     * A candidate gathered from a search, to be evaluated later.
+     */
+    private static class Candidate<T> {
+        private final T series;
+        private final int start;
+        private final int length;
+        private final int dimension;
+
+        private Candidate(T series, int start, int length, int dimension) {
+            this.series = series;
+            this.start = start;
+            this.length = length;
+            this.dimension = dimension;
+        }
+    }
+
+    /**
+     * Creates a distance function and quality measure per thread for the data being searched.
+     *
+     * @param init initialises a copy of the distance function with the data
+     */
+    private void initEvaluators(Consumer<ShapeletDistance> init) {
+        evaluators = null;
+        if (numThreads <= 1) {
+            return;
+        }
+        evaluators = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < numThreads; i++) {
+            ShapeletDistance distance;
+            try {
+                distance = shapeletDistance.getClass().getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("cannot copy " + shapeletDistance.getClass().getSimpleName()
+                        + " for multithreading, it needs a no argument constructor", e);
+            }
+            distance.seriesRescaler = shapeletDistance.seriesRescaler;
+            init.accept(distance);
+            evaluators.add(new CandidateEvaluator(distance));
+        }
+        executor = ComputePool.newExecutor(numThreads);
+    }
+
+    private long evaluatorCount() {
+        long evaluatorCount = 0;
+        if (evaluators != null) {
+            for (CandidateEvaluator evaluator : evaluators) {
+                evaluatorCount += evaluator.distance.getCount();
+            }
+        }
+        return evaluatorCount;
+    }
+
+    private void shutdownExecutor() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    private ArrayList<Shapelet> searchForShapeletsInSeries(ShapeletSearch search, TimeSeriesInstance series) {
+        if (evaluators == null || !search.hasIndependentCandidates()) {
+            return search.searchForShapeletsInSeries(series, this::checkCandidate);
+        }
+        List<Candidate<TimeSeriesInstance>> candidates = new ArrayList<>();
+        search.searchForShapeletsInSeries(series, (candidate, start, length, dimension) -> {
+            candidates.add(new Candidate<>(candidate, start, length, dimension));
+            return null;
+        });
+        return evaluateConcurrently(candidates, (evaluator, candidate) -> evaluateCandidate(candidate.series,
+                candidate.start, candidate.length, candidate.dimension, evaluator.distance, evaluator.quality));
+    }
+
+    private ArrayList<Shapelet> searchForShapeletsInSeries(ShapeletSearch search, Instance series) {
+        if (evaluators == null || !search.hasIndependentCandidates()) {
+            return search.searchForShapeletsInSeries(series, this::checkCandidate);
+        }
+        List<Candidate<Instance>> candidates = new ArrayList<>();
+        search.searchForShapeletsInSeries(series, (candidate, start, length, dimension) -> {
+            candidates.add(new Candidate<>(candidate, start, length, dimension));
+            return null;
+        });
+        return evaluateConcurrently(candidates, (evaluator, candidate) -> evaluateCandidate(candidate.series,
+                candidate.start, candidate.length, candidate.dimension, evaluator.distance, evaluator.quality));
+    }
+
+    /**
+     * Evaluates the candidates of the current series across the threads.
+     *
+     * @return the candidates which were not pruned, in the order they were gathered
+     */
+    private <T> ArrayList<Shapelet> evaluateConcurrently(List<Candidate<T>> candidates,
+            BiFunction<CandidateEvaluator, Candidate<T>, Shapelet> evaluate) {
+        for (CandidateEvaluator evaluator : evaluators) {
+            evaluator.distance.setSeries(casesSoFar);
+        }
+        Shapelet[] shapelets = new Shapelet[candidates.size()];
+        AtomicInteger next = new AtomicInteger();
+        Callable<Object> task = Executors.callable(() -> {
+            CandidateEvaluator evaluator = evaluators.poll();
+            try {
+                int i;
+                while ((i = next.getAndIncrement()) < shapelets.length) {
+                    shapelets[i] = evaluate.apply(evaluator, candidates.get(i));
+                    if (shapelets[i] == null) {
+                        evaluator.earlyAbandons++;
+                    }
+                }
+            } finally {
+                evaluators.add(evaluator);
+            }
+        });
+        try {
+            for (Future<Object> future : executor.invokeAll(Collections.nCopies(numThreads, task))) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        for (CandidateEvaluator evaluator : evaluators) {
+            numEarlyAbandons += evaluator.earlyAbandons;
+            evaluator.earlyAbandons = 0;
+        }
+        ArrayList<Shapelet> seriesShapelets = new ArrayList<>();
+        for (Shapelet shapelet : shapelets) {
+            if (shapelet != null) {
+                seriesShapelets.add(shapelet);
+            }
+        }
+        return seriesShapelets;
+    }
+
     protected Shapelet checkCandidate(TimeSeriesInstance series, int start, int length, int dimension) {
+        Shapelet shapelet = evaluateCandidate(series, start, length, dimension, shapeletDistance, quality);
+        if (shapelet == null) {
+            numEarlyAbandons++;
+        }
+        return shapelet;
+    }
+
+    /**
+     * Evaluates a candidate with the given distance function and quality measure, so threads can use their own.
+     *
+     * @return the shapelet, or null if the candidate was pruned
+     */
+    private Shapelet evaluateCandidate(TimeSeriesInstance series, int start, int length, int dimension,
+            ShapeletDistance shapeletDistance, ShapeletQuality quality) {
         // init qualityBound.
-        initQualityBound(classValue.getClassDistributions());
+        initQualityBound(quality, classValue.getClassDistributions());
 
         // Set bound of the bounding algorithm
         if (worstShapelet != null) {
@@ -1163,7 +1363,6 @@ public class ShapeletTransform implements Serializable, TechnicalInformationHand
 
             // Check if it is possible to prune the candidate
             if (quality.pruneCandidate()) {
-                numEarlyAbandons++;
                 return null;
             }
 
@@ -1196,8 +1395,22 @@ public class ShapeletTransform implements Serializable, TechnicalInformationHand
     }
 
     protected Shapelet checkCandidate(Instance series, int start, int length, int dimension) {
+        Shapelet shapelet = evaluateCandidate(series, start, length, dimension, shapeletDistance, quality);
+        if (shapelet == null) {
+            numEarlyAbandons++;
+        }
+        return shapelet;
+    }
+
+    /**
+     * Evaluates a candidate with the given distance function and quality measure, so threads can use their own.
+     *
+     * @return the shapelet, or null if the candidate was pruned
+     */
+    private Shapelet evaluateCandidate(Instance series, int start, int length, int dimension,
+            ShapeletDistance shapeletDistance, ShapeletQuality quality) {
         // init qualityBound.
-        initQualityBound(classValue.getClassDistributions());
+        initQualityBound(quality, classValue.getClassDistributions());
 
         // Set bound of the bounding algorithm
         if (worstShapelet != null) {
@@ -1217,7 +1430,6 @@ public class ShapeletTransform implements Serializable, TechnicalInformationHand
 
             // Check if it is possible to prune the candidate
             if (quality.pruneCandidate()) {
-                numEarlyAbandons++;
                 return null;
             }
 
@@ -1873,6 +2085,15 @@ public class ShapeletTransform implements Serializable, TechnicalInformationHand
         shapeletDistance = ssd;
     }
 
+    @Override
+    public void enableMultiThreading(int numThreads) {
+        this.numThreads = Math.max(1, numThreads);
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
     /*************** GETTERS *************/
     public long getCount() {
         return count;
@@ -0,0 +1,94 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+package tsml.transformers;
+
+import experiments.data.DatasetLoading;
+import org.junit.Assert;
+import org.junit.Test;
+import tsml.data_containers.TimeSeriesInstance;
+import tsml.data_containers.TimeSeriesInstances;
+import tsml.data_containers.utilities.Converter;
+import tsml.transformers.shapelet_tools.ShapeletTransformFactory;
+import tsml.transformers.shapelet_tools.ShapeletTransformFactoryOptions;
+import tsml.transformers.shapelet_tools.distance_functions.ShapeletDistance;
+import tsml.transformers.shapelet_tools.search_functions.ShapeletSearch;
+import tsml.transformers.shapelet_tools.search_functions.ShapeletSearchOptions;
+import weka.core.Instances;
+
+/**
+ * Purpose: test a multithreaded shapelet search finds the same shapelets as a single thread.
+ */
+public class ShapeletTransformTest {
+
+    private static ShapeletTransform build(ShapeletSearch.SearchType searchType, int numThreads) {
+        final ShapeletSearchOptions searchOptions = new ShapeletSearchOptions.Builder()
+                .setMin(3)
+                .setMax(20)
+                .setSearchType(searchType)
+                .setNumShapeletsToEvaluate(30)
+                .setSeed(0)
+                .build();
+        final ShapeletTransformFactoryOptions options = new ShapeletTransformFactoryOptions.ShapeletTransformOptions()
+                .useClassBalancing()
+                .useBinaryClassValue()
+                .useCandidatePruning()
+                .setKShapelets(20)
+                .setMinLength(3)
+                .setMaxLength(20)
+                .setDistanceType(ShapeletDistance.DistanceType.NORMAL)
+                .setSearchOptions(searchOptions)
+                .setRescalerType(ShapeletDistance.RescalerType.NORMALISATION)
+                .build();
+        final ShapeletTransform transform = new ShapeletTransformFactory(options).getTransform();
+        transform.enableMultiThreading(numThreads);
+        // otherwise each fit writes the shapelets to defaultShapeletOutput.txt in the working directory
+        transform.turnOffLog();
+        return transform;
+    }
+
+    @Test
+    public void testParallelSearchMatchesSequential() throws Exception {
+        final Instances[] data = DatasetLoading.sampleItalyPowerDemand(0);
+        final TimeSeriesInstances train = Converter.fromArff(data[0]);
+        final TimeSeriesInstances test = Converter.fromArff(data[1]);
+        final ShapeletTransform sequential = build(ShapeletSearch.SearchType.FULL, 1);
+        final ShapeletTransform parallel = build(ShapeletSearch.SearchType.FULL, 4);
+        sequential.fit(train);
+        parallel.fit(train);
+        Assert.assertEquals(sequential.getShapelets().toString(), parallel.getShapelets().toString());
+        final TimeSeriesInstances sequentialTest = sequential.transform(test);
+        final TimeSeriesInstances parallelTest = parallel.transform(test);
+        for(int i = 0; i < test.numInstances(); i++) {
+            Assert.assertArrayEquals(sequentialTest.get(i).get(0).toValueArray(),
+                    parallelTest.get(i).get(0).toValueArray(), 0d);
+        }
+    }
+
+    @Test
+    public void testParallelRandomSearchMatchesSequential() throws Exception {
+        final Instances train = DatasetLoading.sampleItalyPowerDemand(0)[0];
+        final ShapeletTransform sequential = build(ShapeletSearch.SearchType.RANDOM, 1);
+        final ShapeletTransform parallel = build(ShapeletSearch.SearchType.RANDOM, 4);
+        final Instances sequentialTrain = sequential.fitTransform(train);
+        final Instances parallelTrain = parallel.fitTransform(train);
+        Assert.assertEquals(sequential.getShapelets().toString(), parallel.getShapelets().toString());
+        for(int i = 0; i < train.numInstances(); i++) {
+            Assert.assertArrayEquals(sequentialTrain.get(i).toDoubleArray(), parallelTrain.get(i).toDoubleArray(), 0d);
+        }
+    }
+}
@@ -0,0 +1,541 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+package tsml.transformers.matrix_profile;
+
+import edu.emory.mathcs.jtransforms.fft.DoubleFFT_1D;
+import tsml.classifiers.MultiThreadable;
+import utilities.ComputePool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static utilities.rescalers.ZNormalisation.ROUNDING_ERROR_CORRECTION;
+
+/**
+ * Computes matrix profiles, i.e. the distance from every subsequence of a series to its nearest neighbouring
+ * subsequence. Distances are the squared euclidean distance between z-normalised subsequences, as produced by the
+ * MatrixProfile transform.
+ * <p>
+ * The matrix of subsequence distances is traversed a diagonal at a time. Along a diagonal the covariance between the
+ * two windows is updated in constant time from the previous cell (the mean-centred formulation of STOMP used by
+ * SCAMP), so an exact profile costs O(n^2) rather than the O(n^2 m) of a brute force search. Diagonals are independent,
+ * so with multiple threads they are shared out between tasks which each keep their own profile, and the profiles are
+ * merged afterwards.
+ * <p>
+ * SCRIMP++ is the anytime version: PreSCRIMP first finds the nearest neighbour of every s'th subsequence with a sliding
+ * dot product (MASS) and refines the s cells either side along the matching diagonal, which gives a good approximate
+ * profile quickly. Diagonals are then visited in a random order until they are exhausted or the time limit passes. If
+ * every diagonal is visited the profile is exact.
+ * <p>
+ * Joins can be a self-join, where trivial matches within the exclusion zone of a subsequence are ignored, or an AB-join,
+ * which finds the nearest subsequence of series b for every subsequence of series a.
+ * <p>
+ * Ties are resolved in favour of the lowest index regardless of the order cells are visited in, so profiles do not
+ * depend on the number of threads.
+ */
+public class MatrixProfileEngine implements MultiThreadable {
+
+    public enum Algorithm {
+        /**
+         * Exact profile over every diagonal.
+         */
+        STOMP,
+        /**
+         * Anytime profile, PreSCRIMP followed by diagonals in random order until the time limit passes.
+         */
+        SCRIMP_PLUS_PLUS
+    }
+
+    // number of consecutive diagonals a task claims at once
+    private static final int DIAGONAL_CHUNK_SIZE = 16;
+
+    private int windowSize;
+    // -1 means the default of 1.5 window sizes either side, matching the MatrixProfile transform
+    private int exclusionZone = -1;
+    private Algorithm algorithm = Algorithm.STOMP;
+    private long timeLimitNanos = -1;
+    // -1 means the default of a quarter of the window size
+    private int preScrimpStep = -1;
+    private long seed = 0;
+    private int numThreads = 1;
+
+    public MatrixProfileEngine(int windowSize) {
+        setWindowSize(windowSize);
+    }
+
+    /**
+     * The profile of a join.
+     */
+    public static class Profile {
+        private final double[] distances;
+        private final int[] indices;
+        private boolean exact;
+
+        private Profile(int length) {
+            distances = new double[length];
+            indices = new int[length];
+            Arrays.fill(distances, Double.MAX_VALUE);
+            Arrays.fill(indices, -1);
+        }
+
+        private void update(int i, double distance, int j) {
+            if(distance < distances[i] || (distance == distances[i] && j < indices[i])) {
+                distances[i] = distance;
+                indices[i] = j;
+            }
+        }
+
+        private void merge(Profile other) {
+            for(int i = 0; i < distances.length; i++) {
+                update(i, other.distances[i], other.indices[i]);
+            }
+        }
+
+        /**
+         * @return the squared distance from each subsequence to its nearest neighbour, or Double.MAX_VALUE where no
+         * neighbour was found
+         */
+        public double[] getDistances() {
+            return distances;
+        }
+
+        /**
+         * @return the start index of the nearest neighbour of each subsequence, or -1 where no neighbour was found
+         */
+        public int[] getIndices() {
+            return indices;
+        }
+
+        /**
+         * @return true if every pair of subsequences was compared, false if the time limit cut the join short
+         */
+        public boolean isExact() {
+            return exact;
+        }
+    }
+
+    /**
+     * Mean-centred statistics for every window of a series.
+     */
+    private static class Windows {
+        private final double[] series;
+        private final int windowSize;
+        private final int numWindows;
+        private final double[] means;
+        // 1 / sqrt(sum of squared deviations from the mean), 0 for flat windows
+        private final double[] invNorms;
+        private final boolean[] flat;
+        private boolean anyFlat;
+        // terms for updating the covariance of (i - 1, j - 1) to (i, j)
+        private final double[] df;
+        private final double[] dg;
+
+        private Windows(double[] series, int windowSize) {
+            this.series = series;
+            this.windowSize = windowSize;
+            numWindows = Math.max(0, series.length - windowSize + 1);
+            means = new double[numWindows];
+            invNorms = new double[numWindows];
+            flat = new boolean[numWindows];
+            df = new double[numWindows];
+            dg = new double[numWindows];
+            for(int i = 0; i < numWindows; i++) {
+                // two passes per window, O(nm) but small beside the O(n^2) join. A sliding update drifts too far to
+                // apply the flat window threshold used by MatrixProfile.zNormalise
+                double mean = 0;
+                for(int k = i; k < i + windowSize; k++) {
+                    mean += series[k];
+                }
+                mean /= windowSize;
+                double m2 = 0;
+                for(int k = i; k < i + windowSize; k++) {
+                    final double deviation = series[k] - mean;
+                    m2 += deviation * deviation;
+                }
+                means[i] = mean;
+                flat[i] = m2 / windowSize < ROUNDING_ERROR_CORRECTION;
+                anyFlat |= flat[i];
+                invNorms[i] = flat[i] ? 0 : 1 / Math.sqrt(m2);
+                if(i > 0) {
+                    final double removed = series[i - 1];
+                    final double added = series[i + windowSize - 1];
+                    df[i] = (added - removed) / 2;
+                    dg[i] = (added - means[i]) + (removed - means[i - 1]);
+                }
+            }
+        }
+
+        private double covariance(int i, Windows other, int j) {
+            final double meanA = means[i];
+            final double meanB = other.means[j];
+            double covariance = 0;
+            for(int k = 0; k < windowSize; k++) {
+                covariance += (series[i + k] - meanA) * (other.series[j + k] - meanB);
+            }
+            return covariance;
+        }
+
+        private double distance(int i, Windows other, int j, double covariance) {
+            if(flat[i] || other.flat[j]) {
+                // a flat window normalises to zeros, and a normalised window has a sum of squares of the window size
+                return flat[i] && other.flat[j] ? 0 : windowSize;
+            }
+            final double correlation = covariance * invNorms[i] * other.invNorms[j];
+            return Math.max(0, 2 * windowSize * (1 - correlation));
+        }
+    }
+
+    /**
+     * A join between two sets of windows. A self-join uses the same windows for both and records each cell against
+     * both of its windows.
+     */
+    private class Join {
+        private final Windows a;
+        private final Windows b;
+        private final boolean self;
+        private final int excluded;
+        // diagonals are j - i, from minDiagonal to maxDiagonal inclusive
+        private final int minDiagonal;
+        private final int maxDiagonal;
+
+        private Join(Windows a, Windows b, boolean self) {
+            this.a = a;
+            this.b = b;
+            this.self = self;
+            excluded = self ? getExclusionZone() : -1;
+            minDiagonal = self ? excluded + 1 : -(a.numWindows - 1);
+            maxDiagonal = b.numWindows - 1;
+        }
+
+        private int numDiagonals() {
+            return Math.max(0, maxDiagonal - minDiagonal + 1);
+        }
+
+        private Profile newProfile() {
+            return new Profile(a.numWindows);
+        }
+
+        private void record(Profile profile, int i, int j, double distance) {
+            profile.update(i, distance, j);
+            if(self) {
+                profile.update(j, distance, i);
+            }
+        }
+
+        private void diagonal(int diagonal, Profile profile) {
+            int i = Math.max(0, -diagonal);
+            int j = i + diagonal;
+            final int end = i + Math.min(a.numWindows - i, b.numWindows - j);
+            double covariance = a.covariance(i, b, j);
+            record(profile, i, j, a.distance(i, b, j, covariance));
+            // hot loop, so the arrays are pulled into locals and the flat window checks skipped where there are none
+            final double[] dfA = a.df, dgA = a.dg, dfB = b.df, dgB = b.dg, invNormsA = a.invNorms, invNormsB = b.invNorms;
+            final double[] distances = profile.distances;
+            final boolean flat = a.anyFlat || b.anyFlat;
+            final double scale = 2 * a.windowSize;
+            for(i++, j++; i < end; i++, j++) {
+                covariance += dfA[i] * dgB[j] + dfB[j] * dgA[i];
+                final double distance = flat ? a.distance(i, b, j, covariance) :
+                                                Math.max(0, scale * (1 - covariance * invNormsA[i] * invNormsB[j]));
+                if(distance <= distances[i]) {
+                    profile.update(i, distance, j);
+                }
+                if(self && distance <= distances[j]) {
+                    profile.update(j, distance, i);
+                }
+            }
+        }
+
+        private boolean valid(int i, int j) {
+            return i >= 0 && j >= 0 && i < a.numWindows && j < b.numWindows && (!self || Math.abs(j - i) > excluded);
+        }
+
+        /**
+         * PreSCRIMP: the exact nearest neighbour of every step'th window, refined along the diagonal either side of
+         * the match.
+         */
+        private void preScrimp(Profile profile, Random random, long deadline) {
+            final int step = getPreScrimpStep();
+            final List<Integer> samples = new ArrayList<>();
+            for(int i = 0; i < a.numWindows; i += step) {
+                samples.add(i);
+            }
+            Collections.shuffle(samples, random);
+            final SlidingDotProduct slidingDotProduct = new SlidingDotProduct(b.series, a.windowSize);
+            final double[] distances = new double[b.numWindows];
+            for(int i : samples) {
+                if(System.nanoTime() >= deadline) {
+                    return;
+                }
+                final double[] dotProducts = slidingDotProduct.dotProducts(a.series, i);
+                // centre the dot products on each window's mean
+                final double sumA = (a.means[i] - slidingDotProduct.offset) * a.windowSize;
+                int nearest = -1;
+                for(int j = 0; j < b.numWindows; j++) {
+                    final double covariance = dotProducts[j] - sumA * (b.means[j] - slidingDotProduct.offset);
+                    distances[j] = a.distance(i, b, j, covariance);
+                    if(valid(i, j)) {
+                        if(self) {
+                            profile.update(j, distances[j], i);
+                        }
+                        if(nearest < 0 || distances[j] < distances[nearest]) {
+                            nearest = j;
+                        }
+                    }
+                }
+                if(nearest < 0) {
+                    continue;
+                }
+                // refine from the exact covariance rather than the dot product to avoid cancellation
+                final double covariance = a.covariance(i, b, nearest);
+                record(profile, i, nearest, a.distance(i, b, nearest, covariance));
+                double forward = covariance;
+                for(int q = 1; q < step && valid(i + q, nearest + q); q++) {
+                    forward += a.df[i + q] * b.dg[nearest + q] + b.df[nearest + q] * a.dg[i + q];
+                    record(profile, i + q, nearest + q, a.distance(i + q, b, nearest + q, forward));
+                }
+                double backward = covariance;
+                for(int q = 1; q < step && valid(i - q, nearest - q); q++) {
+                    backward -= a.df[i - q + 1] * b.dg[nearest - q + 1] + b.df[nearest - q + 1] * a.dg[i - q + 1];
+                    record(profile, i - q, nearest - q, a.distance(i - q, b, nearest - q, backward));
+                }
+            }
+        }
+
+        private Profile run() throws InterruptedException {
+            final long deadline = algorithm == Algorithm.SCRIMP_PLUS_PLUS && timeLimitNanos >= 0 ?
+                                          System.nanoTime() + timeLimitNanos : Long.MAX_VALUE;
+            final int[] order = new int[numDiagonals()];
+            for(int k = 0; k < order.length; k++) {
+                order[k] = minDiagonal + k;
+            }
+            final Profile profile = newProfile();
+            if(algorithm == Algorithm.SCRIMP_PLUS_PLUS) {
+                final Random random = new Random(seed);
+                preScrimp(profile, random, deadline);
+                for(int k = order.length - 1; k > 0; k--) {
+                    final int swap = random.nextInt(k + 1);
+                    final int tmp = order[k];
+                    order[k] = order[swap];
+                    order[swap] = tmp;
+                }
+            }
+            final AtomicInteger next = new AtomicInteger();
+            final AtomicInteger completed = new AtomicInteger();
+            final Callable<Profile> task = () -> {
+                final Profile local = newProfile();
+                int start;
+                while((start = next.getAndAdd(DIAGONAL_CHUNK_SIZE)) < order.length) {
+                    final int end = Math.min(order.length, start + DIAGONAL_CHUNK_SIZE);
+                    for(int k = start; k < end; k++) {
+                        if(System.nanoTime() >= deadline) {
+                            return local;
+                        }
+                        diagonal(order[k], local);
+                        completed.incrementAndGet();
+                    }
+                }
+                return local;
+            };
+            if(numThreads > 1 && order.length > DIAGONAL_CHUNK_SIZE) {
+                final ExecutorService executor = ComputePool.newExecutor(numThreads);
+                try {
+                    final List<Callable<Profile>> tasks = new ArrayList<>(numThreads);
+                    for(int t = 0; t < numThreads; t++) {
+                        tasks.add(task);
+                    }
+                    for(Future<Profile> future : executor.invokeAll(tasks)) {
+                        profile.merge(future.get());
+                    }
+                } catch(ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                } finally {
+                    executor.shutdownNow();
+                }
+            } else {
+                try {
+                    profile.merge(task.call());
+                } catch(Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            profile.exact = completed.get() == order.length;
+            return profile;
+        }
+    }
+
+    /**
+     * Matrix profile of a series against itself, ignoring trivial matches within the exclusion zone.
+     */
+    public Profile selfJoin(double[] series) {
+        final Windows windows = new Windows(series, windowSize);
+        return join(new Join(windows, windows, true));
+    }
+
+    /**
+     * Matrix profile of every subsequence of a against its nearest subsequence of b.
+     */
+    public Profile join(double[] a, double[] b) {
+        return join(new Join(new Windows(a, windowSize), new Windows(b, windowSize), false));
+    }
+
+    private Profile join(Join join) {
+        try {
+            return join.run();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Dot products of a query window against every window of a series, computed in the frequency domain (MASS). Both
+     * the query and the series are shifted by the mean of the series first, which keeps the products small for series
+     * with a large offset.
+     */
+    static class SlidingDotProduct {
+        private final int windowSize;
+        private final int numWindows;
+        private final int fftLength;
+        private final DoubleFFT_1D fft;
+        private final double[] seriesTransform;
+        private final double[] buffer;
+        private final double offset;
+
+        SlidingDotProduct(double[] series, int windowSize) {
+            this.windowSize = windowSize;
+            numWindows = series.length - windowSize + 1;
+            int length = 2;
+            while(length < series.length + windowSize) {
+                length <<= 1;
+            }
+            fftLength = length;
+            fft = new DoubleFFT_1D(fftLength);
+            double sum = 0;
+            for(double value : series) {
+                sum += value;
+            }
+            offset = sum / series.length;
+            seriesTransform = new double[fftLength];
+            for(int k = 0; k < series.length; k++) {
+                seriesTransform[k] = series[k] - offset;
+            }
+            fft.realForward(seriesTransform);
+            buffer = new double[fftLength];
+        }
+
+        /**
+         * @return the dot product of query[start, start + windowSize) with each window of the series, both shifted by
+         * the offset
+         */
+        double[] dotProducts(double[] query, int start) {
+            Arrays.fill(buffer, 0);
+            // reversed query so the convolution is a correlation
+            for(int k = 0; k < windowSize; k++) {
+                buffer[k] = query[start + windowSize - 1 - k] - offset;
+            }
+            fft.realForward(buffer);
+            // packed real transform: [0] and [1] hold the real dc and nyquist terms, then (re, im) pairs
+            buffer[0] *= seriesTransform[0];
+            buffer[1] *= seriesTransform[1];
+            for(int k = 2; k < fftLength; k += 2) {
+                final double re = buffer[k] * seriesTransform[k] - buffer[k + 1] * seriesTransform[k + 1];
+                final double im = buffer[k] * seriesTransform[k + 1] + buffer[k + 1] * seriesTransform[k];
+                buffer[k] = re;
+                buffer[k + 1] = im;
+            }
+            fft.realInverse(buffer, true);
+            return Arrays.copyOfRange(buffer, windowSize - 1, windowSize - 1 + numWindows);
+        }
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public void setWindowSize(int windowSize) {
+        if(windowSize < 2) {
+            throw new IllegalArgumentException("window size must be at least 2: " + windowSize);
+        }
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * @return the number of cells either side of the diagonal which are trivial matches in a self-join
+     */
+    public int getExclusionZone() {
+        return exclusionZone < 0 ? (int) (windowSize * 1.5) : exclusionZone;
+    }
+
+    public void setExclusionZone(int exclusionZone) {
+        this.exclusionZone = exclusionZone;
+    }
+
+    public Algorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public void setAlgorithm(Algorithm algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * Time limit for SCRIMP++, negative for no limit.
+     */
+    public void setTimeLimit(long time, TimeUnit unit) {
+        timeLimitNanos = time < 0 ? -1 : unit.toNanos(time);
+    }
+
+    public long getTimeLimitNanos() {
+        return timeLimitNanos;
+    }
+
+    public int getPreScrimpStep() {
+        return preScrimpStep < 0 ? Math.max(1, windowSize / 4) : preScrimpStep;
+    }
+
+    public void setPreScrimpStep(int preScrimpStep) {
+        this.preScrimpStep = preScrimpStep;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    public void enableMultiThreading(int numThreads) {
+        this.numThreads = Math.max(1, numThreads);
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+}
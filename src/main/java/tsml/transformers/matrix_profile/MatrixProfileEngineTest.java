@@ -0,0 +1,130 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+package tsml.transformers.matrix_profile;
+
+import org.junit.Assert;
+import org.junit.Test;
+import tsml.transformers.MatrixProfile;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Purpose: test the matrix profile engine against a brute force search over z-normalised subsequences
+ */
+public class MatrixProfileEngineTest {
+
+    private static final int WINDOW_SIZE = 12;
+
+    private static double[] series(long seed, int length) {
+        final Random random = new Random(seed);
+        final double[] series = new double[length];
+        for(int i = 0; i < length; i++) {
+            // a large offset and a flat stretch to exercise the numerically awkward cases
+            series[i] = 1000 + Math.sin(i / 5d) * 3 + random.nextGaussian();
+        }
+        for(int i = length / 3; i < length / 3 + WINDOW_SIZE * 2; i++) {
+            series[i] = 1000;
+        }
+        return series;
+    }
+
+    private static double[][] bruteForce(double[] a, double[] b, int exclusionZone) {
+        final int numWindows = a.length - WINDOW_SIZE + 1;
+        final double[][] profile = new double[2][numWindows];
+        for(int i = 0; i < numWindows; i++) {
+            final double[] query = MatrixProfile.zNormalise(a, i, WINDOW_SIZE, false);
+            double best = Double.MAX_VALUE;
+            int bestIndex = -1;
+            for(int j = 0; j <= b.length - WINDOW_SIZE; j++) {
+                if(Math.abs(i - j) <= exclusionZone) {
+                    continue;
+                }
+                final double[] candidate = MatrixProfile.zNormalise(b, j, WINDOW_SIZE, false);
+                double distance = 0;
+                for(int k = 0; k < WINDOW_SIZE; k++) {
+                    distance += (query[k] - candidate[k]) * (query[k] - candidate[k]);
+                }
+                if(distance < best) {
+                    best = distance;
+                    bestIndex = j;
+                }
+            }
+            profile[0][i] = best;
+            profile[1][i] = bestIndex;
+        }
+        return profile;
+    }
+
+    private static void assertProfile(double[][] expected, MatrixProfileEngine.Profile profile) {
+        Assert.assertArrayEquals(expected[0], profile.getDistances(), 1e-6);
+        for(int i = 0; i < expected[1].length; i++) {
+            final int index = profile.getIndices()[i];
+            if(index != (int) expected[1][i]) {
+                // only a near tie may pick a different neighbour
+                Assert.assertEquals(expected[0][i], profile.getDistances()[i], 1e-6);
+            }
+        }
+    }
+
+    @Test
+    public void testSelfJoin() {
+        final double[] series = series(0, 300);
+        final MatrixProfileEngine engine = new MatrixProfileEngine(WINDOW_SIZE);
+        final MatrixProfileEngine.Profile profile = engine.selfJoin(series);
+        Assert.assertTrue(profile.isExact());
+        assertProfile(bruteForce(series, series, engine.getExclusionZone()), profile);
+    }
+
+    @Test
+    public void testJoin() {
+        final double[] a = series(1, 200);
+        final double[] b = series(2, 250);
+        final MatrixProfileEngine engine = new MatrixProfileEngine(WINDOW_SIZE);
+        assertProfile(bruteForce(a, b, -1), engine.join(a, b));
+    }
+
+    @Test
+    public void testParallelMatchesSequential() {
+        final double[] series = series(3, 2000);
+        final MatrixProfileEngine engine = new MatrixProfileEngine(WINDOW_SIZE);
+        final MatrixProfileEngine.Profile sequential = engine.selfJoin(series);
+        engine.enableMultiThreading(4);
+        final MatrixProfileEngine.Profile parallel = engine.selfJoin(series);
+        Assert.assertArrayEquals(sequential.getDistances(), parallel.getDistances(), 0d);
+        Assert.assertArrayEquals(sequential.getIndices(), parallel.getIndices());
+    }
+
+    @Test
+    public void testScrimpPlusPlus() {
+        final double[] series = series(4, 2000);
+        final MatrixProfileEngine engine = new MatrixProfileEngine(WINDOW_SIZE);
+        final double[] exact = engine.selfJoin(series).getDistances();
+        engine.setAlgorithm(MatrixProfileEngine.Algorithm.SCRIMP_PLUS_PLUS);
+        final MatrixProfileEngine.Profile complete = engine.selfJoin(series);
+        Assert.assertTrue(complete.isExact());
+        Assert.assertArrayEquals(exact, complete.getDistances(), 1e-6);
+        // with no time the profile is incomplete but never below the exact profile
+        engine.setTimeLimit(0, TimeUnit.NANOSECONDS);
+        final MatrixProfileEngine.Profile anytime = engine.selfJoin(series);
+        Assert.assertFalse(anytime.isExact());
+        for(int i = 0; i < exact.length; i++) {
+            Assert.assertTrue(anytime.getDistances()[i] >= exact[i] - 1e-6);
+        }
+    }
+}
@@ -42,6 +42,7 @@ import static tsml.transformers.shapelet_tools.distance_functions.ShapeletDistan
 import static tsml.transformers.shapelet_tools.distance_functions.ShapeletDistance.DistanceType.DIMENSION;
 import static tsml.transformers.shapelet_tools.distance_functions.ShapeletDistance.DistanceType.IMPROVED_ONLINE;
 import static tsml.transformers.shapelet_tools.distance_functions.ShapeletDistance.DistanceType.INDEPENDENT;
+import static tsml.transformers.shapelet_tools.distance_functions.ShapeletDistance.DistanceType.MASS;
 import static tsml.transformers.shapelet_tools.distance_functions.ShapeletDistance.DistanceType.NORMAL;
 import static tsml.transformers.shapelet_tools.distance_functions.ShapeletDistance.DistanceType.ONLINE;
 import static tsml.transformers.shapelet_tools.distance_functions.ShapeletDistance.DistanceType.ONLINE_CACHED;
@@ -62,6 +63,7 @@ public class ShapeletTransformFactory {
         dCons.put(IMPROVED_ONLINE, ImprovedOnlineShapeletDistance::new);
         dCons.put(CACHED, CachedShapeletDistance::new);
         dCons.put(ONLINE_CACHED, OnlineCachedShapeletDistance::new);
+        dCons.put(MASS, MASSShapeletDistance::new);
         dCons.put(DEPENDENT, MultivariateDependentDistance::new);
         dCons.put(INDEPENDENT, MultivariateIndependentDistance::new);
         dCons.put(DIMENSION, DimensionDistance::new);
@@ -0,0 +1,270 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+package tsml.transformers.shapelet_tools.distance_functions;
+
+import edu.emory.mathcs.jtransforms.fft.DoubleFFT_1D;
+import tsml.data_containers.TimeSeriesInstance;
+import tsml.data_containers.TimeSeriesInstances;
+import utilities.rescalers.ZNormalisation;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import static utilities.rescalers.ZNormalisation.ROUNDING_ERROR_CORRECTION;
+
+/**
+ * Mueen's Algorithm for Similarity Search (MASS). The dot products of the candidate with every subsequence of a series
+ * come from a single product in the frequency domain, and the subsequence means and deviations from cumulative sums, so
+ * the whole distance profile costs O(n log n) rather than the O(nm) of a scan. The cumulative sums and the transform of
+ * each series are computed once in init and reused for every candidate, and the transform of a candidate is computed
+ * once however many series it is compared to.
+ *
+ * Distances are the same as ShapeletDistance, i.e. the minimum mean squared difference between the z-normalised
+ * candidate and z-normalised subsequences, without early abandoning. Series which were not passed to init, such as
+ * those being transformed, are prepared on first use and kept until the next init. Rescalers other than z-normalisation
+ * fall back to the full scan.
+ */
+public class MASSShapeletDistance extends ShapeletDistance {
+
+    // variances below this relative to the window's offset are recomputed directly to get flat windows right
+    private static final double CANCELLATION_THRESHOLD = 1e-3;
+
+    protected transient SeriesTransform[][] transforms;
+    protected transient Object[] sources;
+    protected transient Map<Object, SeriesTransform[]> unseen;
+
+    private transient double[] candidateContent;
+    private transient double candidateSum;
+    private transient double candidateSquaredSum;
+    private transient Map<Integer, double[]> candidateTransforms;
+
+    // transforms only hold precomputed tables once built, so one per length is shared by everything
+    private static final Map<Integer, DoubleFFT_1D> FFTS = new HashMap<>();
+
+    @Override
+    public void init(Instances data) {
+        super.init(data);
+        transforms = new SeriesTransform[data.numInstances()][];
+        sources = new Object[data.numInstances()];
+        unseen = new IdentityHashMap<>();
+        for(int i = 0; i < data.numInstances(); i++) {
+            sources[i] = data.get(i);
+            transforms[i] = new SeriesTransform[] {new SeriesTransform(data.get(i).toDoubleArray())};
+        }
+    }
+
+    @Override
+    public void init(TimeSeriesInstances data) {
+        super.init(data);
+        transforms = new SeriesTransform[data.numInstances()][];
+        sources = new Object[data.numInstances()];
+        unseen = new IdentityHashMap<>();
+        for(int i = 0; i < data.numInstances(); i++) {
+            sources[i] = data.get(i);
+            transforms[i] = transforms(data.get(i));
+        }
+    }
+
+    private SeriesTransform[] transforms(TimeSeriesInstance inst) {
+        final SeriesTransform[] dimensions = new SeriesTransform[inst.getNumDimensions()];
+        for(int d = 0; d < dimensions.length; d++) {
+            dimensions[d] = new SeriesTransform(inst.get(d).toValueArray());
+        }
+        return dimensions;
+    }
+
+    private SeriesTransform[] lookup(Object source, int timeSeriesId) {
+        if(sources != null && timeSeriesId >= 0 && timeSeriesId < sources.length && sources[timeSeriesId] == source) {
+            return transforms[timeSeriesId];
+        }
+        if(unseen == null) {
+            unseen = new IdentityHashMap<>();
+        }
+        return unseen.get(source);
+    }
+
+    @Override
+    public double calculate(Instance timeSeries, int timeSeriesId) {
+        if(!(seriesRescaler instanceof ZNormalisation)) {
+            return super.calculate(timeSeries, timeSeriesId);
+        }
+        SeriesTransform[] seriesTransforms = lookup(timeSeries, timeSeriesId);
+        if(seriesTransforms == null) {
+            seriesTransforms = new SeriesTransform[] {new SeriesTransform(timeSeries.toDoubleArray())};
+            unseen.put(timeSeries, seriesTransforms);
+        }
+        return calculate(seriesTransforms[0]);
+    }
+
+    @Override
+    public double calculate(TimeSeriesInstance timeSeriesInstance, int timeSeriesId) {
+        if(!(seriesRescaler instanceof ZNormalisation)) {
+            return super.calculate(timeSeriesInstance, timeSeriesId);
+        }
+        SeriesTransform[] seriesTransforms = lookup(timeSeriesInstance, timeSeriesId);
+        if(seriesTransforms == null) {
+            seriesTransforms = transforms(timeSeriesInstance);
+            unseen.put(timeSeriesInstance, seriesTransforms);
+        }
+        return calculate(seriesTransforms[dimension]);
+    }
+
+    @Override
+    public double calculate(double[] timeSeries, int timeSeriesId) {
+        if(!(seriesRescaler instanceof ZNormalisation)) {
+            return super.calculate(timeSeries, timeSeriesId);
+        }
+        return calculate(new SeriesTransform(timeSeries));
+    }
+
+    protected double calculate(SeriesTransform series) {
+        // same subsequences as the scan in ShapeletDistance, which stops one short of the end of the array
+        final int numWindows = series.length - length;
+        if(numWindows <= 0 || length == 0) {
+            // degenerate candidates, leave them to the scan
+            return super.calculate(series.values, -1);
+        }
+        final double[] dotProducts = dotProducts(series);
+        double bestSum = Double.MAX_VALUE;
+        for(int i = 0; i < numWindows; i++) {
+            incrementCount();
+            final double mean = series.mean(i, length);
+            final double stdv = series.stdv(i, length, mean);
+            double sum = candidateSquaredSum;
+            if(stdv != 0) {
+                // dot products are of the offset series, so shift the mean to match
+                final double crossProduct = (dotProducts[length - 1 + i] - (mean - series.offset) * candidateSum) / stdv;
+                sum += length - 2 * crossProduct;
+            }
+            if(sum < bestSum) {
+                bestSum = sum;
+            }
+        }
+        // rounding can leave a perfect match slightly negative
+        bestSum = Math.max(0, bestSum);
+        return (bestSum == 0.0) ? 0.0 : (1.0 / length * bestSum);
+    }
+
+    /**
+     * @return the correlation of the candidate with the offset series, where index length - 1 + i holds the dot product
+     * with the subsequence starting at i
+     */
+    private double[] dotProducts(SeriesTransform series) {
+        final double[] content = cand.getShapeletContent();
+        if(content != candidateContent) {
+            candidateContent = content;
+            candidateSum = 0;
+            candidateSquaredSum = 0;
+            for(double value : content) {
+                candidateSum += value;
+                candidateSquaredSum += value * value;
+            }
+            candidateTransforms = new HashMap<>();
+        }
+        final int fftLength = series.transform.length;
+        double[] candidateTransform = candidateTransforms.get(fftLength);
+        if(candidateTransform == null) {
+            candidateTransform = new double[fftLength];
+            // reversed so the convolution is a correlation
+            for(int k = 0; k < length; k++) {
+                candidateTransform[k] = content[length - 1 - k];
+            }
+            fft(fftLength).realForward(candidateTransform);
+            candidateTransforms.put(fftLength, candidateTransform);
+        }
+        final double[] product = new double[fftLength];
+        final double[] seriesTransform = series.transform;
+        // packed real transform: [0] and [1] hold the real dc and nyquist terms, then (re, im) pairs
+        product[0] = candidateTransform[0] * seriesTransform[0];
+        product[1] = candidateTransform[1] * seriesTransform[1];
+        for(int k = 2; k < fftLength; k += 2) {
+            product[k] = candidateTransform[k] * seriesTransform[k] - candidateTransform[k + 1] * seriesTransform[k + 1];
+            product[k + 1] = candidateTransform[k] * seriesTransform[k + 1] + candidateTransform[k + 1] * seriesTransform[k];
+        }
+        fft(fftLength).realInverse(product, true);
+        return product;
+    }
+
+    private static synchronized DoubleFFT_1D fft(int fftLength) {
+        return FFTS.computeIfAbsent(fftLength, DoubleFFT_1D::new);
+    }
+
+    /**
+     * Cumulative sums and the frequency transform of a series. Both are of the series shifted by its mean, which keeps
+     * the sums and products small for series with a large offset.
+     */
+    protected static class SeriesTransform {
+        private final double[] values;
+        private final int length;
+        private final double offset;
+        private final double[] sums;
+        private final double[] squaredSums;
+        private final double[] transform;
+
+        protected SeriesTransform(double[] values) {
+            this.values = values;
+            length = values.length;
+            double total = 0;
+            for(double value : values) {
+                total += value;
+            }
+            offset = length == 0 ? 0 : total / length;
+            sums = new double[length + 1];
+            squaredSums = new double[length + 1];
+            // circular correlation is enough as the wrapped outputs are never read
+            int fftLength = 2;
+            while(fftLength < length) {
+                fftLength <<= 1;
+            }
+            transform = new double[fftLength];
+            for(int i = 0; i < length; i++) {
+                final double value = values[i] - offset;
+                sums[i + 1] = sums[i] + value;
+                squaredSums[i + 1] = squaredSums[i] + value * value;
+                transform[i] = value;
+            }
+            fft(fftLength).realForward(transform);
+        }
+
+        private double mean(int start, int windowLength) {
+            return (sums[start + windowLength] - sums[start]) / windowLength + offset;
+        }
+
+        /**
+         * @return the population standard deviation of the window, or 0 if it is flat, as in ZNormalisation
+         */
+        private double stdv(int start, int windowLength, double mean) {
+            final double shiftedMean = mean - offset;
+            final double squares = (squaredSums[start + windowLength] - squaredSums[start]) / windowLength;
+            double variance = squares - shiftedMean * shiftedMean;
+            if(variance < CANCELLATION_THRESHOLD * squares) {
+                // too much cancellation to tell a flat window from a quiet one, so do it the long way
+                variance = 0;
+                for(int k = start; k < start + windowLength; k++) {
+                    final double deviation = values[k] - mean;
+                    variance += deviation * deviation;
+                }
+                variance /= windowLength;
+            }
+            return (variance < ROUNDING_ERROR_CORRECTION) ? 0.0 : Math.sqrt(variance);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+package tsml.transformers.shapelet_tools.distance_functions;
+
+import experiments.data.DatasetLoading;
+import org.junit.Assert;
+import org.junit.Test;
+import tsml.data_containers.TimeSeriesInstances;
+import tsml.data_containers.utilities.Converter;
+import weka.core.Instances;
+
+/**
+ * Purpose: test the MASS distance profile gives the same shapelet distances as the full scan.
+ */
+public class MASSShapeletDistanceTest {
+
+    @Test
+    public void testMatchesScan() throws Exception {
+        final Instances[] data = DatasetLoading.sampleGunPoint(0);
+        final TimeSeriesInstances train = Converter.fromArff(data[0]);
+        final TimeSeriesInstances test = Converter.fromArff(data[1]);
+        final ShapeletDistance scan = new ShapeletDistance();
+        final MASSShapeletDistance mass = new MASSShapeletDistance();
+        scan.init(train);
+        mass.init(train);
+        for(int length : new int[] {3, 20, 75, 149}) {
+            for(int start = 0; start + length <= train.getMinLength(); start += 37) {
+                scan.setCandidate(train.get(1), start, length, 0);
+                mass.setCandidate(train.get(1), start, length, 0);
+                for(int i = 0; i < train.numInstances(); i++) {
+                    Assert.assertEquals(scan.calculate(train.get(i), i), mass.calculate(train.get(i), i), 1e-8);
+                }
+                // series which weren't seen in init, indexed from 0 again as when transforming
+                for(int i = 0; i < 10; i++) {
+                    Assert.assertEquals(scan.calculate(test.get(i), i), mass.calculate(test.get(i), i), 1e-8);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMatchesScanOnInstances() throws Exception {
+        final Instances train = DatasetLoading.sampleItalyPowerDemand(0)[0];
+        final ShapeletDistance scan = new ShapeletDistance();
+        final MASSShapeletDistance mass = new MASSShapeletDistance();
+        scan.init(train);
+        mass.init(train);
+        for(int length = 3; length < 24; length += 5) {
+            scan.setCandidate(train.get(0), 2, length, 0);
+            mass.setCandidate(train.get(0), 2, length, 0);
+            for(int i = 0; i < train.numInstances(); i++) {
+                Assert.assertEquals(scan.calculate(train.get(i), i), mass.calculate(train.get(i), i), 1e-8);
+            }
+        }
+    }
+}
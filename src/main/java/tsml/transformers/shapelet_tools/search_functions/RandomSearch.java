@@ -92,6 +92,12 @@ public class RandomSearch extends ShapeletSearch{
         return length - minShapeletLength;
     }
       
+    //the random positions are drawn regardless of the results of earlier candidates
+    @Override
+    public boolean hasIndependentCandidates(){
+        return getClass() == RandomSearch.class;
+    }
+
     public long getNumPerSeries(){ return numShapeletsPerSeries;}
     protected Shapelet visitCandidate(Instance series, int start, int length, ProcessCandidate checkCandidate){
         initVisitedMemory(series.numAttributes(), length);
@@ -227,6 +227,15 @@ public class ShapeletSearch implements Serializable{
         seriesCount++;
         return seriesShapelets;
     }
+    /**
+     * Whether the candidates visited are fixed before any are evaluated, i.e. they do not depend on the shapelets
+     * returned by checkCandidate. If so the candidates can be gathered first and evaluated concurrently. True for full
+     * enumeration, subclasses which adapt the search to the results must not return true.
+     */
+    public boolean hasIndependentCandidates(){
+        return getClass() == ShapeletSearch.class;
+    }
+
     public int getMinShapeletLength(){
         return minShapeletLength;
     }
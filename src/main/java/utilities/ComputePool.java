@@ -0,0 +1,276 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+package utilities;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A single work stealing pool shared by everything which computes in parallel, so nested parallelism (e.g. a
+ * multithreaded HIVE-COTE inside a multithreaded cross validation inside threaded experiments) composes without
+ * every level spawning its own threads.
+ *
+ * Rather than building their own thread pool, MultiThreadable classes ask for an executor through
+ * newExecutor(numThreads). This is a lightweight view of the shared pool which runs at most numThreads of its tasks
+ * at once. It owns no threads: shutting it down only stops it accepting tasks, and one which is never shut down
+ * leaks nothing. Across all views, the shared pool runs at most getParallelism() tasks at once. This defaults to the
+ * number of available processors, and can be set with the tsml.parallelism system property or setParallelism.
+ *
+ * A thread waiting on a future from one of these executors runs the task itself if it has not started yet. Pool
+ * threads waiting on nested tasks therefore do that work rather than idle, and nested waits cannot deadlock the
+ * pool. A pool thread blocked on a task already running elsewhere is temporarily replaced by the pool.
+ */
+public class ComputePool {
+
+    public static final String PARALLELISM_PROPERTY = "tsml.parallelism";
+
+    private static volatile ForkJoinPool pool;
+
+    private ComputePool() {}
+
+    /**
+     * @return the pool shared by all executors from newExecutor, built on first use
+     */
+    public static ForkJoinPool getPool() {
+        ForkJoinPool result = pool;
+        if (result == null) {
+            synchronized (ComputePool.class) {
+                if (pool == null) {
+                    String property = System.getProperty(PARALLELISM_PROPERTY);
+                    pool = buildPool(property == null ? Runtime.getRuntime().availableProcessors()
+                            : Integer.parseInt(property.trim()));
+                }
+                result = pool;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the maximum number of tasks run at once across the whole codebase
+     */
+    public static int getParallelism() {
+        return getPool().getParallelism();
+    }
+
+    /**
+     * Caps the number of tasks run at once across the whole codebase. Tasks already handed to the current pool
+     * finish there, everything submitted afterwards runs in a pool of the new size.
+     */
+    public static synchronized void setParallelism(int parallelism) {
+        if (pool != null && pool.getParallelism() == parallelism)
+            return;
+        ForkJoinPool old = pool;
+        pool = buildPool(parallelism);
+        if (old != null)
+            old.shutdown();
+    }
+
+    /**
+     * Returns an executor which runs at most numThreads of its tasks at once, in the shared pool. There is no need
+     * to shut it down, but shutdown and awaitTermination behave as for any other executor.
+     */
+    public static ExecutorService newExecutor(int numThreads) {
+        return new BoundedExecutor(numThreads);
+    }
+
+    private static ForkJoinPool buildPool(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism must be at least 1, was " + parallelism);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ForkJoinPool.ForkJoinWorkerThreadFactory factory = p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("tsml-compute-" + threadCount.getAndIncrement());
+            return thread;
+        };
+        return new ForkJoinPool(parallelism, factory, null, false);
+    }
+
+    private static class BoundedExecutor extends AbstractExecutorService {
+
+        private final int numThreads;
+        private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+        // tasks handed to the pool which have not finished yet
+        private final AtomicInteger running = new AtomicInteger();
+        private volatile boolean shutdown = false;
+
+        private BoundedExecutor(int numThreads) {
+            this.numThreads = Math.max(1, numThreads);
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            Objects.requireNonNull(task);
+            if (shutdown)
+                throw new RejectedExecutionException("executor has been shut down");
+            queue.add(task);
+            dispatch();
+        }
+
+        // hands queued tasks to the pool while fewer than numThreads are running
+        private void dispatch() {
+            while (!queue.isEmpty()) {
+                int current = running.get();
+                if (current >= numThreads)
+                    return;
+                if (!running.compareAndSet(current, current + 1))
+                    continue;
+
+                Runnable task = queue.poll();
+                if (task == null) {
+                    running.decrementAndGet();
+                    continue;
+                }
+                getPool().execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        finished();
+                    }
+                });
+            }
+        }
+
+        private void finished() {
+            running.decrementAndGet();
+            dispatch();
+            if (isTerminated()) {
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+        }
+
+        @Override
+        protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+            return new Task<>(runnable, value);
+        }
+
+        @Override
+        protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+            return new Task<>(callable);
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+            if (isTerminated()) {
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown();
+            List<Runnable> pending = new ArrayList<>();
+            for (Runnable task; (task = queue.poll()) != null; )
+                pending.add(task);
+            return pending;
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return shutdown && running.get() == 0 && queue.isEmpty();
+        }
+
+        // a managed block, so a pool thread waiting here is replaced while it waits. Otherwise, when called from a
+        // task of another executor, the wrappers of tasks this one handed to the pool can sit unrun in the waiting
+        // thread's own queue, even once their futures are done
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+                @Override
+                public boolean block() throws InterruptedException {
+                    synchronized (BoundedExecutor.this) {
+                        while (!isReleasable())
+                            TimeUnit.NANOSECONDS.timedWait(BoundedExecutor.this, deadline - System.nanoTime());
+                    }
+                    return true;
+                }
+
+                @Override
+                public boolean isReleasable() {
+                    return isTerminated() || deadline - System.nanoTime() <= 0;
+                }
+            });
+            return isTerminated();
+        }
+    }
+
+    // a future which the waiting thread runs itself if no pool thread has started it yet. If it is still queued
+    // when a pool thread gets to it, FutureTask.run does nothing
+    private static class Task<T> extends FutureTask<T> implements ForkJoinPool.ManagedBlocker {
+
+        private Task(Callable<T> callable) {
+            super(callable);
+        }
+
+        private Task(Runnable runnable, T value) {
+            super(runnable, value);
+        }
+
+        @Override
+        public T get() throws InterruptedException, ExecutionException {
+            if (!isDone()) {
+                run();
+                if (!isDone())
+                    ForkJoinPool.managedBlock(this);
+            }
+            return super.get();
+        }
+
+        @Override
+        public boolean block() throws InterruptedException {
+            try {
+                super.get();
+            } catch (ExecutionException | CancellationException e) {
+                // reported by get
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return isDone();
+        }
+    }
+}
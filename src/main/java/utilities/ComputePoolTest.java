@@ -0,0 +1,130 @@
+package utilities;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ComputePoolTest {
+
+    @Test
+    public void testNumThreadsIsRespected() throws Exception {
+        final ExecutorService executor = ComputePool.newExecutor(2);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger mostRunning = new AtomicInteger();
+        final List<Future<?>> futures = new ArrayList<>();
+        for(int i = 0; i < 20; i++) {
+            futures.add(executor.submit(() -> {
+                mostRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(5);
+                } catch(InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                running.decrementAndGet();
+            }));
+        }
+        for(Future<?> future : futures) {
+            future.get();
+        }
+        Assert.assertTrue(mostRunning.get() <= 2);
+    }
+
+    @Test(timeout = 30000)
+    public void testNestedExecutorsDoNotDeadlock() throws Exception {
+        // more outer tasks than the pool has threads, each blocking on inner tasks
+        final int numOuter = ComputePool.getParallelism() * 4;
+        final ExecutorService outer = ComputePool.newExecutor(numOuter);
+        final List<Callable<Integer>> outerTasks = new ArrayList<>();
+        for(int i = 0; i < numOuter; i++) {
+            outerTasks.add(() -> {
+                final ExecutorService inner = ComputePool.newExecutor(4);
+                final List<Callable<Integer>> innerTasks = new ArrayList<>();
+                for(int j = 0; j < 8; j++) {
+                    final int value = j;
+                    innerTasks.add(() -> value);
+                }
+                int sum = 0;
+                for(Future<Integer> future : inner.invokeAll(innerTasks)) {
+                    sum += future.get();
+                }
+                return sum;
+            });
+        }
+        for(Future<Integer> future : outer.invokeAll(outerTasks)) {
+            Assert.assertEquals(28, (int) future.get());
+        }
+    }
+
+    @Test(timeout = 120000)
+    public void testNestedComputeAllTerminates() throws Exception {
+        final int parallelism = ComputePool.getParallelism();
+        try {
+            for(int p = 1; p <= 4; p++) {
+                ComputePool.setParallelism(p);
+                // inner executors shut down by computeAll, and waited on directly
+                for(final boolean viaComputeAll : new boolean[] {true, false}) {
+                    final ExecutorService outer = ComputePool.newExecutor(2);
+                    final List<Future<Integer>> futures = new ArrayList<>();
+                    for(int i = 0; i < 2; i++) {
+                        futures.add(outer.submit(() -> {
+                            final ExecutorService inner = ComputePool.newExecutor(2);
+                            final List<Callable<Integer>> innerTasks = new ArrayList<>();
+                            for(int j = 0; j < 8; j++) {
+                                final int value = j;
+                                innerTasks.add(() -> value);
+                            }
+                            int sum = 0;
+                            if(viaComputeAll) {
+                                for(int value : ThreadingUtilities.computeAll(inner, innerTasks, true)) {
+                                    sum += value;
+                                }
+                            } else {
+                                for(Future<Integer> future : inner.invokeAll(innerTasks)) {
+                                    sum += future.get();
+                                }
+                                inner.shutdown();
+                                Assert.assertTrue(inner.awaitTermination(15, TimeUnit.SECONDS));
+                            }
+                            return sum;
+                        }));
+                    }
+                    for(Future<Integer> future : futures) {
+                        Assert.assertEquals(28, (int) future.get());
+                    }
+                    outer.shutdown();
+                    Assert.assertTrue(outer.awaitTermination(15, TimeUnit.SECONDS));
+                }
+            }
+        } finally {
+            ComputePool.setParallelism(parallelism);
+        }
+    }
+
+    @Test
+    public void testShutdown() throws Exception {
+        final ExecutorService executor = ComputePool.newExecutor(1);
+        final AtomicInteger count = new AtomicInteger();
+        for(int i = 0; i < 10; i++) {
+            executor.execute(count::incrementAndGet);
+        }
+        executor.shutdown();
+        Assert.assertTrue(executor.isShutdown());
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        Assert.assertTrue(executor.isTerminated());
+        Assert.assertEquals(10, count.get());
+        try {
+            executor.execute(count::incrementAndGet);
+            Assert.fail();
+        } catch(RejectedExecutionException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * This file is part of the UEA Time Series Machine Learning (TSML) toolbox.
+ *
+ * The UEA TSML toolbox is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published 
+ * by the Free Software Foundation, either version 3 of the License, or 
+ * (at your option) any later version.
+ *
+ * The UEA TSML toolbox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the UEA TSML toolbox. If not, see <https://www.gnu.org/licenses/>.
+ */
+ 
+package utilities;
+
+import tsml.classifiers.distance_based.distances.DistanceMeasure;
+import tsml.classifiers.distance_based.utils.system.copy.CopierUtils;
+import tsml.data_containers.TimeSeriesInstances;
+import weka.core.ChebyshevDistance;
+import weka.core.DistanceFunction;
+import weka.core.EuclideanDistance;
+import weka.core.Instances;
+import weka.core.ManhattanDistance;
+import weka.core.MinkowskiDistance;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Symmetric pairwise distance matrix with a zero diagonal, storing only the strictly lower triangle packed row by
+ * row. The packed values are split over fixed size pages so matrices of more than 2^31 pairs can be held.
+ *
+ * The compute methods fill the matrix from a weka DistanceFunction or a tsml DistanceMeasure, optionally across
+ * threads. Rows are split into one contiguous band of roughly equal pair count per thread, and each band is worked
+ * through in square tiles so the instances of a tile stay in cache while their pairs are computed. Each thread uses
+ * its own copy of the distance function, as most keep working buffers between calls, except for the stateless weka
+ * metrics (Euclidean, Manhattan, Chebyshev and Minkowski) which are shared.
+ */
+public class DistanceMatrix implements Serializable {
+
+    private static final int PAGE_BITS = 24;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int TILE_SIZE = 64;
+
+    private final int size;
+    private final double[][] pages;
+
+    public DistanceMatrix(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("size must be non-negative: " + size);
+        }
+        this.size = size;
+        long numPairs = numPairsBefore(size);
+        pages = new double[(int) ((numPairs + PAGE_SIZE - 1) >>> PAGE_BITS)][];
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] = new double[(int) Math.min(PAGE_SIZE, numPairs - ((long) i << PAGE_BITS))];
+        }
+    }
+
+    /**
+     * Packs a jagged lower triangle, where row i holds at least the distances from i to 0..i-1.
+     */
+    public static DistanceMatrix fromLowerTriangle(double[][] lowerTriangle) {
+        DistanceMatrix matrix = new DistanceMatrix(lowerTriangle.length);
+        for (int i = 1; i < lowerTriangle.length; i++) {
+            for (int n = 0; n < i; n++) {
+                matrix.set(i, n, lowerTriangle[i][n]);
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * @return a jagged lower triangle where row i holds the distances from i to 0..i, the last being the zero
+     * diagonal
+     */
+    public double[][] toLowerTriangle() {
+        double[][] lowerTriangle = new double[size][];
+        for (int i = 0; i < size; i++) {
+            lowerTriangle[i] = new double[i + 1];
+            for (int n = 0; n < i; n++) {
+                lowerTriangle[i][n] = get(i, n);
+            }
+        }
+        return lowerTriangle;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the distance between instances i and j, in either order. The distance from an instance to itself is 0.
+     */
+    public double get(int i, int j) {
+        if (i == j) {
+            return 0;
+        }
+        long index = i > j ? numPairsBefore(i) + j : numPairsBefore(j) + i;
+        return pages[(int) (index >>> PAGE_BITS)][(int) (index & PAGE_MASK)];
+    }
+
+    /**
+     * Sets the distance between two distinct instances i and j, in either order.
+     */
+    public void set(int i, int j, double distance) {
+        if (i == j) {
+            throw new IllegalArgumentException("the diagonal is fixed at 0: " + i);
+        }
+        long index = i > j ? numPairsBefore(i) + j : numPairsBefore(j) + i;
+        pages[(int) (index >>> PAGE_BITS)][(int) (index & PAGE_MASK)] = distance;
+    }
+
+    private static long numPairsBefore(int row) {
+        return (long) row * (row - 1) / 2;
+    }
+
+    public static DistanceMatrix compute(Instances data, DistanceFunction distFunc) throws Exception {
+        return compute(data, distFunc, 1);
+    }
+
+    public static DistanceMatrix compute(Instances data, DistanceFunction distFunc, int numThreads) throws Exception {
+        distFunc.setInstances(data);
+        Supplier<PairDistance> copies;
+        Class<?> type = distFunc.getClass();
+        if (type == EuclideanDistance.class || type == ManhattanDistance.class || type == ChebyshevDistance.class
+                || type == MinkowskiDistance.class) {
+            // settle the lazily computed attribute ranges before sharing between threads
+            if (data.numInstances() > 1) {
+                distFunc.distance(data.get(0), data.get(1));
+            }
+            copies = () -> (i, j) -> distFunc.distance(data.get(i), data.get(j));
+        } else {
+            copies = copies(distFunc, copy -> (i, j) -> copy.distance(data.get(i), data.get(j)));
+        }
+        return compute(data.numInstances(), copies, numThreads);
+    }
+
+    public static DistanceMatrix compute(TimeSeriesInstances data, DistanceMeasure distanceMeasure)
+            throws Exception {
+        return compute(data, distanceMeasure, 1);
+    }
+
+    public static DistanceMatrix compute(TimeSeriesInstances data, DistanceMeasure distanceMeasure, int numThreads)
+            throws Exception {
+        distanceMeasure.buildDistanceMeasure(data);
+        return compute(data.numInstances(),
+                copies(distanceMeasure, copy -> (i, j) -> copy.distance(data.get(i), data.get(j))), numThreads);
+    }
+
+    /**
+     * Hands out the original distance function first, then deep copies of it, so a single thread copies nothing.
+     */
+    private static <A> Supplier<PairDistance> copies(A distance, Function<A, PairDistance> wrap) {
+        return new Supplier<PairDistance>() {
+            private boolean first = true;
+            private byte[] serialised;
+
+            @Override
+            public synchronized PairDistance get() {
+                if (first) {
+                    first = false;
+                    return wrap.apply(distance);
+                }
+                if (serialised == null) {
+                    serialised = CopierUtils.serialise(distance);
+                }
+                return wrap.apply(CopierUtils.deserialise(serialised));
+            }
+        };
+    }
+
+    private static DistanceMatrix compute(int size, Supplier<PairDistance> distances, int numThreads)
+            throws Exception {
+        DistanceMatrix matrix = new DistanceMatrix(size);
+        // split the rows into bands of roughly equal pair counts, one per thread
+        int numBands = Math.max(1, Math.min(numThreads, size / TILE_SIZE));
+        if (numBands == 1) {
+            matrix.fillRows(0, size, distances.get());
+            return matrix;
+        }
+
+        long numPairs = numPairsBefore(size);
+        List<Callable<Object>> tasks = new ArrayList<>(numBands);
+        int start = 0;
+        for (int b = 1; b <= numBands; b++) {
+            int end = b == numBands ? size : rowWithPairsBefore(numPairs * b / numBands);
+            if (end <= start) {
+                continue;
+            }
+            int bandStart = start;
+            int bandEnd = end;
+            tasks.add(() -> {
+                matrix.fillRows(bandStart, bandEnd, distances.get());
+                return null;
+            });
+            start = end;
+        }
+
+        ExecutorService executor = ComputePool.newExecutor(numThreads);
+        try {
+            for (Future<Object> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return matrix;
+    }
+
+    /**
+     * @return the first row whose packed offset is at least the given number of pairs
+     */
+    private static int rowWithPairsBefore(long pairs) {
+        int row = (int) Math.floor((1 + Math.sqrt(1 + 8.0 * pairs)) / 2);
+        while (row > 0 && numPairsBefore(row) > pairs) {
+            row--;
+        }
+        while (numPairsBefore(row) < pairs) {
+            row++;
+        }
+        return row;
+    }
+
+    private void fillRows(int start, int end, PairDistance distance) {
+        for (int colStart = 0; colStart < end - 1; colStart += TILE_SIZE) {
+            int colEnd = Math.min(colStart + TILE_SIZE, end - 1);
+            for (int rowStart = Math.max(start, colStart + 1); rowStart < end; rowStart += TILE_SIZE) {
+                int rowEnd = Math.min(rowStart + TILE_SIZE, end);
+                for (int i = rowStart; i < rowEnd; i++) {
+                    long offset = numPairsBefore(i);
+                    for (int n = colStart; n < Math.min(colEnd, i); n++) {
+                        long index = offset + n;
+                        pages[(int) (index >>> PAGE_BITS)][(int) (index & PAGE_MASK)] = distance.distance(i, n);
+                    }
+                }
+            }
+        }
+    }
+
+    private interface PairDistance {
+        double distance(int i, int j);
+    }
+}
@@ -0,0 +1,61 @@
+package utilities;
+
+import experiments.data.DatasetLoading;
+import org.junit.Assert;
+import org.junit.Test;
+import tsml.classifiers.distance_based.distances.dtw.DTWDistance;
+import tsml.data_containers.TimeSeriesInstances;
+import tsml.data_containers.utilities.Converter;
+import weka.core.EuclideanDistance;
+import weka.core.Instances;
+
+/**
+ * Purpose: test the packed matrix computed in tiles across threads matches a plain double loop.
+ */
+public class DistanceMatrixTest {
+
+    @Test
+    public void testDistanceFunctionMatchesSerialLoop() throws Exception {
+        final Instances data = DatasetLoading.sampleGunPoint(0)[1];
+        final EuclideanDistance ed = new EuclideanDistance();
+        final DistanceMatrix matrix = DistanceMatrix.compute(data, ed, 4);
+        ed.setInstances(data);
+        Assert.assertEquals(data.numInstances(), matrix.size());
+        for(int i = 0; i < data.numInstances(); i++) {
+            Assert.assertEquals(0, matrix.get(i, i), 0);
+            for(int j = 0; j < i; j++) {
+                final double expected = ed.distance(data.get(i), data.get(j));
+                Assert.assertEquals(expected, matrix.get(i, j), 0);
+                Assert.assertEquals(expected, matrix.get(j, i), 0);
+            }
+        }
+    }
+
+    @Test
+    public void testDistanceMeasureMatchesSerialLoop() throws Exception {
+        final TimeSeriesInstances data = Converter.fromArff(DatasetLoading.sampleGunPoint(0)[1]);
+        final DTWDistance dtw = new DTWDistance();
+        dtw.setWindow(0.2);
+        final DistanceMatrix matrix = DistanceMatrix.compute(data, dtw, 4);
+        for(int i = 0; i < data.numInstances(); i++) {
+            for(int j = 0; j < i; j++) {
+                Assert.assertEquals(dtw.distance(data.get(i), data.get(j)), matrix.get(i, j), 0);
+            }
+        }
+    }
+
+    @Test
+    public void testLowerTriangleRoundTrip() {
+        final double[][] lowerTriangle = new double[5][];
+        for(int i = 0; i < lowerTriangle.length; i++) {
+            lowerTriangle[i] = new double[i + 1];
+            for(int j = 0; j < i; j++) {
+                lowerTriangle[i][j] = i * 10 + j;
+            }
+        }
+        final DistanceMatrix matrix = DistanceMatrix.fromLowerTriangle(lowerTriangle);
+        Assert.assertEquals(21, matrix.get(1, 2), 0);
+        Assert.assertEquals(43, matrix.get(3, 4), 0);
+        Assert.assertArrayEquals(lowerTriangle, matrix.toLowerTriangle());
+    }
+}
@@ -194,6 +194,48 @@ public class GenericTools {
         }
     }
 
+    /**
+     * Returns the indices of values in ascending order of value, equal values keeping their original order. The same
+     * ordering as sorting getIndicies() with a SortIndexAscending, without boxing the indices.
+     */
+    public static int[] sortIndexAscending(double[] values){
+        int[] indices = new int[values.length];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = i;
+        }
+        mergeSortIndices(values, indices, new int[indices.length], 0, indices.length);
+        return indices;
+    }
+
+    private static void mergeSortIndices(double[] values, int[] indices, int[] buffer, int start, int end){
+        if (end - start < 8) {
+            //insertion sort, stable as only strictly greater values are moved
+            for (int i = start + 1; i < end; i++) {
+                int idx = indices[i];
+                int j = i - 1;
+                while (j >= start && values[indices[j]] > values[idx]) {
+                    indices[j + 1] = indices[j];
+                    j--;
+                }
+                indices[j + 1] = idx;
+            }
+            return;
+        }
+
+        int mid = (start + end) >>> 1;
+        mergeSortIndices(values, indices, buffer, start, mid);
+        mergeSortIndices(values, indices, buffer, mid, end);
+
+        System.arraycopy(indices, start, buffer, start, end - start);
+        int i = start, j = mid, k = start;
+        while (i < mid && j < end) {
+            //take from the right half only if strictly smaller, keeping equal values in order
+            indices[k++] = values[buffer[j]] < values[buffer[i]] ? buffer[j++] : buffer[i++];
+        }
+        while (i < mid) indices[k++] = buffer[i++];
+        while (j < end) indices[k++] = buffer[j++];
+    }
+
     public static double[] linSpace(int numValues, double min, double max){
         double[] d = new double[numValues];
         double step = (max-min)/(numValues-1);
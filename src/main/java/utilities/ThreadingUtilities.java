@@ -22,7 +22,6 @@ import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
@@ -34,16 +33,22 @@ import java.util.concurrent.TimeUnit;
  */
 public class ThreadingUtilities {
 
+    /**
+     * Returns an executor running at most numThreads tasks at once in the pool shared by the whole codebase, see
+     * ComputePool. Nested uses share the same threads rather than each spawning their own.
+     */
     public static ExecutorService buildExecutorService(int numThreads) { 
-        //todo look into queues etc
-        return Executors.newFixedThreadPool(numThreads);
+        return ComputePool.newExecutor(numThreads);
     }
         
     public static void shutdownExecutor(ExecutorService executor) {
-        //todo maybe add timer to while, for general expected usecase in this codebase 
-        //this should be fine though
+        //waits rather than spinning, as a spinning thread takes a core from the shared pool doing the work
         executor.shutdown();
-        while (!executor.isTerminated()) { }
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
     
     /**
@@ -55,8 +60,10 @@ public class ThreadingUtilities {
     public static <T> List<T> computeAll(ExecutorService executor, List<Callable<T>> jobs, boolean shutdownExecutorOnCompletion) throws InterruptedException, ExecutionException {
         List<T> results = gatherAll(submitAll(executor, jobs));
         
+        //every job is done, so there is nothing to wait for. waiting anyway would hold up a caller which is
+        //itself a task in the shared pool until the pool got round to retiring these jobs
         if (shutdownExecutorOnCompletion)
-            shutdownExecutor(executor);
+            executor.shutdown();
         
         return results;
     }
@@ -85,8 +92,9 @@ public class ThreadingUtilities {
         
         List<Exception> results = gatherAll(futureResults);
         
+        //as for computeAll, every job is done
         if (shutdownExecutorOnCompletion)
-            shutdownExecutor(executor);
+            executor.shutdown();
         
         return results;
     }